@@ -103,6 +103,7 @@
 # - ZWE_configs_storage_evictionStrategy
 # - ZWE_configs_storage_mode
 # - ZWE_configs_storage_size
+# - ZWE_configs_storage_inMemory_maxBytes
 # - ZWE_configs_storage_vsam_name
 # Optional variables:
 
@@ -394,6 +395,7 @@ _BPX_JOBNAME=${ZWE_zowe_job_prefix}${APIML_CODE} ${JAVA_BIN_DIR}java \
     -Dapiml.service.port=${ZWE_components_gateway_port:-${ZWE_configs_port:-7554}} \
     -Dapiml.zoweManifest=${ZWE_zowe_runtimeDirectory}/manifest.json \
     -Dcaching.storage.evictionStrategy=${ZWE_configs_storage_evictionStrategy:-${ZWE_components_caching_service_storage_evictionStrategy:-reject}} \
+    -Dcaching.storage.inMemory.maxBytes=${ZWE_configs_storage_inMemory_maxBytes:-${ZWE_components_caching_service_storage_inMemory_maxBytes:-0}} \
     -Dcaching.storage.infinispan.initialHosts=${ZWE_configs_storage_infinispan_initialHosts:-${ZWE_components_caching_service_storage_infinispan_initialHosts:-"localhost[7600]"}} \
     -Dcaching.storage.mode=${ZWE_configs_storage_mode:-${ZWE_components_caching_service_storage_mode:-infinispan}} \
     -Dcaching.storage.size=${ZWE_configs_storage_size:-${ZWE_components_caching_service_storage_size:-10000}} \
@@ -0,0 +1,93 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+
+package org.zowe.apiml.security.common.auth.saf;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.Authentication;
+
+import java.time.Duration;
+
+/**
+ * Remembers the decisions of another {@link SafResourceAccessVerifying} for a short time, the same user usually checks
+ * the same resource repeatedly. Both granted and denied access are remembered (the denied one for a different time),
+ * errors are not. The decisions could be flushed by {@link #flush()}, i.e. after a change of the permissions in SAF.
+ */
+@Slf4j
+public class SafResourceAccessCaching implements SafResourceAccessVerifying {
+
+    private final SafResourceAccessVerifying delegate;
+    private final Cache<Decision, Boolean> decisions;
+
+    /**
+     * @param delegate    implementation which makes the decisions
+     * @param ttl         time to remember the granted access
+     * @param negativeTtl time to remember the denied access
+     * @param maxSize     maximum number of remembered decisions
+     */
+    public SafResourceAccessCaching(SafResourceAccessVerifying delegate, Duration ttl, Duration negativeTtl, long maxSize) {
+        this.delegate = delegate;
+        this.decisions = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfter(new DecisionExpiry(ttl.toNanos(), negativeTtl.toNanos()))
+            .build();
+    }
+
+    @Override
+    public boolean hasSafResourceAccess(Authentication authentication, String resourceClass, String resourceName, String accessLevel) {
+        String userId = authentication.getName();
+        if (userId == null) {
+            return delegate.hasSafResourceAccess(authentication, resourceClass, resourceName, accessLevel);
+        }
+
+        Decision key = new Decision(userId, resourceClass, resourceName, accessLevel);
+        Boolean decision = decisions.getIfPresent(key);
+        if (decision == null) {
+            decision = delegate.hasSafResourceAccess(authentication, resourceClass, resourceName, accessLevel);
+            decisions.put(key, decision);
+        }
+        return decision;
+    }
+
+    /**
+     * Forget all remembered decisions.
+     */
+    public void flush() {
+        log.debug("Flushing {} remembered SAF resource access decisions", decisions.estimatedSize());
+        decisions.invalidateAll();
+    }
+
+    record Decision(String userId, String resourceClass, String resourceName, String accessLevel) {
+    }
+
+    private record DecisionExpiry(long ttl, long negativeTtl) implements Expiry<Decision, Boolean> {
+
+        @Override
+        public long expireAfterCreate(Decision key, Boolean value, long currentTime) {
+            return Boolean.TRUE.equals(value) ? ttl : negativeTtl;
+        }
+
+        @Override
+        public long expireAfterUpdate(Decision key, Boolean value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Decision key, Boolean value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+    }
+
+}
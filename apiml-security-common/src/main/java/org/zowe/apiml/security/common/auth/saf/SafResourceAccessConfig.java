@@ -19,6 +19,7 @@ import org.springframework.web.client.RestTemplate;
 import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.Arrays;
 
 @Configuration
@@ -37,6 +38,18 @@ public class SafResourceAccessConfig {
     @Value("${apiml.security.authorization.endpoint.enabled:false}")
     private boolean endpointEnabled;
 
+    /**
+     * Seconds to remember the granted access, 0 disables the cache of decisions
+     */
+    @Value("${apiml.security.authorization.cache.ttl:30}")
+    private int cacheTtl;
+
+    @Value("${apiml.security.authorization.cache.negativeTtl:10}")
+    private int cacheNegativeTtl;
+
+    @Value("${apiml.security.authorization.cache.maxSize:10000}")
+    private long cacheMaxSize;
+
     protected SafResourceAccessVerifying createEndpoint(RestTemplate restTemplate, AuthConfigurationProperties authConfigurationProperties) {
         return new SafResourceAccessEndpoint(restTemplate, authConfigurationProperties);
     }
@@ -78,15 +91,24 @@ public class SafResourceAccessConfig {
         }
     }
 
+    private SafResourceAccessVerifying withCache(SafResourceAccessVerifying srv) {
+        if ((srv == null) || (cacheTtl <= 0)) {
+            return srv;
+        }
+
+        return new SafResourceAccessCaching(srv,
+            Duration.ofSeconds(cacheTtl), Duration.ofSeconds(Math.max(0, cacheNegativeTtl)), cacheMaxSize);
+    }
+
     @Bean
     public SafResourceAccessVerifying safResourceAccessVerifying(RestTemplate restTemplate, AuthConfigurationProperties authConfigurationProperties) {
         if (!StringUtils.isEmpty(provider)) {
-            return create(restTemplate, authConfigurationProperties, provider, true);
+            return withCache(create(restTemplate, authConfigurationProperties, provider, true));
         }
 
         for (String type : PROVIDERS) {
             SafResourceAccessVerifying srv = create(restTemplate, authConfigurationProperties, type, false);
-            if (srv != null) return srv;
+            if (srv != null) return withCache(srv);
         }
 
         return null;
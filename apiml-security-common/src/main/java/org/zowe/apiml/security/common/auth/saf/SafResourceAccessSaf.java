@@ -16,6 +16,7 @@ import org.springframework.security.core.Authentication;
 
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 
 @Slf4j
@@ -24,6 +25,7 @@ public class SafResourceAccessSaf implements SafResourceAccessVerifying {
     private static final String PLATFORM_ACCESS_CONTROL_CLASS_NAME = "com.ibm.os390.security.PlatformAccessControl";
     private static final String PLATFORM_PLATFORM_CLASS_NAME = "com.ibm.os390.security.PlatformReturned";
     private static final String CHECK_PERMISSION_METHOD_NAME = "checkPermission";
+    private static final MethodType CHECK_PERMISSION_TYPE = MethodType.methodType(Object.class, String.class, String.class, String.class, int.class);
 
     private PlatformReturnedHelper<Object> platformReturnedHelper;
     private MethodHandle checkPermission;
@@ -47,7 +49,8 @@ public class SafResourceAccessSaf implements SafResourceAccessVerifying {
 
     private void init() throws ClassNotFoundException, IllegalAccessException, NoSuchMethodException, NoSuchFieldException {
         platformReturnedHelper = new PlatformReturnedHelper<>((Class<Object>) getPlatformReturnedClass());
-        checkPermission = getCheckPermissionMethodHandle(getPlatformClass());
+        // adapted once to the exact type to avoid the conversion of arguments on each call
+        checkPermission = getCheckPermissionMethodHandle(getPlatformClass()).asType(CHECK_PERMISSION_TYPE);
     }
 
     private boolean evaluatePlatformReturned(PlatformReturned returned, boolean resourceHasToExist) {
@@ -80,7 +83,7 @@ public class SafResourceAccessSaf implements SafResourceAccessVerifying {
 
     private PlatformReturned checkPermission(String userId, String resourceType, String resourceName, int accessLevel) {
         try {
-            Object platformReturned = checkPermission.invokeWithArguments(userId, resourceType, resourceName, accessLevel);
+            Object platformReturned = (Object) checkPermission.invokeExact(userId, resourceType, resourceName, accessLevel);
             return platformReturnedHelper.convert(platformReturned);
         } catch (RuntimeException re) {
             throw re;
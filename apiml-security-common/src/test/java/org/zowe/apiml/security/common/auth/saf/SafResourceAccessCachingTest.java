@@ -0,0 +1,118 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+
+package org.zowe.apiml.security.common.auth.saf;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SafResourceAccessCachingTest {
+
+    private static final String CLASS = "ZOWE";
+    private static final String RESOURCE = "APIML.SERVICES";
+    private static final String LEVEL = AccessLevel.READ.name();
+
+    private final Authentication user = new UsernamePasswordAuthenticationToken("USER", "token");
+    private final Authentication otherUser = new UsernamePasswordAuthenticationToken("OTHER", "token");
+
+    private SafResourceAccessVerifying delegate;
+    private SafResourceAccessCaching underTest;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(SafResourceAccessVerifying.class);
+        underTest = new SafResourceAccessCaching(delegate, Duration.ofMinutes(1), Duration.ofMinutes(1), 100);
+    }
+
+    @Nested
+    class WhenCheckingRepeatedly {
+
+        @Test
+        void givenGrantedAccess_thenDelegateIsCalledOnce() {
+            when(delegate.hasSafResourceAccess(user, CLASS, RESOURCE, LEVEL)).thenReturn(true);
+
+            assertTrue(underTest.hasSafResourceAccess(user, CLASS, RESOURCE, LEVEL));
+            assertTrue(underTest.hasSafResourceAccess(user, CLASS, RESOURCE, LEVEL));
+
+            verify(delegate, times(1)).hasSafResourceAccess(user, CLASS, RESOURCE, LEVEL);
+        }
+
+        @Test
+        void givenDeniedAccess_thenDelegateIsCalledOnce() {
+            when(delegate.hasSafResourceAccess(user, CLASS, RESOURCE, LEVEL)).thenReturn(false);
+
+            assertFalse(underTest.hasSafResourceAccess(user, CLASS, RESOURCE, LEVEL));
+            assertFalse(underTest.hasSafResourceAccess(user, CLASS, RESOURCE, LEVEL));
+
+            verify(delegate, times(1)).hasSafResourceAccess(user, CLASS, RESOURCE, LEVEL);
+        }
+
+        @Test
+        void givenDifferentUserOrLevel_thenDecisionsAreSeparated() {
+            when(delegate.hasSafResourceAccess(user, CLASS, RESOURCE, LEVEL)).thenReturn(true);
+
+            assertTrue(underTest.hasSafResourceAccess(user, CLASS, RESOURCE, LEVEL));
+            assertFalse(underTest.hasSafResourceAccess(otherUser, CLASS, RESOURCE, LEVEL));
+            assertFalse(underTest.hasSafResourceAccess(user, CLASS, RESOURCE, AccessLevel.UPDATE.name()));
+        }
+
+        @Test
+        void givenError_thenItIsNotRemembered() {
+            when(delegate.hasSafResourceAccess(user, CLASS, RESOURCE, LEVEL))
+                .thenThrow(new IllegalStateException("SAF is not available"))
+                .thenReturn(true);
+
+            assertThrows(IllegalStateException.class, () -> underTest.hasSafResourceAccess(user, CLASS, RESOURCE, LEVEL));
+            assertTrue(underTest.hasSafResourceAccess(user, CLASS, RESOURCE, LEVEL));
+        }
+
+    }
+
+    @Nested
+    class WhenFlushing {
+
+        @Test
+        void thenDelegateIsCalledAgain() {
+            when(delegate.hasSafResourceAccess(user, CLASS, RESOURCE, LEVEL)).thenReturn(false, true);
+
+            assertFalse(underTest.hasSafResourceAccess(user, CLASS, RESOURCE, LEVEL));
+            underTest.flush();
+
+            assertTrue(underTest.hasSafResourceAccess(user, CLASS, RESOURCE, LEVEL));
+        }
+
+    }
+
+    @Nested
+    class GivenZeroNegativeTtl {
+
+        @Test
+        void whenDenied_thenDecisionIsNotRemembered() {
+            underTest = new SafResourceAccessCaching(delegate, Duration.ofMinutes(1), Duration.ZERO, 100);
+            when(delegate.hasSafResourceAccess(user, CLASS, RESOURCE, LEVEL)).thenReturn(false);
+
+            underTest.hasSafResourceAccess(user, CLASS, RESOURCE, LEVEL);
+            underTest.hasSafResourceAccess(user, CLASS, RESOURCE, LEVEL);
+
+            verify(delegate, times(2)).hasSafResourceAccess(user, CLASS, RESOURCE, LEVEL);
+        }
+
+    }
+
+}
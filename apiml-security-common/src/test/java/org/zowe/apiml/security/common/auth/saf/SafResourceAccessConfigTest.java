@@ -98,6 +98,16 @@ class SafResourceAccessConfigTest {
     }
 
 
+    @Test
+    void givenCacheTtl_whenCreate_thenProviderIsCached() {
+        SafResourceAccessConfig output = new SafResourceAccessConfigMock(false, false, true);
+        ReflectionTestUtils.setField(output, "provider", "dummy");
+        ReflectionTestUtils.setField(output, "cacheTtl", 30);
+        ReflectionTestUtils.setField(output, "cacheMaxSize", 100L);
+
+        assertInstanceOf(SafResourceAccessCaching.class, output.safResourceAccessVerifying(restTemplate, authConfigurationProperties));
+    }
+
     @Test
     void givenUnknownProvider_whenCreate_thenThrowIllegalArgumentException() {
         assertThrows(IllegalArgumentException.class, () -> getSafResourceAccessConfig("unknown", true, true, true, true));
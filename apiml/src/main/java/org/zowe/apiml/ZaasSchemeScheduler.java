@@ -0,0 +1,206 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+
+package org.zowe.apiml;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.zowe.apiml.auth.AuthenticationScheme;
+import org.zowe.apiml.security.common.error.ServiceNotAccessibleException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs the blocking calls of the authentication schemes in the modulith (PassTicket, SAF IDT, z/OSMF and Zowe JWT) out
+ * of the event loop. All schemes share one bounded elastic scheduler, but each scheme could occupy only a limited number
+ * of its threads (a bulkhead), so a slow z/OSMF cannot stop i.e. the PassTickets. A call which cannot get a permit or is
+ * not finished in time fails with {@link ServiceNotAccessibleException}, the same way as if there was no ZAAS available.
+ * <p>
+ * Metrics (tag scheme):
+ * - apiml.gateway.zaas.scheme.queued - number of calls waiting for a thread
+ * - apiml.gateway.zaas.scheme.active - number of calls being processed
+ * - apiml.gateway.zaas.scheme.rejected (tag reason=full|timeout) - number of calls rejected by the bulkhead or the timeout
+ */
+@Slf4j
+@Component
+public class ZaasSchemeScheduler implements DisposableBean {
+
+    static final String METRIC_QUEUED = "apiml.gateway.zaas.scheme.queued";
+    static final String METRIC_ACTIVE = "apiml.gateway.zaas.scheme.active";
+    static final String METRIC_REJECTED = "apiml.gateway.zaas.scheme.rejected";
+
+    static final Set<AuthenticationScheme> SCHEMES = EnumSet.of(
+        AuthenticationScheme.HTTP_BASIC_PASSTICKET,
+        AuthenticationScheme.SAF_IDT,
+        AuthenticationScheme.ZOSMF,
+        AuthenticationScheme.ZOWE_JWT
+    );
+
+    private final Scheduler scheduler;
+    private final Duration timeout;
+    private final Map<AuthenticationScheme, Bulkhead> bulkheads = new EnumMap<>(AuthenticationScheme.class);
+
+    public ZaasSchemeScheduler(
+        @Value("${apiml.gateway.zaasScheme.threads:64}") int threads,
+        @Value("${apiml.gateway.zaasScheme.queueSize:1000}") int queueSize,
+        @Value("${apiml.gateway.zaasScheme.maxConcurrentPerScheme:32}") int maxConcurrentPerScheme,
+        @Value("${apiml.gateway.zaasScheme.timeout:30000}") long timeoutMillis,
+        MeterRegistry meterRegistry
+    ) {
+        this.scheduler = Schedulers.newBoundedElastic(threads, queueSize, "zaas-scheme");
+        this.timeout = Duration.ofMillis(timeoutMillis);
+
+        int permits = Math.max(1, Math.min(maxConcurrentPerScheme, threads));
+        for (AuthenticationScheme scheme : SCHEMES) {
+            var bulkhead = new Bulkhead(new Semaphore(permits));
+            bulkheads.put(scheme, bulkhead);
+
+            Gauge.builder(METRIC_QUEUED, bulkhead.queued, AtomicInteger::get)
+                .description("Calls of the authentication scheme waiting for a thread")
+                .tag("scheme", scheme.getScheme())
+                .register(meterRegistry);
+            Gauge.builder(METRIC_ACTIVE, bulkhead.active, AtomicInteger::get)
+                .description("Calls of the authentication scheme being processed")
+                .tag("scheme", scheme.getScheme())
+                .register(meterRegistry);
+            FunctionCounter.builder(METRIC_REJECTED, bulkhead.full, LongAdder::doubleValue)
+                .description("Calls of the authentication scheme rejected due to the limits")
+                .tag("scheme", scheme.getScheme())
+                .tag("reason", "full")
+                .register(meterRegistry);
+            FunctionCounter.builder(METRIC_REJECTED, bulkhead.timedOut, LongAdder::doubleValue)
+                .description("Calls of the authentication scheme rejected due to the limits")
+                .tag("scheme", scheme.getScheme())
+                .tag("reason", "timeout")
+                .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Run the blocking call on the scheduler within the bulkhead of the scheme.
+     *
+     * @param scheme authentication scheme of the call
+     * @param call   blocking call which returns the already evaluated result
+     * @return result of the call
+     */
+    public <R> Mono<R> run(AuthenticationScheme scheme, Supplier<Mono<R>> call) {
+        var bulkhead = bulkheads.get(scheme);
+        if (bulkhead == null) {
+            throw new IllegalArgumentException("Unsupported authentication scheme " + scheme);
+        }
+
+        return Mono.defer(() -> {
+            if (!bulkhead.permits.tryAcquire()) {
+                bulkhead.full.increment();
+                log.debug("There are too many concurrent calls of the authentication scheme {}", scheme);
+                return Mono.error(new ServiceNotAccessibleException("There are too many concurrent requests for the authentication scheme " + scheme));
+            }
+
+            var task = new Task(bulkhead);
+            return Mono.fromCallable(() -> task.execute(call))
+                .flatMap(Function.identity())
+                .subscribeOn(scheduler)
+                .doFinally(signal -> task.cancel())
+                .timeout(timeout)
+                .onErrorMap(TimeoutException.class, e -> {
+                    bulkhead.timedOut.increment();
+                    log.debug("The call of the authentication scheme {} was not finished in {}", scheme, timeout);
+                    return new ServiceNotAccessibleException("The request for the authentication scheme " + scheme + " timed out", e);
+                })
+                .onErrorMap(RejectedExecutionException.class, e -> {
+                    bulkhead.full.increment();
+                    return new ServiceNotAccessibleException("There are too many concurrent requests for the authentication schemes", e);
+                });
+        });
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.dispose();
+    }
+
+    private static class Bulkhead {
+
+        private final Semaphore permits;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicInteger active = new AtomicInteger();
+        private final LongAdder full = new LongAdder();
+        private final LongAdder timedOut = new LongAdder();
+
+        Bulkhead(Semaphore permits) {
+            this.permits = permits;
+        }
+
+    }
+
+    /**
+     * A single call holding a permit of the bulkhead. The permit is released when the call is finished, if the call was
+     * cancelled before it started, the permit is released immediately. A started call keeps the permit (and the thread)
+     * until it really ends, even after its timeout.
+     */
+    private static class Task {
+
+        private static final int QUEUED = 0;
+        private static final int RUNNING = 1;
+        private static final int CANCELLED = 2;
+
+        private final Bulkhead bulkhead;
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+
+        Task(Bulkhead bulkhead) {
+            this.bulkhead = bulkhead;
+            bulkhead.queued.incrementAndGet();
+        }
+
+        <R> Mono<R> execute(Supplier<Mono<R>> call) {
+            if (!state.compareAndSet(QUEUED, RUNNING)) {
+                return Mono.empty();
+            }
+
+            bulkhead.queued.decrementAndGet();
+            bulkhead.active.incrementAndGet();
+            try {
+                return call.get();
+            } finally {
+                bulkhead.active.decrementAndGet();
+                bulkhead.permits.release();
+            }
+        }
+
+        void cancel() {
+            if (state.compareAndSet(QUEUED, CANCELLED)) {
+                bulkhead.queued.decrementAndGet();
+                bulkhead.permits.release();
+            }
+        }
+
+    }
+
+}
@@ -21,6 +21,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.ClientResponse;
+import org.zowe.apiml.auth.AuthenticationScheme;
 import org.zowe.apiml.constants.ApimlConstants;
 import org.zowe.apiml.gateway.filters.*;
 import org.zowe.apiml.message.core.MessageService;
@@ -64,6 +65,11 @@ import static org.zowe.apiml.security.common.filter.CategorizeCertsFilter.ATTR_N
  * This bean is only active when {@code modulithConfig} is present in the Spring context.
  * </p>
  *
+ * <p>
+ * The service layer calls are blocking (REST calls, native calls, locks), therefore they are not processed on the event
+ * loop, but by {@link ZaasSchemeScheduler}.
+ * </p>
+ *
  * @see ZaasSchemeTransform
  * @see org.zowe.apiml.gateway.filters.ZaasSchemeTransformRest
  */
@@ -81,6 +87,7 @@ public class ZaasSchemeTransformApi implements ZaasSchemeTransform {
     private final ZosmfService zosmfService;
     private final TokenCreationService tokenCreationService;
     private final MessageService messageService;
+    private final ZaasSchemeScheduler zaasSchemeScheduler;
 
     @Value("${apiml.service.apimlId:apiml}")
     private String currentApimlId;
@@ -106,6 +113,10 @@ public class ZaasSchemeTransformApi implements ZaasSchemeTransform {
 
     @Override
     public Mono<AbstractAuthSchemeFactory.AuthorizationResponse<TicketResponse>> passticket(RequestCredentials requestCredentials) {
+        return zaasSchemeScheduler.run(AuthenticationScheme.HTTP_BASIC_PASSTICKET, () -> generatePassticket(requestCredentials));
+    }
+
+    private Mono<AbstractAuthSchemeFactory.AuthorizationResponse<TicketResponse>> generatePassticket(RequestCredentials requestCredentials) {
         var applicationName = requestCredentials.getApplId();
         if (StringUtils.isBlank(applicationName)) {
             return createErrorMessage("ApplicationName not provided.");
@@ -145,6 +156,10 @@ public class ZaasSchemeTransformApi implements ZaasSchemeTransform {
 
     @Override
     public Mono<AbstractAuthSchemeFactory.AuthorizationResponse<ZaasTokenResponse>> safIdt(RequestCredentials requestCredentials) {
+        return zaasSchemeScheduler.run(AuthenticationScheme.SAF_IDT, () -> generateSafIdt(requestCredentials));
+    }
+
+    private Mono<AbstractAuthSchemeFactory.AuthorizationResponse<ZaasTokenResponse>> generateSafIdt(RequestCredentials requestCredentials) {
         var applicationName = requestCredentials.getApplId();
         if (StringUtils.isBlank(applicationName)) {
             return createErrorMessage("ApplicationName not provided.");
@@ -173,6 +188,10 @@ public class ZaasSchemeTransformApi implements ZaasSchemeTransform {
 
     @Override
     public Mono<AbstractAuthSchemeFactory.AuthorizationResponse<ZaasTokenResponse>> zosmf(RequestCredentials requestCredentials) {
+        return zaasSchemeScheduler.run(AuthenticationScheme.ZOSMF, () -> exchangeZosmfToken(requestCredentials));
+    }
+
+    private Mono<AbstractAuthSchemeFactory.AuthorizationResponse<ZaasTokenResponse>> exchangeZosmfToken(RequestCredentials requestCredentials) {
         try {
             var request = new RequestCredentialsHttpServletRequestAdapter(requestCredentials);
             Optional<AuthSource> authSource = authSourceService.getAuthSourceFromRequest(request);
@@ -195,6 +214,10 @@ public class ZaasSchemeTransformApi implements ZaasSchemeTransform {
 
     @Override
     public Mono<AbstractAuthSchemeFactory.AuthorizationResponse<ZaasTokenResponse>> zoweJwt(RequestCredentials requestCredentials) {
+        return zaasSchemeScheduler.run(AuthenticationScheme.ZOWE_JWT, () -> getZoweJwt(requestCredentials));
+    }
+
+    private Mono<AbstractAuthSchemeFactory.AuthorizationResponse<ZaasTokenResponse>> getZoweJwt(RequestCredentials requestCredentials) {
         try {
             var request = new RequestCredentialsHttpServletRequestAdapter(requestCredentials);
             Optional<AuthSource> authSource = authSourceService.getAuthSourceFromRequest(request);
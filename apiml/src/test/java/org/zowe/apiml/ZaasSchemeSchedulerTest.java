@@ -0,0 +1,152 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+
+package org.zowe.apiml;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.zowe.apiml.auth.AuthenticationScheme;
+import org.zowe.apiml.security.common.error.ServiceNotAccessibleException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZaasSchemeSchedulerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private ZaasSchemeScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        scheduler.destroy();
+    }
+
+    private Mono<String> blocking(String result) {
+        try {
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return Mono.just(result);
+    }
+
+    private double gauge(String name, AuthenticationScheme scheme) {
+        return meterRegistry.get(name).tag("scheme", scheme.getScheme()).gauge().value();
+    }
+
+    private double rejected(AuthenticationScheme scheme, String reason) {
+        return meterRegistry.get(ZaasSchemeScheduler.METRIC_REJECTED)
+            .tag("scheme", scheme.getScheme()).tag("reason", reason)
+            .functionCounter().count();
+    }
+
+    @Nested
+    class GivenFreeCapacity {
+
+        @Test
+        void whenRun_thenCallIsProcessedOutOfCallerThread() {
+            scheduler = new ZaasSchemeScheduler(2, 10, 1, 10_000, meterRegistry);
+
+            StepVerifier.create(scheduler.run(AuthenticationScheme.ZOSMF, () -> Mono.just(Thread.currentThread().getName())))
+                .assertNext(threadName -> assertTrue(threadName.startsWith("zaas-scheme")))
+                .verifyComplete();
+            assertEquals(0, gauge(ZaasSchemeScheduler.METRIC_ACTIVE, AuthenticationScheme.ZOSMF));
+        }
+
+        @Test
+        void whenUnsupportedScheme_thenThrowException() {
+            scheduler = new ZaasSchemeScheduler(2, 10, 1, 10_000, meterRegistry);
+
+            assertThrows(IllegalArgumentException.class, () -> scheduler.run(AuthenticationScheme.BYPASS, () -> Mono.just("")));
+        }
+
+    }
+
+    @Nested
+    class GivenSlowScheme {
+
+        @Test
+        void whenBulkheadIsFull_thenRejectAndKeepOtherSchemes() {
+            scheduler = new ZaasSchemeScheduler(2, 10, 1, 10_000, meterRegistry);
+
+            var slow = scheduler.run(AuthenticationScheme.ZOSMF, () -> blocking("slow")).toFuture();
+            await(() -> gauge(ZaasSchemeScheduler.METRIC_ACTIVE, AuthenticationScheme.ZOSMF) == 1);
+
+            StepVerifier.create(scheduler.run(AuthenticationScheme.ZOSMF, () -> Mono.just("rejected")))
+                .expectError(ServiceNotAccessibleException.class)
+                .verify();
+            StepVerifier.create(scheduler.run(AuthenticationScheme.HTTP_BASIC_PASSTICKET, () -> Mono.just("ticket")))
+                .expectNext("ticket")
+                .verifyComplete();
+            assertEquals(1, rejected(AuthenticationScheme.ZOSMF, "full"));
+
+            release.countDown();
+            assertEquals("slow", slow.join());
+        }
+
+        @Test
+        void whenAllThreadsAreBusy_thenCallIsQueued() {
+            scheduler = new ZaasSchemeScheduler(1, 10, 2, 10_000, meterRegistry);
+
+            var first = scheduler.run(AuthenticationScheme.ZOSMF, () -> blocking("first")).toFuture();
+            var second = scheduler.run(AuthenticationScheme.ZOSMF, () -> blocking("second")).toFuture();
+            await(() -> gauge(ZaasSchemeScheduler.METRIC_QUEUED, AuthenticationScheme.ZOSMF) == 1);
+            assertEquals(1, gauge(ZaasSchemeScheduler.METRIC_ACTIVE, AuthenticationScheme.ZOSMF));
+
+            release.countDown();
+            assertEquals("first", first.join());
+            assertEquals("second", second.join());
+            assertEquals(0, gauge(ZaasSchemeScheduler.METRIC_QUEUED, AuthenticationScheme.ZOSMF));
+        }
+
+        @Test
+        void whenTimeout_thenFailAndReleasePermitAfterTheCallEnds() {
+            scheduler = new ZaasSchemeScheduler(2, 10, 1, 100, meterRegistry);
+
+            StepVerifier.create(scheduler.run(AuthenticationScheme.ZOSMF, () -> blocking("slow")))
+                .expectError(ServiceNotAccessibleException.class)
+                .verify(Duration.ofSeconds(10));
+            assertEquals(1, rejected(AuthenticationScheme.ZOSMF, "timeout"));
+
+            release.countDown();
+            await(() -> gauge(ZaasSchemeScheduler.METRIC_ACTIVE, AuthenticationScheme.ZOSMF) == 0);
+            StepVerifier.create(scheduler.run(AuthenticationScheme.ZOSMF, () -> Mono.just("next")))
+                .expectNext("next")
+                .verifyComplete();
+        }
+
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Condition was not fulfilled in time");
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+        }
+    }
+
+}
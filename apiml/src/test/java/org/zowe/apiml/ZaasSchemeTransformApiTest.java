@@ -10,6 +10,8 @@
 
 package org.zowe.apiml;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
@@ -47,6 +49,7 @@ class ZaasSchemeTransformApiTest {
     RequestCredentials credentials;
     AuthSource authSource;
     private static MessageService messageService;
+    private final ZaasSchemeScheduler zaasSchemeScheduler = new ZaasSchemeScheduler(4, 100, 2, 10_000, new SimpleMeterRegistry());
 
     @BeforeAll
     static void messageService() {
@@ -71,11 +74,17 @@ class ZaasSchemeTransformApiTest {
             passTicketService,
             zosmfService,
             tokenCreationService,
-            messageService
+            messageService,
+            zaasSchemeScheduler
         );
     }
 
 
+    @AfterEach
+    void tearDown() {
+        zaasSchemeScheduler.destroy();
+    }
+
     @Nested
     class GivenPassticketScheme {
         @Nested
@@ -319,7 +328,8 @@ class ZaasSchemeTransformApiTest {
                     passTicketService,
                     zosmfService,
                     mock(TokenCreationService.class),
-                    messageService
+                    messageService,
+                    zaasSchemeScheduler
                 );
 
             }
@@ -30,6 +30,7 @@
 # - ZWE_configs_storage_evictionStrategy
 # - ZWE_configs_storage_mode
 # - ZWE_configs_storage_size
+# - ZWE_configs_storage_inMemory_maxBytes
 # - ZWE_configs_storage_vsam_name
 # - ZWE_configs_certificate_keystore_alias - The alias of the key within the keystore
 # - ZWE_configs_certificate_keystore_file - The keystore to use for SSL certificates
@@ -266,6 +267,7 @@ _BPX_JOBNAME=${ZWE_zowe_job_prefix}${CACHING_CODE} ${JAVA_BIN_DIR}java \
   -Dserver.ssl.enabled-protocols=${server_enabled_protocols} \
   -Dcaching.storage.evictionStrategy=${ZWE_configs_storage_evictionStrategy:-reject} \
   -Dcaching.storage.size=${ZWE_configs_storage_size:-10000} \
+  -Dcaching.storage.inMemory.maxBytes=${ZWE_configs_storage_inMemory_maxBytes:-0} \
   -Dcaching.storage.mode=${ZWE_configs_storage_mode:-inMemory} \
   -Dcaching.storage.vsam.name=${VSAM_FILE_NAME} \
   -Djgroups.bind.address=${ZWE_configs_storage_infinispan_jgroups_host:-${ZWE_haInstance_hostname:-localhost}} \
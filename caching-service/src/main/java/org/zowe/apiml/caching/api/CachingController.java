@@ -15,65 +15,66 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.SslInfo;
 import org.springframework.web.bind.annotation.*;
-import org.zowe.apiml.cache.Storage;
+import org.zowe.apiml.cache.AsyncStorage;
 import org.zowe.apiml.cache.StorageException;
 import org.zowe.apiml.caching.model.KeyValue;
+import org.zowe.apiml.caching.model.KeyValueResult;
 import org.zowe.apiml.caching.service.Messages;
 import org.zowe.apiml.config.ApplicationInfo;
 import org.zowe.apiml.message.core.Message;
 import org.zowe.apiml.message.core.MessageService;
 import reactor.core.publisher.Mono;
 
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
 
+/**
+ * REST API of the caching service. The storage is called asynchronously (see {@link AsyncStorage}), no request is
+ * blocking the event loop while waiting for the storage backend.
+ */
 @Slf4j
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/cachingservice/api/v1")
 public class CachingController {
-    private final Storage storage;
+    private final AsyncStorage storage;
     private final MessageService messageService;
 
     @Autowired(required = false)
     ApplicationInfo applicationInfo;
 
+    @Value("${caching.batch.maxSize:1000}")
+    int maxBatchSize = 1000;
+
 
     @GetMapping(value = {"/cache", "/cache/"}, produces = MediaType.APPLICATION_JSON_VALUE)
     @Operation(summary = "Retrieves all values in the cache",
         description = "Values returned for the calling service")
     @ResponseBody
     public Mono<ResponseEntity<Object>> getAllValues(ServerHttpRequest request) {
-        return Mono.fromCallable(() -> getServiceId(request).<ResponseEntity<Object>>map(
-            s -> {
-                try {
-                    return new ResponseEntity<>(storage.readForService(s), HttpStatus.OK);
-                } catch (Exception exception) {
-                    return handleInternalError(exception, request);
-                }
-            }
-        ).orElseGet(this::getUnauthorizedResponse));
+        return serviceRequest(request, s -> Mono.fromCompletionStage(() -> storage.readForServiceAsync(s))
+            .<ResponseEntity<Object>>map(values -> new ResponseEntity<>(values, HttpStatus.OK))
+            .defaultIfEmpty(new ResponseEntity<>(HttpStatus.OK))
+            .onErrorResume(Exception.class, exception -> Mono.just(handleInternalError(exception, request)))
+        );
     }
 
     @DeleteMapping(value = {"/cache", "/cache/"}, produces = MediaType.APPLICATION_JSON_VALUE)
     @Operation(summary = "Delete all values for service from the cache",
         description = "Will delete all key-value pairs for specific service")
     public Mono<ResponseEntity<Object>> deleteAllValues(ServerHttpRequest request) {
-        return Mono.fromCallable(() -> getServiceId(request).map(
-            s -> {
-                try {
-                    storage.deleteForService(s);
-                    return new ResponseEntity<>(HttpStatus.OK);
-                } catch (Exception exception) {
-                    return handleInternalError(exception, request);
-                }
-            }
-        ).orElseGet(this::getUnauthorizedResponse));
+        return serviceRequest(request, s -> Mono.fromCompletionStage(() -> storage.deleteForServiceAsync(s))
+            .then(Mono.fromSupplier(() -> new ResponseEntity<>(HttpStatus.OK)))
+            .onErrorResume(Exception.class, exception -> Mono.just(handleInternalError(exception, request)))
+        );
     }
 
     private ResponseEntity<Object> getUnauthorizedResponse() {
@@ -87,32 +88,32 @@ public class CachingController {
         description = "Value returned is for the provided {key}")
     @ResponseBody
     public Mono<ResponseEntity<Object>> getValue(@PathVariable String key, ServerHttpRequest request) {
-        return Mono.fromCallable(() -> keyRequest(storage::read,
-            key, request, HttpStatus.OK));
+        return keyRequest(storage::readAsync,
+            key, request, HttpStatus.OK);
     }
 
     @DeleteMapping(value = "/cache/{key}", produces = MediaType.APPLICATION_JSON_VALUE)
     @Operation(summary = "Delete key from the cache",
         description = "Will delete key-value pair for the provided {key}")
     public Mono<ResponseEntity<Object>> delete(@PathVariable String key, ServerHttpRequest request) {
-        return Mono.fromCallable(() -> keyRequest(storage::delete,
-            key, request, HttpStatus.NO_CONTENT));
+        return keyRequest(storage::deleteAsync,
+            key, request, HttpStatus.NO_CONTENT);
     }
 
     @PostMapping(value = {"/cache", "/cache/"}, produces = MediaType.APPLICATION_JSON_VALUE)
     @Operation(summary = "Create a new key in the cache",
         description = "A new key-value pair will be added to the cache")
     public Mono<ResponseEntity<Object>> createKey(@RequestBody KeyValue keyValue, ServerHttpRequest request) {
-        return Mono.fromCallable(() -> keyValueRequest(storage::create,
-            keyValue, request, HttpStatus.CREATED));
+        return keyValueRequest(storage::createAsync,
+            keyValue, request, HttpStatus.CREATED);
     }
 
     @PostMapping(value = "/cache-list/{mapKey}", produces = MediaType.APPLICATION_JSON_VALUE)
     @Operation(summary = "Add a new item in the cache map",
         description = "A new key-value pair will be added to the specific cache map with given map key.")
     public Mono<ResponseEntity<Object>> storeMapItem(@PathVariable String mapKey, @RequestBody KeyValue keyValue, ServerHttpRequest request) {
-        return Mono.fromCallable(() -> mapKeyValueRequest(storage::storeMapItem,
-            mapKey, keyValue, request, HttpStatus.CREATED));
+        return mapKeyValueRequest(storage::storeMapItemAsync,
+            mapKey, keyValue, request, HttpStatus.CREATED);
     }
 
     @GetMapping(value = "/cache-list/{mapKey}", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -120,16 +121,13 @@ public class CachingController {
         description = "Values returned for the calling service and specific cache map.")
     @ResponseBody
     public Mono<ResponseEntity<Object>> getAllMapItems(@PathVariable String mapKey, ServerHttpRequest request) {
-        return Mono.fromCallable(() -> getServiceId(request).<ResponseEntity<Object>>map(
-            s -> {
-                log.debug("Storing for serviceId: {}", s);
-                try {
-                    return new ResponseEntity<>(storage.getAllMapItems(s, mapKey), HttpStatus.OK);
-                } catch (Exception exception) {
-                    return handleIncompatibleStorageMethod(exception, request);
-                }
-            }
-        ).orElseGet(this::getUnauthorizedResponse));
+        return serviceRequest(request, s -> {
+            log.debug("Storing for serviceId: {}", s);
+            return Mono.fromCompletionStage(() -> storage.getAllMapItemsAsync(s, mapKey))
+                .<ResponseEntity<Object>>map(items -> new ResponseEntity<>(items, HttpStatus.OK))
+                .defaultIfEmpty(new ResponseEntity<>(HttpStatus.OK))
+                .onErrorResume(Exception.class, exception -> Mono.just(handleIncompatibleStorageMethod(exception, request)));
+        });
     }
 
     @GetMapping(value = {"/cache-list", "/cache-list/"}, produces = MediaType.APPLICATION_JSON_VALUE)
@@ -137,60 +135,151 @@ public class CachingController {
         description = "Values returned for the calling service")
     @ResponseBody
     public Mono<ResponseEntity<Object>> getAllMaps(ServerHttpRequest request) {
-        return Mono.fromCallable(() -> getServiceId(request).<ResponseEntity<Object>>map(
-            s -> {
-                log.debug("Get all for serviceId: {}", s);
-                try {
-                    return new ResponseEntity<>(storage.getAllMaps(s), HttpStatus.OK);
-                } catch (Exception exception) {
-                    return handleIncompatibleStorageMethod(exception, request);
-                }
-            }
-        ).orElseGet(this::getUnauthorizedResponse));
+        return serviceRequest(request, s -> {
+            log.debug("Get all for serviceId: {}", s);
+            return Mono.fromCompletionStage(() -> storage.getAllMapsAsync(s))
+                .<ResponseEntity<Object>>map(maps -> new ResponseEntity<>(maps, HttpStatus.OK))
+                .defaultIfEmpty(new ResponseEntity<>(HttpStatus.OK))
+                .onErrorResume(Exception.class, exception -> Mono.just(handleIncompatibleStorageMethod(exception, request)));
+        });
     }
 
     @DeleteMapping(value = "/cache-list/evict/rules/{mapKey}", produces = MediaType.APPLICATION_JSON_VALUE)
     @Operation(summary = "Delete a record from a rules map in the cache",
         description = "Will delete a key-value pair from a specific rules map")
     public Mono<ResponseEntity<Object>> evictRules(@PathVariable String mapKey, ServerHttpRequest request) {
-        return Mono.fromCallable(() -> getServiceId(request).map(
-            s -> {
-                log.debug("Delete record for serviceId: {}", s);
-                try {
-                    storage.removeNonRelevantRules(s, mapKey);
-                    return new ResponseEntity<>(HttpStatus.NO_CONTENT);
-                } catch (Exception exception) {
-                    return handleInternalError(exception, request);
-                }
-            }
-        ).orElseGet(this::getUnauthorizedResponse));
+        return serviceRequest(request, s -> {
+            log.debug("Delete record for serviceId: {}", s);
+            return Mono.fromCompletionStage(() -> storage.removeNonRelevantRulesAsync(s, mapKey))
+                .then(Mono.fromSupplier(() -> new ResponseEntity<>(HttpStatus.NO_CONTENT)))
+                .onErrorResume(Exception.class, exception -> Mono.just(handleInternalError(exception, request)));
+        });
     }
 
     @DeleteMapping(value = "/cache-list/evict/tokens/{mapKey}", produces = MediaType.APPLICATION_JSON_VALUE)
     @Operation(summary = "Delete a record from an invalid tokens map in the cache",
         description = "Will delete a key-value pair from a specific tokens map")
     public Mono<ResponseEntity<Object>> evictTokens(@PathVariable String mapKey, ServerHttpRequest request) {
-        return Mono.fromCallable(() -> getServiceId(request).map(
-            s -> {
-                log.debug("Evict tokens for serviceId: {}", s);
-                try {
-                    storage.removeNonRelevantTokens(s, mapKey);
-                    return new ResponseEntity<>(HttpStatus.NO_CONTENT);
-                } catch (Exception exception) {
-                    return handleInternalError(exception, request);
-                }
-            }
-        ).orElseGet(this::getUnauthorizedResponse));
+        return serviceRequest(request, s -> {
+            log.debug("Evict tokens for serviceId: {}", s);
+            return Mono.fromCompletionStage(() -> storage.removeNonRelevantTokensAsync(s, mapKey))
+                .then(Mono.fromSupplier(() -> new ResponseEntity<>(HttpStatus.NO_CONTENT)))
+                .onErrorResume(Exception.class, exception -> Mono.just(handleInternalError(exception, request)));
+        });
     }
 
     @PutMapping(value = {"/cache", "/cache/"}, produces = MediaType.APPLICATION_JSON_VALUE)
     @Operation(summary = "Update key in the cache",
         description = "Value at the key in the provided key-value pair will be updated to the provided value")
     public Mono<ResponseEntity<Object>> update(@RequestBody KeyValue keyValue, ServerHttpRequest request) {
-        return Mono.fromCallable(() -> keyValueRequest(storage::update,
-            keyValue, request, HttpStatus.NO_CONTENT));
+        return keyValueRequest(storage::updateAsync,
+            keyValue, request, HttpStatus.NO_CONTENT);
+    }
+
+    @PutMapping(value = {"/cache", "/cache/"}, params = "upsert=true", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Create or update key in the cache",
+        description = "Value at the key in the provided key-value pair will be set to the provided value, the key is created if it does not exist")
+    public Mono<ResponseEntity<Object>> upsert(@RequestBody KeyValue keyValue, ServerHttpRequest request) {
+        return keyValueRequest(storage::upsertAsync,
+            keyValue, request, HttpStatus.NO_CONTENT);
+    }
+
+    @PostMapping(value = "/cache-batch/read", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Retrieves multiple values in the cache",
+        description = "Result is returned for each of the provided keys")
+    public Mono<ResponseEntity<Object>> getValues(@RequestBody List<String> keys, ServerHttpRequest request) {
+        return serviceRequest(request, serviceId -> storageResponse(Mono.defer(() -> {
+            checkForInvalidBatch(keys);
+            keys.forEach(key -> {
+                if (key == null) {
+                    keyNotInCache();
+                }
+            });
+
+            Set<String> distinctKeys = new LinkedHashSet<>(keys);
+            return Mono.fromCompletionStage(() -> storage.readAllAsync(serviceId, distinctKeys))
+                .map(found -> distinctKeys.stream()
+                    .map(key -> found.containsKey(key) ?
+                        new KeyValueResult(key, HttpStatus.OK.value(), found.get(key), null) :
+                        keyResult(key, keyNotInCache(key, serviceId))
+                    )
+                    .toList()
+                )
+                .<ResponseEntity<Object>>map(results -> new ResponseEntity<>(results, HttpStatus.OK));
+        }), request));
+    }
+
+    @PutMapping(value = {"/cache-batch", "/cache-batch/"}, produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Store multiple keys in the cache",
+        description = "The existing keys are updated, the missing ones are created. Result is returned for each of the provided keys")
+    public Mono<ResponseEntity<Object>> storeValues(@RequestBody List<KeyValue> keyValues, ServerHttpRequest request) {
+        return serviceRequest(request, serviceId -> storageResponse(Mono.defer(() -> {
+            checkForInvalidBatch(keyValues);
+            keyValues.forEach(this::checkForInvalidPayload);
+
+            Map<String, KeyValue> distinctKeyValues = new LinkedHashMap<>();
+            keyValues.forEach(keyValue -> distinctKeyValues.put(keyValue.getKey(), keyValue));
+            return Mono.fromCompletionStage(() -> storage.storeAllAsync(serviceId, distinctKeyValues.values()))
+                .map(failures -> distinctKeyValues.keySet().stream()
+                    .map(key -> failures.containsKey(key) ?
+                        keyResult(key, failures.get(key)) :
+                        new KeyValueResult(key, HttpStatus.NO_CONTENT.value(), null, null)
+                    )
+                    .toList()
+                )
+                .<ResponseEntity<Object>>map(results -> new ResponseEntity<>(results, HttpStatus.OK));
+        }), request));
+    }
+
+    @PostMapping(value = "/cache-batch/delete", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Delete multiple keys from the cache",
+        description = "Result is returned for each of the provided keys")
+    public Mono<ResponseEntity<Object>> deleteValues(@RequestBody List<String> keys, ServerHttpRequest request) {
+        return serviceRequest(request, serviceId -> storageResponse(Mono.defer(() -> {
+            checkForInvalidBatch(keys);
+            keys.forEach(key -> {
+                if (key == null) {
+                    keyNotInCache();
+                }
+            });
+
+            Set<String> distinctKeys = new LinkedHashSet<>(keys);
+            return Mono.fromCompletionStage(() -> storage.deleteAllAsync(serviceId, distinctKeys))
+                .map(deleted -> distinctKeys.stream()
+                    .map(key -> deleted.contains(key) ?
+                        new KeyValueResult(key, HttpStatus.NO_CONTENT.value(), null, null) :
+                        keyResult(key, keyNotInCache(key, serviceId))
+                    )
+                    .toList()
+                )
+                .<ResponseEntity<Object>>map(results -> new ResponseEntity<>(results, HttpStatus.OK));
+        }), request));
+    }
+
+    /**
+     * Authenticate the user and do the operation with the service ID.
+     */
+    private Mono<ResponseEntity<Object>> serviceRequest(ServerHttpRequest request, Function<String, Mono<ResponseEntity<Object>>> operation) {
+        return Mono.defer(() -> getServiceId(request)
+            .map(operation)
+            .orElseGet(() -> Mono.just(getUnauthorizedResponse()))
+        );
     }
 
+    /**
+     * Handle the result of the storage operation. The exceptions are properly packaged.
+     */
+    private Mono<ResponseEntity<Object>> storageResponse(Mono<ResponseEntity<Object>> response, ServerHttpRequest request) {
+        return response.onErrorResume(exception -> {
+            if (exception instanceof StorageException storageException) {
+                return Mono.just(exceptionToResponse(storageException));
+            }
+            if (exception instanceof Exception e) {
+                return Mono.just(handleInternalError(e, request));
+            }
+            return Mono.error(exception);
+        });
+    }
 
     private ResponseEntity<Object> exceptionToResponse(StorageException exception) {
         Message message = messageService.createMessage(exception.getKey(), (Object[]) exception.getParameters());
@@ -203,24 +292,16 @@ public class CachingController {
      * Do the storage operation passed in as Lambda
      * Properly handle and package Exceptions.
      */
-    private ResponseEntity<Object> keyRequest(KeyOperation keyOperation, String key, ServerHttpRequest request, HttpStatus successStatus) {
-        Optional<String> serviceId = getServiceId(request);
-        if (serviceId.isEmpty()) {
-            return getUnauthorizedResponse();
-        }
-        try {
+    private Mono<ResponseEntity<Object>> keyRequest(KeyOperation keyOperation, String key, ServerHttpRequest request, HttpStatus successStatus) {
+        return serviceRequest(request, serviceId -> storageResponse(Mono.defer(() -> {
             if (key == null) {
                 keyNotInCache();
             }
 
-            KeyValue pair = keyOperation.storageRequest(serviceId.get(), key);
-
-            return new ResponseEntity<>(pair, successStatus);
-        } catch (StorageException exception) {
-            return exceptionToResponse(exception);
-        } catch (Exception exception) {
-            return handleInternalError(exception, request);
-        }
+            return Mono.fromCompletionStage(() -> keyOperation.storageRequest(serviceId, key))
+                .<ResponseEntity<Object>>map(pair -> new ResponseEntity<>(pair, successStatus))
+                .defaultIfEmpty(new ResponseEntity<>(successStatus));
+        }), request));
     }
 
     /**
@@ -229,45 +310,25 @@ public class CachingController {
      * Do the storage operation passed in as Lambda
      * Properly handle and package Exceptions.
      */
-    private ResponseEntity<Object> keyValueRequest(KeyValueOperation keyValueOperation, KeyValue keyValue,
-                                                   ServerHttpRequest request, HttpStatus successStatus) {
-        Optional<String> serviceId = getServiceId(request);
-        if (serviceId.isEmpty()) {
-            return getUnauthorizedResponse();
-        }
-
-        try {
+    private Mono<ResponseEntity<Object>> keyValueRequest(KeyValueOperation keyValueOperation, KeyValue keyValue,
+                                                         ServerHttpRequest request, HttpStatus successStatus) {
+        return serviceRequest(request, serviceId -> storageResponse(Mono.defer(() -> {
             checkForInvalidPayload(keyValue);
 
-            keyValueOperation.storageRequest(serviceId.get(), keyValue);
-
-            return new ResponseEntity<>(successStatus);
-        } catch (StorageException exception) {
-            return exceptionToResponse(exception);
-        } catch (Exception exception) {
-            return handleInternalError(exception, request);
-        }
+            return Mono.fromCompletionStage(() -> keyValueOperation.storageRequest(serviceId, keyValue))
+                .then(Mono.fromSupplier(() -> new ResponseEntity<>(successStatus)));
+        }), request));
     }
 
-    private ResponseEntity<Object> mapKeyValueRequest(MapKeyValueOperation operation, String mapKey, KeyValue keyValue,
-                                                      ServerHttpRequest request, HttpStatus successStatus) {
-        Optional<String> serviceId = getServiceId(request);
-        if (serviceId.isEmpty()) {
-            return getUnauthorizedResponse();
-        }
-
-        try {
-            log.debug("All map for serviceId: {}", serviceId.get());
+    private Mono<ResponseEntity<Object>> mapKeyValueRequest(MapKeyValueOperation operation, String mapKey, KeyValue keyValue,
+                                                            ServerHttpRequest request, HttpStatus successStatus) {
+        return serviceRequest(request, serviceId -> storageResponse(Mono.defer(() -> {
+            log.debug("All map for serviceId: {}", serviceId);
             checkForInvalidPayload(keyValue);
 
-            operation.storageRequest(serviceId.get(), mapKey, keyValue);
-
-            return new ResponseEntity<>(successStatus);
-        } catch (StorageException exception) {
-            return exceptionToResponse(exception);
-        } catch (Exception exception) {
-            return handleInternalError(exception, request);
-        }
+            return Mono.fromCompletionStage(() -> operation.storageRequest(serviceId, mapKey, keyValue))
+                .then(Mono.fromSupplier(() -> new ResponseEntity<>(successStatus)));
+        }), request));
     }
 
     private Optional<String> getServiceId(ServerHttpRequest request) {
@@ -317,6 +378,25 @@ public class CachingController {
         return new ResponseEntity<>(message.mapToView(), internalServerError.getStatus());
     }
 
+    private KeyValueResult keyResult(String key, StorageException exception) {
+        Message message = messageService.createMessage(exception.getKey(), (Object[]) exception.getParameters());
+        return new KeyValueResult(key, exception.getStatus().value(), null, message.mapToView());
+    }
+
+    private StorageException keyNotInCache(String key, String serviceId) {
+        return new StorageException(Messages.KEY_NOT_IN_CACHE.getKey(), Messages.KEY_NOT_IN_CACHE.getStatus(), key, serviceId);
+    }
+
+    private void checkForInvalidBatch(List<?> items) {
+        if (items == null) {
+            throw invalidPayloadException(null, "No list provided in the payload");
+        }
+
+        if (items.size() > maxBatchSize) {
+            throw invalidPayloadException(null, "Too many items in the payload, the maximum is " + maxBatchSize);
+        }
+    }
+
     private void keyNotInCache() {
         throw new StorageException(Messages.KEY_NOT_PROVIDED.getKey(), Messages.KEY_NOT_PROVIDED.getStatus());
     }
@@ -339,20 +419,24 @@ public class CachingController {
         if (key == null) {
             throw invalidPayloadException(keyValue.toString(), "No key provided in the payload");
         }
+
+        if (keyValue.getTtl() != null && keyValue.getTtl() <= 0) {
+            throw invalidPayloadException(keyValue.toString(), "The time to live has to be positive");
+        }
     }
 
     @FunctionalInterface
     interface KeyOperation {
-        KeyValue storageRequest(String serviceId, String key);
+        CompletionStage<KeyValue> storageRequest(String serviceId, String key);
     }
 
     @FunctionalInterface
     interface KeyValueOperation {
-        KeyValue storageRequest(String serviceId, KeyValue keyValue) throws StorageException;
+        CompletionStage<KeyValue> storageRequest(String serviceId, KeyValue keyValue);
     }
 
     @FunctionalInterface
     interface MapKeyValueOperation {
-        KeyValue storageRequest(String serviceId, String mapKey, KeyValue keyValue);
+        CompletionStage<KeyValue> storageRequest(String serviceId, String mapKey, KeyValue keyValue);
     }
 }
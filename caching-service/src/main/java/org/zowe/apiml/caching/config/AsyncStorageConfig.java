@@ -0,0 +1,52 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+
+package org.zowe.apiml.caching.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.zowe.apiml.cache.AsyncStorage;
+import org.zowe.apiml.cache.Storage;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * The storage backends are called asynchronously. The blocking backends (in-memory, VSAM) and the blocking parts of
+ * the other ones are executed by a dedicated bounded scheduler instead of the event loop, a slow call cannot stall
+ * unrelated requests. If all threads are busy and the queue is full, the request is rejected.
+ */
+@Configuration
+public class AsyncStorageConfig {
+
+    public static final String STORAGE_SCHEDULER = "storageScheduler";
+
+    @Bean(name = STORAGE_SCHEDULER, destroyMethod = "dispose")
+    public Scheduler storageScheduler(
+        @Value("${caching.storage.scheduler.maxThreads:16}") int maxThreads,
+        @Value("${caching.storage.scheduler.maxQueued:1000}") int maxQueued
+    ) {
+        return Schedulers.newBoundedElastic(maxThreads, maxQueued, "caching-storage");
+    }
+
+    /**
+     * The Redis and Infinispan storages are asynchronous themselves and they are beans of this type too, this one is
+     * injected. For them, it is the same instance.
+     */
+    @Bean
+    @Primary
+    public AsyncStorage asyncStorage(Storage storage, @Qualifier(STORAGE_SCHEDULER) Scheduler storageScheduler) {
+        return AsyncStorage.of(storage, storageScheduler::schedule);
+    }
+
+}
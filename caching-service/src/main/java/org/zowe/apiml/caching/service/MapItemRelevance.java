@@ -0,0 +1,82 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+
+package org.zowe.apiml.caching.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import lombok.experimental.UtilityClass;
+import org.zowe.apiml.caching.model.KeyValue;
+import org.zowe.apiml.models.AccessTokenContainer;
+
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Relevance of the map items, i.e. the invalidated tokens and the invalidation rules. The storages use it to expire
+ * the items and to find the items which are not relevant anymore.
+ */
+@UtilityClass
+public class MapItemRelevance {
+
+    /**
+     * The invalidation rules are relevant while they are less than 91 days old.
+     */
+    private static final long RULE_RELEVANCE = TimeUnit.DAYS.toMillis(91);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    static {
+        objectMapper.registerModule(new JavaTimeModule());
+    }
+
+    /**
+     * @return time in milliseconds until which the item is relevant, or {@link Long#MAX_VALUE} if it is always relevant.
+     * Without the time to live, an invalidated token is relevant until its expiration and an invalidation rule is
+     * relevant for 91 days since its timestamp.
+     */
+    public static long relevantUntil(KeyValue item) {
+        Long ttl = item.getTtl();
+        if (ttl != null && ttl > 0) {
+            return System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ttl);
+        }
+
+        try {
+            return ruleRelevantUntil(item.getValue());
+        } catch (NumberFormatException e) {
+            try {
+                return tokenRelevantUntil(item.getValue());
+            } catch (JsonProcessingException | RuntimeException ex) {
+                // the value is neither an invalidated token nor a rule
+                return Long.MAX_VALUE;
+            }
+        }
+    }
+
+    /**
+     * @throws NumberFormatException if the value is not a timestamp of the rule
+     */
+    public static long ruleRelevantUntil(String value) {
+        return Long.parseLong(value) + RULE_RELEVANCE;
+    }
+
+    /**
+     * @throws JsonProcessingException if the value is not an invalidated token
+     */
+    public static long tokenRelevantUntil(String value) throws JsonProcessingException {
+        AccessTokenContainer container = objectMapper.readValue(value, AccessTokenContainer.class);
+        if (container == null || container.getExpiresAt() == null) {
+            return Long.MAX_VALUE;
+        }
+        return container.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+}
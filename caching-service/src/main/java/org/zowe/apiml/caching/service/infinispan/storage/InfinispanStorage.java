@@ -11,47 +11,77 @@
 package org.zowe.apiml.caching.service.infinispan.storage;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import lombok.extern.slf4j.Slf4j;
-import org.infinispan.lock.api.ClusteredLock;
+import org.infinispan.commons.api.AsyncCache;
+import org.infinispan.commons.api.BasicCache;
 import org.zowe.apiml.caching.model.KeyValue;
+import org.zowe.apiml.caching.service.MapItemRelevance;
 import org.zowe.apiml.caching.service.Messages;
+import org.zowe.apiml.cache.AsyncStorage;
 import org.zowe.apiml.cache.Storage;
 import org.zowe.apiml.cache.StorageException;
-import org.zowe.apiml.models.AccessTokenContainer;
 
-import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+/**
+ * Storage based on replicated Infinispan caches.
+ * <p>
+ * The asynchronous methods use the asynchronous API of Infinispan for the single entry operations. The operations
+ * iterating over the entries of a service are executed by the executor, they never block the calling thread.
+ * <p>
+ * The time to live of an entry is passed to Infinispan as the lifespan of the cache entry, so it is counted from the
+ * write as in the other storages.
+ * <p>
+ * Each item of the maps (invalidated tokens and the invalidation rules) is a separate entry of the map item cache,
+ * the key consists of the service ID, the map key and the item key. The items are stored and removed without any
+ * lock, and they expire by the lifespan derived from their time to live or from their value. The maps stored as a
+ * whole by the previous versions are still read and evicted, but they are not written anymore.
+ * <p>
+ * The keys of all caches start with the service ID. The {@link KeyIndex} of each cache is used to find the entries
+ * of one service, so the operations for a whole service do not iterate over the entries of all services.
+ */
 @Slf4j
-public class InfinispanStorage implements Storage {
+public class InfinispanStorage implements Storage, AsyncStorage {
 
 
     private final ConcurrentMap<String, KeyValue> cache;
-    private final ConcurrentMap<String, Map<String, String>> tokenCache;
-    private final ClusteredLock lock;
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private final ConcurrentMap<String, String> mapItemCache;
+    private final ConcurrentMap<String, Map<String, String>> legacyMapCache;
+    private final Executor executor;
+    private final KeyIndex cacheIndex;
+    private final KeyIndex mapItemIndex;
+    private final KeyIndex legacyMapIndex;
 
-    public InfinispanStorage(ConcurrentMap<String, KeyValue> cache, ConcurrentMap<String, Map<String, String>> tokenCache, ClusteredLock lock) {
-        this.cache = cache;
-        this.tokenCache = tokenCache;
-        this.lock = lock;
+    /**
+     * Separator of the parts of the map item key, it does not occur in the service IDs and map keys.
+     */
+    static final char SEPARATOR = '\u0000';
+
+    public InfinispanStorage(ConcurrentMap<String, KeyValue> cache, ConcurrentMap<String, String> mapItemCache, ConcurrentMap<String, Map<String, String>> legacyMapCache) {
+        this(cache, mapItemCache, legacyMapCache, Runnable::run);
     }
 
-    static {
-        objectMapper.registerModule(new JavaTimeModule());
+    public InfinispanStorage(ConcurrentMap<String, KeyValue> cache, ConcurrentMap<String, String> mapItemCache, ConcurrentMap<String, Map<String, String>> legacyMapCache, Executor executor) {
+        this.cache = cache;
+        this.mapItemCache = mapItemCache;
+        this.legacyMapCache = legacyMapCache;
+        this.executor = executor;
+        this.cacheIndex = KeyIndex.of(cache);
+        this.mapItemIndex = KeyIndex.of(mapItemCache);
+        this.legacyMapIndex = KeyIndex.of(legacyMapCache);
     }
 
     @Override
     public KeyValue create(String serviceId, KeyValue toCreate) {
         toCreate.setServiceId(serviceId);
+        toCreate.storedNow();
         log.info("Writing record: {}|{}|{}", serviceId, toCreate.getKey(), toCreate.getValue());
 
-        KeyValue serviceCache = cache.putIfAbsent(serviceId + toCreate.getKey(), toCreate);
+        KeyValue serviceCache = putIfAbsent(serviceId + toCreate.getKey(), toCreate);
 
         if (serviceCache != null) {
             throw new StorageException(Messages.DUPLICATE_KEY.getKey(), Messages.DUPLICATE_KEY.getStatus(), toCreate.getKey());
@@ -61,39 +91,59 @@ public class InfinispanStorage implements Storage {
 
     @Override
     public KeyValue storeMapItem(String serviceId, String mapKey, KeyValue toCreate) {
-        CompletableFuture<Boolean> complete = lock.tryLock(4, TimeUnit.SECONDS).whenComplete((r, ex) -> {
-            if (Boolean.TRUE.equals(r)) {
-                try {
-                    String cacheKey = serviceId + mapKey;
-                    log.info("Storing the item into token cache: {} -> {}|{}", cacheKey, toCreate.getKey(), toCreate.getValue());
-                    Map<String, String> tokenCacheItem = tokenCache.get(cacheKey);
-                    if (tokenCacheItem == null) {
-                        tokenCacheItem = new HashMap<>();
-                    }
-                    tokenCacheItem.put(toCreate.getKey(), toCreate.getValue());
-                    tokenCache.put(cacheKey, tokenCacheItem);
-                } finally {
-                    lock.unlock();
-                }
-            }
-        });
-        completeJoin(complete);
+        log.info("Storing the item into map {} of service {}: {}|{}", mapKey, serviceId, toCreate.getKey(), toCreate.getValue());
+        String itemKey = mapItemKey(serviceId, mapKey, toCreate.getKey());
+        long lifespan = mapItemLifespan(toCreate);
+        BasicCache<String, String> basicCache = asBasicCache(mapItemCache);
+        if (basicCache == null) {
+            mapItemCache.put(itemKey, toCreate.getValue());
+        } else {
+            basicCache.put(itemKey, toCreate.getValue(), lifespan, TimeUnit.MILLISECONDS);
+        }
         return null;
     }
 
     @Override
     public Map<String, String> getAllMapItems(String serviceId, String mapKey) {
         log.info("Reading all records from token cache for service {} under the {} key.", serviceId, mapKey);
-        return tokenCache.get(serviceId + mapKey);
+        Map<String, String> result = new HashMap<>();
+        Map<String, String> legacyMap = legacyMapCache.get(serviceId + mapKey);
+        if (legacyMap != null) {
+            result.putAll(legacyMap);
+        }
+
+        String prefix = mapItemKey(serviceId, mapKey, "");
+        for (String itemKey : mapItemIndex.keysWithPrefix(prefix)) {
+            String value = mapItemCache.get(itemKey);
+            if (value != null) {
+                result.put(itemKey.substring(prefix.length()), value);
+            }
+        }
+        return result.isEmpty() ? null : result;
     }
 
     @Override
     public Map<String, Map<String, String>> getAllMaps(String serviceId) {
         log.info("Reading all records from token cache for service {} ", serviceId);
-        // filter all maps which belong given service and remove the service name from key names.
-        return tokenCache.entrySet().stream().filter(
-            entry -> entry.getKey().startsWith(serviceId))
-            .collect(Collectors.toMap(e -> e.getKey().substring(serviceId.length()), Map.Entry::getValue));
+        Map<String, Map<String, String>> result = new HashMap<>();
+        // find all legacy maps which belong given service and remove the service name from key names.
+        for (String cacheKey : legacyMapIndex.keysWithPrefix(serviceId)) {
+            Map<String, String> map = legacyMapCache.get(cacheKey);
+            if (map != null) {
+                result.put(cacheKey.substring(serviceId.length()), new HashMap<>(map));
+            }
+        }
+
+        String prefix = serviceId + SEPARATOR;
+        for (String itemKey : mapItemIndex.keysWithPrefix(prefix)) {
+            String value = mapItemCache.get(itemKey);
+            if (value != null) {
+                int separator = itemKey.indexOf(SEPARATOR, prefix.length());
+                result.computeIfAbsent(itemKey.substring(prefix.length(), separator), k -> new HashMap<>())
+                    .put(itemKey.substring(separator + 1), value);
+            }
+        }
+        return result;
     }
 
     @Override
@@ -110,8 +160,9 @@ public class InfinispanStorage implements Storage {
     @Override
     public KeyValue update(String serviceId, KeyValue toUpdate) {
         toUpdate.setServiceId(serviceId);
+        toUpdate.storedNow();
         log.info("Updating record for service {} under key {}", serviceId, toUpdate);
-        KeyValue serviceCache = cache.put(serviceId + toUpdate.getKey(), toUpdate);
+        KeyValue serviceCache = put(serviceId + toUpdate.getKey(), toUpdate);
         if (serviceCache == null) {
             throw new StorageException(Messages.KEY_NOT_IN_CACHE.getKey(), Messages.KEY_NOT_IN_CACHE.getStatus(), toUpdate.getKey(), serviceId);
         }
@@ -119,6 +170,15 @@ public class InfinispanStorage implements Storage {
 
     }
 
+    @Override
+    public KeyValue upsert(String serviceId, KeyValue toUpsert) {
+        toUpsert.setServiceId(serviceId);
+        toUpsert.storedNow();
+        log.info("Upserting record for service {} under key {}", serviceId, toUpsert);
+        put(serviceId + toUpsert.getKey(), toUpsert);
+        return toUpsert;
+    }
+
     @Override
     public KeyValue delete(String serviceId, String toDelete) {
         log.info("Removing record for service {} under key {}", serviceId, toDelete);
@@ -134,87 +194,374 @@ public class InfinispanStorage implements Storage {
     public Map<String, KeyValue> readForService(String serviceId) {
         log.info("Reading all records for service {} ", serviceId);
         Map<String, KeyValue> result = new HashMap<>();
-        cache.forEach((key, value) -> {
-            if (serviceId.equals(value.getServiceId())) {
+        for (String cacheKey : cacheIndex.keysWithPrefix(serviceId)) {
+            KeyValue value = cache.get(cacheKey);
+            // another service could have the ID starting with this service ID
+            if (value != null && serviceId.equals(value.getServiceId())) {
                 result.put(value.getKey(), value);
             }
-        });
+        }
         return result;
     }
 
     @Override
     public void deleteForService(String serviceId) {
         log.info("Removing all records for service {} ", serviceId);
-        cache.forEach((key, value) -> {
-            if (value.getServiceId().equals(serviceId)) {
-                cache.remove(key);
+        for (String cacheKey : cacheIndex.keysWithPrefix(serviceId)) {
+            KeyValue value = cache.get(cacheKey);
+            if (value != null && serviceId.equals(value.getServiceId())) {
+                cache.remove(cacheKey, value);
             }
-        });
+        }
     }
 
     @Override
     public void removeNonRelevantTokens(String serviceId, String mapKey) {
-        CompletableFuture<Boolean> complete = lock.tryLock(4, TimeUnit.SECONDS).whenComplete((r, ex) -> {
-            if (Boolean.TRUE.equals(r)) {
-                try {
-                    removeToken(serviceId, mapKey);
-                } finally {
-                    lock.unlock();
-                }
+        long now = System.currentTimeMillis();
+        removeMapItems(serviceId, mapKey, value -> {
+            try {
+                return MapItemRelevance.tokenRelevantUntil(value) < now;
+            } catch (JsonProcessingException e) {
+                log.error("Not able to parse invalidToken json value.", e);
+                return false;
             }
         });
-        completeJoin(complete);
-    }
-
-    private void removeToken(String serviceId, String mapKey) {
-        Map<String, String> map = tokenCache.get(serviceId + mapKey);
-        if (map != null && !map.isEmpty()) {
-            Map<String,String> result = map.entrySet().stream().filter(entry -> {
-                try {
-                    AccessTokenContainer c = objectMapper.readValue(entry.getValue(), AccessTokenContainer.class);
-                    return !c.getExpiresAt().isBefore(LocalDateTime.now());
-                } catch (JsonProcessingException e) {
-                    log.error("Not able to parse invalidToken json value.", e);
-                    return true;
-                }
-            }).collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-            tokenCache.put(serviceId + mapKey, result);
-        }
     }
 
     @Override
     public void removeNonRelevantRules(String serviceId, String mapKey) {
-        CompletableFuture<Boolean> complete = lock.tryLock(4, TimeUnit.SECONDS).whenComplete((r, ex) -> {
-            if (Boolean.TRUE.equals(r)) {
-                try {
-                    long timestamp = System.currentTimeMillis();
-                    Map<String, String> map = tokenCache.get(serviceId + mapKey);
-                    if (map != null && !map.isEmpty()) {
-                        Map<String,String> result = map.entrySet().stream().filter(entry -> {
-                            long delta = timestamp - Long.parseLong(entry.getValue());
-                            long deltaToDays = TimeUnit.MILLISECONDS.toDays(delta);
-                            return deltaToDays <= 90;
-                        }).collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-                        tokenCache.put(serviceId + mapKey, result);
-                    }
-                } finally {
-                    lock.unlock();
-                }
+        long now = System.currentTimeMillis();
+        removeMapItems(serviceId, mapKey, value -> {
+            try {
+                return MapItemRelevance.ruleRelevantUntil(value) <= now;
+            } catch (NumberFormatException e) {
+                log.error("Not able to convert timestamp value to number.", e);
+                return false;
             }
         });
-        completeJoin(complete);
     }
 
-    private void completeJoin(CompletableFuture<Boolean> complete) {
-        try {
-            complete.join();
-        } catch (CompletionException e) {
-            if (e.getCause() instanceof StorageException) {
-                throw (StorageException) e.getCause();
+    /**
+     * Remove the items which are not relevant anymore. Each item is removed only if it was not changed in the meantime,
+     * the legacy map is replaced only if it was not changed in the meantime.
+     */
+    private void removeMapItems(String serviceId, String mapKey, Predicate<String> nonRelevant) {
+        for (String itemKey : mapItemIndex.keysWithPrefix(mapItemKey(serviceId, mapKey, ""))) {
+            String value = mapItemCache.get(itemKey);
+            if (value != null && nonRelevant.test(value)) {
+                mapItemCache.remove(itemKey, value);
+            }
+        }
+
+        String legacyKey = serviceId + mapKey;
+        Map<String, String> legacyMap = legacyMapCache.get(legacyKey);
+        if (legacyMap != null) {
+            Map<String, String> relevant = legacyMap.entrySet().stream()
+                .filter(entry -> !nonRelevant.test(entry.getValue()))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+            if (relevant.isEmpty()) {
+                legacyMapCache.remove(legacyKey, legacyMap);
+            } else if (relevant.size() < legacyMap.size()) {
+                legacyMapCache.replace(legacyKey, legacyMap, relevant);
+            }
+        }
+    }
+
+    static String mapItemKey(String serviceId, String mapKey, String key) {
+        return serviceId + SEPARATOR + mapKey + SEPARATOR + key;
+    }
+
+    /**
+     * @return lifespan of the map item in milliseconds, negative value if the item does not expire. Without the time to
+     * live, the lifespan of an invalidated token or an invalidation rule ends when the item stops to be relevant.
+     */
+    static long mapItemLifespan(KeyValue item) {
+        Long ttl = item.getTtl();
+        if (ttl != null && ttl > 0) {
+            return TimeUnit.SECONDS.toMillis(ttl);
+        }
+
+        long relevantUntil = MapItemRelevance.relevantUntil(item);
+        if (relevantUntil == Long.MAX_VALUE) {
+            return -1;
+        }
+        return Math.max(1, relevantUntil - System.currentTimeMillis());
+    }
+
+    @Override
+    public Map<String, KeyValue> readAll(String serviceId, Collection<String> keys) {
+        log.info("Reading records for service {} under keys {}", serviceId, keys);
+        Map<String, KeyValue> result = new HashMap<>();
+        for (String key : keys) {
+            KeyValue keyValue = cache.get(serviceId + key);
+            if (keyValue != null) {
+                result.put(key, keyValue);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, StorageException> storeAll(String serviceId, Collection<KeyValue> toStore) {
+        log.info("Storing {} records for service {}", toStore.size(), serviceId);
+        BasicCache<String, KeyValue> basicCache = asBasicCache(cache);
+        toCacheEntries(serviceId, toStore).forEach((lifespan, entries) -> {
+            if (basicCache == null) {
+                cache.putAll(entries);
             } else {
-                log.error("Unexpected error while acquiring the lock ", e);
-                throw e;
+                basicCache.putAll(entries, lifespan, TimeUnit.SECONDS);
+            }
+        });
+        return new HashMap<>();
+    }
+
+    @Override
+    public Set<String> deleteAll(String serviceId, Collection<String> keys) {
+        log.info("Removing records for service {} under keys {}", serviceId, keys);
+        Set<String> deleted = new HashSet<>();
+        for (String key : keys) {
+            if (cache.remove(serviceId + key) != null) {
+                deleted.add(key);
             }
         }
+        return deleted;
+    }
+
+    /**
+     * @return the cache entries grouped by their lifespan
+     */
+    private Map<Long, Map<String, KeyValue>> toCacheEntries(String serviceId, Collection<KeyValue> toStore) {
+        Map<Long, Map<String, KeyValue>> entries = new HashMap<>();
+        for (KeyValue keyValue : toStore) {
+            keyValue.setServiceId(serviceId);
+            keyValue.storedNow();
+            entries.computeIfAbsent(lifespan(keyValue), k -> new HashMap<>()).put(serviceId + keyValue.getKey(), keyValue);
+        }
+        return entries;
+    }
+
+    /**
+     * @return lifespan of the cache entry in seconds, negative value if the entry does not expire
+     */
+    private static long lifespan(KeyValue keyValue) {
+        Long ttl = keyValue.getTtl();
+        return (ttl == null || ttl <= 0) ? -1 : ttl;
+    }
+
+    private KeyValue put(String cacheKey, KeyValue keyValue) {
+        BasicCache<String, KeyValue> basicCache = asBasicCache(cache);
+        if (basicCache == null) {
+            return cache.put(cacheKey, keyValue);
+        }
+        return basicCache.put(cacheKey, keyValue, lifespan(keyValue), TimeUnit.SECONDS);
+    }
+
+    private KeyValue putIfAbsent(String cacheKey, KeyValue keyValue) {
+        BasicCache<String, KeyValue> basicCache = asBasicCache(cache);
+        if (basicCache == null) {
+            return cache.putIfAbsent(cacheKey, keyValue);
+        }
+        return basicCache.putIfAbsent(cacheKey, keyValue, lifespan(keyValue), TimeUnit.SECONDS);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> AsyncCache<String, V> asAsyncCache(ConcurrentMap<String, V> map) {
+        return (map instanceof AsyncCache) ? (AsyncCache<String, V>) map : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> BasicCache<String, V> asBasicCache(ConcurrentMap<String, V> map) {
+        return (map instanceof BasicCache) ? (BasicCache<String, V>) map : null;
+    }
+
+    private <T> CompletionStage<T> supplyAsync(Supplier<T> operation) {
+        try {
+            return CompletableFuture.supplyAsync(operation, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletionStage<KeyValue> createAsync(String serviceId, KeyValue toCreate) {
+        AsyncCache<String, KeyValue> asyncCache = asAsyncCache(cache);
+        if (asyncCache == null) {
+            return supplyAsync(() -> create(serviceId, toCreate));
+        }
+
+        toCreate.setServiceId(serviceId);
+        toCreate.storedNow();
+        log.info("Writing record: {}|{}|{}", serviceId, toCreate.getKey(), toCreate.getValue());
+        return asyncCache.putIfAbsentAsync(serviceId + toCreate.getKey(), toCreate, lifespan(toCreate), TimeUnit.SECONDS).thenApply(serviceCache -> {
+            if (serviceCache != null) {
+                throw new StorageException(Messages.DUPLICATE_KEY.getKey(), Messages.DUPLICATE_KEY.getStatus(), toCreate.getKey());
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public CompletionStage<KeyValue> storeMapItemAsync(String serviceId, String mapKey, KeyValue toCreate) {
+        AsyncCache<String, String> asyncMapItemCache = asAsyncCache(mapItemCache);
+        if (asyncMapItemCache == null) {
+            return supplyAsync(() -> storeMapItem(serviceId, mapKey, toCreate));
+        }
+
+        log.info("Storing the item into map {} of service {}: {}|{}", mapKey, serviceId, toCreate.getKey(), toCreate.getValue());
+        return asyncMapItemCache.putAsync(mapItemKey(serviceId, mapKey, toCreate.getKey()), toCreate.getValue(), mapItemLifespan(toCreate), TimeUnit.MILLISECONDS)
+            .thenApply(previous -> null);
+    }
+
+    @Override
+    public CompletionStage<Map<String, String>> getAllMapItemsAsync(String serviceId, String mapKey) {
+        return supplyAsync(() -> getAllMapItems(serviceId, mapKey));
+    }
+
+    @Override
+    public CompletionStage<Map<String, Map<String, String>>> getAllMapsAsync(String serviceId) {
+        return supplyAsync(() -> getAllMaps(serviceId));
+    }
+
+    @Override
+    public CompletionStage<KeyValue> readAsync(String serviceId, String key) {
+        AsyncCache<String, KeyValue> asyncCache = asAsyncCache(cache);
+        if (asyncCache == null) {
+            return supplyAsync(() -> read(serviceId, key));
+        }
+
+        log.info("Reading record for service {} under key {}", serviceId, key);
+        return asyncCache.getAsync(serviceId + key).thenApply(serviceCache -> {
+            if (serviceCache == null) {
+                throw new StorageException(Messages.KEY_NOT_IN_CACHE.getKey(), Messages.KEY_NOT_IN_CACHE.getStatus(), key, serviceId);
+            }
+            return serviceCache;
+        });
+    }
+
+    @Override
+    public CompletionStage<KeyValue> updateAsync(String serviceId, KeyValue toUpdate) {
+        AsyncCache<String, KeyValue> asyncCache = asAsyncCache(cache);
+        if (asyncCache == null) {
+            return supplyAsync(() -> update(serviceId, toUpdate));
+        }
+
+        toUpdate.setServiceId(serviceId);
+        toUpdate.storedNow();
+        log.info("Updating record for service {} under key {}", serviceId, toUpdate);
+        return asyncCache.putAsync(serviceId + toUpdate.getKey(), toUpdate, lifespan(toUpdate), TimeUnit.SECONDS).thenApply(serviceCache -> {
+            if (serviceCache == null) {
+                throw new StorageException(Messages.KEY_NOT_IN_CACHE.getKey(), Messages.KEY_NOT_IN_CACHE.getStatus(), toUpdate.getKey(), serviceId);
+            }
+            return toUpdate;
+        });
+    }
+
+    @Override
+    public CompletionStage<KeyValue> upsertAsync(String serviceId, KeyValue toUpsert) {
+        AsyncCache<String, KeyValue> asyncCache = asAsyncCache(cache);
+        if (asyncCache == null) {
+            return supplyAsync(() -> upsert(serviceId, toUpsert));
+        }
+
+        toUpsert.setServiceId(serviceId);
+        toUpsert.storedNow();
+        log.info("Upserting record for service {} under key {}", serviceId, toUpsert);
+        return asyncCache.putAsync(serviceId + toUpsert.getKey(), toUpsert, lifespan(toUpsert), TimeUnit.SECONDS)
+            .thenApply(previous -> toUpsert);
+    }
+
+    @Override
+    public CompletionStage<KeyValue> deleteAsync(String serviceId, String toDelete) {
+        AsyncCache<String, KeyValue> asyncCache = asAsyncCache(cache);
+        if (asyncCache == null) {
+            return supplyAsync(() -> delete(serviceId, toDelete));
+        }
+
+        log.info("Removing record for service {} under key {}", serviceId, toDelete);
+        return asyncCache.removeAsync(serviceId + toDelete).thenApply(entry -> {
+            if (entry == null) {
+                throw new StorageException(Messages.KEY_NOT_IN_CACHE.getKey(), Messages.KEY_NOT_IN_CACHE.getStatus(), toDelete, serviceId);
+            }
+            return entry;
+        });
+    }
+
+    @Override
+    public CompletionStage<Map<String, KeyValue>> readForServiceAsync(String serviceId) {
+        return supplyAsync(() -> readForService(serviceId));
+    }
+
+    @Override
+    public CompletionStage<Void> deleteForServiceAsync(String serviceId) {
+        return supplyAsync(() -> {
+            deleteForService(serviceId);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletionStage<Void> removeNonRelevantTokensAsync(String serviceId, String mapKey) {
+        return supplyAsync(() -> {
+            removeNonRelevantTokens(serviceId, mapKey);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletionStage<Void> removeNonRelevantRulesAsync(String serviceId, String mapKey) {
+        return supplyAsync(() -> {
+            removeNonRelevantRules(serviceId, mapKey);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletionStage<Map<String, KeyValue>> readAllAsync(String serviceId, Collection<String> keys) {
+        AsyncCache<String, KeyValue> asyncCache = asAsyncCache(cache);
+        if (asyncCache == null) {
+            return supplyAsync(() -> readAll(serviceId, keys));
+        }
+
+        log.info("Reading records for service {} under keys {}", serviceId, keys);
+        Set<String> cacheKeys = new HashSet<>();
+        keys.forEach(key -> cacheKeys.add(serviceId + key));
+        return asyncCache.getAllAsync(cacheKeys).thenApply(entries -> {
+            Map<String, KeyValue> result = new HashMap<>();
+            entries.values().forEach(keyValue -> result.put(keyValue.getKey(), keyValue));
+            return result;
+        });
+    }
+
+    @Override
+    public CompletionStage<Map<String, StorageException>> storeAllAsync(String serviceId, Collection<KeyValue> toStore) {
+        AsyncCache<String, KeyValue> asyncCache = asAsyncCache(cache);
+        if (asyncCache == null) {
+            return supplyAsync(() -> storeAll(serviceId, toStore));
+        }
+
+        log.info("Storing {} records for service {}", toStore.size(), serviceId);
+        CompletableFuture<?>[] puts = toCacheEntries(serviceId, toStore).entrySet().stream()
+            .map(entries -> asyncCache.putAllAsync(entries.getValue(), entries.getKey(), TimeUnit.SECONDS))
+            .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(puts).thenApply(x -> new HashMap<>());
+    }
+
+    @Override
+    public CompletionStage<Set<String>> deleteAllAsync(String serviceId, Collection<String> keys) {
+        AsyncCache<String, KeyValue> asyncCache = asAsyncCache(cache);
+        if (asyncCache == null) {
+            return supplyAsync(() -> deleteAll(serviceId, keys));
+        }
+
+        log.info("Removing records for service {} under keys {}", serviceId, keys);
+        Set<String> deleted = ConcurrentHashMap.newKeySet();
+        CompletableFuture<?>[] removals = keys.stream()
+            .map(key -> asyncCache.removeAsync(serviceId + key).thenAccept(entry -> {
+                if (entry != null) {
+                    deleted.add(key);
+                }
+            }))
+            .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(removals).thenApply(x -> deleted);
     }
 }
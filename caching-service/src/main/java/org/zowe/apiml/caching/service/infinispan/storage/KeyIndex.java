@@ -0,0 +1,107 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+
+package org.zowe.apiml.caching.service.infinispan.storage;
+
+import org.infinispan.notifications.Listenable;
+import org.infinispan.notifications.Listener;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryCreated;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryExpired;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryRemoved;
+import org.infinispan.notifications.cachelistener.event.CacheEntryCreatedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryExpiredEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryRemovedEvent;
+
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Index of the keys of a cache. The keys of the entries start with the service ID, so the index allows to find the
+ * entries of one service without iterating over the whole cache.
+ */
+abstract class KeyIndex {
+
+    /**
+     * @return index of the map, it is kept up to date by a listener if the map is an Infinispan cache
+     */
+    static KeyIndex of(ConcurrentMap<String, ?> map) {
+        if (map instanceof Listenable listenable) {
+            Sorted index = new Sorted();
+            // register the listener first to not miss the changes done while the existing keys are loaded
+            listenable.addListener(index);
+            map.forEach((key, value) -> index.keys.add(key));
+            return index;
+        }
+        return new Scanning(map);
+    }
+
+    /**
+     * @return the keys starting with the prefix, the returned keys could be already removed from the cache
+     */
+    abstract List<String> keysWithPrefix(String prefix);
+
+    /**
+     * Index of an Infinispan cache. The sorted keys are updated by the events of the local cache, for the replicated
+     * cache they contain also the entries written by the other instances. The lookup takes logarithmic time plus
+     * the time proportional to the number of the found keys.
+     */
+    @Listener(observation = Listener.Observation.POST)
+    public static class Sorted extends KeyIndex {
+
+        private final NavigableSet<String> keys = new ConcurrentSkipListSet<>();
+
+        @CacheEntryCreated
+        public void created(CacheEntryCreatedEvent<String, ?> event) {
+            keys.add(event.getKey());
+        }
+
+        @CacheEntryRemoved
+        public void removed(CacheEntryRemovedEvent<String, ?> event) {
+            keys.remove(event.getKey());
+        }
+
+        @CacheEntryExpired
+        public void expired(CacheEntryExpiredEvent<String, ?> event) {
+            keys.remove(event.getKey());
+        }
+
+        @Override
+        List<String> keysWithPrefix(String prefix) {
+            return keys.tailSet(prefix).stream()
+                .takeWhile(key -> key.startsWith(prefix))
+                .toList();
+        }
+
+    }
+
+    /**
+     * Index of a map without notifications about the changes, it has to iterate over all the keys.
+     */
+    static class Scanning extends KeyIndex {
+
+        private final ConcurrentMap<String, ?> map;
+
+        Scanning(ConcurrentMap<String, ?> map) {
+            this.map = map;
+        }
+
+        @Override
+        List<String> keysWithPrefix(String prefix) {
+            return map.keySet().stream()
+                .filter(key -> key.startsWith(prefix))
+                .toList();
+        }
+
+    }
+
+}
@@ -0,0 +1,323 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+
+package org.zowe.apiml.caching.service.inmemory;
+
+import org.zowe.apiml.caching.service.Strategies;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Order in which the entries of the in-memory storage are evicted. The storage reports each write, read and removal
+ * of an entry, the order then provides the next entry to evict. All the operations take constant time.
+ * <p>
+ * The order is changed under a lock. The reads do not take it, they are recorded into a buffer which is drained
+ * under the lock in batches, by the next write, removal or eviction, or by a read which finds the lock free. The
+ * buffer is bounded, the reads over its capacity are dropped, as the order of the reads is only a hint.
+ */
+abstract class EvictionOrder {
+
+    static final int READ_BUFFER_CAPACITY = 1024;
+    static final int READ_BUFFER_DRAIN_THRESHOLD = 64;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Queue<EntryId> readBuffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger bufferedReads = new AtomicInteger();
+
+    /**
+     * Identification of an entry in the in-memory storage.
+     */
+    record EntryId(String serviceId, String key) {
+    }
+
+    /**
+     * @param strategy name of the eviction strategy
+     * @return the order for the strategy, or null if the strategy does not evict the entries
+     */
+    static EvictionOrder of(String strategy) {
+        if (Strategies.REMOVE_OLDEST.getKey().equals(strategy)) {
+            return new InsertionOrder();
+        }
+        if (Strategies.LEAST_RECENTLY_USED.getKey().equals(strategy)) {
+            return new AccessOrder();
+        }
+        if (Strategies.LEAST_FREQUENTLY_USED.getKey().equals(strategy)) {
+            return new FrequencyOrder();
+        }
+        return null;
+    }
+
+    final void written(EntryId id) {
+        lock.lock();
+        try {
+            drainReads();
+            onWritten(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Record the read of the entry without waiting for the lock.
+     */
+    final void accessed(EntryId id) {
+        if (!recordsReads()) {
+            return;
+        }
+
+        if (bufferedReads.get() < READ_BUFFER_CAPACITY) {
+            readBuffer.add(id);
+            bufferedReads.incrementAndGet();
+        }
+        if (bufferedReads.get() >= READ_BUFFER_DRAIN_THRESHOLD && lock.tryLock()) {
+            try {
+                drainReads();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    final void removed(EntryId id) {
+        lock.lock();
+        try {
+            drainReads();
+            onRemoved(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the entry to evict, or null if there is none
+     */
+    final EntryId victim() {
+        return victim(null);
+    }
+
+    /**
+     * @param excluded the entry being written, it cannot be evicted to make space for itself
+     * @return the entry to evict, or null if there is none except the excluded one
+     */
+    final EntryId victim(EntryId excluded) {
+        lock.lock();
+        try {
+            drainReads();
+            return nextVictim(excluded);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the first entry which is not the excluded one, at most two entries are visited
+     */
+    static EntryId first(Iterator<EntryId> iterator, EntryId excluded) {
+        while (iterator.hasNext()) {
+            EntryId id = iterator.next();
+            if (!id.equals(excluded)) {
+                return id;
+            }
+        }
+        return null;
+    }
+
+    private void drainReads() {
+        EntryId id;
+        while ((id = readBuffer.poll()) != null) {
+            bufferedReads.decrementAndGet();
+            onAccessed(id);
+        }
+    }
+
+    /**
+     * @return false if the reads do not change the order
+     */
+    boolean recordsReads() {
+        return true;
+    }
+
+    /*
+     * The methods below are called under the lock.
+     */
+
+    abstract void onWritten(EntryId id);
+
+    abstract void onAccessed(EntryId id);
+
+    abstract void onRemoved(EntryId id);
+
+    abstract EntryId nextVictim(EntryId excluded);
+
+    /**
+     * The oldest written entry is evicted first. An update makes the entry the youngest one, as it replaces the entry
+     * with the new creation time.
+     */
+    static class InsertionOrder extends EvictionOrder {
+
+        private final LinkedHashSet<EntryId> entries = new LinkedHashSet<>();
+
+        @Override
+        boolean recordsReads() {
+            return false;
+        }
+
+        @Override
+        void onWritten(EntryId id) {
+            entries.remove(id);
+            entries.add(id);
+        }
+
+        @Override
+        void onAccessed(EntryId id) {
+            // the reads do not change the order
+        }
+
+        @Override
+        void onRemoved(EntryId id) {
+            entries.remove(id);
+        }
+
+        @Override
+        EntryId nextVictim(EntryId excluded) {
+            return first(entries.iterator(), excluded);
+        }
+
+    }
+
+    /**
+     * The least recently written or read entry is evicted first (LRU).
+     */
+    static class AccessOrder extends EvictionOrder {
+
+        private final LinkedHashMap<EntryId, Boolean> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        @Override
+        void onWritten(EntryId id) {
+            entries.put(id, Boolean.TRUE);
+        }
+
+        @Override
+        void onAccessed(EntryId id) {
+            entries.get(id);
+        }
+
+        @Override
+        void onRemoved(EntryId id) {
+            entries.remove(id);
+        }
+
+        @Override
+        EntryId nextVictim(EntryId excluded) {
+            return first(entries.keySet().iterator(), excluded);
+        }
+
+    }
+
+    /**
+     * The least frequently written or read entry is evicted first (LFU), the least recently used one among the entries
+     * with the same frequency. The entries are kept in buckets by their frequency. The frequency is saturated at
+     * {@link #MAX_FREQUENCY}, so the lookup of the lowest non-empty bucket is bounded.
+     * <p>
+     * All the frequencies are halved once the number of the uses since the last halving reaches {@link #AGING_FACTOR}
+     * times the number of the entries (at least {@link #MIN_AGING_PERIOD}), so an entry popular in the past loses its
+     * advantage over the entries used now. The halving visits each entry once, its cost is spread over the uses.
+     */
+    static class FrequencyOrder extends EvictionOrder {
+
+        static final int MAX_FREQUENCY = 15;
+        static final int AGING_FACTOR = 10;
+        static final int MIN_AGING_PERIOD = 1000;
+
+        private final Map<EntryId, Integer> frequencies = new HashMap<>();
+        private final LinkedHashSet<EntryId>[] buckets;
+        private long usesSinceAging;
+
+        @SuppressWarnings("unchecked")
+        FrequencyOrder() {
+            buckets = new LinkedHashSet[MAX_FREQUENCY + 1];
+            for (int i = 1; i <= MAX_FREQUENCY; i++) {
+                buckets[i] = new LinkedHashSet<>();
+            }
+        }
+
+        @Override
+        void onWritten(EntryId id) {
+            increment(id);
+        }
+
+        @Override
+        void onAccessed(EntryId id) {
+            if (frequencies.containsKey(id)) {
+                increment(id);
+            }
+        }
+
+        private void increment(EntryId id) {
+            Integer frequency = frequencies.get(id);
+            int newFrequency = 1;
+            if (frequency != null) {
+                buckets[frequency].remove(id);
+                newFrequency = Math.min(frequency + 1, MAX_FREQUENCY);
+            }
+            frequencies.put(id, newFrequency);
+            buckets[newFrequency].add(id);
+
+            if (++usesSinceAging >= Math.max(MIN_AGING_PERIOD, (long) AGING_FACTOR * frequencies.size())) {
+                age();
+            }
+        }
+
+        /**
+         * Halve the frequencies, the entries of the merged buckets keep their order from the lower frequency.
+         */
+        void age() {
+            usesSinceAging = 0;
+            for (int i = 2; i <= MAX_FREQUENCY; i++) {
+                int newFrequency = Math.max(1, i / 2);
+                for (EntryId id : buckets[i]) {
+                    frequencies.put(id, newFrequency);
+                    buckets[newFrequency].add(id);
+                }
+                buckets[i].clear();
+            }
+        }
+
+        @Override
+        void onRemoved(EntryId id) {
+            Integer frequency = frequencies.remove(id);
+            if (frequency != null) {
+                buckets[frequency].remove(id);
+            }
+        }
+
+        @Override
+        EntryId nextVictim(EntryId excluded) {
+            for (int i = 1; i <= MAX_FREQUENCY; i++) {
+                EntryId victim = first(buckets[i].iterator(), excluded);
+                if (victim != null) {
+                    return victim;
+                }
+            }
+            return null;
+        }
+
+    }
+
+}
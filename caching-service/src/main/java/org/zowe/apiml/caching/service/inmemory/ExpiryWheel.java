@@ -0,0 +1,176 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+
+package org.zowe.apiml.caching.service.inmemory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.zowe.apiml.caching.model.KeyValue;
+import org.zowe.apiml.caching.service.inmemory.EvictionOrder.EntryId;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Hashed timer wheel expiring the entries of the in-memory storage with a time to live.
+ * <p>
+ * Each entry is placed into the slot of its expiration tick. The wheel advances once per tick and expires the entries
+ * of the passed slots whose expiration time elapsed, the entries expiring in one of the next revolutions stay in the
+ * slot. The slots are concurrent sets, so scheduling and cancelling a timeout are constant time, and the storage is
+ * never scanned as a whole. The ticking thread is started with the first scheduled entry.
+ * <p>
+ * The wheel keeps only the key of the entry and its expiration time, at most one per key. Scheduling the key again
+ * replaces its previous timeout, so the rewritten entries do not pile up in the wheel. The storage checks the current
+ * entry of the key once its timeout comes.
+ */
+@Slf4j
+class ExpiryWheel {
+
+    static final int DEFAULT_SLOTS = 512;
+    static final long DEFAULT_TICK_MILLIS = 1000;
+
+    private final Set<Timeout>[] slots;
+    private final long tickMillis;
+    private final BiConsumer<String, String> expiration;
+    private final LongSupplier clock;
+    private final Map<EntryId, Timeout> scheduled = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService ticker;
+    private long lastTick = -1;
+
+    /**
+     * @param expiration called with the service ID and the key of the entry once its expiration time elapsed
+     */
+    ExpiryWheel(BiConsumer<String, String> expiration) {
+        this(DEFAULT_SLOTS, DEFAULT_TICK_MILLIS, expiration, System::currentTimeMillis);
+    }
+
+    @SuppressWarnings("unchecked")
+    ExpiryWheel(int slotCount, long tickMillis, BiConsumer<String, String> expiration, LongSupplier clock) {
+        this.slots = new Set[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = ConcurrentHashMap.newKeySet();
+        }
+        this.tickMillis = tickMillis;
+        this.expiration = expiration;
+        this.clock = clock;
+    }
+
+    /**
+     * Schedule the expiration of the entry, the previous timeout of its key is cancelled. The entries without a time
+     * to live are not scheduled.
+     *
+     * @param serviceId Id of the service the entry belongs to
+     * @param entry     entry to expire
+     */
+    void schedule(String serviceId, KeyValue entry) {
+        EntryId id = new EntryId(serviceId, entry.getKey());
+        long expiresAt = entry.expiresAt();
+        if (expiresAt == Long.MAX_VALUE) {
+            cancel(id);
+            return;
+        }
+
+        Timeout timeout = new Timeout(id, expiresAt);
+        Timeout previous = scheduled.put(id, timeout);
+        // the timeouts are equal when the expiration did not change, the set then keeps the same element
+        if (previous != null && !previous.equals(timeout)) {
+            slotOf(previous).remove(previous);
+        }
+        slotOf(timeout).add(timeout);
+        startIfNeeded();
+    }
+
+    /**
+     * Cancel the timeout of the removed entry.
+     */
+    void cancel(String serviceId, String key) {
+        cancel(new EntryId(serviceId, key));
+    }
+
+    private void cancel(EntryId id) {
+        Timeout previous = scheduled.remove(id);
+        if (previous != null) {
+            slotOf(previous).remove(previous);
+        }
+    }
+
+    /**
+     * Advance the wheel to the current time and expire the elapsed entries.
+     */
+    synchronized void tick() {
+        long now = clock.getAsLong();
+        long currentTick = now / tickMillis;
+        long firstTick = lastTick < 0 ? currentTick : lastTick + 1;
+        // all the slots are visited at most once, even if the ticking was delayed for more than a revolution
+        firstTick = Math.max(firstTick, currentTick - slots.length + 1);
+
+        for (long tick = firstTick; tick <= currentTick; tick++) {
+            slots[slotOf(tick)].removeIf(timeout -> {
+                if (timeout.expiresAt > now) {
+                    return false;
+                }
+                if (scheduled.remove(timeout.id, timeout)) {
+                    expiration.accept(timeout.id.serviceId(), timeout.id.key());
+                }
+                return true;
+            });
+        }
+        lastTick = currentTick;
+    }
+
+    private int slotOf(long tick) {
+        return (int) (tick % slots.length);
+    }
+
+    private Set<Timeout> slotOf(Timeout timeout) {
+        return slots[slotOf(timeout.expiresAt / tickMillis)];
+    }
+
+    int scheduledCount() {
+        return scheduled.size();
+    }
+
+    private synchronized void startIfNeeded() {
+        if (ticker != null) {
+            return;
+        }
+
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "in-memory-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(() -> {
+            try {
+                tick();
+            } catch (RuntimeException e) {
+                log.debug("Failure while expiring the in-memory entries", e);
+            }
+        }, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+
+    private record Timeout(EntryId id, long expiresAt) {
+    }
+
+}
@@ -8,6 +8,7 @@
  * Copyright Contributors to the Zowe Project.
  */
 
+
 package org.zowe.apiml.caching.service.inmemory;
 
 import lombok.extern.slf4j.Slf4j;
@@ -15,19 +16,41 @@ import org.zowe.apiml.cache.StorageException;
 import org.zowe.apiml.cache.Storage;
 import org.zowe.apiml.caching.model.KeyValue;
 import org.zowe.apiml.caching.service.*;
+import org.zowe.apiml.caching.service.inmemory.EvictionOrder.EntryId;
 import org.zowe.apiml.caching.service.inmemory.config.InMemoryConfig;
 import org.zowe.apiml.message.core.MessageService;
 import org.zowe.apiml.message.log.ApimlLogger;
 
-import java.util.HashMap;
+import jakarta.annotation.PreDestroy;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Storage keeping the entries in the memory of the caching service. The entries with a time to live are expired by
+ * the {@link ExpiryWheel}, the elapsed entries which were not expired yet are not visible for the reads.
+ * <p>
+ * Each service has its own concurrent segment. The number of the entries and their estimated size in bytes are
+ * counted on each change, so the check of the limits does not depend on the number of the stored entries. Once a
+ * limit is reached, the {@link EvictionOrder} of the configured strategy selects the entry to evict.
+ */
 @Slf4j
 public class InMemoryStorage implements Storage {
+
+    /**
+     * Estimated memory used by an entry besides its strings (objects headers, fields, the node of the map).
+     */
+    static final long ENTRY_OVERHEAD = 128;
+
     private Map<String, Map<String, KeyValue>> storage;
     private EvictionStrategy strategy = new DefaultEvictionStrategy();
+    private final EvictionOrder order;
     private InMemoryConfig config;
+    private final ExpiryWheel expiryWheel = new ExpiryWheel(this::expireIfElapsed);
+
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong bytes = new AtomicLong();
 
     public InMemoryStorage(InMemoryConfig inMemoryConfig, MessageService messageService) {
         this(inMemoryConfig, new ConcurrentHashMap<>(), ApimlLogger.of(RejectStrategy.class, messageService));
@@ -40,30 +63,55 @@ public class InMemoryStorage implements Storage {
         String evictionStrategy = inMemoryConfig.getGeneralConfig().getEvictionStrategy();
         if (evictionStrategy.equals(Strategies.REJECT.getKey())) {
             strategy = new RejectStrategy(apimlLogger);
-        } else if (evictionStrategy.equals(Strategies.REMOVE_OLDEST.getKey())) {
-            strategy = new RemoveOldestStrategy(storage);
         }
+        order = EvictionOrder.of(evictionStrategy);
+    }
+
+    @PreDestroy
+    public void stop() {
+        expiryWheel.stop();
     }
 
     @Override
     public KeyValue create(String serviceId, KeyValue toCreate) {
         log.info("Writing record: {}|{}|{}", serviceId, toCreate.getKey(), toCreate.getValue());
+        toCreate.storedNow();
 
-        storage.computeIfAbsent(serviceId, k -> new HashMap<>());
-        Map<String, KeyValue> serviceStorage = storage.get(serviceId);
-        if (serviceStorage.containsKey(toCreate.getKey())) {
-            throw new StorageException(Messages.DUPLICATE_KEY.getKey(), Messages.DUPLICATE_KEY.getStatus(), toCreate.getKey());
+        String key = toCreate.getKey();
+        if (!isKeyNotInCache(serviceId, key)) {
+            throw new StorageException(Messages.DUPLICATE_KEY.getKey(), Messages.DUPLICATE_KEY.getStatus(), key);
         }
 
-        if (aboveThreshold()) {
-            strategy.evict(toCreate.getKey());
-        }
+        long entryBytes = sizeOf(serviceId, toCreate);
+        makeSpace(serviceId, key, entryBytes);
 
-        serviceStorage.put(toCreate.getKey(), toCreate);
+        if (segment(serviceId).putIfAbsent(key, toCreate) != null) {
+            throw new StorageException(Messages.DUPLICATE_KEY.getKey(), Messages.DUPLICATE_KEY.getStatus(), key);
+        }
+        added(serviceId, toCreate, entryBytes);
 
         return toCreate;
     }
 
+    @Override
+    public KeyValue upsert(String serviceId, KeyValue toUpsert) {
+        log.info("Upserting record: {}|{}|{}", serviceId, toUpsert.getKey(), toUpsert.getValue());
+        toUpsert.storedNow();
+
+        String key = toUpsert.getKey();
+        long entryBytes = sizeOf(serviceId, toUpsert);
+        makeSpace(serviceId, key, entryBytes);
+
+        KeyValue previous = segment(serviceId).put(key, toUpsert);
+        if (previous == null) {
+            added(serviceId, toUpsert, entryBytes);
+        } else {
+            replaced(serviceId, previous, toUpsert, entryBytes);
+        }
+
+        return toUpsert;
+    }
+
     @Override
     public KeyValue storeMapItem(String serviceId, String mapKey, KeyValue toCreate) throws StorageException {
         throw new StorageException(Messages.INCOMPATIBLE_STORAGE_METHOD.getKey(), Messages.INCOMPATIBLE_STORAGE_METHOD.getStatus());
@@ -83,26 +131,34 @@ public class InMemoryStorage implements Storage {
     public KeyValue read(String serviceId, String key) {
         log.info("Reading Record: {}|{}|{}", serviceId, key, "-");
 
-        Map<String, KeyValue> serviceSpecificStorage = storage.get(serviceId);
-        if (serviceSpecificStorage == null || !serviceSpecificStorage.containsKey(key)) {
+        if (isKeyNotInCache(serviceId, key)) {
             throw new StorageException(Messages.KEY_NOT_IN_CACHE.getKey(), Messages.KEY_NOT_IN_CACHE.getStatus(), key, serviceId);
         }
 
-        return serviceSpecificStorage.get(key);
+        if (order != null) {
+            order.accessed(new EntryId(serviceId, key));
+        }
+        return storage.get(serviceId).get(key);
     }
 
     @Override
     public KeyValue update(String serviceId, KeyValue toUpdate) {
         log.info("Updating Record: {}|{}|{}", serviceId, toUpdate.getKey(), toUpdate.getValue());
+        toUpdate.storedNow();
 
         String key = toUpdate.getKey();
         if (isKeyNotInCache(serviceId, key)) {
             throw new StorageException(Messages.KEY_NOT_IN_CACHE.getKey(), Messages.KEY_NOT_IN_CACHE.getStatus(), key, serviceId);
         }
 
-        Map<String, KeyValue> serviceStorage = storage.get(serviceId);
+        long entryBytes = sizeOf(serviceId, toUpdate);
+        makeSpace(serviceId, key, entryBytes);
 
-        serviceStorage.put(key, toUpdate);
+        KeyValue previous = storage.get(serviceId).replace(key, toUpdate);
+        if (previous == null) {
+            throw new StorageException(Messages.KEY_NOT_IN_CACHE.getKey(), Messages.KEY_NOT_IN_CACHE.getStatus(), key, serviceId);
+        }
+        replaced(serviceId, previous, toUpdate, entryBytes);
         return toUpdate;
     }
 
@@ -114,18 +170,32 @@ public class InMemoryStorage implements Storage {
             throw new StorageException(Messages.KEY_NOT_IN_CACHE.getKey(), Messages.KEY_NOT_IN_CACHE.getStatus(), key, serviceId);
         }
 
-        Map<String, KeyValue> serviceSpecificStorage = storage.get(serviceId);
-        return serviceSpecificStorage.remove(key);
+        KeyValue deleted = storage.get(serviceId).remove(key);
+        if (deleted != null) {
+            removed(serviceId, deleted);
+        }
+        return deleted;
     }
 
     @Override
     public Map<String, KeyValue> readForService(String serviceId) {
-        return storage.get(serviceId);
+        Map<String, KeyValue> serviceSpecificStorage = storage.get(serviceId);
+        if (serviceSpecificStorage != null) {
+            long now = System.currentTimeMillis();
+            serviceSpecificStorage.values().stream()
+                .filter(keyValue -> keyValue.expiredAt(now))
+                .toList()
+                .forEach(keyValue -> expire(serviceId, keyValue));
+        }
+        return serviceSpecificStorage;
     }
 
     @Override
     public void deleteForService(String serviceId) {
-        storage.remove(serviceId);
+        Map<String, KeyValue> serviceSpecificStorage = storage.remove(serviceId);
+        if (serviceSpecificStorage != null) {
+            serviceSpecificStorage.values().forEach(keyValue -> removed(serviceId, keyValue));
+        }
     }
 
     @Override
@@ -138,19 +208,138 @@ public class InMemoryStorage implements Storage {
         throw new StorageException(Messages.INCOMPATIBLE_STORAGE_METHOD.getKey(), Messages.INCOMPATIBLE_STORAGE_METHOD.getStatus());
     }
 
+    private Map<String, KeyValue> segment(String serviceId) {
+        return storage.computeIfAbsent(serviceId, k -> new ConcurrentHashMap<>());
+    }
+
     private boolean isKeyNotInCache(String serviceId, String keyToTest) {
         Map<String, KeyValue> serviceSpecificStorage = storage.get(serviceId);
-        return serviceSpecificStorage == null || serviceSpecificStorage.get(keyToTest) == null;
+        if (serviceSpecificStorage == null) {
+            return true;
+        }
+
+        KeyValue keyValue = serviceSpecificStorage.get(keyToTest);
+        if (keyValue != null && keyValue.expiredAt(System.currentTimeMillis())) {
+            expire(serviceId, keyValue);
+            return true;
+        }
+        return keyValue == null;
+    }
+
+    /**
+     * Remove the current entry of the key if its time to live elapsed. The timeouts of the {@link ExpiryWheel} do not
+     * hold the entries, so the entry is looked up again.
+     */
+    private void expireIfElapsed(String serviceId, String key) {
+        Map<String, KeyValue> serviceSpecificStorage = storage.get(serviceId);
+        KeyValue keyValue = serviceSpecificStorage == null ? null : serviceSpecificStorage.get(key);
+        if (keyValue != null && keyValue.expiredAt(System.currentTimeMillis())) {
+            expire(serviceId, keyValue);
+        }
+    }
+
+    /**
+     * Remove the expired entry, unless it was replaced in the meantime.
+     */
+    void expire(String serviceId, KeyValue expired) {
+        Map<String, KeyValue> serviceSpecificStorage = storage.get(serviceId);
+        if (serviceSpecificStorage != null && serviceSpecificStorage.remove(expired.getKey(), expired)) {
+            removed(serviceId, expired);
+            log.debug("Expired record: {}|{}", serviceId, expired.getKey());
+        }
+    }
+
+    private void added(String serviceId, KeyValue keyValue, long entryBytes) {
+        size.incrementAndGet();
+        bytes.addAndGet(entryBytes);
+        if (order != null) {
+            order.written(new EntryId(serviceId, keyValue.getKey()));
+        }
+        expiryWheel.schedule(serviceId, keyValue);
+    }
+
+    private void replaced(String serviceId, KeyValue previous, KeyValue keyValue, long entryBytes) {
+        bytes.addAndGet(entryBytes - sizeOf(serviceId, previous));
+        if (order != null) {
+            order.written(new EntryId(serviceId, keyValue.getKey()));
+        }
+        expiryWheel.schedule(serviceId, keyValue);
+    }
+
+    private void removed(String serviceId, KeyValue keyValue) {
+        size.decrementAndGet();
+        bytes.addAndGet(-sizeOf(serviceId, keyValue));
+        if (order != null) {
+            order.removed(new EntryId(serviceId, keyValue.getKey()));
+        }
+        expiryWheel.cancel(serviceId, keyValue.getKey());
+    }
+
+    /**
+     * Evict the entries until the written entry fits into the limits. An entry replacing an existing one needs only the
+     * space it adds to the replaced one, the replaced entry is never evicted. The strategies without an order are asked
+     * once, they either reject the written entry or let the storage grow.
+     */
+    private void makeSpace(String serviceId, String key, long entryBytes) {
+        long maxBytes = config.getMaxBytes();
+        if (maxBytes > 0 && entryBytes > maxBytes) {
+            throw new StorageException(Messages.PAYLOAD_TOO_LARGE.getKey(), Messages.PAYLOAD_TOO_LARGE.getStatus(), key);
+        }
+
+        while (aboveThreshold(serviceId, key, entryBytes)) {
+            if (order == null) {
+                strategy.evict(key);
+                return;
+            }
+
+            EntryId victim = order.victim(new EntryId(serviceId, key));
+            if (victim == null) {
+                return;
+            }
+            evict(victim);
+        }
+    }
+
+    private void evict(EntryId victim) {
+        Map<String, KeyValue> serviceSpecificStorage = storage.get(victim.serviceId());
+        KeyValue evicted = serviceSpecificStorage == null ? null : serviceSpecificStorage.remove(victim.key());
+        if (evicted == null) {
+            // removed in the meantime
+            order.removed(victim);
+            return;
+        }
+
+        removed(victim.serviceId(), evicted);
+        log.debug("Evicted record: {}|{}", victim.serviceId(), victim.key());
     }
 
-    private boolean aboveThreshold() {
-        int currentSize = 0;
-        for (Map.Entry<String, Map<String, KeyValue>> serviceStorage: storage.entrySet()) {
-            currentSize += serviceStorage.getValue().size();
+    private boolean aboveThreshold(String serviceId, String key, long entryBytes) {
+        int currentSize = size.get();
+        log.debug("Current Size {}.", currentSize);
+
+        Map<String, KeyValue> serviceSpecificStorage = storage.get(serviceId);
+        KeyValue replaced = serviceSpecificStorage == null ? null : serviceSpecificStorage.get(key);
+        if (replaced == null && currentSize >= config.getGeneralConfig().getMaxDataSize()) {
+            return true;
         }
+        long maxBytes = config.getMaxBytes();
+        long addedBytes = replaced == null ? entryBytes : entryBytes - sizeOf(serviceId, replaced);
+        return maxBytes > 0 && addedBytes > 0 && bytes.get() + addedBytes > maxBytes;
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    long bytes() {
+        return bytes.get();
+    }
 
-        log.info("Current Size {}.", currentSize);
+    static long sizeOf(String serviceId, KeyValue keyValue) {
+        return ENTRY_OVERHEAD + 2L * (length(serviceId) + length(keyValue.getKey()) + length(keyValue.getValue()) + length(keyValue.getCreated()));
+    }
 
-        return currentSize >= config.getGeneralConfig().getMaxDataSize();
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
     }
 }
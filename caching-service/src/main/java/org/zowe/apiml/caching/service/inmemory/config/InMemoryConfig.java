@@ -13,6 +13,7 @@ package org.zowe.apiml.caching.service.inmemory.config;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.ToString;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.zowe.apiml.caching.config.GeneralConfig;
 
@@ -23,4 +24,10 @@ import org.zowe.apiml.caching.config.GeneralConfig;
 public class InMemoryConfig {
     private final GeneralConfig generalConfig;
 
+    /**
+     * Estimated size of all the entries in bytes before the eviction strategy is initiated, 0 means no limit.
+     */
+    @Value("${caching.storage.inMemory.maxBytes:0}")
+    private long maxBytes;
+
 }
@@ -10,10 +10,14 @@
 
 package org.zowe.apiml.caching.service.redis;
 
+import io.lettuce.core.Range;
+import io.lettuce.core.ReadFrom;
 import io.lettuce.core.RedisClient;
 import io.lettuce.core.RedisCommandExecutionException;
 import io.lettuce.core.RedisFuture;
+import io.lettuce.core.RedisNoScriptException;
 import io.lettuce.core.RedisURI;
+import io.lettuce.core.ScriptOutputType;
 import io.lettuce.core.api.async.RedisAsyncCommands;
 import io.lettuce.core.codec.StringCodec;
 import io.lettuce.core.masterreplica.MasterReplica;
@@ -30,12 +34,37 @@ import org.zowe.apiml.caching.service.redis.exceptions.RetryableRedisException;
 import org.zowe.apiml.message.log.ApimlLogger;
 
 import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Class used to connect to and operate on a Redis instance or cluster.
  * Contains the CRUD operations enacted on Redis with serialized read and write.
+ * <p>
+ * The methods with the suffix Async do not wait for the response of Redis. Their stages are completed exceptionally
+ * with {@link RetryableRedisException} or {@link RedisOutOfMemoryException} (write operations) in the same cases as
+ * the synchronous methods throw them.
+ * <p>
+ * All the commands are sent over one connection, Lettuce flushes each command immediately and the commands of the
+ * concurrent requests are pipelined on the connection. The conditional update is a Lua script, so it takes a single
+ * round trip. The reads of the entries (get, readForService) can be served by the replicas, if a {@link ReadFrom}
+ * setting is configured, they then use a separate connection. The other commands are always sent to the master.
+ * <p>
+ * The time to live of an entry is set on its hash field (HEXPIRE, Redis 7.4+). The elapsed entries are also filtered
+ * out on read, so the expiration is honoured by the older Redis versions. There the elapsed entry is removed once it
+ * is read, and the create replaces it the same way as when it does not exist. The missing support of HEXPIRE is
+ * logged once.
+ * <p>
+ * Each map of a service (invalidated tokens, invalidation rules) is a separate hash. The time until which its items
+ * are relevant is kept in a sorted set next to the hash, so the items which are not relevant anymore are found by
+ * a range query instead of reading the whole map. The map keys of a service are kept in a set.
  */
 @AllArgsConstructor
 @NoArgsConstructor
@@ -43,15 +72,99 @@ import java.util.concurrent.ExecutionException;
 @Component
 @ConditionalOnProperty(name = "caching.storage.mode", havingValue = "redis")
 public class RedisOperator {
+    /**
+     * Set the time to live (if positive) of the written field. The script returns {@link #WRITTEN}, or
+     * {@link #WRITTEN_WITHOUT_EXPIRATION} if HEXPIRE failed (Redis older than 7.4).
+     */
+    private static final String EXPIRE_WRITTEN_FIELD = """
+        if tonumber(ARGV[3]) > 0 and redis.pcall('HEXPIRE', KEYS[1], ARGV[3], 'FIELDS', 1, ARGV[1])['err'] then return 2 end
+        return 1
+        """;
+    /**
+     * Create the field and set its time to live atomically. An existing field is replaced if its time to live elapsed
+     * at the given time (ARGV[4]), the same way as it is hidden by the reads.
+     */
+    static final String CREATE_SCRIPT = """
+        local current = redis.call('HGET', KEYS[1], ARGV[1])
+        if current then
+            local ok, entry = pcall(cjson.decode, current)
+            if ok and type(entry) == 'table' then
+                local ttl = tonumber(entry['ttl'])
+                local base = tonumber(entry['stored']) or tonumber(entry['created'])
+                if not ttl or ttl <= 0 or not base or base + ttl * 1000 > tonumber(ARGV[4]) then return 0 end
+            end
+        end
+        redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])
+        """ + EXPIRE_WRITTEN_FIELD;
+    private static final String CREATE_SCRIPT_DIGEST = sha1(CREATE_SCRIPT);
+    /**
+     * Update the existing field and set its time to live atomically.
+     */
+    static final String UPDATE_SCRIPT = """
+        if redis.call('HEXISTS', KEYS[1], ARGV[1]) == 0 then return 0 end
+        redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])
+        """ + EXPIRE_WRITTEN_FIELD;
+    private static final String UPDATE_SCRIPT_DIGEST = sha1(UPDATE_SCRIPT);
+    /**
+     * Remove the elapsed field, unless it was written again in the meantime.
+     */
+    static final String REMOVE_ELAPSED_SCRIPT = """
+        if redis.call('HGET', KEYS[1], ARGV[1]) == ARGV[2] then return redis.call('HDEL', KEYS[1], ARGV[1]) end
+        return 0
+        """;
+    private static final String REMOVE_ELAPSED_SCRIPT_DIGEST = sha1(REMOVE_ELAPSED_SCRIPT);
+    /**
+     * Remove the items of the map (ARGV[2..]) with their relevance, the map key (ARGV[1]) is removed from the maps of
+     * the service if the map is empty then.
+     */
+    static final String REMOVE_MAP_ITEMS_SCRIPT = """
+        local removed = redis.call('HDEL', KEYS[1], unpack(ARGV, 2))
+        redis.call('ZREM', KEYS[2], unpack(ARGV, 2))
+        if redis.call('EXISTS', KEYS[1]) == 0 then redis.call('SREM', KEYS[3], ARGV[1]) end
+        return removed
+        """;
+    private static final String REMOVE_MAP_ITEMS_SCRIPT_DIGEST = sha1(REMOVE_MAP_ITEMS_SCRIPT);
+    /**
+     * Remove the map key (ARGV[1]) from the maps of the service and the relevance of the map, unless the map was written
+     * in the meantime. The map is empty once all its items expired natively.
+     */
+    static final String REMOVE_EMPTY_MAP_SCRIPT = """
+        if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end
+        redis.call('DEL', KEYS[2])
+        return redis.call('SREM', KEYS[3], ARGV[1])
+        """;
+    private static final String REMOVE_EMPTY_MAP_SCRIPT_DIGEST = sha1(REMOVE_EMPTY_MAP_SCRIPT);
+
+    static final long NOT_WRITTEN = 0;
+    static final long WRITTEN = 1;
+    static final long WRITTEN_WITHOUT_EXPIRATION = 2;
+
+    private final AtomicBoolean fieldExpirationSupported = new AtomicBoolean(true);
+
     private RedisClient redisClient;
     private StatefulRedisMasterReplicaConnection<String, String> redisConnection;
     private RedisAsyncCommands<String, String> redis;
+    private StatefulRedisMasterReplicaConnection<String, String> readConnection;
+    private RedisAsyncCommands<String, String> redisRead;
 
     public RedisOperator(RedisClient redisClient, RedisURI redisUri, ApimlLogger apimlLog) {
+        this(redisClient, redisUri, null, apimlLog);
+    }
+
+    /**
+     * @param readFrom the nodes to read the entries from, null if the entries are read from the master
+     */
+    public RedisOperator(RedisClient redisClient, RedisURI redisUri, ReadFrom readFrom, ApimlLogger apimlLog) {
         try {
             this.redisClient = redisClient;
             redisConnection = MasterReplica.connect(this.redisClient, StringCodec.UTF8, redisUri);
             redis = redisConnection.async();
+            redisRead = redis;
+            if (readFrom != null) {
+                readConnection = MasterReplica.connect(this.redisClient, StringCodec.UTF8, redisUri);
+                readConnection.setReadFrom(readFrom);
+                redisRead = readConnection.async();
+            }
             log.info("Connected to Redis {}", redisUri);
         } catch (Exception e) {
             apimlLog.log("org.zowe.apiml.cache.errorInitializingStorage", "redis", e.getCause().getMessage(), e);
@@ -59,8 +172,16 @@ public class RedisOperator {
         }
     }
 
+    public RedisOperator(RedisClient redisClient, StatefulRedisMasterReplicaConnection<String, String> redisConnection, RedisAsyncCommands<String, String> redis) {
+        this(redisClient, redisConnection, redis, null, redis);
+    }
+
     @PreDestroy
     public void closeConnection() {
+        if (readConnection != null) {
+            readConnection.close();
+        }
+
         if (redisConnection != null) {
             redisConnection.close();
         }
@@ -74,23 +195,11 @@ public class RedisOperator {
      * Creates a given entry in Redis.
      *
      * @param entryToAdd RedisEntry containing the service ID for which to create the entry, and the key and value.
-     * @return true if the key does not exist for the service ID and the entry was created, otherwise false.
+     * @return true if the key does not exist for the service ID (or its entry elapsed) and the entry was created,
+     * otherwise false.
      */
     public boolean create(RedisEntry entryToAdd) throws RedisOutOfMemoryException {
-        KeyValue toAdd = entryToAdd.getEntry();
-
-        try {
-            RedisFuture<Boolean> result = redis.hsetnx(entryToAdd.getServiceId(), toAdd.getKey(), entryToAdd.getEntryAsString());
-            return result.get();
-        } catch (ExecutionException e) {
-            handleWriteOperationExecutionException(e);
-        } catch (InterruptedException e) {
-            handleInterruptedException(e);
-        } catch (RedisEntryException e) {
-            return false;
-        }
-
-        return false;
+        return await(createAsync(entryToAdd));
     }
 
     /**
@@ -100,23 +209,23 @@ public class RedisOperator {
      * @return true if the key exists for a service ID and the value was updated, otherwise false.
      */
     public boolean update(RedisEntry entryToUpdate) throws RedisOutOfMemoryException {
-        String serviceId = entryToUpdate.getServiceId();
-        KeyValue toUpdate = entryToUpdate.getEntry();
+        return await(updateAsync(entryToUpdate));
+    }
 
+    private boolean await(CompletionStage<Boolean> write) throws RedisOutOfMemoryException {
         try {
-            boolean exists = redis.hexists(serviceId, toUpdate.getKey()).get();
-            if (!exists) {
-                return false;
-            }
-
-            boolean result = redis.hset(serviceId, toUpdate.getKey(), entryToUpdate.getEntryAsString()).get();
-            return !result; // hset returns false if field already exists and value was updated
+            return write.toCompletableFuture().get();
         } catch (ExecutionException e) {
-            handleWriteOperationExecutionException(e);
+            Throwable cause = unwrap(e);
+            if (cause instanceof RedisOutOfMemoryException redisOutOfMemoryException) {
+                throw redisOutOfMemoryException;
+            }
+            if (cause instanceof RetryableRedisException retryableRedisException) {
+                throw retryableRedisException;
+            }
+            throw new RetryableRedisException(cause);
         } catch (InterruptedException e) {
             handleInterruptedException(e);
-        } catch (RedisEntryException e) {
-            return false;
         }
 
         return false;
@@ -129,8 +238,8 @@ public class RedisOperator {
      */
     public RedisEntry get(String serviceId, String key) {
         try {
-            String result = redis.hget(serviceId, key).get();
-            return new RedisEntry(serviceId, result);
+            String result = redisRead.hget(serviceId, key).get();
+            return notExpired(new RedisEntry(serviceId, result), result);
         } catch (InterruptedException e) {
             handleInterruptedException(e);
         } catch (ExecutionException e) {
@@ -149,7 +258,7 @@ public class RedisOperator {
      */
     public List<RedisEntry> get(String serviceId) {
         try {
-            Map<String, String> result = redis.hgetall(serviceId).get();
+            Map<String, String> result = redisRead.hgetall(serviceId).get();
             return collectEntries(serviceId, result);
         } catch (InterruptedException e) {
             handleInterruptedException(e);
@@ -165,7 +274,10 @@ public class RedisOperator {
 
         for (Map.Entry<String, String> entry : redisEntries.entrySet()) {
             try {
-                entries.add(new RedisEntry(serviceId, entry.getValue()));
+                RedisEntry redisEntry = notExpired(new RedisEntry(serviceId, entry.getValue()), entry.getValue());
+                if (redisEntry != null) {
+                    entries.add(redisEntry);
+                }
             } catch (RedisEntryException e) {
                 log.warn("Error retrieving entry: {}|{}. Error: {}", serviceId, entry, e.getMessage());
             }
@@ -210,13 +322,450 @@ public class RedisOperator {
         return false;
     }
 
-    private void handleWriteOperationExecutionException(ExecutionException e) throws RedisOutOfMemoryException {
-        Throwable cause = e.getCause();
-        if (cause instanceof RedisCommandExecutionException && cause.getMessage().contains("maxmemory")) {
-            throw new RedisOutOfMemoryException(cause);
+    /**
+     * Asynchronous variant of {@link #create(RedisEntry)}. The existence check, the write and the expiration are
+     * executed by a Lua script in a single round trip.
+     */
+    public CompletionStage<Boolean> createAsync(RedisEntry entryToAdd) {
+        return write(CREATE_SCRIPT, CREATE_SCRIPT_DIGEST, entryToAdd);
+    }
+
+    /**
+     * Asynchronous variant of {@link #update(RedisEntry)}. The existence check, the write and the expiration are
+     * executed by a Lua script in a single round trip.
+     */
+    public CompletionStage<Boolean> updateAsync(RedisEntry entryToUpdate) {
+        return write(UPDATE_SCRIPT, UPDATE_SCRIPT_DIGEST, entryToUpdate);
+    }
+
+    /**
+     * Write the entry by the script, its arguments are the key, the serialized entry, its time to live and the current
+     * time.
+     *
+     * @return true if the entry was written
+     */
+    private CompletionStage<Boolean> write(String script, String digest, RedisEntry entry) {
+        String[] keys = {entry.getServiceId()};
+        Long ttl = entry.getEntry().getTtl();
+
+        String[] args;
+        try {
+            args = new String[] {entry.getEntry().getKey(), entry.getEntryAsString(), String.valueOf(ttl == null ? 0 : ttl), String.valueOf(System.currentTimeMillis())};
+        } catch (RedisEntryException e) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        return this.<Long>eval(script, digest, ScriptOutputType.INTEGER, keys, args)
+            .handle((result, e) -> {
+                if (e != null) {
+                    throw toWriteOperationException(e);
+                }
+                if (result != null && result == WRITTEN_WITHOUT_EXPIRATION) {
+                    fieldExpirationNotSupported("HEXPIRE failed");
+                }
+                return result != null && result != NOT_WRITTEN;
+            });
+    }
+
+    /**
+     * Execute the Lua script. The script is sent by its digest (EVALSHA), the whole script is sent only if Redis does
+     * not know it yet.
+     */
+    private <T> CompletionStage<T> eval(String script, String digest, ScriptOutputType type, String[] keys, String[] args) {
+        return redis.<T>evalsha(digest, type, keys, args)
+            .exceptionallyCompose(e -> {
+                if (unwrap(e) instanceof RedisNoScriptException) {
+                    return redis.<T>eval(script, type, keys, args);
+                }
+                return CompletableFuture.failedStage(e);
+            });
+    }
+
+    /**
+     * Creates or replaces a given entry in Redis in a single command (HSET). The expiration (HEXPIRE) is pipelined with
+     * the write.
+     *
+     * @param entryToStore RedisEntry containing the service ID for which to store the entry, and the key and value.
+     * @return true if the entry was created, false if an existing entry was replaced.
+     */
+    public CompletionStage<Boolean> upsertAsync(RedisEntry entryToStore) {
+        KeyValue toStore = entryToStore.getEntry();
+
+        String value;
+        try {
+            value = entryToStore.getEntryAsString();
+        } catch (RedisEntryException e) {
+            return CompletableFuture.failedFuture(new RetryableRedisException(e));
+        }
+
+        RedisFuture<Boolean> result = redis.hset(entryToStore.getServiceId(), toStore.getKey(), value);
+        expire(entryToStore);
+        return result.handle((created, e) -> {
+            if (e != null) {
+                throw toWriteOperationException(e);
+            }
+            return created;
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #get(String, String)}.
+     */
+    public CompletionStage<RedisEntry> getAsync(String serviceId, String key) {
+        return redisRead.hget(serviceId, key)
+            .handle((result, e) -> {
+                if (e != null) {
+                    throw new RetryableRedisException(unwrap(e));
+                }
+                try {
+                    return notExpired(new RedisEntry(serviceId, result), result);
+                } catch (RedisEntryException ree) {
+                    log.warn("Error retrieving entry: {}|{}. Error: {}", serviceId, key, ree.getMessage());
+                    return null;
+                }
+            });
+    }
+
+    /**
+     * Asynchronous variant of {@link #get(String)}.
+     */
+    public CompletionStage<List<RedisEntry>> getAsync(String serviceId) {
+        return redisRead.hgetall(serviceId)
+            .handle((result, e) -> {
+                if (e != null) {
+                    throw new RetryableRedisException(unwrap(e));
+                }
+                return collectEntries(serviceId, result);
+            });
+    }
+
+    /**
+     * Asynchronous variant of {@link #delete(String, String)}.
+     */
+    public CompletionStage<Boolean> deleteAsync(String serviceId, String toDelete) {
+        return redis.hdel(serviceId, toDelete)
+            .handle((recordsDeleted, e) -> {
+                if (e != null) {
+                    throw new RetryableRedisException(unwrap(e));
+                }
+                return recordsDeleted >= 1;
+            });
+    }
+
+    /**
+     * Asynchronous variant of {@link #delete(String)}.
+     */
+    public CompletionStage<Boolean> deleteAsync(String serviceId) {
+        return redis.del(serviceId)
+            .handle((recordsDeleted, e) -> {
+                if (e != null) {
+                    throw new RetryableRedisException(unwrap(e));
+                }
+                return recordsDeleted >= 1;
+            });
+    }
+
+    /**
+     * Retrieve the entries for a given service with the corresponding keys in a single command (HMGET).
+     *
+     * @return List of the found RedisEntry instances, the missing keys are not included.
+     */
+    public CompletionStage<List<RedisEntry>> getAllAsync(String serviceId, Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+
+        return redisRead.hmget(serviceId, keys.toArray(new String[0]))
+            .handle((result, e) -> {
+                if (e != null) {
+                    throw new RetryableRedisException(unwrap(e));
+                }
+                Map<String, String> found = new HashMap<>();
+                result.forEach(kv -> kv.ifHasValue(value -> found.put(kv.getKey(), value)));
+                return collectEntries(serviceId, found);
+            });
+    }
+
+    /**
+     * Store the entries for a given service in a single command (HSET with multiple fields). The existing entries are
+     * replaced.
+     *
+     * @return number of the stored entries.
+     */
+    public CompletionStage<Integer> setAllAsync(String serviceId, Collection<RedisEntry> entries) {
+        Map<String, String> toStore = new HashMap<>();
+        for (RedisEntry entry : entries) {
+            try {
+                toStore.put(entry.getEntry().getKey(), entry.getEntryAsString());
+            } catch (RedisEntryException e) {
+                log.warn("Error storing entry: {}|{}. Error: {}", serviceId, entry.getEntry().getKey(), e.getMessage());
+            }
+        }
+        if (toStore.isEmpty()) {
+            return CompletableFuture.completedFuture(0);
+        }
+
+        RedisFuture<Long> stored = redis.hset(serviceId, toStore);
+        entries.forEach(this::expire);
+        return stored
+            .handle((result, e) -> {
+                if (e != null) {
+                    throw toWriteOperationException(e);
+                }
+                return toStore.size();
+            });
+    }
+
+    /**
+     * Deletes the entries with the given keys for a given service. The existence check (HMGET) and the delete (HDEL)
+     * are pipelined, the commands are sent without waiting for the first response and Redis processes them in order.
+     *
+     * @return the keys which existed and were deleted.
+     */
+    public CompletionStage<Set<String>> deleteAllAsync(String serviceId, Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptySet());
+        }
+
+        String[] fields = keys.toArray(new String[0]);
+        RedisFuture<List<io.lettuce.core.KeyValue<String, String>>> existing = redis.hmget(serviceId, fields);
+        RedisFuture<Long> deleted = redis.hdel(serviceId, fields);
+
+        return existing.thenCombine(deleted, (result, count) -> {
+                Set<String> deletedKeys = new HashSet<>();
+                result.forEach(kv -> {
+                    if (kv.hasValue()) {
+                        deletedKeys.add(kv.getKey());
+                    }
+                });
+                return deletedKeys;
+            })
+            .handle((result, e) -> {
+                if (e != null) {
+                    throw new RetryableRedisException(unwrap(e));
+                }
+                return result;
+            });
+    }
+
+    /**
+     * Store the item of the map. The write of the item, its relevance and the map key are pipelined, the item also
+     * expires natively (HPEXPIREAT, Redis 7.4+) once it is not relevant.
+     *
+     * @param relevantUntil time in milliseconds until which the item is relevant, {@link Long#MAX_VALUE} if it is
+     *                      always relevant
+     */
+    public CompletionStage<Boolean> setMapItemAsync(String serviceId, String mapKey, KeyValue item, long relevantUntil) {
+        String mapName = mapName(serviceId, mapKey);
+        String relevanceName = relevanceName(serviceId, mapKey);
+
+        RedisFuture<Boolean> result = redis.hset(mapName, item.getKey(), item.getValue());
+        RedisFuture<?> relevance;
+        if (relevantUntil == Long.MAX_VALUE) {
+            relevance = redis.zrem(relevanceName, item.getKey());
         } else {
-            throw new RetryableRedisException(e);
+            relevance = redis.zadd(relevanceName, relevantUntil, item.getKey());
+            redis.hpexpireat(mapName, relevantUntil, item.getKey())
+                .whenComplete((expired, e) -> {
+                    if (e != null) {
+                        expirationFailed(e, mapName + "|" + item.getKey());
+                    }
+                });
+        }
+        RedisFuture<Long> mapAdded = redis.sadd(mapsName(serviceId), mapKey);
+
+        return CompletableFuture.allOf(result.toCompletableFuture(), relevance.toCompletableFuture(), mapAdded.toCompletableFuture())
+            .handle((x, e) -> {
+                if (e != null) {
+                    throw toWriteOperationException(e);
+                }
+                return result.toCompletableFuture().join();
+            });
+    }
+
+    /**
+     * Retrieve all the items of the map (HGETALL).
+     *
+     * @return the items of the map, an empty map if there is none.
+     */
+    public CompletionStage<Map<String, String>> getMapItemsAsync(String serviceId, String mapKey) {
+        return redisRead.hgetall(mapName(serviceId, mapKey))
+            .handle((result, e) -> {
+                if (e != null) {
+                    throw new RetryableRedisException(unwrap(e));
+                }
+                return result;
+            });
+    }
+
+    /**
+     * Retrieve all the maps of the service. The map keys are read first (SMEMBERS), then the maps are read in a
+     * pipeline. The keys of the empty maps are removed without waiting.
+     *
+     * @return the non-empty maps of the service by their map keys.
+     */
+    public CompletionStage<Map<String, Map<String, String>>> getMapsAsync(String serviceId) {
+        return redisRead.smembers(mapsName(serviceId))
+            .thenCompose(mapKeys -> {
+                Map<String, CompletableFuture<Map<String, String>>> maps = new HashMap<>();
+                mapKeys.forEach(mapKey -> maps.put(mapKey, redisRead.hgetall(mapName(serviceId, mapKey)).toCompletableFuture()));
+                return CompletableFuture.allOf(maps.values().toArray(new CompletableFuture[0]))
+                    .thenApply(x -> {
+                        Map<String, Map<String, String>> result = new HashMap<>();
+                        maps.forEach((mapKey, items) -> {
+                            if (!items.join().isEmpty()) {
+                                result.put(mapKey, items.join());
+                            } else {
+                                removeEmptyMap(serviceId, mapKey);
+                            }
+                        });
+                        return result;
+                    });
+            })
+            .handle((result, e) -> {
+                if (e != null) {
+                    throw new RetryableRedisException(unwrap(e));
+                }
+                return result;
+            });
+    }
+
+    /**
+     * Remove the items of the map which are not relevant in the given time. The items are found by their relevance
+     * (ZRANGEBYSCORE), then the items and their relevance are removed by a script (HDEL, ZREM). The map key is removed
+     * by the same script once the map is empty.
+     *
+     * @param inclusive true if the items relevant exactly until the given time are removed too
+     * @return number of the removed items.
+     */
+    public CompletionStage<Integer> removeMapItemsAsync(String serviceId, String mapKey, long now, boolean inclusive) {
+        String mapName = mapName(serviceId, mapKey);
+        String relevanceName = relevanceName(serviceId, mapKey);
+        Range<Long> nonRelevant = Range.from(Range.Boundary.unbounded(), inclusive ? Range.Boundary.including(now) : Range.Boundary.excluding(now));
+
+        return redis.zrangebyscore(relevanceName, nonRelevant)
+            .thenCompose(itemKeys -> {
+                if (itemKeys.isEmpty()) {
+                    return CompletableFuture.completedFuture(0);
+                }
+                String[] keys = {mapName, relevanceName, mapsName(serviceId)};
+                List<String> args = new ArrayList<>(itemKeys.size() + 1);
+                args.add(mapKey);
+                args.addAll(itemKeys);
+                return this.<Long>eval(REMOVE_MAP_ITEMS_SCRIPT, REMOVE_MAP_ITEMS_SCRIPT_DIGEST, ScriptOutputType.INTEGER, keys, args.toArray(new String[0]))
+                    .thenApply(Long::intValue);
+            })
+            .handle((result, e) -> {
+                if (e != null) {
+                    throw new RetryableRedisException(unwrap(e));
+                }
+                return result;
+            });
+    }
+
+    private void removeEmptyMap(String serviceId, String mapKey) {
+        String[] keys = {mapName(serviceId, mapKey), relevanceName(serviceId, mapKey), mapsName(serviceId)};
+        String[] args = {mapKey};
+        this.<Long>eval(REMOVE_EMPTY_MAP_SCRIPT, REMOVE_EMPTY_MAP_SCRIPT_DIGEST, ScriptOutputType.INTEGER, keys, args)
+            .whenComplete((removed, e) -> {
+                if (e != null) {
+                    log.debug("Cannot remove the empty map {}|{}: {}", serviceId, mapKey, e.getMessage());
+                }
+            });
+    }
+
+    static String mapName(String serviceId, String mapKey) {
+        return serviceId + ":map:" + mapKey;
+    }
+
+    static String relevanceName(String serviceId, String mapKey) {
+        return mapName(serviceId, mapKey) + ":relevance";
+    }
+
+    static String mapsName(String serviceId) {
+        return serviceId + ":maps";
+    }
+
+    /**
+     * Set the time to live of the entry's hash field. The command is not awaited, it is pipelined with the preceding
+     * write. If it fails (i.e. Redis older than 7.4), the entry is expired on read.
+     */
+    private void expire(RedisEntry entry) {
+        Long ttl = entry.getEntry().getTtl();
+        if (ttl == null || ttl <= 0) {
+            return;
+        }
+
+        redis.hexpire(entry.getServiceId(), ttl, entry.getEntry().getKey())
+            .whenComplete((result, e) -> {
+                if (e != null) {
+                    expirationFailed(e, entry.getServiceId() + "|" + entry.getEntry().getKey());
+                }
+            });
+    }
+
+    private void expirationFailed(Throwable e, String field) {
+        Throwable cause = unwrap(e);
+        if (cause instanceof RedisCommandExecutionException) {
+            fieldExpirationNotSupported(cause.getMessage());
+        } else {
+            log.debug("Cannot set the expiration of {}: {}", field, cause.getMessage());
+        }
+    }
+
+    /**
+     * The missing support of the hash field expiration is logged once, it does not change until Redis is upgraded.
+     */
+    private void fieldExpirationNotSupported(String reason) {
+        if (fieldExpirationSupported.compareAndSet(true, false)) {
+            log.warn("Redis does not support the expiration of hash fields (Redis 7.4+ is required): {}. The elapsed entries are removed once they are read.", reason);
+        }
+    }
+
+    /**
+     * @param value the serialized entry, the elapsed entry is removed only if it was not written again
+     * @return the entry, or null if its time to live elapsed
+     */
+    private RedisEntry notExpired(RedisEntry entry, String value) {
+        if (!entry.getEntry().expiredAt(System.currentTimeMillis())) {
+            return entry;
+        }
+
+        String[] keys = {entry.getServiceId()};
+        String[] args = {entry.getEntry().getKey(), value};
+        this.<Long>eval(REMOVE_ELAPSED_SCRIPT, REMOVE_ELAPSED_SCRIPT_DIGEST, ScriptOutputType.INTEGER, keys, args)
+            .whenComplete((removed, e) -> {
+                if (e != null) {
+                    log.debug("Cannot remove the elapsed entry {}|{}: {}", entry.getServiceId(), entry.getEntry().getKey(), e.getMessage());
+                }
+            });
+        return null;
+    }
+
+    private static String sha1(String script) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-1").digest(script.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    }
+
+    static Throwable unwrap(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+
+    private RuntimeException toWriteOperationException(Throwable e) {
+        Throwable cause = unwrap(e);
+        if (cause instanceof RetryableRedisException retryableRedisException) {
+            return retryableRedisException;
+        }
+        if (cause instanceof RedisCommandExecutionException && cause.getMessage().contains("maxmemory")) {
+            return new CompletionException(new RedisOutOfMemoryException(cause));
         }
+        return new RetryableRedisException(cause);
     }
 
     private void handleInterruptedException(InterruptedException e) {
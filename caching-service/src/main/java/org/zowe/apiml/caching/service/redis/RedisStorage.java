@@ -13,15 +13,25 @@ package org.zowe.apiml.caching.service.redis;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.retry.annotation.Retryable;
 import org.zowe.apiml.caching.model.KeyValue;
+import org.zowe.apiml.caching.service.MapItemRelevance;
 import org.zowe.apiml.caching.service.Messages;
+import org.zowe.apiml.cache.AsyncStorage;
 import org.zowe.apiml.cache.Storage;
 import org.zowe.apiml.cache.StorageException;
 import org.zowe.apiml.caching.service.redis.exceptions.RedisOutOfMemoryException;
 import org.zowe.apiml.caching.service.redis.exceptions.RetryableRedisException;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Class handles requests from controller and orchestrates operations on the low level RedisOperator class.
@@ -30,9 +40,18 @@ import java.util.Map;
  * configured memory, or there is not enough memory available and a no eviction policy is used, an error message is returned to the user.
  * If another entry will be evicted to make space for a create or update operation, no warning is logged and the eviction
  * is left to Redis.
+ * <p>
+ * The asynchronous methods use the asynchronous Lettuce commands directly, they do not block any thread while waiting
+ * for Redis. The retryable failures are retried the same way as the synchronous methods are.
+ * <p>
+ * The maps (invalidated tokens and the invalidation rules) are stored as Redis hashes, see {@link RedisOperator}. The
+ * items which are not relevant anymore are removed by their relevance without reading the whole map.
  */
 @Slf4j
-public class RedisStorage implements Storage {
+public class RedisStorage implements Storage, AsyncStorage {
+    private static final int MAX_ATTEMPTS = 3;
+    private static final Executor RETRY_EXECUTOR = CompletableFuture.delayedExecutor(1, TimeUnit.SECONDS);
+
     private final RedisOperator redis;
 
     public RedisStorage(RedisOperator redisOperator) {
@@ -46,7 +65,7 @@ public class RedisStorage implements Storage {
     public KeyValue create(String serviceId, KeyValue toCreate) {
         log.info("Creating entry: {}|{}|{}", serviceId, toCreate.getKey(), toCreate.getValue());
 
-        RedisEntry entryToCreate = new RedisEntry(serviceId, toCreate);
+        RedisEntry entryToCreate = new RedisEntry(serviceId, toCreate.storedNow());
         try {
             boolean result = redis.create(entryToCreate);
 
@@ -61,17 +80,17 @@ public class RedisStorage implements Storage {
 
     @Override
     public KeyValue storeMapItem(String serviceId, String mapKey, KeyValue toCreate) throws StorageException {
-        throw new StorageException(Messages.INCOMPATIBLE_STORAGE_METHOD.getKey(), Messages.INCOMPATIBLE_STORAGE_METHOD.getStatus());
+        return join(storeMapItemAsync(serviceId, mapKey, toCreate));
     }
 
     @Override
     public Map<String, String> getAllMapItems(String serviceId, String mapKey) throws StorageException {
-        throw new StorageException(Messages.INCOMPATIBLE_STORAGE_METHOD.getKey(), Messages.INCOMPATIBLE_STORAGE_METHOD.getStatus());
+        return join(getAllMapItemsAsync(serviceId, mapKey));
     }
 
     @Override
     public Map<String, Map<String, String>> getAllMaps(String serviceId) throws StorageException {
-        throw new StorageException(Messages.INCOMPATIBLE_STORAGE_METHOD.getKey(), Messages.INCOMPATIBLE_STORAGE_METHOD.getStatus());
+        return join(getAllMapsAsync(serviceId));
     }
 
     @Override
@@ -91,7 +110,7 @@ public class RedisStorage implements Storage {
     public KeyValue update(String serviceId, KeyValue toUpdate) {
         log.info("Updating entry: {}|{}|{}", serviceId, toUpdate.getKey(), toUpdate.getValue());
 
-        RedisEntry entryToUpdate = new RedisEntry(serviceId, toUpdate);
+        RedisEntry entryToUpdate = new RedisEntry(serviceId, toUpdate.storedNow());
         try {
             boolean result = redis.update(entryToUpdate);
 
@@ -115,7 +134,8 @@ public class RedisStorage implements Storage {
         if (!result) {
             throw new StorageException(Messages.KEY_NOT_IN_CACHE.getKey(), Messages.KEY_NOT_IN_CACHE.getStatus(), toDelete, serviceId);
         }
-        return entryToDelete.getEntry();
+        // the entry could be read from a replica which did not receive it yet
+        return entryToDelete == null ? null : entryToDelete.getEntry();
     }
 
     @Override
@@ -145,11 +165,266 @@ public class RedisStorage implements Storage {
 
     @Override
     public void removeNonRelevantTokens(String serviceId, String mapKey) {
-        throw new StorageException(Messages.INCOMPATIBLE_STORAGE_METHOD.getKey(), Messages.INCOMPATIBLE_STORAGE_METHOD.getStatus());
+        join(removeNonRelevantTokensAsync(serviceId, mapKey));
     }
 
     @Override
     public void removeNonRelevantRules(String serviceId, String mapKey) {
-        throw new StorageException(Messages.INCOMPATIBLE_STORAGE_METHOD.getKey(), Messages.INCOMPATIBLE_STORAGE_METHOD.getStatus());
+        join(removeNonRelevantRulesAsync(serviceId, mapKey));
+    }
+
+    @Override
+    public CompletionStage<KeyValue> createAsync(String serviceId, KeyValue toCreate) {
+        log.info("Creating entry: {}|{}|{}", serviceId, toCreate.getKey(), toCreate.getValue());
+
+        RedisEntry entryToCreate = new RedisEntry(serviceId, toCreate.storedNow());
+        return withRetry(() -> redis.createAsync(entryToCreate))
+            .handle((result, e) -> {
+                if (e != null) {
+                    throw toStorageException(e);
+                }
+                if (!Boolean.TRUE.equals(result)) {
+                    throw new StorageException(Messages.DUPLICATE_KEY.getKey(), Messages.DUPLICATE_KEY.getStatus(), toCreate.getKey(), serviceId);
+                }
+                return toCreate;
+            });
+    }
+
+    @Override
+    public CompletionStage<KeyValue> storeMapItemAsync(String serviceId, String mapKey, KeyValue toCreate) {
+        log.info("Storing the item into map {} of service {}: {}|{}", mapKey, serviceId, toCreate.getKey(), toCreate.getValue());
+
+        long relevantUntil = MapItemRelevance.relevantUntil(toCreate);
+        return withRetry(() -> redis.setMapItemAsync(serviceId, mapKey, toCreate, relevantUntil))
+            .handle((result, e) -> {
+                if (e != null) {
+                    throw toStorageException(e);
+                }
+                return toCreate;
+            });
+    }
+
+    @Override
+    public CompletionStage<Map<String, String>> getAllMapItemsAsync(String serviceId, String mapKey) {
+        log.info("Reading all records from map {} of service {}", mapKey, serviceId);
+
+        return withRetry(() -> redis.getMapItemsAsync(serviceId, mapKey))
+            .thenApply(items -> items.isEmpty() ? null : items);
+    }
+
+    @Override
+    public CompletionStage<Map<String, Map<String, String>>> getAllMapsAsync(String serviceId) {
+        log.info("Reading all maps of service {}", serviceId);
+
+        return withRetry(() -> redis.getMapsAsync(serviceId));
+    }
+
+    @Override
+    public CompletionStage<KeyValue> readAsync(String serviceId, String key) {
+        log.info("Reading entry: {}|{}", serviceId, key);
+
+        return withRetry(() -> redis.getAsync(serviceId, key))
+            .thenApply(result -> {
+                if (result == null) {
+                    throw new StorageException(Messages.KEY_NOT_IN_CACHE.getKey(), Messages.KEY_NOT_IN_CACHE.getStatus(), key, serviceId);
+                }
+                return result.getEntry();
+            });
+    }
+
+    @Override
+    public CompletionStage<KeyValue> updateAsync(String serviceId, KeyValue toUpdate) {
+        log.info("Updating entry: {}|{}|{}", serviceId, toUpdate.getKey(), toUpdate.getValue());
+
+        RedisEntry entryToUpdate = new RedisEntry(serviceId, toUpdate.storedNow());
+        return withRetry(() -> redis.updateAsync(entryToUpdate))
+            .handle((result, e) -> {
+                if (e != null) {
+                    throw toStorageException(e);
+                }
+                if (!Boolean.TRUE.equals(result)) {
+                    throw new StorageException(Messages.KEY_NOT_IN_CACHE.getKey(), Messages.KEY_NOT_IN_CACHE.getStatus(), toUpdate.getKey(), serviceId);
+                }
+                return toUpdate;
+            });
+    }
+
+    @Override
+    public CompletionStage<KeyValue> deleteAsync(String serviceId, String toDelete) {
+        log.info("Deleting entry: {}|{}", serviceId, toDelete);
+
+        return withRetry(() -> redis.getAsync(serviceId, toDelete)
+            .thenCompose(entryToDelete -> redis.deleteAsync(serviceId, toDelete)
+                .thenApply(result -> {
+                    if (!Boolean.TRUE.equals(result)) {
+                        throw new StorageException(Messages.KEY_NOT_IN_CACHE.getKey(), Messages.KEY_NOT_IN_CACHE.getStatus(), toDelete, serviceId);
+                    }
+                    return entryToDelete == null ? null : entryToDelete.getEntry();
+                })
+            )
+        );
+    }
+
+    @Override
+    public CompletionStage<Map<String, KeyValue>> readForServiceAsync(String serviceId) {
+        log.info("Reading all entries: {}", serviceId);
+
+        return withRetry(() -> redis.getAsync(serviceId))
+            .thenApply(redisResult -> {
+                Map<String, KeyValue> readResult = new HashMap<>();
+                for (RedisEntry redisEntry : redisResult) {
+                    readResult.put(redisEntry.getEntry().getKey(), redisEntry.getEntry());
+                }
+                return readResult;
+            });
+    }
+
+    @Override
+    public CompletionStage<Void> deleteForServiceAsync(String serviceId) {
+        log.info("Deleting all entries: {}", serviceId);
+
+        return redis.deleteAsync(serviceId)
+            .thenAccept(result -> {
+                if (!Boolean.TRUE.equals(result)) {
+                    log.info("No entries were deleted for {}", serviceId);
+                }
+            });
+    }
+
+    @Override
+    public CompletionStage<Void> removeNonRelevantTokensAsync(String serviceId, String mapKey) {
+        return removeNonRelevantItems(serviceId, mapKey, false);
+    }
+
+    @Override
+    public CompletionStage<Void> removeNonRelevantRulesAsync(String serviceId, String mapKey) {
+        return removeNonRelevantItems(serviceId, mapKey, true);
+    }
+
+    /**
+     * The token is not relevant once it expired, the rule is not relevant since the end of its relevance.
+     */
+    private CompletionStage<Void> removeNonRelevantItems(String serviceId, String mapKey, boolean inclusive) {
+        long now = System.currentTimeMillis();
+        return withRetry(() -> redis.removeMapItemsAsync(serviceId, mapKey, now, inclusive))
+            .thenAccept(removed -> log.debug("Removed {} items which are not relevant from map {} of service {}", removed, mapKey, serviceId));
+    }
+
+    @Override
+    public KeyValue upsert(String serviceId, KeyValue toUpsert) {
+        return join(upsertAsync(serviceId, toUpsert));
+    }
+
+    @Override
+    public CompletionStage<KeyValue> upsertAsync(String serviceId, KeyValue toUpsert) {
+        log.info("Upserting entry: {}|{}|{}", serviceId, toUpsert.getKey(), toUpsert.getValue());
+
+        RedisEntry entryToStore = new RedisEntry(serviceId, toUpsert.storedNow());
+        return withRetry(() -> redis.upsertAsync(entryToStore))
+            .handle((result, e) -> {
+                if (e != null) {
+                    throw toStorageException(e);
+                }
+                return toUpsert;
+            });
+    }
+
+    @Override
+    public Map<String, KeyValue> readAll(String serviceId, Collection<String> keys) {
+        return join(readAllAsync(serviceId, keys));
+    }
+
+    @Override
+    public Map<String, StorageException> storeAll(String serviceId, Collection<KeyValue> toStore) {
+        return join(storeAllAsync(serviceId, toStore));
+    }
+
+    @Override
+    public Set<String> deleteAll(String serviceId, Collection<String> keys) {
+        return join(deleteAllAsync(serviceId, keys));
+    }
+
+    @Override
+    public CompletionStage<Map<String, KeyValue>> readAllAsync(String serviceId, Collection<String> keys) {
+        log.info("Reading entries: {}|{}", serviceId, keys);
+
+        return withRetry(() -> redis.getAllAsync(serviceId, keys))
+            .thenApply(redisResult -> {
+                Map<String, KeyValue> readResult = new HashMap<>();
+                for (RedisEntry redisEntry : redisResult) {
+                    readResult.put(redisEntry.getEntry().getKey(), redisEntry.getEntry());
+                }
+                return readResult;
+            });
+    }
+
+    @Override
+    public CompletionStage<Map<String, StorageException>> storeAllAsync(String serviceId, Collection<KeyValue> toStore) {
+        log.info("Storing {} entries: {}", toStore.size(), serviceId);
+
+        List<RedisEntry> entries = toStore.stream().map(keyValue -> new RedisEntry(serviceId, keyValue.storedNow())).toList();
+        return withRetry(() -> redis.setAllAsync(serviceId, entries))
+            .handle((result, e) -> {
+                Map<String, StorageException> failures = new HashMap<>();
+                if (e != null) {
+                    RuntimeException exception = toStorageException(e);
+                    if (!(exception instanceof StorageException storageException)) {
+                        throw exception;
+                    }
+                    toStore.forEach(keyValue -> failures.put(keyValue.getKey(), storageException));
+                }
+                return failures;
+            });
+    }
+
+    @Override
+    public CompletionStage<Set<String>> deleteAllAsync(String serviceId, Collection<String> keys) {
+        log.info("Deleting entries: {}|{}", serviceId, keys);
+
+        return withRetry(() -> redis.deleteAllAsync(serviceId, keys));
+    }
+
+    private <T> T join(CompletionStage<T> stage) {
+        try {
+            return stage.toCompletableFuture().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private RuntimeException toStorageException(Throwable e) {
+        Throwable cause = RedisOperator.unwrap(e);
+        if (cause instanceof RedisOutOfMemoryException) {
+            return new StorageException(Messages.INSUFFICIENT_STORAGE.getKey(), Messages.INSUFFICIENT_STORAGE.getStatus());
+        }
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        return new RetryableRedisException(cause);
+    }
+
+    /**
+     * Asynchronous counterpart of {@link Retryable}, the operation is repeated (at most 3 attempts with delay 1 second)
+     * while it fails with {@link RetryableRedisException}.
+     */
+    private <T> CompletionStage<T> withRetry(Supplier<CompletionStage<T>> operation) {
+        return withRetry(operation, 1);
+    }
+
+    private <T> CompletionStage<T> withRetry(Supplier<CompletionStage<T>> operation, int attempt) {
+        CompletionStage<T> stage = operation.get();
+        if (attempt >= MAX_ATTEMPTS) {
+            return stage;
+        }
+        return stage.exceptionallyCompose(e -> {
+            if (RedisOperator.unwrap(e) instanceof RetryableRedisException) {
+                return CompletableFuture.runAsync(() -> { }, RETRY_EXECUTOR)
+                    .thenCompose(x -> withRetry(operation, attempt + 1));
+            }
+            return CompletableFuture.failedStage(e);
+        });
     }
 }
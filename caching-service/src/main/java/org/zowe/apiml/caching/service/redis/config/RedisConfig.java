@@ -39,6 +39,11 @@ public class RedisConfig {
 
     private Integer timeout = 60;
     private String masterNodeUri;
+    /**
+     * Nodes to read the entries from (see the names of Lettuce ReadFrom, i.e. replicaPreferred). The entries are read
+     * from the master if it is not set.
+     */
+    private String readFrom;
 
     private final GeneralConfig generalConfig;
     private String host;
@@ -66,6 +71,10 @@ public class RedisConfig {
         return ssl != null && ssl.getEnabled();
     }
 
+    public boolean readsFromReplicas() {
+        return readFrom != null && !readFrom.isBlank();
+    }
+
     @Data
     public static class Sentinel {
         private boolean enabled = false;
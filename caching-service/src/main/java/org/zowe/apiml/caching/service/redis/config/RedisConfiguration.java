@@ -11,6 +11,7 @@
 package org.zowe.apiml.caching.service.redis.config;
 
 import io.lettuce.core.ClientOptions;
+import io.lettuce.core.ReadFrom;
 import io.lettuce.core.RedisClient;
 import io.lettuce.core.RedisURI;
 import io.lettuce.core.SslOptions;
@@ -43,7 +44,17 @@ public class RedisConfiguration {
         RedisURI redisUri = createRedisUri();
         RedisClient redisClient = createRedisClient();
 
-        return new RedisStorage(new RedisOperator(redisClient, redisUri, ApimlLogger.of(RedisOperator.class, messageService)));
+        return new RedisStorage(new RedisOperator(redisClient, redisUri, createReadFrom(), ApimlLogger.of(RedisOperator.class, messageService)));
+    }
+
+    /**
+     * Package protected for unit testing.
+     */
+    ReadFrom createReadFrom() {
+        if (!redisConfig.readsFromReplicas()) {
+            return null;
+        }
+        return ReadFrom.valueOf(redisConfig.getReadFrom());
     }
 
     /**
@@ -8,19 +8,19 @@
  * Copyright Contributors to the Zowe Project.
  */
 
+
 package org.zowe.apiml.caching.service.vsam;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.zowe.apiml.caching.model.KeyValue;
 import org.zowe.apiml.caching.service.EvictionStrategy;
 import org.zowe.apiml.caching.service.vsam.config.VsamConfig;
-import org.zowe.apiml.zfile.ZFileConstants;
-import org.zowe.apiml.zfile.ZFileException;
-
-import java.io.UnsupportedEncodingException;
-import java.util.Optional;
-
 
+/**
+ * Removes the oldest records found by the {@link VsamRecordIndex}. To not evict on each write once the storage is
+ * full, the records are removed until their number drops to the configured low-water mark.
+ */
 @RequiredArgsConstructor
 @Slf4j
 public class RemoveOldestStrategy implements EvictionStrategy {
@@ -28,50 +28,35 @@ public class RemoveOldestStrategy implements EvictionStrategy {
 
     private final VsamFile file;
 
+    private final VsamRecordIndex index;
+
     @Override
     public void evict(String key) {
-        removeOldestRecord();
+        for (VsamRecordIndex.Entry oldest : index.oldest(recordsToRemove())) {
+            removeRecord(oldest);
+        }
     }
 
-    private void removeOldestRecord() {
-        VsamRecord oldest = null;
-        try {
-            byte[] ignoreKey = " ".getBytes(ZFileConstants.DEFAULT_EBCDIC_CODE_PAGE);
-            byte[] recBuf = new byte[vsamConfig.getRecordLength()];
-            Optional<byte[]> readRecord;
-            int overflowProtection = 10000;
-            file.getZfile().locate(ignoreKey, ZFileConstants.LOCATE_KEY_FIRST);
-            while ((readRecord = file.readBytes(recBuf)).isPresent()) {
-                VsamRecord current = new VsamRecord(vsamConfig, readRecord.get());
-                if (oldest == null) {
-                    oldest = current;
-                }
-                long oldestCreated = Long.parseLong(oldest.getKeyValue().getCreated());
-                long currentCreated = Long.parseLong(current.getKeyValue().getCreated());
-
-                if (oldestCreated > currentCreated) {
-                    oldest = current;
-                }
-                overflowProtection--;
-                if (overflowProtection <= 0) {
-                    log.info("Maximum number of records retrieved, stopping the retrieval");
-                    break;
-                }
-            }
-        } catch (ZFileException | VsamRecordException | UnsupportedEncodingException e) {
-            log.info(e.toString());
+    /**
+     * @return number of the records to remove to reach the low-water mark, at least one
+     */
+    private int recordsToRemove() {
+        int maxDataSize = vsamConfig.getGeneralConfig().getMaxDataSize();
+        int lowWaterMark = vsamConfig.getEvictionLowWaterMark();
+        if (lowWaterMark <= 0 || lowWaterMark >= 100) {
+            return 1;
         }
-        checkAndRemoveRecord(oldest);
+        return Math.max(1, index.size() - maxDataSize * lowWaterMark / 100);
     }
 
-    private void checkAndRemoveRecord(VsamRecord oldest) {
-        if (oldest != null) {
-            log.info("Removing the oldest record {}", oldest.getKeyValue().getKey());
-            Optional<VsamRecord> returned = file.delete(oldest);
-            if (returned.isPresent()) {
-                log.info("The oldest record has been successfully removed!");
-            }
+    private void removeRecord(VsamRecordIndex.Entry oldest) {
+        log.info("Removing the oldest record {}", oldest.key());
+        VsamRecord vsamRec = new VsamRecord(vsamConfig, oldest.serviceId(), new KeyValue(oldest.key(), "", oldest.serviceId()));
+        if (file.delete(vsamRec).isPresent()) {
+            log.info("The oldest record has been successfully removed!");
+        } else {
+            log.info("The oldest record was already removed.");
         }
-        log.info("It was not possible to delete the record.");
+        index.remove(oldest.serviceId(), oldest.key());
     }
 }
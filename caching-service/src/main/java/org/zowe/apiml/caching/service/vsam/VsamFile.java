@@ -23,6 +23,7 @@ import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 /**
@@ -212,11 +213,17 @@ public class VsamFile implements Closeable {
         return returned;
     }
 
-    public void deleteForService(String serviceId) {
+    /**
+     * @return number of the deleted records
+     */
+    public int deleteForService(String serviceId) {
+        int[] deleted = {0};
         serviceWideOperation(serviceId, (zfile, vsamRec) -> {
             log.debug("Delete the record");
             zfile.delrec();
+            deleted[0]++;
         });
+        return deleted[0];
     }
 
     private void serviceWideOperation(String serviceId, ServiceWideOperation operation) {
@@ -289,10 +296,52 @@ public class VsamFile implements Closeable {
         return Optional.of(arrayToStoreIn);
     }
 
+    /**
+     * Read all the records of the file in the order of their keys. The records which cannot be parsed are skipped. As
+     * the other full reads of the file, at most 10000 records are read.
+     *
+     * @throws RetryableVsamException if the file cannot be read or the records cannot be decoded, the caller must not
+     *                                treat the records read so far as the content of the file
+     */
+    public void readAllRecords(Consumer<VsamRecord> consumer) {
+        try {
+            zfile.locate(" ".getBytes(ZFileConstants.DEFAULT_EBCDIC_CODE_PAGE), ZFileConstants.LOCATE_KEY_FIRST);
+            byte[] recBuf = new byte[vsamConfig.getRecordLength()];
+
+            int overflowProtection = 10000;
+            while (zfile.read(recBuf) != -1) {
+                try {
+                    consumer.accept(new VsamRecord(vsamConfig, recBuf));
+                } catch (VsamRecordException e) {
+                    if (e.getCause() instanceof UnsupportedEncodingException) {
+                        // no record can be decoded, skipping them would look like an empty file
+                        log.info(UNSUPPORTED_ENCODING_MESSAGE, vsamConfig.getEncoding());
+                        throw new RetryableVsamException(e);
+                    }
+                    log.info(VSAM_RECORD_ERROR_MESSAGE, e.toString());
+                }
+
+                overflowProtection--;
+                if (overflowProtection <= 0) {
+                    log.info("Maximum number of records retrieved, stopping the retrieval");
+                    break;
+                }
+            }
+        } catch (UnsupportedEncodingException e) {
+            log.info(UNSUPPORTED_ENCODING_MESSAGE, ZFileConstants.DEFAULT_EBCDIC_CODE_PAGE);
+            throw new RetryableVsamException(e);
+        } catch (ZFileException e) {
+            log.info(e.toString());
+            throw new RetryableVsamException(e);
+        }
+    }
+
     public Integer countAllRecords() {
         int recordsCounter = 0;
 
         try {
+            // the handle could be positioned anywhere by the previous operation
+            zfile.locate(" ".getBytes(ZFileConstants.DEFAULT_EBCDIC_CODE_PAGE), ZFileConstants.LOCATE_KEY_FIRST);
             byte[] recBuf = new byte[vsamConfig.getRecordLength()];
 
             int overflowProtection = 10000;
@@ -310,6 +359,8 @@ public class VsamFile implements Closeable {
             }
         } catch (ZFileException e) {
             log.info(e.toString());
+        } catch (UnsupportedEncodingException e) {
+            log.info(UNSUPPORTED_ENCODING_MESSAGE, ZFileConstants.DEFAULT_EBCDIC_CODE_PAGE);
         }
         return recordsCounter;
     }
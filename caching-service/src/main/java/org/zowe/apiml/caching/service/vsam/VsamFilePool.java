@@ -0,0 +1,167 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+
+package org.zowe.apiml.caching.service.vsam;
+
+import lombok.extern.slf4j.Slf4j;
+import org.zowe.apiml.cache.StorageException;
+import org.zowe.apiml.caching.service.vsam.config.VsamConfig;
+import org.zowe.apiml.message.log.ApimlLogger;
+
+import java.io.Closeable;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Pool of long-lived handles of the VSAM file, so the file is not opened for each operation.
+ * <p>
+ * A handle is used by a single operation at a time, it is returned to the pool once the operation is finished. There
+ * is a single write handle, so the writes are serialized the same way as before. The read handles are opened only if
+ * configured, otherwise the reads use the write handle and always see the latest writes.
+ * <p>
+ * A handle which failed is closed and a new one is opened for the next operation. A handle older than the configured
+ * time to live is reopened as well, so the changes done by other instances sharing the file are visible.
+ */
+@Slf4j
+public class VsamFilePool implements Closeable {
+
+    private static final long BORROW_TIMEOUT_SECONDS = 30;
+
+    private final VsamConfig vsamConfig;
+    private final VsamFileProducer producer;
+    private final ApimlLogger apimlLog;
+    private final LongSupplier clock;
+    private final Map<VsamConfig.VsamOptions, Handles> handles = new EnumMap<>(VsamConfig.VsamOptions.class);
+
+    private volatile boolean closed;
+
+    public VsamFilePool(VsamConfig vsamConfig, VsamFileProducer producer, ApimlLogger apimlLog) {
+        this(vsamConfig, producer, apimlLog, System::currentTimeMillis);
+    }
+
+    VsamFilePool(VsamConfig vsamConfig, VsamFileProducer producer, ApimlLogger apimlLog, LongSupplier clock) {
+        this.vsamConfig = vsamConfig;
+        this.producer = producer;
+        this.apimlLog = apimlLog;
+        this.clock = clock;
+
+        Handles writeHandles = new Handles(VsamConfig.VsamOptions.WRITE, 1);
+        handles.put(VsamConfig.VsamOptions.WRITE, writeHandles);
+        int readHandles = vsamConfig.getReadHandles();
+        handles.put(VsamConfig.VsamOptions.READ, readHandles > 0 ? new Handles(VsamConfig.VsamOptions.READ, readHandles) : writeHandles);
+    }
+
+    /**
+     * Run the operation with a handle of the VSAM file opened with the options.
+     *
+     * @return the result of the operation
+     * @throws IllegalStateException if no handle is available in time, it is retried by the storage
+     */
+    public <T> T withFile(VsamConfig.VsamOptions options, Function<VsamFile, T> operation) {
+        return handles.get(options).withFile(operation);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        handles.values().forEach(Handles::closeIdle);
+    }
+
+    private record Handle(VsamFile file, long openedAt) {
+    }
+
+    private class Handles {
+
+        private final VsamConfig.VsamOptions options;
+        private final Semaphore permits;
+        private final BlockingQueue<Handle> idle = new LinkedBlockingQueue<>();
+
+        Handles(VsamConfig.VsamOptions options, int size) {
+            this.options = options;
+            this.permits = new Semaphore(size, true);
+        }
+
+        <T> T withFile(Function<VsamFile, T> operation) {
+            acquire();
+            try {
+                Handle handle = borrow();
+                T result;
+                try {
+                    result = operation.apply(handle.file());
+                } catch (StorageException e) {
+                    // the operation failed, but the handle is fine
+                    release(handle);
+                    throw e;
+                } catch (RuntimeException e) {
+                    log.debug("Closing the handle of VSAM file after the failure: {}", e.toString());
+                    handle.file().close();
+                    throw e;
+                }
+                release(handle);
+                return result;
+            } finally {
+                permits.release();
+            }
+        }
+
+        private void acquire() {
+            try {
+                if (!permits.tryAcquire(BORROW_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("No handle of VSAM file is available");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a handle of VSAM file", e);
+            }
+        }
+
+        private Handle borrow() {
+            Handle handle = idle.poll();
+            if (handle != null && !isHealthy(handle)) {
+                log.debug("Reopening the handle of VSAM file opened at {}", handle.openedAt());
+                handle.file().close();
+                handle = null;
+            }
+            if (handle == null) {
+                handle = new Handle(producer.newVsamFile(vsamConfig, options, apimlLog), clock.getAsLong());
+            }
+            return handle;
+        }
+
+        private boolean isHealthy(Handle handle) {
+            long timeToLive = vsamConfig.getHandleTimeToLive();
+            return timeToLive <= 0 || clock.getAsLong() - handle.openedAt() < timeToLive;
+        }
+
+        private void release(Handle handle) {
+            if (closed) {
+                handle.file().close();
+            } else {
+                idle.offer(handle);
+            }
+        }
+
+        void closeIdle() {
+            Handle handle;
+            while ((handle = idle.poll()) != null) {
+                handle.file().close();
+            }
+        }
+
+    }
+
+}
@@ -30,10 +30,19 @@ import org.zowe.apiml.zfile.ZFileException;
 @Slf4j
 public class VsamInitializer {
 
+    /**
+     * Open the file and build the index of its records. If the records cannot be read, the index is built by the
+     * first write.
+     */
     @Retryable(value = UnsupportedOperationException.class, maxAttempts = 10)
-    public void storageWarmup(VsamConfig config, ApimlLogger apimlLogger) {
+    public void storageWarmup(VsamConfig config, ApimlLogger apimlLogger, VsamRecordIndex index) {
         try (VsamFile file = new VsamFile(config, VsamConfig.VsamOptions.WRITE, true, apimlLogger)) {
             log.info("Vsam file open successful");
+            try {
+                index.rebuild(file);
+            } catch (RetryableVsamException e) {
+                log.warn("The records of the VSAM file cannot be indexed: {}", e.toString());
+            }
         }
     }
 
@@ -0,0 +1,195 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+
+package org.zowe.apiml.caching.service.vsam;
+
+import lombok.extern.slf4j.Slf4j;
+import org.zowe.apiml.caching.model.KeyValue;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Index of the records in the VSAM file ordered by the time of their creation. It allows to find the oldest records
+ * without reading the whole file, the lookup and the changes take logarithmic time.
+ * <p>
+ * The index is built from the file during the startup and then it is updated by the writes of this instance. Once it
+ * is older than the time to live of the file handles, it is built again to include the records of other instances.
+ * The new index is built aside while the current one is still used, the changes made in the meantime are applied to
+ * both of them.
+ */
+@Slf4j
+public class VsamRecordIndex {
+
+    /**
+     * Indexed record, the records with the same creation time are ordered by their keys.
+     */
+    public record Entry(long created, String serviceId, String key) implements Comparable<Entry> {
+
+        private static final Comparator<Entry> ORDER = Comparator.comparingLong(Entry::created)
+            .thenComparing(Entry::serviceId)
+            .thenComparing(Entry::key);
+
+        @Override
+        public int compareTo(Entry other) {
+            return ORDER.compare(this, other);
+        }
+
+    }
+
+    private final Object rebuildLock = new Object();
+    private Records records = new Records();
+    private List<Consumer<Records>> changesDuringRebuild;
+    private long builtAt = -1;
+
+    /**
+     * Build the index from all the records of the file. The current index is used until the new one is built, it stays
+     * in place if the file cannot be read.
+     *
+     * @throws RetryableVsamException if the file cannot be read, the index has to be built again later
+     */
+    public void rebuild(VsamFile file) {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                changesDuringRebuild = new ArrayList<>();
+            }
+
+            Records rebuilt = new Records();
+            try {
+                file.readAllRecords(vsamRecord -> rebuilt.put(entry(vsamRecord.getServiceId(), vsamRecord.getKeyValue())));
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    changesDuringRebuild = null;
+                }
+                throw e;
+            }
+
+            synchronized (this) {
+                changesDuringRebuild.forEach(change -> change.accept(rebuilt));
+                changesDuringRebuild = null;
+                records = rebuilt;
+                builtAt = System.currentTimeMillis();
+                log.info("Indexed {} records of the VSAM file", records.size());
+            }
+        }
+    }
+
+    /**
+     * @return true if the index was built at least once
+     */
+    public synchronized boolean isBuilt() {
+        return builtAt >= 0;
+    }
+
+    /**
+     * @return true if the index was not built yet or it is older than the time to live (if positive)
+     */
+    public synchronized boolean isStale(long timeToLive) {
+        return builtAt < 0 || (timeToLive > 0 && System.currentTimeMillis() - builtAt >= timeToLive);
+    }
+
+    public void put(String serviceId, KeyValue keyValue) {
+        Entry entry = entry(serviceId, keyValue);
+        change(indexed -> indexed.put(entry));
+    }
+
+    public void remove(String serviceId, String key) {
+        String service = Objects.toString(serviceId, "");
+        change(indexed -> indexed.remove(service, key));
+    }
+
+    public void removeService(String serviceId) {
+        String service = Objects.toString(serviceId, "");
+        change(indexed -> indexed.removeService(service));
+    }
+
+    /**
+     * @return the oldest records, at most the given count
+     */
+    public synchronized List<Entry> oldest(int count) {
+        return records.oldest(count);
+    }
+
+    public synchronized int size() {
+        return records.size();
+    }
+
+    private synchronized void change(Consumer<Records> change) {
+        change.accept(records);
+        if (changesDuringRebuild != null) {
+            changesDuringRebuild.add(change);
+        }
+    }
+
+    private static Entry entry(String serviceId, KeyValue keyValue) {
+        return new Entry(created(keyValue), Objects.toString(serviceId, ""), keyValue.getKey());
+    }
+
+    private static long created(KeyValue keyValue) {
+        try {
+            return Long.parseLong(keyValue.getCreated());
+        } catch (NumberFormatException e) {
+            // the record without a valid creation time is evicted first
+            return 0;
+        }
+    }
+
+    private static class Records {
+
+        private final NavigableSet<Entry> byAge = new TreeSet<>();
+        private final Map<String, Map<String, Entry>> byService = new HashMap<>();
+
+        void put(Entry entry) {
+            Entry previous = byService.computeIfAbsent(entry.serviceId(), k -> new HashMap<>()).put(entry.key(), entry);
+            if (previous != null) {
+                byAge.remove(previous);
+            }
+            byAge.add(entry);
+        }
+
+        void remove(String serviceId, String key) {
+            Map<String, Entry> entries = byService.get(serviceId);
+            if (entries == null) {
+                return;
+            }
+
+            Entry removed = entries.remove(key);
+            if (removed != null) {
+                byAge.remove(removed);
+            }
+            if (entries.isEmpty()) {
+                byService.remove(serviceId);
+            }
+        }
+
+        void removeService(String serviceId) {
+            Map<String, Entry> entries = byService.remove(serviceId);
+            if (entries != null) {
+                byAge.removeAll(entries.values());
+            }
+        }
+
+        List<Entry> oldest(int count) {
+            List<Entry> oldest = new ArrayList<>(Math.min(count, byAge.size()));
+            Iterator<Entry> iterator = byAge.iterator();
+            while (oldest.size() < count && iterator.hasNext()) {
+                oldest.add(iterator.next());
+            }
+            return oldest;
+        }
+
+        int size() {
+            return byAge.size();
+        }
+
+    }
+
+}
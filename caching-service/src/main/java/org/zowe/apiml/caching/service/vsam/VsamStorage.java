@@ -8,6 +8,7 @@
  * Copyright Contributors to the Zowe Project.
  */
 
+
 package org.zowe.apiml.caching.service.vsam;
 
 import lombok.extern.slf4j.Slf4j;
@@ -20,23 +21,42 @@ import org.zowe.apiml.cache.StorageException;
 import org.zowe.apiml.caching.service.vsam.config.VsamConfig;
 import org.zowe.apiml.message.log.ApimlLogger;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Class handles requests from controller and orchestrates operations on the low level VSAM File class
+ * <p>
+ * The handles of the VSAM file are kept open in the {@link VsamFilePool}. The records are indexed by the
+ * {@link VsamRecordIndex} during the startup and the index is updated by each write. Once it is older than the handles,
+ * it is built again in the background with its own handle, the pooled handles and the current index are used by the
+ * writes meanwhile. The index provides the number of the records and the oldest records for the eviction.
  */
 @Slf4j
-public class VsamStorage implements Storage {
+public class VsamStorage implements Storage, Closeable {
 
     private VsamConfig vsamConfig;
     private EvictionStrategyProducer evictionStrategyProducer;
-    private VsamFileProducer producer = new VsamFileProducer();
+    private VsamFilePool pool;
+    private VsamFileProducer producer;
     private ApimlLogger apimlLog;
+    private final VsamRecordIndex index = new VsamRecordIndex();
+    private final AtomicBoolean indexRebuilding = new AtomicBoolean();
+    private final ExecutorService indexExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "vsam-index");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     public VsamStorage(VsamConfig vsamConfig, VsamInitializer vsamInitializer, ApimlLogger apimlLog, EvictionStrategyProducer evictionStrategyProducer) {
+        this(vsamConfig, vsamInitializer, new VsamFileProducer(), apimlLog, evictionStrategyProducer);
+    }
+
+    public VsamStorage(VsamConfig vsamConfig, VsamInitializer vsamInitializer, VsamFileProducer producer, ApimlLogger apimlLog, EvictionStrategyProducer evictionStrategyProducer) {
         log.info("Using VSAM storage for the cached data");
 
         this.apimlLog = apimlLog;
@@ -50,43 +70,40 @@ public class VsamStorage implements Storage {
 
         this.vsamConfig = vsamConfig;
         this.evictionStrategyProducer = evictionStrategyProducer;
+        this.producer = producer;
+        this.pool = new VsamFilePool(vsamConfig, producer, apimlLog);
 
         log.info("Using Vsam configuration: {}", vsamConfig);
-        vsamInitializer.storageWarmup(vsamConfig, apimlLog);
-    }
-
-    public VsamStorage(VsamConfig vsamConfig, VsamInitializer vsamInitializer, VsamFileProducer producer, ApimlLogger apimlLogger, EvictionStrategyProducer evictionStrategyProducer) {
-        this(vsamConfig, vsamInitializer, apimlLogger, evictionStrategyProducer);
-
-        this.producer = producer;
+        vsamInitializer.storageWarmup(vsamConfig, apimlLog, index);
     }
 
     private EvictionStrategy provideStrategy(VsamFile file) {
-        return evictionStrategyProducer.evictionStrategy(file);
+        return evictionStrategyProducer.evictionStrategy(file, index);
     }
 
     @Override
     @Retryable(value = {RetryableVsamException.class, IllegalStateException.class, UnsupportedOperationException.class})
     public KeyValue create(String serviceId, KeyValue toCreate) {
         log.info("Writing record: {}|{}|{}", serviceId, toCreate.getKey(), toCreate.getValue());
-        KeyValue result = null;
 
-        try (VsamFile file = producer.newVsamFile(vsamConfig, VsamConfig.VsamOptions.WRITE, apimlLog)) {
+        KeyValue result = pool.withFile(VsamConfig.VsamOptions.WRITE, file -> {
             toCreate.setServiceId(serviceId);
+            toCreate.storedNow();
             VsamRecord vsamRec = new VsamRecord(vsamConfig, serviceId, toCreate);
-            int currentSize = file.countAllRecords();
-            log.info("Current Size {}.", currentSize);
 
-            if (aboveThreshold(currentSize)) {
-                EvictionStrategy strategy = provideStrategy(file);
-                log.info("Evicting record using the {} strategy", vsamConfig.getGeneralConfig().getEvictionStrategy());
-                strategy.evict(toCreate.getKey());
+            if (aboveThreshold(currentSize(file))) {
+                evict(file, toCreate.getKey());
             }
             Optional<VsamRecord> returned = file.create(vsamRec);
+            if (returned.isEmpty() && isExpired(file.read(vsamRec))) {
+                // the elapsed record is not visible anymore, it is replaced
+                returned = file.update(vsamRec);
+            }
             if (returned.isPresent()) {
-                result = returned.get().getKeyValue();
+                index.put(serviceId, toCreate);
             }
-        }
+            return returned.map(VsamRecord::getKeyValue).orElse(null);
+        });
 
         if (result == null) {
             throw new StorageException(Messages.DUPLICATE_KEY.getKey(), Messages.DUPLICATE_KEY.getStatus(), toCreate.getKey(), serviceId);
@@ -110,25 +127,73 @@ public class VsamStorage implements Storage {
         throw new StorageException(Messages.INCOMPATIBLE_STORAGE_METHOD.getKey(), Messages.INCOMPATIBLE_STORAGE_METHOD.getStatus());
     }
 
+    /**
+     * The records with an elapsed time to live are kept in the VSAM file until they are overwritten or evicted, but
+     * they are not visible for the reads.
+     */
+    private boolean isExpired(Optional<VsamRecord> vsamRecord) {
+        return vsamRecord.isPresent() && vsamRecord.get().getKeyValue().expiredAt(System.currentTimeMillis());
+    }
+
     private boolean aboveThreshold(int currentSize) {
         return currentSize >= vsamConfig.getGeneralConfig().getMaxDataSize();
     }
 
+    /**
+     * @return number of the records. The index is built on demand if it was not built during the startup, the stale
+     * index is built again in the background.
+     */
+    private int currentSize(VsamFile file) {
+        if (!index.isBuilt()) {
+            index.rebuild(file);
+        } else if (index.isStale(vsamConfig.getHandleTimeToLive())) {
+            rebuildIndexInBackground();
+        }
+        int currentSize = index.size();
+        log.debug("Current Size {}.", currentSize);
+        return currentSize;
+    }
+
+    private void rebuildIndexInBackground() {
+        if (!indexRebuilding.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            indexExecutor.execute(() -> {
+                // a short-lived handle, the pool could have the write handle only and the writes would wait for the scan
+                try (VsamFile file = producer.newVsamFile(vsamConfig, VsamConfig.VsamOptions.READ, apimlLog)) {
+                    index.rebuild(file);
+                } catch (RuntimeException e) {
+                    log.debug("The index of the VSAM file was not built again: {}", e.toString());
+                } finally {
+                    indexRebuilding.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            indexRebuilding.set(false);
+        }
+    }
+
+    private void evict(VsamFile file, String key) {
+        log.info("Evicting record using the {} strategy", vsamConfig.getGeneralConfig().getEvictionStrategy());
+        provideStrategy(file).evict(key);
+    }
+
     @Override
     @Retryable(value = {RetryableVsamException.class})
     public KeyValue read(String serviceId, String key) {
         log.info("Reading Record: {}|{}|{}", serviceId, key, "-");
-        KeyValue result = null;
-
-        try (VsamFile file = producer.newVsamFile(vsamConfig, VsamConfig.VsamOptions.READ, apimlLog)) {
 
+        KeyValue result = pool.withFile(VsamConfig.VsamOptions.READ, file -> {
             VsamRecord vsamRec = new VsamRecord(vsamConfig, serviceId, new KeyValue(key, "", serviceId));
 
             Optional<VsamRecord> returned = file.read(vsamRec);
-            if (returned.isPresent()) {
-                result = returned.get().getKeyValue();
+            if (returned.isPresent() && !isExpired(returned)) {
+                return returned.get().getKeyValue();
             }
-        }
+            return null;
+        });
 
         if (result == null) {
             throw new StorageException(Messages.KEY_NOT_IN_CACHE.getKey(), Messages.KEY_NOT_IN_CACHE.getStatus(), key, serviceId);
@@ -137,21 +202,35 @@ public class VsamStorage implements Storage {
         return result;
     }
 
+    /**
+     * Stores the key/value pair with a single use of the write handle, see {@link #storeAll(String, Collection)}.
+     */
+    @Override
+    @Retryable(value = {RetryableVsamException.class, IllegalStateException.class, UnsupportedOperationException.class})
+    public KeyValue upsert(String serviceId, KeyValue toUpsert) {
+        StorageException failure = storeAll(serviceId, List.of(toUpsert)).get(toUpsert.getKey());
+        if (failure != null) {
+            throw failure;
+        }
+        return toUpsert;
+    }
+
     @Override
     @Retryable(value = {RetryableVsamException.class, IllegalStateException.class, UnsupportedOperationException.class})
     public KeyValue update(String serviceId, KeyValue toUpdate) {
         log.info("Updating Record: {}|{}|{}", serviceId, toUpdate.getKey(), toUpdate.getValue());
-        KeyValue result = null;
 
-        try (VsamFile file = producer.newVsamFile(vsamConfig, VsamConfig.VsamOptions.WRITE, apimlLog)) {
+        KeyValue result = pool.withFile(VsamConfig.VsamOptions.WRITE, file -> {
             toUpdate.setServiceId(serviceId);
+            toUpdate.storedNow();
             VsamRecord vsamRec = new VsamRecord(vsamConfig, serviceId, toUpdate);
 
             Optional<VsamRecord> returned = file.update(vsamRec);
             if (returned.isPresent()) {
-                result = returned.get().getKeyValue();
+                index.put(serviceId, toUpdate);
             }
-        }
+            return returned.map(VsamRecord::getKeyValue).orElse(null);
+        });
 
         if (result == null) {
             throw new StorageException(Messages.KEY_NOT_IN_CACHE.getKey(), Messages.KEY_NOT_IN_CACHE.getStatus(), toUpdate.getKey(), serviceId);
@@ -165,17 +244,14 @@ public class VsamStorage implements Storage {
     public KeyValue delete(String serviceId, String toDelete) {
 
         log.info("Deleting Record: {}|{}|{}", serviceId, toDelete, "-");
-        KeyValue result = null;
-
-        try (VsamFile file = producer.newVsamFile(vsamConfig, VsamConfig.VsamOptions.WRITE, apimlLog)) {
 
+        KeyValue result = pool.withFile(VsamConfig.VsamOptions.WRITE, file -> {
             VsamRecord vsamRec = new VsamRecord(vsamConfig, serviceId, new KeyValue(toDelete, "", serviceId));
 
             Optional<VsamRecord> returned = file.delete(vsamRec);
-            if (returned.isPresent()) {
-                result = returned.get().getKeyValue();
-            }
-        }
+            index.remove(serviceId, toDelete);
+            return returned.map(VsamRecord::getKeyValue).orElse(null);
+        });
 
         if (result == null) {
             throw new StorageException(Messages.KEY_NOT_IN_CACHE.getKey(), Messages.KEY_NOT_IN_CACHE.getStatus(), toDelete, serviceId);
@@ -184,18 +260,96 @@ public class VsamStorage implements Storage {
         return result;
     }
 
+    /**
+     * Reads all the keys with a single use of a read handle.
+     */
+    @Override
+    @Retryable(value = {RetryableVsamException.class})
+    public Map<String, KeyValue> readAll(String serviceId, Collection<String> keys) {
+        log.info("Reading Records: {}|{}|{}", serviceId, keys, "-");
+
+        return pool.withFile(VsamConfig.VsamOptions.READ, file -> {
+            Map<String, KeyValue> result = new HashMap<>();
+            for (String key : keys) {
+                VsamRecord vsamRec = new VsamRecord(vsamConfig, serviceId, new KeyValue(key, "", serviceId));
+                Optional<VsamRecord> returned = file.read(vsamRec);
+                if (returned.isPresent() && !isExpired(returned)) {
+                    result.put(key, returned.get().getKeyValue());
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Stores all the key/value pairs with a single use of the write handle. The records are updated, the missing ones
+     * are created (with the eviction if the storage is full).
+     */
+    @Override
+    @Retryable(value = {RetryableVsamException.class, IllegalStateException.class, UnsupportedOperationException.class})
+    public Map<String, StorageException> storeAll(String serviceId, Collection<KeyValue> toStore) {
+        log.info("Storing Records: {}|{}|{}", serviceId, toStore.size(), "-");
+
+        return pool.withFile(VsamConfig.VsamOptions.WRITE, file -> {
+            Map<String, StorageException> failures = new HashMap<>();
+            for (KeyValue keyValue : toStore) {
+                keyValue.setServiceId(serviceId);
+                keyValue.storedNow();
+                VsamRecord vsamRec = new VsamRecord(vsamConfig, serviceId, keyValue);
+                if (file.update(vsamRec).isPresent()) {
+                    index.put(serviceId, keyValue);
+                    continue;
+                }
+
+                try {
+                    if (aboveThreshold(currentSize(file))) {
+                        evict(file, keyValue.getKey());
+                    }
+                    if (file.create(vsamRec).isPresent()) {
+                        index.put(serviceId, keyValue);
+                    } else {
+                        failures.put(keyValue.getKey(), new StorageException(Messages.DUPLICATE_KEY.getKey(), Messages.DUPLICATE_KEY.getStatus(), keyValue.getKey(), serviceId));
+                    }
+                } catch (StorageException e) {
+                    failures.put(keyValue.getKey(), e);
+                }
+            }
+            return failures;
+        });
+    }
+
+    /**
+     * Deletes all the keys with a single use of the write handle.
+     */
+    @Override
+    @Retryable(value = {RetryableVsamException.class, IllegalStateException.class, UnsupportedOperationException.class})
+    public Set<String> deleteAll(String serviceId, Collection<String> keys) {
+        log.info("Deleting Records: {}|{}|{}", serviceId, keys, "-");
+
+        return pool.withFile(VsamConfig.VsamOptions.WRITE, file -> {
+            Set<String> deleted = new HashSet<>();
+            for (String key : keys) {
+                VsamRecord vsamRec = new VsamRecord(vsamConfig, serviceId, new KeyValue(key, "", serviceId));
+                if (file.delete(vsamRec).isPresent()) {
+                    deleted.add(key);
+                }
+                index.remove(serviceId, key);
+            }
+            return deleted;
+        });
+    }
+
     @Override
     public Map<String, KeyValue> readForService(String serviceId) {
 
         log.info("Reading All Records: {}|{}|{}", serviceId, "-", "-");
         Map<String, KeyValue> result = new HashMap<>();
-        List<VsamRecord> returned;
-
-        try (VsamFile file = producer.newVsamFile(vsamConfig, VsamConfig.VsamOptions.READ, apimlLog)) {
-            returned = file.readForService(serviceId);
-        }
+        List<VsamRecord> returned = pool.withFile(VsamConfig.VsamOptions.READ, file -> file.readForService(serviceId));
 
-        returned.forEach(vsamRecord -> result.put(vsamRecord.getKeyValue().getKey(), vsamRecord.getKeyValue()));
+        long now = System.currentTimeMillis();
+        returned.stream()
+            .filter(vsamRecord -> !vsamRecord.getKeyValue().expiredAt(now))
+            .forEach(vsamRecord -> result.put(vsamRecord.getKeyValue().getKey(), vsamRecord.getKeyValue()));
 
         return result;
     }
@@ -204,9 +358,11 @@ public class VsamStorage implements Storage {
     public void deleteForService(String serviceId) {
         log.info("Deleting All Records: {}|{}|{}", serviceId, "-", "-");
 
-        try (VsamFile file = producer.newVsamFile(vsamConfig, VsamConfig.VsamOptions.WRITE, apimlLog)) {
+        pool.withFile(VsamConfig.VsamOptions.WRITE, file -> {
             file.deleteForService(serviceId);
-        }
+            index.removeService(serviceId);
+            return null;
+        });
     }
 
     @Override
@@ -218,4 +374,13 @@ public class VsamStorage implements Storage {
     public void removeNonRelevantRules(String serviceId, String mapKey) {
         throw new StorageException(Messages.INCOMPATIBLE_STORAGE_METHOD.getKey(), Messages.INCOMPATIBLE_STORAGE_METHOD.getStatus());
     }
+
+    /**
+     * Stop building the index and close the pooled handles of the VSAM file.
+     */
+    @Override
+    public void close() {
+        indexExecutor.shutdownNow();
+        pool.close();
+    }
 }
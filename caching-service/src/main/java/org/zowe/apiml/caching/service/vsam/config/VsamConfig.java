@@ -37,6 +37,23 @@ public class VsamConfig {
     private int recordLength;
     @Value("${caching.storage.vsam.encoding:" + ZFileConstants.DEFAULT_EBCDIC_CODE_PAGE + "}")
     private String encoding;
+    /**
+     * Number of the handles used for the reads in parallel, 0 means the reads use the single write handle.
+     */
+    @Value("${caching.storage.vsam.readHandles:0}")
+    private int readHandles;
+    /**
+     * Time in milliseconds after which the handles of the file are reopened and the records are counted again, so the
+     * changes done by other instances are visible. 0 or less means no limit.
+     */
+    @Value("${caching.storage.vsam.handleTimeToLive:60000}")
+    private long handleTimeToLive;
+    /**
+     * Percentage of the maximal number of records to which the oldest records are evicted once the storage is full.
+     * The values outside of the 1 - 99 range mean that a single record is evicted.
+     */
+    @Value("${caching.storage.vsam.evictionLowWaterMark:90}")
+    private int evictionLowWaterMark;
 
     public enum VsamOptions {
         READ("rb,type=record"),
@@ -20,7 +20,9 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.zowe.apiml.caching.model.KeyValue;
+import org.zowe.apiml.caching.model.KeyValueResult;
 import org.zowe.apiml.caching.service.Messages;
+import org.zowe.apiml.cache.AsyncStorage;
 import org.zowe.apiml.cache.Storage;
 import org.zowe.apiml.cache.StorageException;
 import org.zowe.apiml.message.api.ApiMessageView;
@@ -29,8 +31,11 @@ import org.zowe.apiml.message.yaml.YamlMessageService;
 import reactor.test.StepVerifier;
 
 import java.net.URI;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Stream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -62,7 +67,7 @@ class CachingControllerTest {
         when(mockRequest.getHeaders()).thenReturn(headers);
         when(mockRequest.getURI()).thenReturn(URI.create("http://localhost"));
         mockStorage = mock(Storage.class);
-        underTest = new CachingController(mockStorage, messageService);
+        underTest = new CachingController(AsyncStorage.of(mockStorage, Runnable::run), messageService);
     }
 
     @Nested
@@ -230,6 +235,30 @@ class CachingControllerTest {
         }
     }
 
+    @Nested
+    class WhenUpsertKey {
+        @Test
+        void givenStorage_thenResponseNoContent() {
+            when(mockStorage.upsert(SERVICE_ID, KEY_VALUE)).thenReturn(KEY_VALUE);
+
+            StepVerifier.create(underTest.upsert(KEY_VALUE, mockRequest))
+                .assertNext(response -> assertThat(response.getStatusCode(), is(HttpStatus.NO_CONTENT)))
+                .verifyComplete();
+            verify(mockStorage, never()).update(any(), any());
+        }
+
+        @Test
+        void givenNegativeTtl_thenResponseBadRequest() {
+            KeyValue keyValue = new KeyValue(KEY, VALUE);
+            keyValue.setTtl(-1L);
+
+            StepVerifier.create(underTest.upsert(keyValue, mockRequest))
+                .assertNext(response -> assertThat(response.getStatusCode(), is(HttpStatus.BAD_REQUEST)))
+                .verifyComplete();
+            verifyNoInteractions(mockStorage);
+        }
+    }
+
     @Nested
     class WhenDeleteKey {
         @Test
@@ -523,4 +552,89 @@ class CachingControllerTest {
                 .verifyComplete();
         }
     }
+
+    @Nested
+    class WhenBatchRequest {
+
+        @Test
+        void givenKeys_whenRead_thenReturnResultForEachKey() {
+            when(mockStorage.readAll(eq(SERVICE_ID), any())).thenReturn(Map.of(KEY, KEY_VALUE));
+
+            StepVerifier.create(underTest.getValues(List.of(KEY, "missing", KEY), mockRequest))
+                .assertNext(response -> {
+                    assertThat(response.getStatusCode(), is(HttpStatus.OK));
+                    List<KeyValueResult> results = (List<KeyValueResult>) response.getBody();
+                    assertThat(results.size(), is(2));
+                    assertThat(results.get(0).getStatus(), is(200));
+                    assertThat(results.get(0).getKeyValue(), is(KEY_VALUE));
+                    assertThat(results.get(1).getKey(), is("missing"));
+                    assertThat(results.get(1).getStatus(), is(404));
+                    assertThat(results.get(1).getMessage(), notNullValue());
+                })
+                .verifyComplete();
+            verify(mockStorage).readAll(SERVICE_ID, Set.of(KEY, "missing"));
+        }
+
+        @Test
+        void givenKeyValues_whenStore_thenReturnFailuresPerKey() {
+            KeyValue other = new KeyValue("key2", VALUE);
+            StorageException failure = new StorageException(Messages.INSUFFICIENT_STORAGE.getKey(), Messages.INSUFFICIENT_STORAGE.getStatus());
+            when(mockStorage.storeAll(eq(SERVICE_ID), any())).thenReturn(Map.of("key2", failure));
+
+            StepVerifier.create(underTest.storeValues(List.of(KEY_VALUE, other), mockRequest))
+                .assertNext(response -> {
+                    assertThat(response.getStatusCode(), is(HttpStatus.OK));
+                    List<KeyValueResult> results = (List<KeyValueResult>) response.getBody();
+                    assertThat(results.get(0).getStatus(), is(204));
+                    assertThat(results.get(1).getStatus(), is(HttpStatus.INSUFFICIENT_STORAGE.value()));
+                })
+                .verifyComplete();
+        }
+
+        @Test
+        void givenInvalidKeyValue_whenStore_thenResponseBadRequest() {
+            StepVerifier.create(underTest.storeValues(List.of(KEY_VALUE, new KeyValue(KEY, null)), mockRequest))
+                .assertNext(response -> assertThat(response.getStatusCode(), is(HttpStatus.BAD_REQUEST)))
+                .verifyComplete();
+            verify(mockStorage, never()).storeAll(any(), any());
+        }
+
+        @Test
+        void givenKeys_whenDelete_thenReturnResultForEachKey() {
+            when(mockStorage.deleteAll(eq(SERVICE_ID), any())).thenReturn(Set.of(KEY));
+
+            StepVerifier.create(underTest.deleteValues(List.of(KEY, "missing"), mockRequest))
+                .assertNext(response -> {
+                    List<KeyValueResult> results = (List<KeyValueResult>) response.getBody();
+                    assertThat(results.get(0).getStatus(), is(204));
+                    assertThat(results.get(1).getStatus(), is(404));
+                })
+                .verifyComplete();
+        }
+
+        @Test
+        void givenTooManyKeys_thenResponseBadRequest() {
+            underTest.maxBatchSize = 1;
+
+            StepVerifier.create(underTest.getValues(List.of(KEY, "key2"), mockRequest))
+                .assertNext(response -> assertThat(response.getStatusCode(), is(HttpStatus.BAD_REQUEST)))
+                .verifyComplete();
+            verify(mockStorage, never()).readAll(any(), any());
+        }
+
+        @Test
+        void givenNoList_thenResponseBadRequest() {
+            StepVerifier.create(underTest.deleteValues(null, mockRequest))
+                .assertNext(response -> assertThat(response.getStatusCode(), is(HttpStatus.BAD_REQUEST)))
+                .verifyComplete();
+        }
+
+        @Test
+        void givenEmptyList_thenReturnEmptyResult() {
+            StepVerifier.create(underTest.getValues(Collections.emptyList(), mockRequest))
+                .assertNext(response -> assertThat(response.getBody(), is(Collections.emptyList())))
+                .verifyComplete();
+        }
+
+    }
 }
@@ -12,7 +12,6 @@ package org.zowe.apiml.caching.service.infinispan.storage;
 
 import org.infinispan.AdvancedCache;
 import org.infinispan.Cache;
-import org.infinispan.lock.api.ClusteredLock;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -21,8 +20,11 @@ import org.zowe.apiml.cache.StorageException;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
@@ -35,19 +37,19 @@ class InfinispanStorageTest {
     public static final KeyValue TO_CREATE = new KeyValue("key1", "val1");
     public static final KeyValue TO_UPDATE = new KeyValue("key1", "val2");
     Cache<String, KeyValue> cache;
+    ConcurrentMap<String, String> mapItemCache;
     AdvancedCache<String, Map<String,String>> tokenCache;
     InfinispanStorage storage;
     String serviceId1 = "service1";
 
     String serviceId2 = "service2";
-    ClusteredLock lock;
 
     @BeforeEach
     void setup() {
         cache = mock(Cache.class);
+        mapItemCache = new ConcurrentHashMap<>();
         tokenCache = mock(AdvancedCache.class);
-        storage = new InfinispanStorage(cache, tokenCache, lock);
-        lock = mock(ClusteredLock.class);
+        storage = new InfinispanStorage(cache, mapItemCache, tokenCache);
     }
 
     @Nested
@@ -101,7 +103,7 @@ class InfinispanStorageTest {
 
         @Test
         void exceptionIsThrown() {
-            when(cache.putIfAbsent(any(), any())).thenReturn(keyValue);
+            when(cache.putIfAbsent(any(), any(), anyLong(), any())).thenReturn(keyValue);
             assertThrows(StorageException.class, () -> storage.create(serviceId1, TO_CREATE));
         }
 
@@ -115,16 +117,25 @@ class InfinispanStorageTest {
         @Test
         void cacheIsUpdated() {
 
-            when(cache.put(serviceId1 + TO_UPDATE.getKey(), TO_UPDATE)).thenReturn(TO_UPDATE);
+            when(cache.put(serviceId1 + TO_UPDATE.getKey(), TO_UPDATE, -1, TimeUnit.SECONDS)).thenReturn(TO_UPDATE);
             storage.update(serviceId1, TO_UPDATE);
-            verify(cache, times(1)).put(serviceId1 + TO_UPDATE.getKey(), TO_UPDATE);
+            verify(cache, times(1)).put(serviceId1 + TO_UPDATE.getKey(), TO_UPDATE, -1, TimeUnit.SECONDS);
             assertEquals("val2", TO_UPDATE.getValue());
         }
 
+        @Test
+        void givenTtl_whenUpserted_thenLifespanIsSet() {
+            KeyValue toUpsert = new KeyValue("key1", "val3");
+            toUpsert.setTtl(30L);
+
+            assertEquals(toUpsert, storage.upsert(serviceId1, toUpsert));
+            verify(cache).put(serviceId1 + "key1", toUpsert, 30, TimeUnit.SECONDS);
+        }
+
         @Test
         void itemIsDeleted() {
             ConcurrentMap<String, KeyValue> cache = new ConcurrentHashMap<>();
-            InfinispanStorage storage = new InfinispanStorage(cache, tokenCache, lock);
+            InfinispanStorage storage = new InfinispanStorage(cache, mapItemCache, tokenCache);
             assertNull(storage.create(serviceId1, TO_CREATE));
             assertEquals(TO_CREATE, storage.delete(serviceId1, TO_CREATE.getKey()));
         }
@@ -132,7 +143,7 @@ class InfinispanStorageTest {
         @Test
         void returnAll() {
             ConcurrentMap<String, KeyValue> cache = new ConcurrentHashMap<>();
-            InfinispanStorage storage = new InfinispanStorage(cache, tokenCache, lock);
+            InfinispanStorage storage = new InfinispanStorage(cache, mapItemCache, tokenCache);
             storage.create(serviceId1, new KeyValue("key", "value"));
             storage.create(serviceId1, new KeyValue("key2", "value2"));
             assertEquals(2, storage.readForService(serviceId1).size());
@@ -141,7 +152,7 @@ class InfinispanStorageTest {
         @Test
         void removeAll() {
             ConcurrentMap<String, KeyValue> cache = new ConcurrentHashMap<>();
-            InfinispanStorage storage = new InfinispanStorage(cache, tokenCache, lock);
+            InfinispanStorage storage = new InfinispanStorage(cache, mapItemCache, tokenCache);
             storage.create(serviceId1, new KeyValue("key", "value"));
             storage.create(serviceId1, new KeyValue("key2", "value2"));
             assertEquals(2, storage.readForService(serviceId1).size());
@@ -149,45 +160,74 @@ class InfinispanStorageTest {
             assertEquals(0, storage.readForService(serviceId1).size());
         }
 
+        @Test
+        void givenServiceIdIsPrefixOfAnotherServiceId_thenOnlyTheEntriesOfTheServiceAreUsed() {
+            ConcurrentMap<String, KeyValue> cache = new ConcurrentHashMap<>();
+            InfinispanStorage storage = new InfinispanStorage(cache, mapItemCache, tokenCache);
+            storage.create(serviceId1, new KeyValue("key", "value"));
+            storage.create(serviceId1 + "0", new KeyValue("key", "value"));
+
+            assertEquals(1, storage.readForService(serviceId1).size());
+            storage.deleteForService(serviceId1);
+            assertEquals(0, storage.readForService(serviceId1).size());
+            assertEquals(1, storage.readForService(serviceId1 + "0").size());
+        }
+
     }
 
     @Nested
     class WhenStoreToken {
-        KeyValue keyValue;
 
-        @BeforeEach
-        void createEmptyStore() {
-            keyValue = null;
+        @Test
+        void addToken() {
+            Cache<String, String> mapItemCache = mock(Cache.class);
+            InfinispanStorage storage = new InfinispanStorage(cache, mapItemCache, tokenCache);
+
+            assertNull(storage.storeMapItem(serviceId1, "invalidTokens", new KeyValue("newkey", "newvalue")));
+            verify(mapItemCache).put(InfinispanStorage.mapItemKey(serviceId1, "invalidTokens", "newkey"), "newvalue", -1, TimeUnit.MILLISECONDS);
+            verify(tokenCache, never()).put(any(), any());
         }
 
-        @BeforeEach
-        void createStoreWithEntry() {
-            when(tokenCache.getAdvancedCache()).thenReturn(tokenCache);
-            CompletableFuture<Boolean> cmpl = new CompletableFuture<>();
-            cmpl.complete(true);
-            when(lock.tryLock(4, TimeUnit.SECONDS)).thenReturn(cmpl);
-            when(tokenCache.computeIfAbsent(anyString(), any())).thenAnswer(k -> new ArrayList<>());
+        @Test
+        void updateToken() {
+            storage.storeMapItem(serviceId1, "invalidTokens", new KeyValue("key", "token"));
+            storage.storeMapItem(serviceId1, "invalidTokens", new KeyValue("key", "token2"));
+
+            assertEquals(Map.of("key", "token2"), storage.getAllMapItems(serviceId1, "invalidTokens"));
         }
 
         @Test
-        void addToken() {
-            HashMap<String, String> hashMap = new HashMap<>();
-            hashMap.put("key", "token");
-            InfinispanStorage storage = new InfinispanStorage(cache, tokenCache, lock);
-            when(tokenCache.get(anyString())).thenAnswer(invocation -> hashMap);
-            assertNull(storage.storeMapItem(serviceId1, "invalidTokens", new KeyValue("newkey", "newvalue")));
-            verify(tokenCache, times(1)).put(serviceId1 + "invalidTokens", hashMap);
+        void givenTtl_thenItIsTheLifespan() {
+            KeyValue item = new KeyValue("key", "token");
+            item.setTtl(30L);
+
+            assertEquals(30_000, InfinispanStorage.mapItemLifespan(item));
         }
 
         @Test
-        void updateToken() {
-            HashMap<String, String> hashMap = new HashMap();
-            hashMap.put("key", "token");
-            InfinispanStorage storage = new InfinispanStorage(cache, tokenCache, lock);
-            when(tokenCache.get(serviceId1 + "invalidTokens")).thenReturn(hashMap);
-            KeyValue keyValue = new KeyValue("key", "token2");
-            assertNull(storage.storeMapItem(serviceId1, "invalidTokens", keyValue));
-            verify(tokenCache, times(1)).put(serviceId1 + "invalidTokens", hashMap);
+        void givenInvalidatedToken_thenLifespanEndsWithItsExpiration() {
+            KeyValue item = new KeyValue("key", "{\"tokenValue\":\"hashedKey\",\"expiresAt\":[2999,11,15,15,13,18]}");
+
+            assertTrue(InfinispanStorage.mapItemLifespan(item) > TimeUnit.DAYS.toMillis(365));
+        }
+
+        @Test
+        void givenRule_thenLifespanEndsAfterRelevancePeriod() {
+            KeyValue item = new KeyValue("key", Long.toString(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1)));
+
+            long lifespan = InfinispanStorage.mapItemLifespan(item);
+            assertTrue(lifespan > TimeUnit.DAYS.toMillis(89));
+            assertTrue(lifespan <= TimeUnit.DAYS.toMillis(90));
+        }
+
+        @Test
+        void givenOldRule_thenItExpiresImmediately() {
+            assertEquals(1, InfinispanStorage.mapItemLifespan(new KeyValue("key", "1595282400000")));
+        }
+
+        @Test
+        void givenUnknownValue_thenItDoesNotExpire() {
+            assertEquals(-1, InfinispanStorage.mapItemLifespan(new KeyValue("key", "token")));
         }
     }
 
@@ -196,13 +236,27 @@ class InfinispanStorageTest {
 
         @Test
         void returnTokenList() {
-            HashMap<String, String> expectedMap = new HashMap();
-            expectedMap.put("key1", "token1");
-            expectedMap.put("key2", "token2");
+            storage.storeMapItem(serviceId1, "invalidTokens", new KeyValue("key1", "token1"));
+            storage.storeMapItem(serviceId1, "invalidTokens", new KeyValue("key2", "token2"));
+            storage.storeMapItem(serviceId1, "invalidUsers", new KeyValue("key3", "token3"));
 
-            when(tokenCache.get(serviceId1 + "invalidTokens")).thenReturn(expectedMap);
             assertEquals(2, storage.getAllMapItems(serviceId1, "invalidTokens").size());
         }
+
+        @Test
+        void givenLegacyMap_thenItsItemsAreReturnedToo() {
+            Map<String, String> legacyMap = new HashMap<>();
+            legacyMap.put("key0", "token0");
+            when(tokenCache.get(serviceId1 + "invalidTokens")).thenReturn(legacyMap);
+            storage.storeMapItem(serviceId1, "invalidTokens", new KeyValue("key1", "token1"));
+
+            assertEquals(Map.of("key0", "token0", "key1", "token1"), storage.getAllMapItems(serviceId1, "invalidTokens"));
+        }
+
+        @Test
+        void givenNoItem_thenNullIsReturned() {
+            assertNull(storage.getAllMapItems(serviceId1, "invalidTokens"));
+        }
     }
 
     @Nested
@@ -211,19 +265,16 @@ class InfinispanStorageTest {
         InfinispanStorage underTest;
         @BeforeEach
         void createStorage() {
-            Map<String, String> tokensService1 = new HashMap();
-            tokensService1.put("key1", "token1");
-            tokensService1.put("key2", "token2");
-            Map<String, String> tokensService2 = new HashMap();
-            tokensService2.put("key3", "token3");
             Map<String, String> rulesService1 = new HashMap();
             rulesService1.put("key1", "rule1");
             rulesService1.put("key2", "rule2");
             ConcurrentMap<String, Map<String, String>> tokenCache = new ConcurrentHashMap<>();
-            tokenCache.put(serviceId1 + "invalidTokens", tokensService1);
             tokenCache.put(serviceId1 + "invalidTokenRules", rulesService1);
-            tokenCache.put(serviceId2 + "invalidTokens", tokensService2);
-            underTest = new InfinispanStorage(cache, tokenCache, lock);
+            underTest = new InfinispanStorage(cache, mapItemCache, tokenCache);
+            underTest.storeMapItem(serviceId1, "invalidTokens", new KeyValue("key1", "token1"));
+            underTest.storeMapItem(serviceId1, "invalidTokens", new KeyValue("key2", "token2"));
+            underTest.storeMapItem(serviceId2, "invalidTokens", new KeyValue("key3", "token3"));
+            underTest.storeMapItem(serviceId1 + "0", "invalidTokens", new KeyValue("key4", "token4"));
         }
 
 
@@ -260,35 +311,131 @@ class InfinispanStorageTest {
     @Nested
     class WhenEvictNonRelevantTokensAndRules {
         InfinispanStorage underTest;
+        ConcurrentMap<String, Map<String, String>> tokenCache;
 
         @BeforeEach
         void createStorage() {
-            Map<String, String> tokensService = new HashMap();
             String value = "{\"userId\":null,\"tokenValue\":\"hashedKey\",\"issuedAt\":[2022,8,17,16,13,18],\"expiresAt\":[2021,11,15,15,13,18],\"scopes\":null,\"tokenProvider\":null}";
-            tokensService.put("key1", value);
-            tokensService.put("key2", "token");
-            Map<String, String> rulesService = new HashMap();
-            rulesService.put("key1", "1595282400000");
             Map<String, String> rulesUsers = new HashMap();
             rulesUsers.put("key1", "1595282400000");
-            ConcurrentMap<String, Map<String, String>> tokenCache = new ConcurrentHashMap<>();
-            tokenCache.put(serviceId1 + "invalidTokens", tokensService);
-            tokenCache.put(serviceId1 + "invalidScopes", rulesService);
+            rulesUsers.put("key2", Long.toString(System.currentTimeMillis()));
+            tokenCache = new ConcurrentHashMap<>();
             tokenCache.put(serviceId1 + "invalidUsers", rulesUsers);
-            underTest = new InfinispanStorage(cache, tokenCache, lock);
+            underTest = new InfinispanStorage(cache, mapItemCache, tokenCache);
+            underTest.storeMapItem(serviceId1, "invalidTokens", new KeyValue("key1", value));
+            underTest.storeMapItem(serviceId1, "invalidTokens", new KeyValue("key2", "token"));
+            underTest.storeMapItem(serviceId1, "invalidScopes", new KeyValue("key1", "1595282400000"));
         }
         @Test
         void thenEvictItems() {
-            CompletableFuture<Boolean> cmpl = new CompletableFuture<>();
-            cmpl.complete(true);
-            when(lock.tryLock(4, TimeUnit.SECONDS)).thenReturn(cmpl);
             underTest.removeNonRelevantTokens(serviceId1, "invalidTokens");
             underTest.removeNonRelevantRules(serviceId1, "invalidScopes");
             underTest.removeNonRelevantRules(serviceId1, "invalidUsers");
             Map<String, Map<String, String>> result = underTest.getAllMaps(serviceId1);
             assertEquals(1, result.get("invalidTokens").size());
-            assertEquals(0, result.get("invalidScopes").size());
-            assertEquals(0, result.get("invalidUsers").size());
+            assertNull(result.get("invalidScopes"));
+            assertEquals(Set.of("key2"), result.get("invalidUsers").keySet());
+        }
+
+        @Test
+        void givenLegacyMapHasNoRelevantItem_thenItIsRemoved() {
+            tokenCache.put(serviceId1 + "invalidScopes", new HashMap<>(Map.of("key2", "1595282400000")));
+
+            underTest.removeNonRelevantRules(serviceId1, "invalidScopes");
+
+            assertFalse(tokenCache.containsKey(serviceId1 + "invalidScopes"));
+        }
+
+    }
+
+    @Nested
+    class WhenUsingAsyncMethods {
+
+        @Test
+        void givenNewKey_thenCreateWithoutBlocking() {
+            when(cache.putIfAbsentAsync(serviceId1 + TO_CREATE.getKey(), TO_CREATE, -1, TimeUnit.SECONDS)).thenReturn(CompletableFuture.completedFuture(null));
+
+            assertNull(storage.createAsync(serviceId1, TO_CREATE).toCompletableFuture().join());
+            verify(cache, never()).putIfAbsent(any(), any(), anyLong(), any());
+        }
+
+        @Test
+        void givenExistingKey_thenCreateFails() {
+            when(cache.putIfAbsentAsync(serviceId1 + TO_CREATE.getKey(), TO_CREATE, -1, TimeUnit.SECONDS)).thenReturn(CompletableFuture.completedFuture(TO_CREATE));
+
+            CompletionException e = assertThrows(CompletionException.class, () -> storage.createAsync(serviceId1, TO_CREATE).toCompletableFuture().join());
+            assertInstanceOf(StorageException.class, e.getCause());
+        }
+
+        @Test
+        void givenExistingKey_thenReadReturnsValue() {
+            when(cache.getAsync(serviceId1 + "key1")).thenReturn(CompletableFuture.completedFuture(TO_CREATE));
+
+            assertEquals(TO_CREATE, storage.readAsync(serviceId1, "key1").toCompletableFuture().join());
+        }
+
+        @Test
+        void givenNotExistingKey_thenDeleteFails() {
+            when(cache.removeAsync(serviceId1 + "key1")).thenReturn(CompletableFuture.completedFuture(null));
+
+            CompletionException e = assertThrows(CompletionException.class, () -> storage.deleteAsync(serviceId1, "key1").toCompletableFuture().join());
+            assertInstanceOf(StorageException.class, e.getCause());
+        }
+
+        @Test
+        void givenMoreKeys_thenReadAllUsesSingleOperation() {
+            when(cache.getAllAsync(Set.of(serviceId1 + "key1", serviceId1 + "key2"))).thenReturn(CompletableFuture.completedFuture(Map.of(serviceId1 + "key1", TO_CREATE)));
+
+            Map<String, KeyValue> result = storage.readAllAsync(serviceId1, List.of("key1", "key2")).toCompletableFuture().join();
+            assertEquals(Map.of("key1", TO_CREATE), result);
+        }
+
+        @Test
+        void givenMoreKeyValues_thenStoreAllUsesSingleOperation() {
+            when(cache.putAllAsync(anyMap(), anyLong(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+            assertTrue(storage.storeAllAsync(serviceId1, List.of(TO_CREATE, new KeyValue("key2", "val2"))).toCompletableFuture().join().isEmpty());
+            verify(cache).putAllAsync(argThat(map -> map.size() == 2 && map.containsKey(serviceId1 + "key2")), eq(-1L), eq(TimeUnit.SECONDS));
+        }
+
+        @Test
+        void givenDifferentTtls_thenStoreAllIsGroupedByLifespan() {
+            when(cache.putAllAsync(anyMap(), anyLong(), any())).thenReturn(CompletableFuture.completedFuture(null));
+            KeyValue expiring = new KeyValue("key2", "val2");
+            expiring.setTtl(60L);
+
+            assertTrue(storage.storeAllAsync(serviceId1, List.of(TO_CREATE, expiring)).toCompletableFuture().join().isEmpty());
+            verify(cache).putAllAsync(Map.of(serviceId1 + "key1", TO_CREATE), -1, TimeUnit.SECONDS);
+            verify(cache).putAllAsync(Map.of(serviceId1 + "key2", expiring), 60, TimeUnit.SECONDS);
+        }
+
+        @Test
+        void givenExistingKey_thenUpsertReplacesItInSingleOperation() {
+            when(cache.putAsync(serviceId1 + "key1", TO_UPDATE, -1, TimeUnit.SECONDS)).thenReturn(CompletableFuture.completedFuture(TO_CREATE));
+
+            assertEquals(TO_UPDATE, storage.upsertAsync(serviceId1, TO_UPDATE).toCompletableFuture().join());
+            verify(cache, never()).getAsync(any());
+        }
+
+        @Test
+        void givenMoreKeys_thenDeleteAllReturnsDeletedKeys() {
+            when(cache.removeAsync(serviceId1 + "key1")).thenReturn(CompletableFuture.completedFuture(TO_CREATE));
+            when(cache.removeAsync(serviceId1 + "key2")).thenReturn(CompletableFuture.completedFuture(null));
+
+            assertEquals(Set.of("key1"), storage.deleteAllAsync(serviceId1, List.of("key1", "key2")).toCompletableFuture().join());
+        }
+
+        @Test
+        void givenMapItem_thenItIsStoredWithoutBlocking() {
+            Cache<String, String> mapItemCache = mock(Cache.class);
+            String itemKey = InfinispanStorage.mapItemKey(serviceId1, "invalidTokens", "key1");
+            when(mapItemCache.putAsync(itemKey, "val1", -1, TimeUnit.MILLISECONDS)).thenReturn(new CompletableFuture<>());
+            InfinispanStorage underTest = new InfinispanStorage(cache, mapItemCache, tokenCache);
+
+            CompletableFuture<KeyValue> result = underTest.storeMapItemAsync(serviceId1, "invalidTokens", TO_CREATE).toCompletableFuture();
+            assertFalse(result.isDone());
+            verify(mapItemCache, never()).put(any(), any());
+            verify(tokenCache, never()).put(any(), any());
         }
 
     }
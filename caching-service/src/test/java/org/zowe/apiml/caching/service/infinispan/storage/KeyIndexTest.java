@@ -0,0 +1,110 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+
+package org.zowe.apiml.caching.service.infinispan.storage;
+
+import org.infinispan.Cache;
+import org.infinispan.notifications.cachelistener.event.CacheEntryCreatedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryExpiredEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryRemovedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class KeyIndexTest {
+
+    @Nested
+    class GivenInfinispanCache {
+
+        private Cache<String, String> cache;
+        private KeyIndex.Sorted underTest;
+
+        @BeforeEach
+        void setUp() {
+            cache = mock(Cache.class);
+            doAnswer(invocation -> {
+                invocation.<BiConsumer<String, String>>getArgument(0).accept("service1key", "value");
+                return null;
+            }).when(cache).forEach(any());
+
+            underTest = (KeyIndex.Sorted) KeyIndex.of(cache);
+        }
+
+        @Test
+        void thenListenerIsRegisteredAndExistingKeysAreLoaded() {
+            verify(cache).addListener(underTest);
+            assertEquals(List.of("service1key"), underTest.keysWithPrefix("service1"));
+        }
+
+        @Test
+        void whenEntriesAreCreated_thenOnlyTheKeysWithPrefixAreFound() {
+            underTest.created(created("service10key"));
+            underTest.created(created("service2key"));
+            underTest.created(created("service0key"));
+
+            assertEquals(List.of("service10key", "service1key"), underTest.keysWithPrefix("service1"));
+            assertEquals(List.of("service2key"), underTest.keysWithPrefix("service2"));
+            assertTrue(underTest.keysWithPrefix("unknown").isEmpty());
+        }
+
+        @Test
+        void whenEntryIsRemoved_thenItIsNotFound() {
+            CacheEntryRemovedEvent<String, String> event = mock(CacheEntryRemovedEvent.class);
+            when(event.getKey()).thenReturn("service1key");
+
+            underTest.removed(event);
+
+            assertTrue(underTest.keysWithPrefix("service1").isEmpty());
+        }
+
+        @Test
+        void whenEntryExpires_thenItIsNotFound() {
+            CacheEntryExpiredEvent<String, String> event = mock(CacheEntryExpiredEvent.class);
+            when(event.getKey()).thenReturn("service1key");
+
+            underTest.expired(event);
+
+            assertTrue(underTest.keysWithPrefix("service1").isEmpty());
+        }
+
+        private CacheEntryCreatedEvent<String, String> created(String key) {
+            CacheEntryCreatedEvent<String, String> event = mock(CacheEntryCreatedEvent.class);
+            when(event.getKey()).thenReturn(key);
+            return event;
+        }
+
+    }
+
+    @Nested
+    class GivenOtherMap {
+
+        @Test
+        void thenTheCurrentKeysWithPrefixAreFound() {
+            ConcurrentMap<String, String> map = new ConcurrentHashMap<>();
+            KeyIndex underTest = KeyIndex.of(map);
+            map.put("service1key", "value");
+            map.put("service2key", "value");
+
+            assertEquals(List.of("service1key"), underTest.keysWithPrefix("service1"));
+        }
+
+    }
+
+}
@@ -0,0 +1,193 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+
+package org.zowe.apiml.caching.service.inmemory;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.zowe.apiml.caching.service.Strategies;
+import org.zowe.apiml.caching.service.inmemory.EvictionOrder.EntryId;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.core.Is.is;
+
+class EvictionOrderTest {
+
+    private final EntryId first = new EntryId("service", "first");
+    private final EntryId second = new EntryId("service", "second");
+
+    @Nested
+    class WhenCreatedForStrategy {
+        @Test
+        void thenTheOrderMatchesTheStrategy() {
+            assertThat(EvictionOrder.of(Strategies.REMOVE_OLDEST.getKey()), instanceOf(EvictionOrder.InsertionOrder.class));
+            assertThat(EvictionOrder.of(Strategies.LEAST_RECENTLY_USED.getKey()), instanceOf(EvictionOrder.AccessOrder.class));
+            assertThat(EvictionOrder.of(Strategies.LEAST_FREQUENTLY_USED.getKey()), instanceOf(EvictionOrder.FrequencyOrder.class));
+            assertThat(EvictionOrder.of(Strategies.REJECT.getKey()), is(nullValue()));
+        }
+    }
+
+    @Nested
+    class GivenInsertionOrder {
+        private final EvictionOrder underTest = new EvictionOrder.InsertionOrder();
+
+        @Test
+        void whenEntryIsRead_thenTheOldestIsStillEvicted() {
+            underTest.written(first);
+            underTest.written(second);
+            underTest.accessed(first);
+
+            assertThat(underTest.victim(), is(first));
+        }
+
+        @Test
+        void whenEntryIsRewritten_thenItBecomesTheYoungest() {
+            underTest.written(first);
+            underTest.written(second);
+            underTest.written(first);
+
+            assertThat(underTest.victim(), is(second));
+        }
+
+        @Test
+        void whenAllEntriesAreRemoved_thenThereIsNoVictim() {
+            underTest.written(first);
+            underTest.removed(first);
+
+            assertThat(underTest.victim(), is(nullValue()));
+        }
+
+        @Test
+        void whenTheOldestIsExcluded_thenTheNextOneIsTheVictim() {
+            underTest.written(first);
+            underTest.written(second);
+
+            assertThat(underTest.victim(first), is(second));
+            assertThat(underTest.victim(second), is(first));
+        }
+
+        @Test
+        void whenTheOnlyEntryIsExcluded_thenThereIsNoVictim() {
+            underTest.written(first);
+
+            assertThat(underTest.victim(first), is(nullValue()));
+        }
+    }
+
+    @Nested
+    class GivenAccessOrder {
+        private final EvictionOrder underTest = new EvictionOrder.AccessOrder();
+
+        @Test
+        void whenEntryIsRead_thenTheOtherIsEvicted() {
+            underTest.written(first);
+            underTest.written(second);
+            underTest.accessed(first);
+
+            assertThat(underTest.victim(), is(second));
+        }
+
+        @Test
+        void whenUnknownEntryIsRead_thenItIsNotTracked() {
+            underTest.accessed(first);
+
+            assertThat(underTest.victim(), is(nullValue()));
+        }
+    }
+
+    @Nested
+    class GivenReadsAreBuffered {
+        private final EvictionOrder underTest = new EvictionOrder.AccessOrder();
+
+        @Test
+        void whenManyReadsAreRecorded_thenTheyAreAppliedInBatches() {
+            underTest.written(first);
+            underTest.written(second);
+            for (int i = 0; i < EvictionOrder.READ_BUFFER_CAPACITY * 2; i++) {
+                underTest.accessed(first);
+            }
+
+            assertThat(underTest.victim(), is(second));
+        }
+    }
+
+    @Nested
+    class GivenFrequencyOrder {
+        private final EvictionOrder underTest = new EvictionOrder.FrequencyOrder();
+
+        @Test
+        void whenEntryIsReadMoreOften_thenTheOtherIsEvicted() {
+            underTest.written(first);
+            underTest.written(second);
+            underTest.accessed(first);
+            underTest.accessed(second);
+            underTest.accessed(first);
+
+            assertThat(underTest.victim(), is(second));
+        }
+
+        @Test
+        void whenFrequenciesAreEqual_thenTheLeastRecentlyUsedIsEvicted() {
+            underTest.written(first);
+            underTest.written(second);
+            underTest.accessed(second);
+            underTest.accessed(first);
+
+            assertThat(underTest.victim(), is(second));
+        }
+
+        @Test
+        void whenFrequenciesAreHalved_thenRecentUsesOutweighOldPopularity() {
+            EvictionOrder.FrequencyOrder frequencyOrder = new EvictionOrder.FrequencyOrder();
+            for (int i = 0; i < EvictionOrder.FrequencyOrder.MAX_FREQUENCY; i++) {
+                frequencyOrder.written(first);
+            }
+            for (int i = 0; i < 5; i++) {
+                frequencyOrder.written(second);
+            }
+            frequencyOrder.age();
+            frequencyOrder.age();
+
+            for (int i = 0; i < 3; i++) {
+                frequencyOrder.accessed(second);
+            }
+
+            assertThat(frequencyOrder.victim(), is(first));
+        }
+
+        @Test
+        void whenManyUsesAreRecorded_thenTheFrequenciesAreHalvedAutomatically() {
+            underTest.written(first);
+            for (int i = 1; i < EvictionOrder.FrequencyOrder.MIN_AGING_PERIOD; i++) {
+                underTest.accessed(first);
+            }
+            for (int i = 0; i < EvictionOrder.FrequencyOrder.MAX_FREQUENCY / 2 + 1; i++) {
+                underTest.written(second);
+            }
+
+            assertThat(underTest.victim(), is(first));
+        }
+
+        @Test
+        void whenFrequencyIsSaturated_thenTheEntryCanStillBeEvicted() {
+            for (int i = 0; i < EvictionOrder.FrequencyOrder.MAX_FREQUENCY * 2; i++) {
+                underTest.accessed(first);
+                underTest.written(first);
+            }
+            underTest.removed(first);
+
+            assertThat(underTest.victim(), is(nullValue()));
+        }
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+
+package org.zowe.apiml.caching.service.inmemory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.zowe.apiml.caching.model.KeyValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpiryWheelTest {
+
+    private static final String SERVICE_ID = "acme";
+
+    private final AtomicLong now = new AtomicLong(100_000);
+    private final List<String> expired = new ArrayList<>();
+    private ExpiryWheel underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new ExpiryWheel(8, 1000, (serviceId, key) -> expired.add(key), now::get);
+        underTest.tick();
+    }
+
+    @AfterEach
+    void tearDown() {
+        underTest.stop();
+    }
+
+    private KeyValue entry(String key, long ttl) {
+        KeyValue keyValue = new KeyValue(key, "value", String.valueOf(now.get()));
+        keyValue.setTtl(ttl);
+        return keyValue;
+    }
+
+    @Nested
+    class GivenScheduledEntry {
+
+        @Test
+        void whenTtlDidNotElapse_thenItIsKept() {
+            underTest.schedule(SERVICE_ID, entry("key", 5));
+
+            now.addAndGet(4000);
+            underTest.tick();
+            assertTrue(expired.isEmpty());
+        }
+
+        @Test
+        void whenTtlElapsed_thenItIsExpired() {
+            KeyValue keyValue = entry("key", 5);
+            underTest.schedule(SERVICE_ID, keyValue);
+
+            now.addAndGet(5000);
+            underTest.tick();
+            assertEquals(List.of("key"), expired);
+        }
+
+        @Test
+        void whenTtlIsLongerThanRevolution_thenItIsExpiredInRightRevolution() {
+            KeyValue keyValue = entry("key", 20);
+            underTest.schedule(SERVICE_ID, keyValue);
+
+            for (int i = 0; i < 19; i++) {
+                now.addAndGet(1000);
+                underTest.tick();
+            }
+            assertTrue(expired.isEmpty());
+
+            now.addAndGet(1000);
+            underTest.tick();
+            assertEquals(List.of("key"), expired);
+        }
+
+        @Test
+        void whenTickingWasDelayed_thenAllElapsedAreExpired() {
+            underTest.schedule(SERVICE_ID, entry("key1", 2));
+            underTest.schedule(SERVICE_ID, entry("key2", 7));
+
+            now.addAndGet(30_000);
+            underTest.tick();
+            assertEquals(2, expired.size());
+        }
+
+        @Test
+        void whenEntryHasNoTtl_thenItIsIgnored() {
+            underTest.schedule(SERVICE_ID, new KeyValue("key", "value"));
+
+            now.addAndGet(30_000);
+            underTest.tick();
+            assertTrue(expired.isEmpty());
+        }
+
+        @Test
+        void whenEntryIsRescheduled_thenOnlyTheLastTimeoutIsKept() {
+            underTest.schedule(SERVICE_ID, entry("key", 2));
+            underTest.schedule(SERVICE_ID, entry("key", 5));
+            assertEquals(1, underTest.scheduledCount());
+
+            now.addAndGet(2000);
+            underTest.tick();
+            assertTrue(expired.isEmpty());
+
+            now.addAndGet(3000);
+            underTest.tick();
+            assertEquals(List.of("key"), expired);
+            assertEquals(0, underTest.scheduledCount());
+        }
+
+        @Test
+        void whenEntryIsRescheduledWithSameExpiration_thenItIsStillExpired() {
+            underTest.schedule(SERVICE_ID, entry("key", 2));
+            underTest.schedule(SERVICE_ID, entry("key", 2));
+            assertEquals(1, underTest.scheduledCount());
+
+            now.addAndGet(2000);
+            underTest.tick();
+            assertEquals(List.of("key"), expired);
+            assertEquals(0, underTest.scheduledCount());
+        }
+
+        @Test
+        void whenEntryIsReplacedWithoutTtl_thenItsTimeoutIsCancelled() {
+            underTest.schedule(SERVICE_ID, entry("key", 2));
+            underTest.schedule(SERVICE_ID, new KeyValue("key", "value"));
+
+            now.addAndGet(30_000);
+            underTest.tick();
+            assertTrue(expired.isEmpty());
+            assertEquals(0, underTest.scheduledCount());
+        }
+
+        @Test
+        void whenEntryIsCancelled_thenItIsNotExpired() {
+            underTest.schedule(SERVICE_ID, entry("key", 2));
+            underTest.cancel(SERVICE_ID, "key");
+
+            now.addAndGet(30_000);
+            underTest.tick();
+            assertTrue(expired.isEmpty());
+        }
+
+    }
+
+}
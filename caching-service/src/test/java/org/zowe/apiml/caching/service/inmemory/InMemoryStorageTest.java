@@ -13,6 +13,8 @@ package org.zowe.apiml.caching.service.inmemory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.zowe.apiml.caching.config.GeneralConfig;
 import org.zowe.apiml.caching.model.KeyValue;
 import org.zowe.apiml.cache.StorageException;
@@ -25,6 +27,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.core.Is.is;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.mock;
@@ -109,6 +112,132 @@ class InMemoryStorageTest {
     }
 
 
+    @Nested
+    class WhenEvictionIsNeeded {
+        private InMemoryStorage storageWithStrategy(Strategies strategy, int maxDataSize) {
+            GeneralConfig generalConfig = new GeneralConfig();
+            generalConfig.setEvictionStrategy(strategy.getKey());
+            config = new InMemoryConfig(generalConfig);
+            config.getGeneralConfig().setMaxDataSize(maxDataSize);
+            return new InMemoryStorage(config, testingStorage, ApimlLogger.empty());
+        }
+
+        @Test
+        void givenStrategyIsLeastRecentlyUsed_thenTheEntryNotReadTheLongestIsEvicted() {
+            underTest = storageWithStrategy(Strategies.LEAST_RECENTLY_USED, 2);
+            underTest.create(serviceId, new KeyValue("first", "value"));
+            underTest.create(serviceId, new KeyValue("second", "value"));
+            underTest.read(serviceId, "first");
+
+            underTest.create(serviceId, new KeyValue("third", "value"));
+
+            assertThat(testingStorage.get(serviceId).keySet(), containsInAnyOrder("first", "third"));
+            assertThat(underTest.size(), is(2));
+        }
+
+        @Test
+        void givenStrategyIsLeastFrequentlyUsed_thenTheEntryReadTheLeastIsEvicted() {
+            underTest = storageWithStrategy(Strategies.LEAST_FREQUENTLY_USED, 2);
+            underTest.create(serviceId, new KeyValue("first", "value"));
+            underTest.create(serviceId, new KeyValue("second", "value"));
+            underTest.read(serviceId, "first");
+            underTest.read(serviceId, "first");
+            underTest.read(serviceId, "second");
+
+            underTest.create("otherService", new KeyValue("third", "value"));
+
+            assertThat(testingStorage.get(serviceId).keySet(), containsInAnyOrder("first"));
+            assertThat(testingStorage.get("otherService").keySet(), containsInAnyOrder("third"));
+        }
+
+        @Test
+        void givenTheBytesLimitIsReached_thenEntriesAreEvictedUntilTheNewOneFits() {
+            underTest = storageWithStrategy(Strategies.REMOVE_OLDEST, 10);
+            KeyValue entry = new KeyValue("key1", "value", "1");
+            config.setMaxBytes(2 * InMemoryStorage.sizeOf(serviceId, entry));
+
+            underTest.create(serviceId, entry);
+            underTest.create(serviceId, new KeyValue("key2", "value", "2"));
+            underTest.create(serviceId, new KeyValue("key3", "value", "3"));
+
+            assertThat(testingStorage.get(serviceId).keySet(), containsInAnyOrder("key2", "key3"));
+            assertThat(underTest.bytes(), is(2 * InMemoryStorage.sizeOf(serviceId, entry)));
+        }
+
+        @Test
+        void givenTheBytesLimitIsReached_whenEntryIsReplacedWithLargerValue_thenOtherEntriesAreEvicted() {
+            underTest = storageWithStrategy(Strategies.REMOVE_OLDEST, 10);
+            KeyValue entry = new KeyValue("key1", "value", "1");
+            long maxBytes = 2 * InMemoryStorage.sizeOf(serviceId, entry);
+            config.setMaxBytes(maxBytes);
+
+            underTest.create(serviceId, entry);
+            underTest.create(serviceId, new KeyValue("key2", "value", "2"));
+            underTest.upsert(serviceId, new KeyValue("key2", "larger value", "3"));
+
+            assertThat(testingStorage.get(serviceId).keySet(), containsInAnyOrder("key2"));
+            assertThat(underTest.bytes() <= maxBytes, is(true));
+        }
+
+        @ParameterizedTest
+        @EnumSource(value = Strategies.class, names = {"REMOVE_OLDEST", "LEAST_RECENTLY_USED", "LEAST_FREQUENTLY_USED"})
+        void givenTheBytesLimitIsReached_whenTheFirstEntryIsUpdated_thenItIsNotEvicted(Strategies strategy) {
+            underTest = storageWithStrategy(strategy, 10);
+            KeyValue entry = new KeyValue("key1", "value", "1");
+            long maxBytes = 2 * InMemoryStorage.sizeOf(serviceId, entry);
+            config.setMaxBytes(maxBytes);
+
+            underTest.create(serviceId, entry);
+            underTest.create(serviceId, new KeyValue("key2", "value", "2"));
+            KeyValue updated = underTest.update(serviceId, new KeyValue("key1", "larger value", "3"));
+
+            assertThat(updated.getValue(), is("larger value"));
+            assertThat(testingStorage.get(serviceId).keySet(), containsInAnyOrder("key1"));
+            assertThat(underTest.read(serviceId, "key1").getValue(), is("larger value"));
+            assertThat(underTest.bytes() <= maxBytes, is(true));
+        }
+
+        @Test
+        void givenTheSizeLimitIsReached_whenEntryIsReplaced_thenNothingIsEvicted() {
+            underTest = storageWithStrategy(Strategies.REMOVE_OLDEST, 2);
+            underTest.create(serviceId, new KeyValue("key1", "value"));
+            underTest.create(serviceId, new KeyValue("key2", "value"));
+
+            underTest.update(serviceId, new KeyValue("key1", "new value"));
+            underTest.upsert(serviceId, new KeyValue("key2", "new value"));
+
+            assertThat(testingStorage.get(serviceId).keySet(), containsInAnyOrder("key1", "key2"));
+            assertThat(underTest.size(), is(2));
+        }
+
+        @Test
+        void givenTheEntryIsLargerThanTheBytesLimit_thenItIsRejected() {
+            config.setMaxBytes(InMemoryStorage.ENTRY_OVERHEAD);
+            KeyValue tooLarge = new KeyValue("key", "value");
+
+            assertThrows(StorageException.class, () -> underTest.create(serviceId, tooLarge));
+            assertThat(underTest.size(), is(0));
+        }
+
+        @Test
+        void givenEntriesAreDeleted_thenTheyAreNotCountedAnymore() {
+            underTest.create(serviceId, new KeyValue("key1", "value"));
+            underTest.create(serviceId, new KeyValue("key2", "value"));
+            underTest.create("otherService", new KeyValue("key3", "value"));
+
+            underTest.delete(serviceId, "key1");
+            assertThat(underTest.size(), is(2));
+
+            underTest.deleteForService(serviceId);
+            assertThat(underTest.size(), is(1));
+
+            underTest.delete("otherService", "key3");
+            assertThat(underTest.size(), is(0));
+            assertThat(underTest.bytes(), is(0L));
+        }
+    }
+
+
     @Nested
     class WhenValueIsUpdated {
         @Test
@@ -141,6 +270,75 @@ class InMemoryStorageTest {
         }
     }
 
+    @Nested
+    class WhenValueIsUpserted {
+        @Test
+        void givenThereIsNoKey_thenItIsCreated() {
+            underTest.upsert(serviceId, new KeyValue("username", "ValidName"));
+
+            assertThat(testingStorage.get(serviceId).get("username").getValue(), is("ValidName"));
+        }
+
+        @Test
+        void givenThereIsValueForService_thenItIsReplaced() {
+            underTest.create(serviceId, new KeyValue("username", "Name 1"));
+            underTest.upsert(serviceId, new KeyValue("username", "ValidName"));
+
+            assertThat(testingStorage.get(serviceId).get("username").getValue(), is("ValidName"));
+        }
+    }
+
+    @Nested
+    class WhenValueExpired {
+        private KeyValue expired;
+
+        @BeforeEach
+        void setUp() {
+            expired = new KeyValue("username", "Name 1", "1000");
+            expired.setTtl(1L);
+            Map<String, KeyValue> serviceStorage = new HashMap<>();
+            serviceStorage.put("username", expired);
+            testingStorage.put(serviceId, serviceStorage);
+        }
+
+        @Test
+        void thenItIsNotReturned() {
+            assertThrows(StorageException.class, () -> underTest.read(serviceId, "username"));
+            assertThat(testingStorage.get(serviceId).containsKey("username"), is(false));
+        }
+
+        @Test
+        void thenItIsNotLoadedForService() {
+            assertThat(underTest.readForService(serviceId).isEmpty(), is(true));
+        }
+
+        @Test
+        void thenItCanBeCreatedAgain() {
+            underTest.create(serviceId, new KeyValue("username", "ValidName"));
+
+            assertThat(testingStorage.get(serviceId).get("username").getValue(), is("ValidName"));
+        }
+
+        @Test
+        void givenItWasReplaced_whenExpirationComes_thenTheNewValueIsKept() {
+            KeyValue replacement = new KeyValue("username", "ValidName");
+            testingStorage.get(serviceId).put("username", replacement);
+
+            underTest.expire(serviceId, expired);
+            assertThat(testingStorage.get(serviceId).get("username"), is(replacement));
+        }
+
+        @Test
+        void givenOldCreationTime_whenStored_thenTtlIsCountedFromTheWrite() {
+            KeyValue stored = new KeyValue("username", "ValidName", "1000");
+            stored.setTtl(60L);
+            underTest.upsert(serviceId, stored);
+
+            assertThat(underTest.read(serviceId, "username").getValue(), is("ValidName"));
+            assertThat(stored.expiresAt() > System.currentTimeMillis(), is(true));
+        }
+    }
+
     @Nested
     class WhenValueIsRetrieved {
         @Test
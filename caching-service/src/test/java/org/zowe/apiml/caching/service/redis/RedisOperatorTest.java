@@ -13,6 +13,8 @@ package org.zowe.apiml.caching.service.redis;
 import io.lettuce.core.RedisClient;
 import io.lettuce.core.RedisCommandExecutionException;
 import io.lettuce.core.RedisFuture;
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
 import io.lettuce.core.api.async.RedisAsyncCommands;
 import io.lettuce.core.masterreplica.StatefulRedisMasterReplicaConnection;
 import org.junit.jupiter.api.BeforeEach;
@@ -29,7 +31,11 @@ import org.zowe.apiml.caching.service.redis.exceptions.RetryableRedisException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
@@ -65,47 +71,66 @@ class RedisOperatorTest {
     @Nested
     class whenCreating {
 
-        @Mock
-        private RedisFuture<Boolean> future;
-
-        @BeforeEach
-        void mockRedisCommand() {
-            when(redisCommands.hsetnx(any(), any(), any())).thenReturn(future);
+        private void givenScriptResult(RedisFuture<Long> result) {
+            when(redisCommands.<Long>evalsha(any(), eq(ScriptOutputType.INTEGER), any(String[].class), any(String[].class))).thenReturn(result);
         }
 
         @Test
-        void givenNewEntry_thenReturnTrue() throws ExecutionException, InterruptedException, RedisOutOfMemoryException {
-            when(future.get()).thenReturn(true);
+        void givenNewEntry_thenReturnTrue() throws RedisOutOfMemoryException {
+            givenScriptResult(TestRedisFuture.of(RedisOperator.WRITTEN));
 
             boolean result = underTest.create(REDIS_ENTRY);
             assertTrue(result);
         }
 
         @Test
-        void givenExistingEntry_thenReturnFalse() throws ExecutionException, InterruptedException, RedisOutOfMemoryException {
-            when(future.get()).thenReturn(false);
+        void givenExistingEntry_thenReturnFalse() throws RedisOutOfMemoryException {
+            givenScriptResult(TestRedisFuture.of(RedisOperator.NOT_WRITTEN));
 
             boolean result = underTest.create(REDIS_ENTRY);
             assertFalse(result);
         }
 
         @Test
-        void givenRedisOutOfMemory_thenThrowOutOfMemoryException() throws ExecutionException, InterruptedException {
-            when(future.get()).thenThrow(new ExecutionException(new RedisCommandExecutionException("maxmemory")));
+        void givenRedisWithoutFieldExpiration_thenReturnTrue() throws RedisOutOfMemoryException {
+            givenScriptResult(TestRedisFuture.of(RedisOperator.WRITTEN_WITHOUT_EXPIRATION));
 
-            assertThrows(RedisOutOfMemoryException.class, () -> underTest.create(REDIS_ENTRY));
+            assertTrue(underTest.create(REDIS_ENTRY));
+            assertTrue(underTest.create(REDIS_ENTRY));
         }
 
         @Test
-        void givenInterruptedException_thenThrowRetryException() throws ExecutionException, InterruptedException {
-            when(future.get()).thenThrow(new InterruptedException());
+        void givenEntryWithTtl_thenTtlAndCurrentTimeArePassedToScript() throws RedisOutOfMemoryException {
+            KeyValue keyValue = new KeyValue(KEY, VALUE);
+            keyValue.setTtl(60L);
+            givenScriptResult(TestRedisFuture.of(RedisOperator.WRITTEN));
 
-            assertThrows(RetryableRedisException.class, () -> underTest.create(REDIS_ENTRY));
+            long before = System.currentTimeMillis();
+            assertTrue(underTest.create(new RedisEntry(SERVICE_ID, keyValue)));
+            verify(redisCommands).evalsha(any(), eq(ScriptOutputType.INTEGER), eq(new String[] {SERVICE_ID}), eq(KEY), any(), eq("60"),
+                argThat((String now) -> Long.parseLong(now) >= before));
+            verify(redisCommands, never()).hsetnx(any(), any(), any());
         }
 
         @Test
-        void givenExecutionException_thenThrowRetryException() throws ExecutionException, InterruptedException {
-            when(future.get()).thenThrow(new ExecutionException(new Exception()));
+        void givenUnknownScript_thenScriptIsSent() throws RedisOutOfMemoryException {
+            givenScriptResult(TestRedisFuture.failed(new RedisNoScriptException("NOSCRIPT")));
+            when(redisCommands.<Long>eval(eq(RedisOperator.CREATE_SCRIPT), eq(ScriptOutputType.INTEGER), any(String[].class), any(String[].class)))
+                .thenReturn(TestRedisFuture.of(RedisOperator.WRITTEN));
+
+            assertTrue(underTest.create(REDIS_ENTRY));
+        }
+
+        @Test
+        void givenRedisOutOfMemory_thenThrowOutOfMemoryException() {
+            givenScriptResult(TestRedisFuture.failed(new RedisCommandExecutionException("maxmemory")));
+
+            assertThrows(RedisOutOfMemoryException.class, () -> underTest.create(REDIS_ENTRY));
+        }
+
+        @Test
+        void givenExecutionException_thenThrowRetryException() {
+            givenScriptResult(TestRedisFuture.failed(new Exception()));
 
             assertThrows(RetryableRedisException.class, () -> underTest.create(REDIS_ENTRY));
         }
@@ -126,87 +151,97 @@ class RedisOperatorTest {
     @Nested
     class whenUpdating {
 
-        @Mock
-        private RedisFuture<Boolean> setFuture;
-
-        @Mock
-        private RedisFuture<Boolean> existsFuture;
+        private void givenScriptResult(RedisFuture<Long> result) {
+            when(redisCommands.<Long>evalsha(any(), eq(ScriptOutputType.INTEGER), any(String[].class), any(String[].class))).thenReturn(result);
+        }
 
         @Test
-        void givenExistingEntry_thenUpdateEntry() throws ExecutionException, InterruptedException, RedisOutOfMemoryException {
-            when(redisCommands.hset(any(), any(), any())).thenReturn(setFuture);
-            when(setFuture.get()).thenReturn(false);
-
-            when(redisCommands.hexists(any(), any())).thenReturn(existsFuture);
-            when(existsFuture.get()).thenReturn(true);
+        void givenExistingEntry_thenUpdateEntry() throws RedisOutOfMemoryException {
+            givenScriptResult(TestRedisFuture.of(RedisOperator.WRITTEN));
 
             boolean result = underTest.update(REDIS_ENTRY);
             assertTrue(result);
         }
 
         @Test
-        void givenExistingEntryAndFailureUpdating_thenDontUpdateEntry() throws ExecutionException, InterruptedException, RedisOutOfMemoryException {
-            when(redisCommands.hset(any(), any(), any())).thenReturn(setFuture);
-            when(setFuture.get()).thenReturn(true);
-
-            when(redisCommands.hexists(any(), any())).thenReturn(existsFuture);
-            when(existsFuture.get()).thenReturn(true);
+        void givenNotExistingEntry_thenDontUpdateEntry() throws RedisOutOfMemoryException {
+            givenScriptResult(TestRedisFuture.of(RedisOperator.NOT_WRITTEN));
 
             boolean result = underTest.update(REDIS_ENTRY);
             assertFalse(result);
         }
 
         @Test
-        void givenNotExistingEntry_thenDontUpdateEntry() throws ExecutionException, InterruptedException, RedisOutOfMemoryException {
-            when(redisCommands.hexists(any(), any())).thenReturn(existsFuture);
-            when(existsFuture.get()).thenReturn(false);
+        void givenRedisOutOfMemory_thenThrowOutOfMemoryException() {
+            givenScriptResult(TestRedisFuture.failed(new RedisCommandExecutionException("OOM command not allowed when used memory > 'maxmemory'")));
 
-            boolean result = underTest.update(REDIS_ENTRY);
-            assertFalse(result);
+            assertThrows(RedisOutOfMemoryException.class, () -> underTest.update(REDIS_ENTRY));
         }
 
         @Test
-        void givenRedisOutOfMemory_thenThrowOutOfMemoryException() throws ExecutionException, InterruptedException {
-            when(redisCommands.hset(any(), any(), any())).thenReturn(setFuture);
-            when(setFuture.get()).thenThrow(new ExecutionException(new RedisCommandExecutionException("maxmemory")));
-
-            when(redisCommands.hexists(any(), any())).thenReturn(existsFuture);
-            when(existsFuture.get()).thenReturn(true);
+        void givenExecutionException_thenThrowRetryException() {
+            givenScriptResult(TestRedisFuture.failed(new Exception()));
 
-            assertThrows(RedisOutOfMemoryException.class, () -> underTest.update(REDIS_ENTRY));
+            assertThrows(RetryableRedisException.class, () -> underTest.update(REDIS_ENTRY));
         }
 
         @Test
-        void givenInterruptedException_thenThrowRetryException() throws ExecutionException, InterruptedException {
-            when(redisCommands.hexists(any(), any())).thenReturn(existsFuture);
-            when(existsFuture.get()).thenThrow(new InterruptedException());
+        void givenUnknownScript_thenScriptIsSent() throws RedisOutOfMemoryException {
+            givenScriptResult(TestRedisFuture.failed(new RedisNoScriptException("NOSCRIPT")));
+            when(redisCommands.<Long>eval(eq(RedisOperator.UPDATE_SCRIPT), eq(ScriptOutputType.INTEGER), any(String[].class), any(String[].class)))
+                .thenReturn(TestRedisFuture.of(RedisOperator.WRITTEN));
 
-            assertThrows(RetryableRedisException.class, () -> underTest.update(REDIS_ENTRY));
+            assertTrue(underTest.update(REDIS_ENTRY));
         }
 
         @Test
-        void givenExecutionException_thenThrowRetryException() throws ExecutionException, InterruptedException {
-            when(redisCommands.hexists(any(), any())).thenReturn(existsFuture);
-            when(existsFuture.get()).thenThrow(new ExecutionException(new Exception()));
+        void givenEntryWithTtl_thenTtlIsPassedToScript() throws RedisOutOfMemoryException {
+            KeyValue keyValue = new KeyValue(KEY, VALUE);
+            keyValue.setTtl(60L);
+            givenScriptResult(TestRedisFuture.of(RedisOperator.WRITTEN));
 
-            assertThrows(RetryableRedisException.class, () -> underTest.update(REDIS_ENTRY));
+            assertTrue(underTest.update(new RedisEntry(SERVICE_ID, keyValue)));
+            verify(redisCommands).evalsha(any(), eq(ScriptOutputType.INTEGER), eq(new String[] {SERVICE_ID}), eq(KEY), any(), eq("60"), any());
+            verify(redisCommands, never()).hexists(any(), any());
         }
 
         @Test
-        void givenRedisEntryException_thenReturnFalse() throws RedisEntryException, RedisOutOfMemoryException, ExecutionException, InterruptedException {
+        void givenRedisEntryException_thenReturnFalse() throws RedisEntryException, RedisOutOfMemoryException {
             RedisEntry entry = mock(RedisEntry.class);
             when(entry.getServiceId()).thenReturn(SERVICE_ID);
             when(entry.getEntry()).thenReturn(KEY_VALUE);
             when(entry.getEntryAsString()).thenThrow(new RedisEntryException("error"));
 
-            when(redisCommands.hexists(any(), any())).thenReturn(existsFuture);
-            when(existsFuture.get()).thenReturn(true);
-
             boolean result = underTest.update(entry);
             assertFalse(result);
         }
     }
 
+    @Nested
+    class WhenReadingFromReplicas {
+
+        @Mock
+        private RedisAsyncCommands<String, String> readCommands;
+
+        @Test
+        void givenReadConnection_thenEntriesAreReadFromIt() throws ExecutionException, InterruptedException {
+            underTest = new RedisOperator(redisClient, redisConnection, redisCommands, null, readCommands);
+            when(readCommands.hget(SERVICE_ID, KEY)).thenReturn(TestRedisFuture.of(VALID_SERIALIZED_ENTRY));
+
+            assertThat(underTest.getAsync(SERVICE_ID, KEY).toCompletableFuture().get().getEntry().getKey(), is(KEY));
+            verify(redisCommands, never()).hget(any(), any());
+        }
+
+        @Test
+        void givenReadConnection_thenWritesUseMaster() {
+            underTest = new RedisOperator(redisClient, redisConnection, redisCommands, null, readCommands);
+            when(redisCommands.hdel(SERVICE_ID, KEY)).thenReturn(TestRedisFuture.of(1L));
+
+            assertTrue(underTest.deleteAsync(SERVICE_ID, KEY).toCompletableFuture().join());
+            verifyNoInteractions(readCommands);
+        }
+    }
+
     @Nested
     class whenGettingOneEntry {
 
@@ -404,10 +439,9 @@ class RedisOperatorTest {
     }
 
     @Test
-    void givenRedisExecutionExceptionNotOutOfMemory_thenThrowRetryableRedisException() throws ExecutionException, InterruptedException {
-        RedisFuture<Boolean> future = (RedisFuture<Boolean>) mock(RedisFuture.class);
-        when(redisCommands.hsetnx(any(), any(), any())).thenReturn(future);
-        when(future.get()).thenThrow(new ExecutionException(new RedisCommandExecutionException("error")));
+    void givenRedisExecutionExceptionNotOutOfMemory_thenThrowRetryableRedisException() {
+        when(redisCommands.<Long>evalsha(any(), any(), any(String[].class), any(String[].class)))
+            .thenReturn(TestRedisFuture.failed(new RedisCommandExecutionException("error")));
 
         assertThrows(RetryableRedisException.class, () -> underTest.create(REDIS_ENTRY));
     }
@@ -449,4 +483,265 @@ class RedisOperatorTest {
             verify(redisClient, times(0)).shutdown();
         }
     }
+
+    @Nested
+    class WhenUsingAsyncCommands {
+
+        @Test
+        void givenNewEntry_thenCreateReturnsTrue() {
+            when(redisCommands.<Long>evalsha(any(), any(), any(String[].class), any(String[].class))).thenReturn(TestRedisFuture.of(RedisOperator.WRITTEN));
+
+            assertTrue(underTest.createAsync(REDIS_ENTRY).toCompletableFuture().join());
+        }
+
+        @Test
+        void givenRedisOutOfMemory_thenCreateFailsWithOutOfMemoryException() {
+            when(redisCommands.<Long>evalsha(any(), any(), any(String[].class), any(String[].class))).thenReturn(TestRedisFuture.failed(new RedisCommandExecutionException("maxmemory")));
+
+            CompletionException e = assertThrows(CompletionException.class, () -> underTest.createAsync(REDIS_ENTRY).toCompletableFuture().join());
+            assertInstanceOf(RedisOutOfMemoryException.class, e.getCause());
+        }
+
+        @Test
+        void givenExistingEntry_thenUpdateReturnsTrue() {
+            when(redisCommands.<Long>evalsha(any(), any(), any(String[].class), any(String[].class))).thenReturn(TestRedisFuture.of(RedisOperator.WRITTEN));
+
+            assertTrue(underTest.updateAsync(REDIS_ENTRY).toCompletableFuture().join());
+        }
+
+        @Test
+        void givenNotExistingEntry_thenUpdateReturnsFalse() {
+            when(redisCommands.<Long>evalsha(any(), any(), any(String[].class), any(String[].class))).thenReturn(TestRedisFuture.of(RedisOperator.NOT_WRITTEN));
+
+            assertFalse(underTest.updateAsync(REDIS_ENTRY).toCompletableFuture().join());
+            verify(redisCommands, never()).hset(any(), any(), any(String.class));
+        }
+
+        @Test
+        void givenEntryWithTtl_thenUpsertSetsExpirationWithoutWaiting() {
+            KeyValue keyValue = new KeyValue(KEY, VALUE);
+            keyValue.setTtl(60L);
+            when(redisCommands.hset(any(), any(), any(String.class))).thenReturn(TestRedisFuture.of(true));
+            when(redisCommands.hexpire(SERVICE_ID, 60L, KEY)).thenReturn(TestRedisFuture.failed(new RedisCommandExecutionException("ERR unknown command")));
+
+            assertTrue(underTest.upsertAsync(new RedisEntry(SERVICE_ID, keyValue)).toCompletableFuture().join());
+            verify(redisCommands, never()).hexists(any(), any());
+            verify(redisCommands).hexpire(SERVICE_ID, 60L, KEY);
+        }
+
+        @Test
+        void givenEntryWithoutTtl_thenUpsertDoesNotSetExpiration() {
+            when(redisCommands.hset(any(), any(), any(String.class))).thenReturn(TestRedisFuture.of(false));
+
+            assertFalse(underTest.upsertAsync(REDIS_ENTRY).toCompletableFuture().join());
+            verify(redisCommands, never()).hexpire(any(), anyLong(), any(String[].class));
+        }
+
+        @Test
+        void givenExpiredEntry_thenGetReturnsNullAndRemovesIt() {
+            String elapsed = "{\"key\":\"key\",\"value\":\"value\",\"created\":\"1000\",\"ttl\":1}";
+            when(redisCommands.hget(SERVICE_ID, KEY)).thenReturn(TestRedisFuture.of(elapsed));
+            when(redisCommands.<Long>evalsha(any(), eq(ScriptOutputType.INTEGER), any(String[].class), any(String[].class))).thenReturn(TestRedisFuture.of(1L));
+
+            assertThat(underTest.getAsync(SERVICE_ID, KEY).toCompletableFuture().join(), is(nullValue()));
+            verify(redisCommands).evalsha(any(), eq(ScriptOutputType.INTEGER), eq(new String[] {SERVICE_ID}), eq(KEY), eq(elapsed));
+        }
+
+        @Test
+        void givenEntryWithRecentWrite_thenGetReturnsItDespiteOldCreation() {
+            String stored = "{\"key\":\"key\",\"value\":\"value\",\"created\":\"1000\",\"ttl\":60,\"stored\":" + System.currentTimeMillis() + "}";
+            when(redisCommands.hget(SERVICE_ID, KEY)).thenReturn(TestRedisFuture.of(stored));
+
+            assertThat(underTest.getAsync(SERVICE_ID, KEY).toCompletableFuture().join().getEntry().getValue(), is(VALUE));
+        }
+
+        @Test
+        void givenExistingEntry_thenGetReturnsEntry() {
+            when(redisCommands.hget(SERVICE_ID, KEY)).thenReturn(TestRedisFuture.of(VALID_SERIALIZED_ENTRY));
+
+            RedisEntry result = underTest.getAsync(SERVICE_ID, KEY).toCompletableFuture().join();
+            assertThat(result.getEntry().getValue(), is(VALUE));
+        }
+
+        @Test
+        void givenInvalidEntry_thenGetReturnsNull() {
+            when(redisCommands.hget(SERVICE_ID, KEY)).thenReturn(TestRedisFuture.of("invalid"));
+
+            assertThat(underTest.getAsync(SERVICE_ID, KEY).toCompletableFuture().join(), is(nullValue()));
+        }
+
+        @Test
+        void givenFailure_thenGetFailsWithRetryException() {
+            when(redisCommands.hgetall(SERVICE_ID)).thenReturn(TestRedisFuture.failed(new Exception()));
+
+            CompletionException e = assertThrows(CompletionException.class, () -> underTest.getAsync(SERVICE_ID).toCompletableFuture().join());
+            assertInstanceOf(RetryableRedisException.class, e.getCause());
+        }
+
+        @Test
+        void givenExistingEntry_thenDeleteReturnsTrue() {
+            when(redisCommands.hdel(SERVICE_ID, KEY)).thenReturn(TestRedisFuture.of(1L));
+
+            assertTrue(underTest.deleteAsync(SERVICE_ID, KEY).toCompletableFuture().join());
+        }
+
+        @Test
+        void givenNoEntries_thenDeleteServiceReturnsFalse() {
+            when(redisCommands.del(SERVICE_ID)).thenReturn(TestRedisFuture.of(0L));
+
+            assertFalse(underTest.deleteAsync(SERVICE_ID).toCompletableFuture().join());
+        }
+
+
+        @Test
+        void givenMoreKeys_thenGetAllUsesSingleCommand() {
+            when(redisCommands.hmget(SERVICE_ID, KEY, "missing")).thenReturn(TestRedisFuture.of(List.of(
+                io.lettuce.core.KeyValue.just(KEY, VALID_SERIALIZED_ENTRY),
+                io.lettuce.core.KeyValue.empty("missing")
+            )));
+
+            List<RedisEntry> result = underTest.getAllAsync(SERVICE_ID, List.of(KEY, "missing")).toCompletableFuture().join();
+            assertThat(result.size(), is(1));
+            assertThat(result.get(0).getEntry().getKey(), is(KEY));
+        }
+
+        @Test
+        void givenMoreEntries_thenSetAllUsesSingleCommand() {
+            when(redisCommands.hset(eq(SERVICE_ID), anyMap())).thenReturn(TestRedisFuture.of(1L));
+
+            int stored = underTest.setAllAsync(SERVICE_ID, List.of(REDIS_ENTRY, new RedisEntry(SERVICE_ID, new KeyValue("key2", VALUE)))).toCompletableFuture().join();
+            assertThat(stored, is(2));
+            verify(redisCommands, times(1)).hset(eq(SERVICE_ID), anyMap());
+        }
+
+        @Test
+        void givenMoreKeys_thenDeleteAllReturnsExistingKeys() {
+            when(redisCommands.hmget(SERVICE_ID, KEY, "missing")).thenReturn(TestRedisFuture.of(List.of(
+                io.lettuce.core.KeyValue.just(KEY, VALID_SERIALIZED_ENTRY),
+                io.lettuce.core.KeyValue.empty("missing")
+            )));
+            when(redisCommands.hdel(SERVICE_ID, KEY, "missing")).thenReturn(TestRedisFuture.of(1L));
+
+            assertThat(underTest.deleteAllAsync(SERVICE_ID, List.of(KEY, "missing")).toCompletableFuture().join(), is(Set.of(KEY)));
+        }
+
+    }
+
+    @Nested
+    class WhenUsingMaps {
+
+        private static final String MAP_KEY = "mapKey";
+        private final String mapName = RedisOperator.mapName(SERVICE_ID, MAP_KEY);
+        private final String relevanceName = RedisOperator.relevanceName(SERVICE_ID, MAP_KEY);
+
+        @Test
+        void givenRelevantItem_thenItIsStoredWithRelevance() {
+            when(redisCommands.hset(mapName, KEY, VALUE)).thenReturn(TestRedisFuture.of(true));
+            when(redisCommands.zadd(relevanceName, 1000.0, KEY)).thenReturn(TestRedisFuture.of(1L));
+            when(redisCommands.hpexpireat(mapName, 1000L, KEY)).thenReturn(TestRedisFuture.of(List.of(1L)));
+            when(redisCommands.sadd(RedisOperator.mapsName(SERVICE_ID), MAP_KEY)).thenReturn(TestRedisFuture.of(1L));
+
+            assertTrue(underTest.setMapItemAsync(SERVICE_ID, MAP_KEY, KEY_VALUE, 1000L).toCompletableFuture().join());
+        }
+
+        @Test
+        void givenAlwaysRelevantItem_thenItDoesNotExpire() {
+            when(redisCommands.hset(mapName, KEY, VALUE)).thenReturn(TestRedisFuture.of(false));
+            when(redisCommands.zrem(relevanceName, KEY)).thenReturn(TestRedisFuture.of(0L));
+            when(redisCommands.sadd(RedisOperator.mapsName(SERVICE_ID), MAP_KEY)).thenReturn(TestRedisFuture.of(0L));
+
+            assertFalse(underTest.setMapItemAsync(SERVICE_ID, MAP_KEY, KEY_VALUE, Long.MAX_VALUE).toCompletableFuture().join());
+            verify(redisCommands, never()).hpexpireat(any(), anyLong(), any(String[].class));
+        }
+
+        @Test
+        void givenRedisOutOfMemory_thenStoreFailsWithOutOfMemoryException() {
+            when(redisCommands.hset(mapName, KEY, VALUE)).thenReturn(TestRedisFuture.failed(new RedisCommandExecutionException("maxmemory")));
+            when(redisCommands.zrem(relevanceName, KEY)).thenReturn(TestRedisFuture.of(0L));
+            when(redisCommands.sadd(RedisOperator.mapsName(SERVICE_ID), MAP_KEY)).thenReturn(TestRedisFuture.of(0L));
+
+            CompletionException e = assertThrows(CompletionException.class, () -> underTest.setMapItemAsync(SERVICE_ID, MAP_KEY, KEY_VALUE, Long.MAX_VALUE).toCompletableFuture().join());
+            assertInstanceOf(RedisOutOfMemoryException.class, e.getCause());
+        }
+
+        @Test
+        void givenMoreMaps_thenNonEmptyMapsAreReturned() {
+            when(redisCommands.smembers(RedisOperator.mapsName(SERVICE_ID))).thenReturn(TestRedisFuture.of(Set.of(MAP_KEY, "empty")));
+            when(redisCommands.hgetall(mapName)).thenReturn(TestRedisFuture.of(Map.of(KEY, VALUE)));
+            when(redisCommands.hgetall(RedisOperator.mapName(SERVICE_ID, "empty"))).thenReturn(TestRedisFuture.of(Map.of()));
+            when(redisCommands.<Long>evalsha(any(), eq(ScriptOutputType.INTEGER), any(String[].class), any(String[].class))).thenReturn(TestRedisFuture.of(1L));
+
+            Map<String, Map<String, String>> result = underTest.getMapsAsync(SERVICE_ID).toCompletableFuture().join();
+            assertThat(result, is(Map.of(MAP_KEY, Map.of(KEY, VALUE))));
+        }
+
+        @Test
+        void givenEmptyMap_thenItsKeyIsRemoved() {
+            String emptyName = RedisOperator.mapName(SERVICE_ID, "empty");
+            when(redisCommands.smembers(RedisOperator.mapsName(SERVICE_ID))).thenReturn(TestRedisFuture.of(Set.of("empty")));
+            when(redisCommands.hgetall(emptyName)).thenReturn(TestRedisFuture.of(Map.of()));
+            when(redisCommands.<Long>evalsha(any(), eq(ScriptOutputType.INTEGER), any(String[].class), any(String[].class))).thenReturn(TestRedisFuture.of(1L));
+
+            assertThat(underTest.getMapsAsync(SERVICE_ID).toCompletableFuture().join(), is(Map.of()));
+            verify(redisCommands).evalsha(any(), eq(ScriptOutputType.INTEGER),
+                eq(new String[] {emptyName, RedisOperator.relevanceName(SERVICE_ID, "empty"), RedisOperator.mapsName(SERVICE_ID)}), eq("empty"));
+        }
+
+        @Test
+        void givenNonRelevantItems_thenTheyAreRemovedWithTheirRelevanceAndMapKey() {
+            when(redisCommands.zrangebyscore(eq(relevanceName), any())).thenReturn(TestRedisFuture.of(List.of(KEY)));
+            when(redisCommands.<Long>evalsha(any(), eq(ScriptOutputType.INTEGER), any(String[].class), any(String[].class))).thenReturn(TestRedisFuture.of(1L));
+
+            assertThat(underTest.removeMapItemsAsync(SERVICE_ID, MAP_KEY, 1000L, true).toCompletableFuture().join(), is(1));
+            verify(redisCommands).evalsha(any(), eq(ScriptOutputType.INTEGER),
+                eq(new String[] {mapName, relevanceName, RedisOperator.mapsName(SERVICE_ID)}), eq(MAP_KEY), eq(KEY));
+            verify(redisCommands, never()).hdel(any(), any(String[].class));
+        }
+
+        @Test
+        void givenUnknownScript_thenMapItemsAreRemovedBySentScript() {
+            when(redisCommands.zrangebyscore(eq(relevanceName), any())).thenReturn(TestRedisFuture.of(List.of(KEY)));
+            when(redisCommands.<Long>evalsha(any(), eq(ScriptOutputType.INTEGER), any(String[].class), any(String[].class)))
+                .thenReturn(TestRedisFuture.failed(new RedisNoScriptException("NOSCRIPT")));
+            when(redisCommands.<Long>eval(eq(RedisOperator.REMOVE_MAP_ITEMS_SCRIPT), eq(ScriptOutputType.INTEGER), any(String[].class), any(String[].class)))
+                .thenReturn(TestRedisFuture.of(1L));
+
+            assertThat(underTest.removeMapItemsAsync(SERVICE_ID, MAP_KEY, 1000L, true).toCompletableFuture().join(), is(1));
+        }
+
+        @Test
+        void givenOnlyRelevantItems_thenNothingIsRemoved() {
+            when(redisCommands.zrangebyscore(eq(relevanceName), any())).thenReturn(TestRedisFuture.of(List.of()));
+
+            assertThat(underTest.removeMapItemsAsync(SERVICE_ID, MAP_KEY, 1000L, false).toCompletableFuture().join(), is(0));
+            verify(redisCommands, never()).evalsha(any(), any(), any(String[].class), any(String[].class));
+        }
+
+    }
+
+    static class TestRedisFuture<T> extends CompletableFuture<T> implements RedisFuture<T> {
+
+        static <T> TestRedisFuture<T> of(T value) {
+            TestRedisFuture<T> future = new TestRedisFuture<>();
+            future.complete(value);
+            return future;
+        }
+
+        static <T> TestRedisFuture<T> failed(Throwable t) {
+            TestRedisFuture<T> future = new TestRedisFuture<>();
+            future.completeExceptionally(t);
+            return future;
+        }
+
+        @Override
+        public String getError() {
+            return null;
+        }
+
+        @Override
+        public boolean await(long timeout, TimeUnit unit) {
+            return isDone();
+        }
+
+    }
 }
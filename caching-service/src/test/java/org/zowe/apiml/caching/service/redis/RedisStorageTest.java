@@ -17,14 +17,19 @@ import org.zowe.apiml.caching.model.KeyValue;
 import org.zowe.apiml.caching.service.Messages;
 import org.zowe.apiml.cache.StorageException;
 import org.zowe.apiml.caching.service.redis.exceptions.RedisOutOfMemoryException;
+import org.zowe.apiml.caching.service.redis.exceptions.RetryableRedisException;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
@@ -179,53 +184,158 @@ public class RedisStorageTest {
     }
 
     @Nested
-    class WhenTryingToStoreToken {
+    class WhenUsingMaps {
+        private static final String MAP_KEY = "invalidTokenRules";
+
         @Test
-        void thenThrowException() {
-            KeyValue keyValue = new KeyValue("key", "value");
-            assertThrows(StorageException.class, () -> {
-                underTest.storeMapItem(SERVICE_ID, "mapKey", keyValue);
-            });
+        void givenRule_thenItIsStoredWithItsRelevance() {
+            long timestamp = System.currentTimeMillis();
+            KeyValue rule = new KeyValue("user", String.valueOf(timestamp));
+            when(redisOperator.setMapItemAsync(SERVICE_ID, MAP_KEY, rule, timestamp + TimeUnit.DAYS.toMillis(91)))
+                .thenReturn(CompletableFuture.completedFuture(true));
+
+            assertThat(underTest.storeMapItem(SERVICE_ID, MAP_KEY, rule), is(rule));
         }
-    }
 
-    @Nested
-    class WhenTryingToGetTokens {
         @Test
-        void thenThrowException() {
-            assertThrows(StorageException.class, () -> {
-                underTest.getAllMapItems(SERVICE_ID, "key");
-            });
+        void givenItemWithoutRelevance_thenItIsAlwaysRelevant() {
+            KeyValue item = new KeyValue("key", "value");
+            when(redisOperator.setMapItemAsync(SERVICE_ID, MAP_KEY, item, Long.MAX_VALUE))
+                .thenReturn(CompletableFuture.completedFuture(true));
+
+            assertThat(underTest.storeMapItem(SERVICE_ID, MAP_KEY, item), is(item));
         }
-    }
 
-    @Nested
-    class WhenTryingToGetAllMaps {
         @Test
-        void thenThrowException() {
-            assertThrows(StorageException.class, () -> {
-                underTest.getAllMaps(SERVICE_ID);
-            });
+        void givenRedisOutOfMemory_thenThrowException() {
+            KeyValue item = new KeyValue("key", "value");
+            when(redisOperator.setMapItemAsync(any(), any(), any(), anyLong()))
+                .thenReturn(CompletableFuture.failedFuture(new RedisOutOfMemoryException(new Exception())));
+
+            StorageException e = assertThrows(StorageException.class, () -> underTest.storeMapItem(SERVICE_ID, MAP_KEY, item));
+            assertThat(e.getKey(), is(Messages.INSUFFICIENT_STORAGE.getKey()));
+        }
+
+        @Test
+        void givenItems_thenTheyAreReturned() {
+            when(redisOperator.getMapItemsAsync(SERVICE_ID, MAP_KEY)).thenReturn(CompletableFuture.completedFuture(Map.of(KEY, VALUE)));
+
+            assertThat(underTest.getAllMapItems(SERVICE_ID, MAP_KEY), is(Map.of(KEY, VALUE)));
         }
-    }
 
-    @Nested
-    class WhenTryingToDeleteTokens {
         @Test
-        void thenThrowException() {
-            assertThrows(StorageException.class, () -> {
-                underTest.removeNonRelevantTokens(SERVICE_ID, "key");
-            });
+        void givenNoItems_thenNullIsReturned() {
+            when(redisOperator.getMapItemsAsync(SERVICE_ID, MAP_KEY)).thenReturn(CompletableFuture.completedFuture(Map.of()));
+
+            assertThat(underTest.getAllMapItems(SERVICE_ID, MAP_KEY), is(nullValue()));
+        }
+
+        @Test
+        void givenMaps_thenTheyAreReturned() {
+            when(redisOperator.getMapsAsync(SERVICE_ID)).thenReturn(CompletableFuture.completedFuture(Map.of(MAP_KEY, Map.of(KEY, VALUE))));
+
+            assertThat(underTest.getAllMaps(SERVICE_ID), is(Map.of(MAP_KEY, Map.of(KEY, VALUE))));
+        }
+
+        @Test
+        void whenRemovingTokens_thenTheExpiredAreRemoved() {
+            when(redisOperator.removeMapItemsAsync(eq(SERVICE_ID), eq(MAP_KEY), anyLong(), eq(false))).thenReturn(CompletableFuture.completedFuture(1));
+
+            assertDoesNotThrow(() -> underTest.removeNonRelevantTokens(SERVICE_ID, MAP_KEY));
+            verify(redisOperator).removeMapItemsAsync(eq(SERVICE_ID), eq(MAP_KEY), anyLong(), eq(false));
+        }
+
+        @Test
+        void whenRemovingRules_thenTheOldAreRemoved() {
+            when(redisOperator.removeMapItemsAsync(eq(SERVICE_ID), eq(MAP_KEY), anyLong(), eq(true))).thenReturn(CompletableFuture.completedFuture(2));
+
+            assertDoesNotThrow(() -> underTest.removeNonRelevantRules(SERVICE_ID, MAP_KEY));
+            verify(redisOperator).removeMapItemsAsync(eq(SERVICE_ID), eq(MAP_KEY), anyLong(), eq(true));
         }
     }
 
     @Nested
-    class WhenTryingToDeleteRules {
+    class WhenUsingAsyncMethods {
+
+        private <T> Throwable failure(CompletableFuture<T> future) {
+            return assertThrows(CompletionException.class, future::join).getCause();
+        }
+
+        @Test
+        void givenNewKey_thenCreateEntry() {
+            when(redisOperator.createAsync(any())).thenReturn(CompletableFuture.completedFuture(true));
+
+            assertThat(underTest.createAsync(SERVICE_ID, KEY_VALUE).toCompletableFuture().join(), is(KEY_VALUE));
+        }
+
         @Test
-        void thenThrowException() {
-            assertThrows(StorageException.class, () -> {
-                underTest.removeNonRelevantRules(SERVICE_ID, "key");
-            });
+        void givenExistingKey_thenFailWithDuplicateKey() {
+            when(redisOperator.createAsync(any())).thenReturn(CompletableFuture.completedFuture(false));
+
+            Throwable e = failure(underTest.createAsync(SERVICE_ID, KEY_VALUE).toCompletableFuture());
+            assertThat(((StorageException) e).getKey(), is(Messages.DUPLICATE_KEY.getKey()));
         }
+
+        @Test
+        void givenAnyKey_thenUpsertEntryInSingleOperation() {
+            when(redisOperator.upsertAsync(any())).thenReturn(CompletableFuture.completedFuture(false));
+
+            assertThat(underTest.upsertAsync(SERVICE_ID, KEY_VALUE).toCompletableFuture().join(), is(KEY_VALUE));
+            verify(redisOperator, never()).updateAsync(any());
+            verify(redisOperator, never()).createAsync(any());
+        }
+
+        @Test
+        void givenRedisOutOfMemory_thenFailWithInsufficientStorage() {
+            when(redisOperator.updateAsync(any())).thenReturn(CompletableFuture.failedFuture(new RedisOutOfMemoryException(new Exception())));
+
+            Throwable e = failure(underTest.updateAsync(SERVICE_ID, KEY_VALUE).toCompletableFuture());
+            assertThat(((StorageException) e).getKey(), is(Messages.INSUFFICIENT_STORAGE.getKey()));
+        }
+
+        @Test
+        void givenRetryableFailure_thenRetry() {
+            when(redisOperator.getAsync(SERVICE_ID, KEY))
+                .thenReturn(CompletableFuture.failedFuture(new RetryableRedisException(new Exception())))
+                .thenReturn(CompletableFuture.completedFuture(REDIS_ENTRY));
+
+            assertThat(underTest.readAsync(SERVICE_ID, KEY).toCompletableFuture().join(), is(KEY_VALUE));
+            verify(redisOperator, times(2)).getAsync(SERVICE_ID, KEY);
+        }
+
+        @Test
+        void givenNotExistingKey_thenReadFailsWithKeyNotInCache() {
+            when(redisOperator.getAsync(SERVICE_ID, KEY)).thenReturn(CompletableFuture.completedFuture(null));
+
+            Throwable e = failure(underTest.readAsync(SERVICE_ID, KEY).toCompletableFuture());
+            assertThat(((StorageException) e).getKey(), is(Messages.KEY_NOT_IN_CACHE.getKey()));
+        }
+
+        @Test
+        void givenExistingKey_thenDeleteReturnsEntry() {
+            when(redisOperator.getAsync(SERVICE_ID, KEY)).thenReturn(CompletableFuture.completedFuture(REDIS_ENTRY));
+            when(redisOperator.deleteAsync(SERVICE_ID, KEY)).thenReturn(CompletableFuture.completedFuture(true));
+
+            assertThat(underTest.deleteAsync(SERVICE_ID, KEY).toCompletableFuture().join(), is(KEY_VALUE));
+        }
+
+        @Test
+        void givenServiceWithEntries_thenReturnEntries() {
+            when(redisOperator.getAsync(SERVICE_ID)).thenReturn(CompletableFuture.completedFuture(List.of(REDIS_ENTRY)));
+
+            Map<String, KeyValue> result = underTest.readForServiceAsync(SERVICE_ID).toCompletableFuture().join();
+            assertThat(result, is(Map.of(KEY, KEY_VALUE)));
+        }
+
+        @Test
+        void givenRetryableFailure_thenMapItemsAreReadAgain() {
+            when(redisOperator.getMapItemsAsync(SERVICE_ID, "map"))
+                .thenReturn(CompletableFuture.failedFuture(new RetryableRedisException(new Exception())))
+                .thenReturn(CompletableFuture.completedFuture(Map.of(KEY, VALUE)));
+
+            assertThat(underTest.getAllMapItemsAsync(SERVICE_ID, "map").toCompletableFuture().join(), is(Map.of(KEY, VALUE)));
+            verify(redisOperator, times(2)).getMapItemsAsync(SERVICE_ID, "map");
+        }
+
     }
 }
@@ -10,6 +10,7 @@
 
 package org.zowe.apiml.caching.service.redis.config;
 
+import io.lettuce.core.ReadFrom;
 import io.lettuce.core.RedisClient;
 import io.lettuce.core.RedisURI;
 import io.lettuce.core.SslOptions;
@@ -51,6 +52,32 @@ class RedisConfigurationTest {
         underTest = new RedisConfiguration(redisConfig);
     }
 
+    @Nested
+    class WhenCreatingReadFrom {
+        @Test
+        void givenNoReadFrom_thenReadFromMaster() {
+            when(redisConfig.readsFromReplicas()).thenReturn(false);
+
+            assertThat(underTest.createReadFrom(), is(nullValue()));
+        }
+
+        @Test
+        void givenReadFrom_thenParseIt() {
+            when(redisConfig.readsFromReplicas()).thenReturn(true);
+            when(redisConfig.getReadFrom()).thenReturn("replicaPreferred");
+
+            assertThat(underTest.createReadFrom(), is(ReadFrom.REPLICA_PREFERRED));
+        }
+
+        @Test
+        void givenInvalidReadFrom_thenThrowException() {
+            when(redisConfig.readsFromReplicas()).thenReturn(true);
+            when(redisConfig.getReadFrom()).thenReturn("unknown");
+
+            assertThrows(IllegalArgumentException.class, () -> underTest.createReadFrom());
+        }
+    }
+
     @Nested
     class WhenCreatingRedisClient {
         @Test
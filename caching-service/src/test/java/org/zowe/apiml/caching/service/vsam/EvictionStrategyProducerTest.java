@@ -49,7 +49,7 @@ class EvictionStrategyProducerTest {
             generalConfig.setEvictionStrategy(Strategies.REMOVE_OLDEST.getKey());
 
             underTest = new EvictionStrategyProducer(generalConfig, vsamConfig, messageService);
-            EvictionStrategy result = underTest.evictionStrategy(vsamFile);
+            EvictionStrategy result = underTest.evictionStrategy(vsamFile, new VsamRecordIndex());
             assertThat(result, instanceOf(RemoveOldestStrategy.class));
         }
 
@@ -58,7 +58,7 @@ class EvictionStrategyProducerTest {
             generalConfig.setEvictionStrategy(Strategies.REJECT.getKey());
 
             underTest = new EvictionStrategyProducer(generalConfig, vsamConfig, messageService);
-            EvictionStrategy result = underTest.evictionStrategy(vsamFile);
+            EvictionStrategy result = underTest.evictionStrategy(vsamFile, new VsamRecordIndex());
             assertThat(result, instanceOf(RejectStrategy.class));
         }
 
@@ -67,8 +67,8 @@ class EvictionStrategyProducerTest {
             generalConfig.setEvictionStrategy(Strategies.REJECT.getKey());
             underTest = new EvictionStrategyProducer(generalConfig, vsamConfig, messageService);
 
-            EvictionStrategy first = underTest.evictionStrategy(vsamFile);
-            EvictionStrategy second = underTest.evictionStrategy(vsamFile);
+            EvictionStrategy first = underTest.evictionStrategy(vsamFile, new VsamRecordIndex());
+            EvictionStrategy second = underTest.evictionStrategy(vsamFile, new VsamRecordIndex());
             assertThat(second, is(first));
 
         }
@@ -8,6 +8,7 @@
  * Copyright Contributors to the Zowe Project.
  */
 
+
 package org.zowe.apiml.caching.service.vsam;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -18,10 +19,9 @@ import org.zowe.apiml.caching.config.GeneralConfig;
 import org.zowe.apiml.caching.model.KeyValue;
 import org.zowe.apiml.caching.service.Strategies;
 import org.zowe.apiml.caching.service.vsam.config.VsamConfig;
-import org.zowe.apiml.zfile.ZFile;
 import org.zowe.apiml.zfile.ZFileConstants;
-import org.zowe.apiml.zfile.ZFileException;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -31,15 +31,17 @@ import static org.mockito.Mockito.*;
 class RemoveOldestStrategyTest {
     private RemoveOldestStrategy underTest;
 
+    private GeneralConfig generalConfig;
     private VsamConfig vsamConfiguration;
     private VsamFile file;
+    private VsamRecordIndex index;
     private final ArgumentCaptor<VsamRecord> recordArgumentCaptor = ArgumentCaptor.forClass(VsamRecord.class);
 
     private final String VALID_SERVICE_ID = "test-service-id";
 
     @BeforeEach
     void setUp() {
-        GeneralConfig generalConfig = new GeneralConfig();
+        generalConfig = new GeneralConfig();
         generalConfig.setEvictionStrategy(Strategies.REMOVE_OLDEST.getKey());
         generalConfig.setMaxDataSize(1);
         vsamConfiguration = new VsamConfig(generalConfig);
@@ -47,57 +49,74 @@ class RemoveOldestStrategyTest {
         vsamConfiguration.setRecordLength(512);
         vsamConfiguration.setKeyLength(32);
         vsamConfiguration.setEncoding(ZFileConstants.DEFAULT_EBCDIC_CODE_PAGE);
+        vsamConfiguration.setEvictionLowWaterMark(90);
 
         file = mock(VsamFile.class);
-        when(file.getZfile()).thenReturn(mock(ZFile.class));
-        underTest = new RemoveOldestStrategy(vsamConfiguration, file);
+        when(file.delete(any())).thenAnswer(invocation -> Optional.of(invocation.getArgument(0)));
+        index = new VsamRecordIndex();
+        underTest = new RemoveOldestStrategy(vsamConfiguration, file, index);
     }
 
     @Nested
     class WhenEvictIsCalled {
         @Test
-        void givenThereAreNoItems_thenNothingIsRemoved() throws ZFileException {
-            when(file.readBytes(any())).thenReturn(Optional.empty());
-
+        void givenThereAreNoItems_thenNothingIsRemoved() {
             underTest.evict("new-key");
-            verify(file, times(0)).delete(recordArgumentCaptor.capture());
+            verify(file, times(0)).delete(any());
         }
 
         @Test
-        void givenThereIsOneItem_thenItIsRemoved() throws ZFileException, VsamRecordException {
-            KeyValue record1 = new KeyValue("key-1", "value-1", "1");
-            record1.setServiceId(VALID_SERVICE_ID);
-
-            VsamRecord fullRecord1 = new VsamRecord(vsamConfiguration, VALID_SERVICE_ID, record1);
-            when(file.readBytes(any())).thenReturn(Optional.of(fullRecord1.getBytes()));
-            when(file.delete(any())).thenReturn(Optional.of(fullRecord1));
+        void givenThereIsOneItem_thenItIsRemoved() {
+            index.put(VALID_SERVICE_ID, new KeyValue("key-1", "value-1", "1"));
 
             underTest.evict("new-key");
             verify(file).delete(recordArgumentCaptor.capture());
 
             VsamRecord deleted = recordArgumentCaptor.getValue();
             assertThat(deleted.getKeyValue().getKey(), is("key-1"));
+            assertThat(index.size(), is(0));
         }
 
         @Test
-        void givenThereIsMoreItems_thenTheOlderOneIsRemoved() throws ZFileException, VsamRecordException {
-            KeyValue record1 = new KeyValue("key-1", "value-1", "1");
-            record1.setServiceId(VALID_SERVICE_ID);
-            KeyValue record2 = new KeyValue("key-2", "value-2", "2");
-            record2.setServiceId(VALID_SERVICE_ID);
-
-            VsamRecord fullRecord1 = new VsamRecord(vsamConfiguration, VALID_SERVICE_ID, record1);
-            VsamRecord fullRecord2 = new VsamRecord(vsamConfiguration, VALID_SERVICE_ID, record2);
-            when(file.readBytes(any()))
-                .thenReturn(Optional.of(fullRecord2.getBytes()))
-                .thenReturn(Optional.of(fullRecord1.getBytes()));
+        void givenThereIsMoreItems_thenTheOlderOneIsRemoved() {
+            generalConfig.setMaxDataSize(2);
+            index.put(VALID_SERVICE_ID, new KeyValue("key-2", "value-2", "2"));
+            index.put(VALID_SERVICE_ID, new KeyValue("key-1", "value-1", "1"));
 
             underTest.evict("new-key");
             verify(file).delete(recordArgumentCaptor.capture());
 
             VsamRecord deleted = recordArgumentCaptor.getValue();
             assertThat(deleted.getKeyValue().getKey(), is("key-1"));
+        }
+
+        @Test
+        void givenFullStorage_thenOldestAreRemovedToLowWaterMark() {
+            generalConfig.setMaxDataSize(10);
+            for (int i = 0; i < 10; i++) {
+                index.put(VALID_SERVICE_ID, new KeyValue("key-" + i, "value", String.valueOf(i)));
+            }
+
+            underTest.evict("new-key");
+            verify(file, times(1)).delete(any());
+            assertThat(index.size(), is(9));
+
+            vsamConfiguration.setEvictionLowWaterMark(50);
+            underTest.evict("new-key");
+            verify(file, times(5)).delete(recordArgumentCaptor.capture());
+            assertThat(index.size(), is(5));
+            assertThat(recordArgumentCaptor.getAllValues().stream().map(r -> r.getKeyValue().getKey()).toList(),
+                is(List.of("key-0", "key-1", "key-2", "key-3", "key-4")));
+        }
+
+        @Test
+        void givenTheRecordWasRemovedByOtherInstance_thenItIsRemovedFromIndex() {
+            index.put(VALID_SERVICE_ID, new KeyValue("key-1", "value-1", "1"));
+            when(file.delete(any())).thenReturn(Optional.empty());
+
+            underTest.evict("new-key");
 
+            assertThat(index.size(), is(0));
         }
     }
 }
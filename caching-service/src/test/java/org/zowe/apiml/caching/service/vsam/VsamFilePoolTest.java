@@ -0,0 +1,138 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+
+package org.zowe.apiml.caching.service.vsam;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.zowe.apiml.cache.StorageException;
+import org.zowe.apiml.caching.service.Messages;
+import org.zowe.apiml.caching.service.vsam.config.VsamConfig;
+import org.zowe.apiml.message.log.ApimlLogger;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class VsamFilePoolTest {
+
+    private VsamConfig vsamConfig;
+    private VsamFileProducer producer;
+    private final AtomicLong now = new AtomicLong(1000);
+    private VsamFilePool underTest;
+
+    @BeforeEach
+    void setUp() {
+        vsamConfig = DefaultVsamConfiguration.defaultConfiguration();
+        producer = mock(VsamFileProducer.class);
+        when(producer.newVsamFile(any(), any(), any())).thenAnswer(invocation -> mock(VsamFile.class));
+        underTest = new VsamFilePool(vsamConfig, producer, ApimlLogger.empty(), now::get);
+    }
+
+    private VsamFile use(VsamConfig.VsamOptions options) {
+        return underTest.withFile(options, file -> file);
+    }
+
+    @Nested
+    class WhenHandleIsUsed {
+        @Test
+        void thenItIsReusedByTheNextOperation() {
+            VsamFile first = use(VsamConfig.VsamOptions.WRITE);
+            VsamFile second = use(VsamConfig.VsamOptions.WRITE);
+
+            assertThat(second, is(sameInstance(first)));
+            verify(producer, times(1)).newVsamFile(any(), any(), any());
+            verify(first, never()).close();
+        }
+
+        @Test
+        void givenNoReadHandles_thenReadsUseTheWriteHandle() {
+            VsamFile write = use(VsamConfig.VsamOptions.WRITE);
+
+            assertThat(use(VsamConfig.VsamOptions.READ), is(sameInstance(write)));
+        }
+
+        @Test
+        void givenReadHandles_thenReadsUseOwnHandle() {
+            vsamConfig.setReadHandles(2);
+            underTest = new VsamFilePool(vsamConfig, producer, ApimlLogger.empty(), now::get);
+
+            VsamFile write = use(VsamConfig.VsamOptions.WRITE);
+
+            assertThat(use(VsamConfig.VsamOptions.READ), is(not(sameInstance(write))));
+            verify(producer).newVsamFile(any(), eq(VsamConfig.VsamOptions.READ), any());
+        }
+    }
+
+    @Nested
+    class WhenOperationFails {
+        @Test
+        void givenVsamError_thenHandleIsReopened() {
+            VsamFile first = use(VsamConfig.VsamOptions.WRITE);
+            RetryableVsamException failure = new RetryableVsamException(new IllegalStateException("failure"));
+
+            assertThrows(RetryableVsamException.class, () -> underTest.withFile(VsamConfig.VsamOptions.WRITE, file -> {
+                throw failure;
+            }));
+
+            verify(first).close();
+            assertThat(use(VsamConfig.VsamOptions.WRITE), is(not(sameInstance(first))));
+        }
+
+        @Test
+        void givenStorageError_thenHandleIsKept() {
+            VsamFile first = use(VsamConfig.VsamOptions.WRITE);
+            StorageException failure = new StorageException(Messages.INSUFFICIENT_STORAGE.getKey(), Messages.INSUFFICIENT_STORAGE.getStatus());
+
+            assertThrows(StorageException.class, () -> underTest.withFile(VsamConfig.VsamOptions.WRITE, file -> {
+                throw failure;
+            }));
+
+            verify(first, never()).close();
+            assertThat(use(VsamConfig.VsamOptions.WRITE), is(sameInstance(first)));
+        }
+    }
+
+    @Nested
+    class WhenHandleIsOld {
+        @Test
+        void thenItIsReopened() {
+            vsamConfig.setHandleTimeToLive(500);
+            VsamFile first = use(VsamConfig.VsamOptions.WRITE);
+
+            now.addAndGet(500);
+
+            assertThat(use(VsamConfig.VsamOptions.WRITE), is(not(sameInstance(first))));
+            verify(first).close();
+        }
+    }
+
+    @Nested
+    class WhenPoolIsClosed {
+        @Test
+        void thenIdleHandlesAreClosed() {
+            VsamFile first = use(VsamConfig.VsamOptions.WRITE);
+
+            underTest.close();
+
+            verify(first).close();
+        }
+    }
+
+}
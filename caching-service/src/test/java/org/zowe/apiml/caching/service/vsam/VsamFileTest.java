@@ -353,6 +353,46 @@ class VsamFileTest {
         }
     }
 
+    @Nested
+    class whenReadingAllRecords {
+        @Test
+        void givenRecords_thenAllAreRead() throws ZFileException {
+            when(zFile.read(any())).thenAnswer(prepareAnswer(2));
+            List<VsamRecord> records = new ArrayList<>();
+
+            underTest.readAllRecords(records::add);
+
+            assertThat(records, hasSize(2));
+            verify(zFile).locate(any(), eq(ZFileConstants.LOCATE_KEY_FIRST));
+        }
+
+        @Test
+        void givenExceptionReadingFile_thenRetryableExceptionIsThrown() throws ZFileException {
+            when(zFile.read(any())).thenThrow(new ZFileException("", "", "", 0, 0, 0, new byte[]{}, 0, 0, 0, 0, 0));
+
+            assertThrows(RetryableVsamException.class, () -> underTest.readAllRecords(record -> {}));
+        }
+
+        @Test
+        void givenUnsupportedEncoding_thenRetryableExceptionIsThrown() throws ZFileException {
+            vsamConfiguration.setEncoding("unsupported-encoding");
+            when(zFile.read(any())).thenReturn(1);
+            List<VsamRecord> records = new ArrayList<>();
+
+            assertThrows(RetryableVsamException.class, () -> underTest.readAllRecords(records::add));
+            assertThat(records, hasSize(0));
+        }
+
+        @Test
+        void givenMoreRecordsThanTheLimit_thenReadingStops() throws ZFileException {
+            when(zFile.read(any())).thenReturn(1);
+
+            underTest.readAllRecords(record -> {});
+
+            verify(zFile, times(10000)).read(any());
+        }
+    }
+
     @Nested
     class whenInitialCreation {
         private VsamInitializer vsamInitializer;
@@ -0,0 +1,145 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+
+package org.zowe.apiml.caching.service.vsam;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.zowe.apiml.caching.model.KeyValue;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class VsamRecordIndexTest {
+
+    private VsamRecordIndex underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new VsamRecordIndex();
+    }
+
+    private List<String> oldestKeys(int count) {
+        return underTest.oldest(count).stream().map(VsamRecordIndex.Entry::key).toList();
+    }
+
+    @Nested
+    class WhenRecordsChange {
+
+        @Test
+        void givenRecords_thenOldestAreOrderedByCreation() {
+            underTest.put("service", new KeyValue("key-3", "value", "3"));
+            underTest.put("service", new KeyValue("key-1", "value", "1"));
+            underTest.put("other", new KeyValue("key-2", "value", "2"));
+
+            assertThat(oldestKeys(2), is(List.of("key-1", "key-2")));
+            assertThat(oldestKeys(10), is(List.of("key-1", "key-2", "key-3")));
+        }
+
+        @Test
+        void givenUpdatedRecord_thenItIsOrderedByTheNewCreation() {
+            underTest.put("service", new KeyValue("key-1", "value", "1"));
+            underTest.put("service", new KeyValue("key-2", "value", "2"));
+            underTest.put("service", new KeyValue("key-1", "value", "3"));
+
+            assertThat(underTest.size(), is(2));
+            assertThat(oldestKeys(2), is(List.of("key-2", "key-1")));
+        }
+
+        @Test
+        void givenInvalidCreation_thenRecordIsTheOldest() {
+            underTest.put("service", new KeyValue("key-1", "value", "1"));
+            underTest.put("service", new KeyValue("key-2", "value", "invalid"));
+
+            assertThat(oldestKeys(1), is(List.of("key-2")));
+        }
+
+        @Test
+        void givenRemovedRecords_thenTheyAreNotIndexed() {
+            underTest.put("service", new KeyValue("key-1", "value", "1"));
+            underTest.put("service", new KeyValue("key-2", "value", "2"));
+            underTest.put("other", new KeyValue("key-1", "value", "3"));
+
+            underTest.remove("service", "key-1");
+            assertThat(oldestKeys(10), is(List.of("key-2", "key-1")));
+
+            underTest.removeService("service");
+            assertThat(underTest.size(), is(1));
+            assertThat(underTest.oldest(1).get(0).serviceId(), is("other"));
+        }
+    }
+
+    @Nested
+    class WhenIndexIsBuilt {
+
+        @Test
+        void givenRecordsInFile_thenTheyAreIndexed() {
+            VsamFile file = mock(VsamFile.class);
+            doAnswer(invocation -> {
+                Consumer<VsamRecord> consumer = invocation.getArgument(0);
+                consumer.accept(new VsamRecord(DefaultVsamConfiguration.defaultConfiguration(), "service", new KeyValue("key-1", "value", "1")));
+                return null;
+            }).when(file).readAllRecords(any());
+            underTest.put("service", new KeyValue("removed", "value", "1"));
+
+            assertThat(underTest.isStale(0), is(true));
+            underTest.rebuild(file);
+
+            assertThat(oldestKeys(10), is(List.of("key-1")));
+            assertThat(underTest.isStale(0), is(false));
+            assertThat(underTest.isStale(60_000), is(false));
+        }
+
+        @Test
+        void givenChangesDuringBuild_thenTheyAreKept() {
+            VsamFile file = mock(VsamFile.class);
+            doAnswer(invocation -> {
+                Consumer<VsamRecord> consumer = invocation.getArgument(0);
+                consumer.accept(new VsamRecord(DefaultVsamConfiguration.defaultConfiguration(), "service", new KeyValue("key-1", "value", "1")));
+                underTest.put("service", new KeyValue("key-2", "value", "2"));
+                underTest.remove("service", "key-1");
+                return null;
+            }).when(file).readAllRecords(any());
+
+            underTest.rebuild(file);
+
+            assertThat(oldestKeys(10), is(List.of("key-2")));
+        }
+
+        @Test
+        void givenBuiltIndex_whenFileCannotBeRead_thenCurrentIndexIsKept() {
+            VsamFile file = mock(VsamFile.class);
+            underTest.rebuild(file);
+            underTest.put("service", new KeyValue("key-1", "value", "1"));
+            doThrow(new RetryableVsamException(new RuntimeException())).when(file).readAllRecords(any());
+
+            assertThrows(RetryableVsamException.class, () -> underTest.rebuild(file));
+            assertThat(oldestKeys(10), is(List.of("key-1")));
+            assertThat(underTest.isBuilt(), is(true));
+        }
+
+        @Test
+        void givenFileCannotBeRead_thenIndexStaysStale() {
+            VsamFile file = mock(VsamFile.class);
+            doThrow(new RetryableVsamException(new RuntimeException())).when(file).readAllRecords(any());
+
+            assertThrows(RetryableVsamException.class, () -> underTest.rebuild(file));
+            assertThat(underTest.isStale(0), is(true));
+        }
+    }
+}
@@ -20,11 +20,15 @@ import org.zowe.apiml.cache.StorageException;
 import org.zowe.apiml.caching.service.Strategies;
 import org.zowe.apiml.caching.service.vsam.config.VsamConfig;
 import org.zowe.apiml.message.log.ApimlLogger;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
@@ -39,6 +43,8 @@ class VsamStorageTest {
 
     private VsamFileProducer producer;
     private VsamConfig vsamConfiguration;
+    private VsamInitializer initializer;
+    private EvictionStrategyProducer evictionStrategyProducer;
 
     @BeforeEach
     void setUp() {
@@ -50,11 +56,12 @@ class VsamStorageTest {
         vsamConfiguration.setRecordLength(512);
         vsamConfiguration.setKeyLength(64);
 
-        VsamInitializer initializer = mock(VsamInitializer.class);
+        // the records are indexed by the first write
+        initializer = mock(VsamInitializer.class);
         producer = mock(VsamFileProducer.class);
 
-        EvictionStrategyProducer evictionStrategyProducer = mock(EvictionStrategyProducer.class);
-        when(evictionStrategyProducer.evictionStrategy(any())).thenReturn(new RejectStrategy(apimlLogger));
+        evictionStrategyProducer = mock(EvictionStrategyProducer.class);
+        when(evictionStrategyProducer.evictionStrategy(any(), any())).thenReturn(new RejectStrategy(apimlLogger));
         underTest = new VsamStorage(vsamConfiguration, initializer, producer, apimlLogger, evictionStrategyProducer);
     }
 
@@ -62,7 +69,7 @@ class VsamStorageTest {
     void givenNoInvalidFilename_whenCreateVsamStorage_thenThrowException() {
         VsamInitializer initializer = mock(VsamInitializer.class);
         EvictionStrategyProducer evictionStrategyProducer = mock(EvictionStrategyProducer.class);
-        when(evictionStrategyProducer.evictionStrategy(any())).thenReturn(new RejectStrategy(apimlLogger));
+        when(evictionStrategyProducer.evictionStrategy(any(), any())).thenReturn(new RejectStrategy(apimlLogger));
         VsamConfig vsamConfig = new VsamConfig(new GeneralConfig());
 
         vsamConfig.setFileName(null);
@@ -79,7 +86,7 @@ class VsamStorageTest {
             KeyValue record = new KeyValue("key-1", "value-1", "1");
             record.setServiceId(VALID_SERVICE_ID);
             VsamFile returnedFile = mock(VsamFile.class);
-            when(returnedFile.countAllRecords()).thenReturn(60);
+            givenRecords(returnedFile, 60);
             when(returnedFile.create(any())).thenReturn(
                 Optional.of(new VsamRecord(vsamConfiguration, VALID_SERVICE_ID, record))
             );
@@ -94,7 +101,7 @@ class VsamStorageTest {
             KeyValue record = new KeyValue("key-1", "value-1", "1");
             record.setServiceId(VALID_SERVICE_ID);
             VsamFile returnedFile = mock(VsamFile.class);
-            when(returnedFile.countAllRecords()).thenReturn(60);
+            givenRecords(returnedFile, 60);
             when(producer.newVsamFile(any(), any(), any())).thenReturn(returnedFile);
 
             assertThrows(StorageException.class, () -> {
@@ -108,7 +115,7 @@ class VsamStorageTest {
             record.setServiceId(VALID_SERVICE_ID);
 
             VsamFile returnedFile = mock(VsamFile.class);
-            when(returnedFile.countAllRecords()).thenReturn(200);
+            givenRecords(returnedFile, 200);
             when(producer.newVsamFile(any(), any(), any())).thenReturn(returnedFile);
 
             assertThrows(StorageException.class, () -> {
@@ -117,6 +124,84 @@ class VsamStorageTest {
         }
     }
 
+    @Nested
+    class WhenRecordsAreIndexed {
+
+        private VsamFile file;
+
+        @BeforeEach
+        void setUp() {
+            file = mock(VsamFile.class);
+            when(producer.newVsamFile(any(), any(), any())).thenReturn(file);
+            when(file.create(any())).thenAnswer(invocation -> Optional.of(invocation.getArgument(0)));
+        }
+
+        @Test
+        void givenMoreWrites_thenRecordsAreIndexedOnceAndFileIsOpenedOnce() {
+            givenRecords(file, 10);
+
+            underTest.create(VALID_SERVICE_ID, new KeyValue("key-1", "value-1"));
+            underTest.create(VALID_SERVICE_ID, new KeyValue("key-2", "value-2"));
+
+            verify(file, times(1)).readAllRecords(any());
+            verify(producer, times(1)).newVsamFile(any(), any(), any());
+        }
+
+        @Test
+        void givenTheIndexFromStartupReachedMaximum_thenCreateIsRejectedWithoutReading() {
+            givenIndexedRecordsAtStartup(100);
+            underTest = new VsamStorage(vsamConfiguration, initializer, producer, apimlLogger, evictionStrategyProducer);
+            KeyValue record = new KeyValue("key-1", "value-1");
+
+            assertThrows(StorageException.class, () -> underTest.create(VALID_SERVICE_ID, record));
+            verify(file, never()).readAllRecords(any());
+        }
+
+        @Test
+        void givenStaleIndex_thenItIsBuiltAgainInBackgroundWithOwnHandle() throws Exception {
+            givenIndexedRecordsAtStartup(10);
+            vsamConfiguration.setHandleTimeToLive(1);
+            underTest = new VsamStorage(vsamConfiguration, initializer, producer, apimlLogger, evictionStrategyProducer);
+            VsamFile indexFile = mock(VsamFile.class);
+            when(producer.newVsamFile(any(), eq(VsamConfig.VsamOptions.READ), any())).thenReturn(indexFile);
+            givenRecords(indexFile, 20);
+            Thread.sleep(5);
+
+            underTest.create(VALID_SERVICE_ID, new KeyValue("key-1", "value-1"));
+            ((ExecutorService) ReflectionTestUtils.getField(underTest, "indexExecutor")).submit(() -> { }).get();
+
+            verify(file, never()).readAllRecords(any());
+            verify(indexFile, times(1)).readAllRecords(any());
+            verify(indexFile).close();
+            VsamRecordIndex index = (VsamRecordIndex) ReflectionTestUtils.getField(underTest, "index");
+            assertThat(index.size() >= 20, is(true));
+            underTest.close();
+        }
+
+        @Test
+        void givenRecordWasDeleted_thenNewOneFits() {
+            givenIndexedRecordsAtStartup(100);
+            underTest = new VsamStorage(vsamConfiguration, initializer, producer, apimlLogger, evictionStrategyProducer);
+            KeyValue record = new KeyValue("key-1", "value-1");
+            record.setServiceId(VALID_SERVICE_ID);
+            when(file.delete(any())).thenReturn(Optional.of(new VsamRecord(vsamConfiguration, VALID_SERVICE_ID, record)));
+
+            underTest.delete(VALID_SERVICE_ID, "key-1");
+
+            assertThat(underTest.create(VALID_SERVICE_ID, record), is(record));
+            verify(evictionStrategyProducer, never()).evictionStrategy(any(), any());
+        }
+
+        @Test
+        void whenStorageIsClosed_thenTheHandleIsClosed() {
+            underTest.create(VALID_SERVICE_ID, new KeyValue("key-1", "value-1"));
+
+            underTest.close();
+
+            verify(file).close();
+        }
+    }
+
     @Nested
     class WhenItemIsRead {
         @Test
@@ -302,4 +387,92 @@ class VsamStorageTest {
             });
         }
     }
+
+    @Nested
+    class WhenBatchIsProcessed {
+
+        private VsamFile file;
+
+        @BeforeEach
+        void setUp() {
+            file = mock(VsamFile.class);
+            when(producer.newVsamFile(any(), any(), any())).thenReturn(file);
+        }
+
+        private Optional<VsamRecord> toRecord(KeyValue keyValue) {
+            keyValue.setServiceId(VALID_SERVICE_ID);
+            return Optional.of(new VsamRecord(vsamConfiguration, VALID_SERVICE_ID, keyValue));
+        }
+
+        @Test
+        void givenMoreKeys_whenRead_thenFileIsOpenedOnce() {
+            KeyValue record = new KeyValue("key-1", "value-1", "1");
+            when(file.read(any())).thenReturn(toRecord(record)).thenReturn(Optional.empty());
+
+            Map<String, KeyValue> result = underTest.readAll(VALID_SERVICE_ID, List.of("key-1", "key-2"));
+
+            assertThat(result.size(), is(1));
+            assertThat(result.get("key-1").getValue(), is("value-1"));
+            verify(producer, times(1)).newVsamFile(any(), any(), any());
+            verify(file, times(2)).read(any());
+        }
+
+        @Test
+        void givenExistingAndNewKeys_whenStore_thenUpdateOrCreate() {
+            KeyValue existing = new KeyValue("key-1", "value-1");
+            KeyValue created = new KeyValue("key-2", "value-2");
+            when(file.update(any())).thenReturn(toRecord(existing)).thenReturn(Optional.empty());
+            givenRecords(file, 10);
+            when(file.create(any())).thenReturn(toRecord(created));
+
+            Map<String, StorageException> failures = underTest.storeAll(VALID_SERVICE_ID, List.of(existing, created));
+
+            assertThat(failures.isEmpty(), is(true));
+            verify(producer, times(1)).newVsamFile(any(), any(), any());
+            verify(file, times(1)).create(any());
+        }
+
+        @Test
+        void givenStorageIsFull_whenStore_thenNewKeysFail() {
+            KeyValue created = new KeyValue("key-1", "value-1");
+            givenRecords(file, 100);
+
+            Map<String, StorageException> failures = underTest.storeAll(VALID_SERVICE_ID, List.of(created));
+
+            assertThat(failures.containsKey("key-1"), is(true));
+            verify(file, never()).create(any());
+        }
+
+        @Test
+        void givenMoreKeys_whenDelete_thenReturnDeletedKeys() {
+            when(file.delete(any())).thenReturn(toRecord(new KeyValue("key-1", "value-1"))).thenReturn(Optional.empty());
+
+            Set<String> deleted = underTest.deleteAll(VALID_SERVICE_ID, List.of("key-1", "key-2"));
+
+            assertThat(deleted, is(Set.of("key-1")));
+            verify(producer, times(1)).newVsamFile(any(), any(), any());
+        }
+
+    }
+
+    private void givenIndexedRecordsAtStartup(int count) {
+        doAnswer(invocation -> {
+            VsamRecordIndex index = invocation.getArgument(2);
+            VsamFile file = mock(VsamFile.class);
+            givenRecords(file, count);
+            index.rebuild(file);
+            return null;
+        }).when(initializer).storageWarmup(any(), any(), any());
+    }
+
+    private void givenRecords(VsamFile file, int count) {
+        doAnswer(invocation -> {
+            Consumer<VsamRecord> consumer = invocation.getArgument(0);
+            for (int i = 0; i < count; i++) {
+                KeyValue keyValue = new KeyValue("stored-" + i, "value", String.valueOf(i));
+                consumer.accept(new VsamRecord(vsamConfiguration, VALID_SERVICE_ID, keyValue));
+            }
+            return null;
+        }).when(file).readAllRecords(any());
+    }
 }
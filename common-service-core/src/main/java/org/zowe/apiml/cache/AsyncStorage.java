@@ -0,0 +1,122 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+
+package org.zowe.apiml.cache;
+
+import org.zowe.apiml.caching.model.KeyValue;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+/**
+ * Non-blocking variant of the {@link Storage}. The methods have the same meaning as in {@link Storage}, but the result
+ * is delivered by a {@link CompletionStage}. The stage is completed exceptionally with {@link StorageException} in the
+ * cases the synchronous method throws it.
+ * <p>
+ * A storage backend with an asynchronous client implements this interface next to {@link Storage}. The other backends
+ * are adapted by {@link #of(Storage, Executor)}.
+ */
+public interface AsyncStorage {
+
+    /**
+     * @see Storage#create(String, KeyValue)
+     */
+    CompletionStage<KeyValue> createAsync(String serviceId, KeyValue toCreate);
+
+    /**
+     * @see Storage#storeMapItem(String, String, KeyValue)
+     */
+    CompletionStage<KeyValue> storeMapItemAsync(String serviceId, String mapKey, KeyValue toCreate);
+
+    /**
+     * @see Storage#getAllMapItems(String, String)
+     */
+    CompletionStage<Map<String, String>> getAllMapItemsAsync(String serviceId, String mapKey);
+
+    /**
+     * @see Storage#getAllMaps(String)
+     */
+    CompletionStage<Map<String, Map<String, String>>> getAllMapsAsync(String serviceId);
+
+    /**
+     * @see Storage#read(String, String)
+     */
+    CompletionStage<KeyValue> readAsync(String serviceId, String key);
+
+    /**
+     * @see Storage#update(String, KeyValue)
+     */
+    CompletionStage<KeyValue> updateAsync(String serviceId, KeyValue toUpdate);
+
+    /**
+     * @see Storage#upsert(String, KeyValue)
+     */
+    CompletionStage<KeyValue> upsertAsync(String serviceId, KeyValue toUpsert);
+
+    /**
+     * @see Storage#delete(String, String)
+     */
+    CompletionStage<KeyValue> deleteAsync(String serviceId, String toDelete);
+
+    /**
+     * @see Storage#readForService(String)
+     */
+    CompletionStage<Map<String, KeyValue>> readForServiceAsync(String serviceId);
+
+    /**
+     * @see Storage#deleteForService(String)
+     */
+    CompletionStage<Void> deleteForServiceAsync(String serviceId);
+
+    /**
+     * @see Storage#removeNonRelevantRules(String, String)
+     */
+    CompletionStage<Void> removeNonRelevantRulesAsync(String serviceId, String mapKey);
+
+    /**
+     * @see Storage#removeNonRelevantTokens(String, String)
+     */
+    CompletionStage<Void> removeNonRelevantTokensAsync(String serviceId, String mapKey);
+
+    /**
+     * @see Storage#readAll(String, Collection)
+     */
+    CompletionStage<Map<String, KeyValue>> readAllAsync(String serviceId, Collection<String> keys);
+
+    /**
+     * @see Storage#storeAll(String, Collection)
+     */
+    CompletionStage<Map<String, StorageException>> storeAllAsync(String serviceId, Collection<KeyValue> toStore);
+
+    /**
+     * @see Storage#deleteAll(String, Collection)
+     */
+    CompletionStage<Set<String>> deleteAllAsync(String serviceId, Collection<String> keys);
+
+    /**
+     * Provides the asynchronous access to the storage. If the storage does not implement {@link AsyncStorage}, the
+     * calls are executed by the executor (the calling thread is never blocked).
+     *
+     * @param storage  storage backend
+     * @param executor executor to run the blocking calls
+     * @return asynchronous variant of the storage
+     */
+    static AsyncStorage of(Storage storage, Executor executor) {
+        if (storage instanceof AsyncStorage asyncStorage) {
+            return asyncStorage;
+        }
+        return new BlockingAsyncStorage(storage, executor);
+    }
+
+}
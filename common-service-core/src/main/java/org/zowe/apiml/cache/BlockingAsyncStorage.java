@@ -0,0 +1,127 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+
+package org.zowe.apiml.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.zowe.apiml.caching.model.KeyValue;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Adapter of a blocking {@link Storage} to the {@link AsyncStorage}. Each call is executed by the executor, it should
+ * be bounded to avoid an unlimited number of threads waiting for a slow backend.
+ */
+@RequiredArgsConstructor
+class BlockingAsyncStorage implements AsyncStorage {
+
+    private final Storage storage;
+    private final Executor executor;
+
+    private <T> CompletionStage<T> supply(Supplier<T> call) {
+        try {
+            return CompletableFuture.supplyAsync(call, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private CompletionStage<Void> run(Runnable call) {
+        try {
+            return CompletableFuture.runAsync(call, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletionStage<KeyValue> createAsync(String serviceId, KeyValue toCreate) {
+        return supply(() -> storage.create(serviceId, toCreate));
+    }
+
+    @Override
+    public CompletionStage<KeyValue> storeMapItemAsync(String serviceId, String mapKey, KeyValue toCreate) {
+        return supply(() -> storage.storeMapItem(serviceId, mapKey, toCreate));
+    }
+
+    @Override
+    public CompletionStage<Map<String, String>> getAllMapItemsAsync(String serviceId, String mapKey) {
+        return supply(() -> storage.getAllMapItems(serviceId, mapKey));
+    }
+
+    @Override
+    public CompletionStage<Map<String, Map<String, String>>> getAllMapsAsync(String serviceId) {
+        return supply(() -> storage.getAllMaps(serviceId));
+    }
+
+    @Override
+    public CompletionStage<KeyValue> readAsync(String serviceId, String key) {
+        return supply(() -> storage.read(serviceId, key));
+    }
+
+    @Override
+    public CompletionStage<KeyValue> updateAsync(String serviceId, KeyValue toUpdate) {
+        return supply(() -> storage.update(serviceId, toUpdate));
+    }
+
+    @Override
+    public CompletionStage<KeyValue> upsertAsync(String serviceId, KeyValue toUpsert) {
+        return supply(() -> storage.upsert(serviceId, toUpsert));
+    }
+
+    @Override
+    public CompletionStage<KeyValue> deleteAsync(String serviceId, String toDelete) {
+        return supply(() -> storage.delete(serviceId, toDelete));
+    }
+
+    @Override
+    public CompletionStage<Map<String, KeyValue>> readForServiceAsync(String serviceId) {
+        return supply(() -> storage.readForService(serviceId));
+    }
+
+    @Override
+    public CompletionStage<Void> deleteForServiceAsync(String serviceId) {
+        return run(() -> storage.deleteForService(serviceId));
+    }
+
+    @Override
+    public CompletionStage<Void> removeNonRelevantRulesAsync(String serviceId, String mapKey) {
+        return run(() -> storage.removeNonRelevantRules(serviceId, mapKey));
+    }
+
+    @Override
+    public CompletionStage<Void> removeNonRelevantTokensAsync(String serviceId, String mapKey) {
+        return run(() -> storage.removeNonRelevantTokens(serviceId, mapKey));
+    }
+
+    @Override
+    public CompletionStage<Map<String, KeyValue>> readAllAsync(String serviceId, Collection<String> keys) {
+        return supply(() -> storage.readAll(serviceId, keys));
+    }
+
+    @Override
+    public CompletionStage<Map<String, StorageException>> storeAllAsync(String serviceId, Collection<KeyValue> toStore) {
+        return supply(() -> storage.storeAll(serviceId, toStore));
+    }
+
+    @Override
+    public CompletionStage<Set<String>> deleteAllAsync(String serviceId, Collection<String> keys) {
+        return supply(() -> storage.deleteAll(serviceId, keys));
+    }
+
+}
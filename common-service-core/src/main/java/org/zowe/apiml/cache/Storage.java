@@ -10,9 +10,10 @@
 
 package org.zowe.apiml.cache;
 
+import org.springframework.http.HttpStatus;
 import org.zowe.apiml.caching.model.KeyValue;
 
-import java.util.Map;
+import java.util.*;
 
 /**
  * Every supported storage backend needs to have an implementation of the Storage.
@@ -71,6 +72,35 @@ public interface Storage {
      */
     KeyValue update(String serviceId, KeyValue toUpdate);
 
+    /**
+     * Store the KeyValue pair in the storage. The existing value is replaced, otherwise a new pair is created. The
+     * backends with a native upsert should override the default implementation, which updates the pair and creates it
+     * if it does not exist yet.
+     *
+     * @param serviceId Id of the service to store the value for.
+     * @param toUpsert  KeyValue pair to be stored.
+     * @return The stored KeyValue pair.
+     */
+    default KeyValue upsert(String serviceId, KeyValue toUpsert) {
+        try {
+            return update(serviceId, toUpsert);
+        } catch (StorageException e) {
+            if (e.getStatus() != HttpStatus.NOT_FOUND) {
+                throw e;
+            }
+        }
+
+        try {
+            return create(serviceId, toUpsert);
+        } catch (StorageException e) {
+            if (e.getStatus() != HttpStatus.CONFLICT) {
+                throw e;
+            }
+            // created concurrently in the meantime
+            return update(serviceId, toUpsert);
+        }
+    }
+
     /**
      * Delete the key/value pair if it exists within the context of the service. If there is none existing null
      * is returned.
@@ -109,4 +139,72 @@ public interface Storage {
      * @param mapKey the map key
      */
     void removeNonRelevantTokens(String serviceId, String mapKey);
+
+    /**
+     * Return the key/value pairs for the given keys. The backends with a native multi-key read should override the
+     * default implementation, which reads the keys one by one.
+     *
+     * @param serviceId Id of the service to read values for
+     * @param keys      keys to lookup
+     * @return Map with the found key/value pairs, the missing keys are not included
+     */
+    default Map<String, KeyValue> readAll(String serviceId, Collection<String> keys) {
+        Map<String, KeyValue> result = new HashMap<>();
+        for (String key : keys) {
+            try {
+                KeyValue keyValue = read(serviceId, key);
+                if (keyValue != null) {
+                    result.put(key, keyValue);
+                }
+            } catch (StorageException e) {
+                if (e.getStatus() != HttpStatus.NOT_FOUND) {
+                    throw e;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Store all the key/value pairs. The existing pairs are replaced, the missing ones are created. The backends with
+     * a native multi-key write should override the default implementation, which stores the pairs one by one.
+     *
+     * @param serviceId Id of the service to store the values for
+     * @param toStore   KeyValue pairs to be stored
+     * @return Map with the failures by key, empty if all the pairs were stored
+     */
+    default Map<String, StorageException> storeAll(String serviceId, Collection<KeyValue> toStore) {
+        Map<String, StorageException> failures = new HashMap<>();
+        for (KeyValue keyValue : toStore) {
+            try {
+                upsert(serviceId, keyValue);
+            } catch (StorageException e) {
+                failures.put(keyValue.getKey(), e);
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Delete the key/value pairs of the given keys. The backends with a native multi-key delete should override the
+     * default implementation, which deletes the keys one by one.
+     *
+     * @param serviceId Id of the service to delete the values for
+     * @param keys      keys to delete
+     * @return the deleted keys, the missing keys are not included
+     */
+    default Set<String> deleteAll(String serviceId, Collection<String> keys) {
+        Set<String> deleted = new HashSet<>();
+        for (String key : keys) {
+            try {
+                delete(serviceId, key);
+                deleted.add(key);
+            } catch (StorageException e) {
+                if (e.getStatus() != HttpStatus.NOT_FOUND) {
+                    throw e;
+                }
+            }
+        }
+        return deleted;
+    }
 }
@@ -18,6 +18,7 @@ import lombok.RequiredArgsConstructor;
 import java.io.Serial;
 import java.io.Serializable;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Data POJO that represents entry in caching service
@@ -33,6 +34,16 @@ public class KeyValue implements Serializable {
     private final String value;
     private String serviceId;
     private final String created;
+    /**
+     * Time to live of the entry in seconds, counted from the time the storage wrote the entry. The entry does not
+     * expire if it is not set.
+     */
+    private Long ttl;
+    /**
+     * Time in milliseconds when the storage wrote the entry, see {@link #storedNow()}. The creation time is provided
+     * by the client, so it is not used to expire the entry.
+     */
+    private Long stored;
 
     public KeyValue(String key, String value) {
         this.key = key;
@@ -41,6 +52,47 @@ public class KeyValue implements Serializable {
         this.created = currentTime();
     }
 
+    /**
+     * Record the current time as the write time of the entry. The storages call it on each write of an entry with a
+     * time to live, so all of them count the time to live from the write the same way as the native expiration of
+     * the backends does. The entries without a time to live are left untouched.
+     *
+     * @return this entry
+     */
+    public KeyValue storedNow() {
+        if (ttl != null && ttl > 0) {
+            stored = System.currentTimeMillis();
+        }
+        return this;
+    }
+
+    /**
+     * @return the time in milliseconds when the entry expires, or {@link Long#MAX_VALUE} if it does not expire. The
+     * entries stored without the write time (by the previous versions) expire after the time to live since their
+     * creation.
+     */
+    public long expiresAt() {
+        if (ttl == null || ttl <= 0) {
+            return Long.MAX_VALUE;
+        }
+        if (stored != null) {
+            return stored + TimeUnit.SECONDS.toMillis(ttl);
+        }
+        try {
+            return Long.parseLong(created) + TimeUnit.SECONDS.toMillis(ttl);
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * @param now current time in milliseconds
+     * @return true if the time to live of the entry elapsed
+     */
+    public boolean expiredAt(long now) {
+        return expiresAt() <= now;
+    }
+
     private static String currentTime() {
         return String.valueOf(new Date().getTime());
     }
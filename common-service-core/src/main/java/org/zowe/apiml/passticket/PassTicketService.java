@@ -10,6 +10,8 @@
 
 package org.zowe.apiml.passticket;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import lombok.AllArgsConstructor;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
@@ -17,23 +19,73 @@ import org.apache.commons.lang3.StringUtils;
 import org.zowe.apiml.util.ClassOrDefaultProxyUtils;
 import org.zowe.apiml.util.ObjectUtil;
 
-import java.util.HashMap;
-import java.util.HashSet;
+import java.time.Duration;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
  * This class allows to get a PassTicket from SAF.
+ * <p>
+ * The instances of IRRPassTicket are not thread-safe, therefore the service keeps a bounded pool of them. Each call
+ * borrows one instance, so up to the size of the pool calls run in parallel. Optionally, a generated PassTicket could
+ * be reused for the same user and application for a short time. It is possible only if the replay protection of the
+ * application is disabled in SAF (otherwise the second use of the same PassTicket is rejected).
  */
 @Slf4j
 public class PassTicketService {
 
-    private final IRRPassTicket irrPassTicket;
+    /**
+     * A PassTicket is valid for 10 minutes, the reused one must be still valid when it is evaluated
+     */
+    static final Duration MAX_TICKET_REUSE = Duration.ofMinutes(9);
+
+    private final BlockingQueue<IRRPassTicket> irrPassTickets;
+    /**
+     * One of the pooled instances, kept aside to check the implementation in use while all of them are borrowed
+     */
+    private final IRRPassTicket stateIrrPassTicket;
+    private final Cache<TicketKey, String> passTickets;
 
-    @SuppressWarnings("unchecked")
     public PassTicketService() {
-        this.irrPassTicket = ClassOrDefaultProxyUtils.createProxy(IRRPassTicket.class,
-            "com.ibm.eserver.zos.racf.IRRPassTicket", DefaultPassTicketImpl::new,
+        this(1, Duration.ZERO);
+    }
+
+    /**
+     * @param poolSize    number of IRRPassTicket instances, it limits the number of parallel calls
+     * @param ticketReuse time to reuse the generated PassTicket for the same user and application, zero disables it
+     */
+    public PassTicketService(int poolSize, Duration ticketReuse) {
+        this(createIrrPassTicketFactory(), poolSize, ticketReuse);
+    }
+
+    PassTicketService(Supplier<IRRPassTicket> irrPassTicketFactory, int poolSize, Duration ticketReuse) {
+        int size = Math.max(1, poolSize);
+        this.irrPassTickets = new ArrayBlockingQueue<>(size);
+        for (int i = 0; i < size; i++) {
+            irrPassTickets.add(irrPassTicketFactory.get());
+        }
+        this.stateIrrPassTicket = irrPassTickets.peek();
+
+        if (ticketReuse.isZero() || ticketReuse.isNegative()) {
+            this.passTickets = null;
+        } else {
+            this.passTickets = CacheBuilder.newBuilder()
+                .expireAfterWrite(ticketReuse.compareTo(MAX_TICKET_REUSE) > 0 ? MAX_TICKET_REUSE : ticketReuse)
+                .maximumSize(10_000)
+                .build();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Supplier<IRRPassTicket> createIrrPassTicketFactory() {
+        // the dummy implementation keeps generated PassTickets, all proxies have to share the same instance
+        DefaultPassTicketImpl defaultImplementation = new DefaultPassTicketImpl();
+        return () -> ClassOrDefaultProxyUtils.createProxy(IRRPassTicket.class,
+            "com.ibm.eserver.zos.racf.IRRPassTicket", () -> defaultImplementation,
             new ClassOrDefaultProxyUtils.ByMethodName<>(
                 "com.ibm.eserver.zos.racf.IRRPassTicketEvaluationException",
                 IRRPassTicketEvaluationException.class, "getSafRc", "getRacfRc", "getRacfRsn"),
@@ -42,25 +94,50 @@ public class PassTicketService {
                 IRRPassTicketGenerationException.class, "getSafRc", "getRacfRc", "getRacfRsn"));
     }
 
-    // IRRPassTicket is not thread-safe, must be synchronized
-    public synchronized void evaluate(String userId, String applId, String passTicket) throws PassTicketException {
+    public void evaluate(String userId, String applId, String passTicket) throws PassTicketException {
         validateUserIdAndApplId(userId, applId);
-        irrPassTicket.evaluate(userId.toUpperCase(), applId.toUpperCase(), passTicket.toUpperCase());
+        withIrrPassTicket(irrPassTicket -> {
+            irrPassTicket.evaluate(userId.toUpperCase(), applId.toUpperCase(), passTicket.toUpperCase());
+            return null;
+        });
     }
 
-    // IRRPassTicket is not thread-safe, must be synchronized
-    public synchronized String generate(String userId, String applId) throws PassTicketException {
+    public String generate(String userId, String applId) throws PassTicketException {
         try {
             validateUserIdAndApplId(userId, applId);
-            return irrPassTicket.generate(userId.toUpperCase(), applId.toUpperCase());
+            TicketKey key = new TicketKey(userId.toUpperCase(), applId.toUpperCase());
+            String passTicket = passTickets == null ? null : passTickets.getIfPresent(key);
+            if (passTicket == null) {
+                passTicket = withIrrPassTicket(irrPassTicket -> irrPassTicket.generate(key.userId(), key.applId()));
+                if (passTickets != null) {
+                    passTickets.put(key, passTicket);
+                }
+            }
+            return passTicket;
         } catch (RuntimeException e) {
             log.debug("Error during pass ticket generation, userId={}, applid={}, exception={}", userId, applId, e);
             throw e;
         }
     }
 
+    private <T> T withIrrPassTicket(IRRPassTicketCall<T> call) throws PassTicketException {
+        IRRPassTicket irrPassTicket;
+        try {
+            irrPassTicket = irrPassTickets.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for IRRPassTicket", e);
+        }
+
+        try {
+            return call.apply(irrPassTicket);
+        } finally {
+            irrPassTickets.add(irrPassTicket);
+        }
+    }
+
     public boolean isUsingSafImplementation() {
-        ClassOrDefaultProxyUtils.ClassOrDefaultProxyState stateInterface = (ClassOrDefaultProxyUtils.ClassOrDefaultProxyState) irrPassTicket;
+        ClassOrDefaultProxyUtils.ClassOrDefaultProxyState stateInterface = (ClassOrDefaultProxyUtils.ClassOrDefaultProxyState) stateIrrPassTicket;
         return stateInterface.isUsingBaseImplementation();
     }
 
@@ -74,6 +151,16 @@ public class PassTicketService {
         }
     }
 
+    @FunctionalInterface
+    private interface IRRPassTicketCall<T> {
+
+        T apply(IRRPassTicket irrPassTicket) throws PassTicketException;
+
+    }
+
+    private record TicketKey(String userId, String applId) {
+    }
+
     public static class DefaultPassTicketImpl implements IRRPassTicket {
 
         private static int id = 0;
@@ -85,7 +172,7 @@ public class PassTicketService {
         public static final String UNKNOWN_USER = "UNKNOWN_USER";
         public static final String UNKNOWN_APPLID = "XBADAPPL";
 
-        private final Map<UserApp, Set<String>> userAppToPasstickets = new HashMap<>();
+        private final Map<UserApp, Set<String>> userAppToPasstickets = new ConcurrentHashMap<>();
 
         @Override
         public void evaluate(String userId, String applId, String passTicket) throws IRRPassTicketEvaluationException {
@@ -129,7 +216,7 @@ public class PassTicketService {
             }
             final String passTicket = ZOWE_DUMMY_PASS_TICKET_PREFIX + "_" + applId + "_" + userId + "_" + currentId;
 
-            final Set<String> passTickets = userAppToPasstickets.computeIfAbsent(userApp, x -> new HashSet<>());
+            final Set<String> passTickets = userAppToPasstickets.computeIfAbsent(userApp, x -> ConcurrentHashMap.newKeySet());
             passTickets.add(passTicket);
 
             return passTicket;
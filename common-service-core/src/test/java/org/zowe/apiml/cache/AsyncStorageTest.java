@@ -0,0 +1,88 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+
+package org.zowe.apiml.cache;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.zowe.apiml.caching.model.KeyValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AsyncStorageTest {
+
+    private static final String SERVICE_ID = "service";
+    private static final KeyValue KEY_VALUE = new KeyValue("key", "value");
+
+    @Nested
+    class GivenAsyncStorage {
+
+        @Test
+        void whenAdapt_thenTheSameInstanceIsUsed() {
+            Storage storage = mock(Storage.class, withSettings().extraInterfaces(AsyncStorage.class));
+
+            assertSame(storage, AsyncStorage.of(storage, Runnable::run));
+        }
+
+    }
+
+    @Nested
+    class GivenBlockingStorage {
+
+        private final Storage storage = mock(Storage.class);
+
+        @Test
+        void whenCalled_thenTheStorageIsCalledByExecutor() {
+            List<Runnable> tasks = new ArrayList<>();
+            when(storage.read(SERVICE_ID, "key")).thenReturn(KEY_VALUE);
+
+            CompletableFuture<KeyValue> result = AsyncStorage.of(storage, tasks::add).readAsync(SERVICE_ID, "key").toCompletableFuture();
+            assertFalse(result.isDone());
+            verify(storage, never()).read(any(), any());
+
+            tasks.forEach(Runnable::run);
+            assertSame(KEY_VALUE, result.join());
+        }
+
+        @Test
+        void whenStorageThrowsException_thenTheStageFails() {
+            StorageException exception = new StorageException("key", HttpStatus.NOT_FOUND);
+            when(storage.delete(SERVICE_ID, "key")).thenThrow(exception);
+
+            CompletableFuture<KeyValue> result = AsyncStorage.of(storage, Runnable::run).deleteAsync(SERVICE_ID, "key").toCompletableFuture();
+            CompletionException e = assertThrows(CompletionException.class, result::join);
+            assertSame(exception, e.getCause());
+        }
+
+        @Test
+        void whenExecutorIsFull_thenTheStageFails() {
+            Executor executor = command -> {
+                throw new RejectedExecutionException("full");
+            };
+
+            CompletableFuture<Void> result = AsyncStorage.of(storage, executor).deleteForServiceAsync(SERVICE_ID).toCompletableFuture();
+            CompletionException e = assertThrows(CompletionException.class, result::join);
+            assertInstanceOf(RejectedExecutionException.class, e.getCause());
+            verifyNoInteractions(storage);
+        }
+
+    }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+
+package org.zowe.apiml.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.zowe.apiml.caching.model.KeyValue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StorageTest {
+
+    private static final String SERVICE_ID = "service";
+    private static final KeyValue KEY_VALUE = new KeyValue("key", "value");
+    private static final StorageException NOT_FOUND = new StorageException("keyNotInCache", HttpStatus.NOT_FOUND);
+
+    private Storage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = mock(Storage.class, CALLS_REAL_METHODS);
+    }
+
+    @Nested
+    class GivenDefaultUpsertImplementation {
+
+        @Test
+        void whenKeyExists_thenItIsUpdated() {
+            doReturn(KEY_VALUE).when(storage).update(SERVICE_ID, KEY_VALUE);
+
+            assertEquals(KEY_VALUE, storage.upsert(SERVICE_ID, KEY_VALUE));
+            verify(storage, never()).create(any(), any());
+        }
+
+        @Test
+        void whenKeyIsMissing_thenItIsCreated() {
+            doThrow(NOT_FOUND).when(storage).update(SERVICE_ID, KEY_VALUE);
+            doReturn(KEY_VALUE).when(storage).create(SERVICE_ID, KEY_VALUE);
+
+            assertEquals(KEY_VALUE, storage.upsert(SERVICE_ID, KEY_VALUE));
+        }
+
+        @Test
+        void whenKeyIsCreatedConcurrently_thenItIsUpdatedAgain() {
+            doThrow(NOT_FOUND).doReturn(KEY_VALUE).when(storage).update(SERVICE_ID, KEY_VALUE);
+            doThrow(new StorageException("keyCollision", HttpStatus.CONFLICT)).when(storage).create(SERVICE_ID, KEY_VALUE);
+
+            assertEquals(KEY_VALUE, storage.upsert(SERVICE_ID, KEY_VALUE));
+            verify(storage, times(2)).update(SERVICE_ID, KEY_VALUE);
+        }
+
+    }
+
+    @Nested
+    class GivenDefaultBatchImplementation {
+
+        @Test
+        void whenReadAll_thenMissingKeysAreSkipped() {
+            doReturn(KEY_VALUE).when(storage).read(SERVICE_ID, "key");
+            doThrow(NOT_FOUND).when(storage).read(SERVICE_ID, "missing");
+
+            assertEquals(Map.of("key", KEY_VALUE), storage.readAll(SERVICE_ID, List.of("key", "missing")));
+        }
+
+        @Test
+        void whenReadAllFails_thenExceptionIsThrown() {
+            doThrow(new StorageException("error", HttpStatus.INTERNAL_SERVER_ERROR)).when(storage).read(SERVICE_ID, "key");
+
+            assertThrows(StorageException.class, () -> storage.readAll(SERVICE_ID, List.of("key")));
+        }
+
+        @Test
+        void whenStoreAll_thenMissingKeysAreCreated() {
+            KeyValue other = new KeyValue("other", "value");
+            doThrow(NOT_FOUND).when(storage).update(SERVICE_ID, other);
+            StorageException full = new StorageException("insufficientStorage", HttpStatus.INSUFFICIENT_STORAGE);
+            doThrow(full).when(storage).create(SERVICE_ID, other);
+
+            Map<String, StorageException> failures = storage.storeAll(SERVICE_ID, List.of(KEY_VALUE, other));
+
+            assertEquals(Map.of("other", full), failures);
+            verify(storage).update(SERVICE_ID, KEY_VALUE);
+            verify(storage, never()).create(SERVICE_ID, KEY_VALUE);
+        }
+
+        @Test
+        void whenDeleteAll_thenReturnDeletedKeys() {
+            doThrow(NOT_FOUND).when(storage).delete(SERVICE_ID, "missing");
+
+            assertEquals(Set.of("key"), storage.deleteAll(SERVICE_ID, List.of("key", "missing")));
+        }
+
+    }
+
+}
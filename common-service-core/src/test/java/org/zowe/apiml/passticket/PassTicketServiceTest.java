@@ -14,9 +14,18 @@ import org.zowe.apiml.passticket.PassTicketService.DefaultPassTicketImpl;
 import org.zowe.apiml.util.ClassOrDefaultProxyUtils;
 
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
@@ -40,16 +49,29 @@ class PassTicketServiceTest {
     }
 
     @Test
+    @SuppressWarnings("unchecked")
     void testIsUsingSafImplementation() {
-        IRRPassTicket irrPassTicket = (IRRPassTicket) ReflectionTestUtils.getField(passTicketService, "irrPassTicket");
+        IRRPassTicket irrPassTicket = ((BlockingQueue<IRRPassTicket>) ReflectionTestUtils.getField(passTicketService, "irrPassTickets")).peek();
         ClassOrDefaultProxyUtils.ClassOrDefaultProxyState stateInterface = (ClassOrDefaultProxyUtils.ClassOrDefaultProxyState) irrPassTicket;
         assertEquals(stateInterface.isUsingBaseImplementation(), passTicketService.isUsingSafImplementation());
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void givenAllInstancesAreBorrowed_whenCheckingImplementation_thenItIsStillKnown() throws InterruptedException {
+        BlockingQueue<IRRPassTicket> irrPassTickets = (BlockingQueue<IRRPassTicket>) ReflectionTestUtils.getField(passTicketService, "irrPassTickets");
+        IRRPassTicket borrowed = irrPassTickets.take();
+        try {
+            ClassOrDefaultProxyUtils.ClassOrDefaultProxyState stateInterface = (ClassOrDefaultProxyUtils.ClassOrDefaultProxyState) borrowed;
+            assertEquals(stateInterface.isUsingBaseImplementation(), passTicketService.isUsingSafImplementation());
+        } finally {
+            irrPassTickets.add(borrowed);
+        }
+    }
+
     @Test
     void testInit() throws PassTicketException {
-        PassTicketService passTicketService = new PassTicketService();
-        ReflectionTestUtils.setField(passTicketService, "irrPassTicket", new IRRPassTicket() {
+        PassTicketService passTicketService = new PassTicketService(() -> new IRRPassTicket() {
             @Override
             public void evaluate(String userId, String applId, String passTicket) {
                 evaluated = userId + "-" + applId + "-" + passTicket;
@@ -59,7 +81,7 @@ class PassTicketServiceTest {
             public String generate(String userId, String applId) {
                 return userId + "-" + applId;
             }
-        });
+        }, 1, Duration.ZERO);
 
         evaluated = null;
         passTicketService.evaluate("userId", "applId", "passTicket");
@@ -71,6 +93,72 @@ class PassTicketServiceTest {
         assertEquals("1-2", passTicketService.generate("1", "2"));
     }
 
+    @Nested
+    class GivenPoolOfIrrPassTickets {
+
+        @Test
+        void whenMoreCallsInParallel_thenTheyAreNotSerialized() throws Exception {
+            CountDownLatch bothInside = new CountDownLatch(2);
+            PassTicketService service = new PassTicketService(() -> new Impl() {
+                @Override
+                public String generate(String userId, String applId) {
+                    bothInside.countDown();
+                    try {
+                        return bothInside.await(5, TimeUnit.SECONDS) ? "parallel" : "serialized";
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return "interrupted";
+                    }
+                }
+            }, 2, Duration.ZERO);
+
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+            try {
+                Future<String> first = executor.submit(() -> service.generate(TEST_USERID, "applId"));
+                Future<String> second = executor.submit(() -> service.generate(TEST_USERID, "applId"));
+
+                assertEquals("parallel", first.get());
+                assertEquals("parallel", second.get());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        @Test
+        void whenDummyImplementation_thenGeneratedPassTicketIsEvaluatedByAnyInstance() throws PassTicketException {
+            PassTicketService service = new PassTicketService(3, Duration.ZERO);
+
+            for (int i = 0; i < 3; i++) {
+                String passTicket = service.generate(TEST_USERID, "applId");
+                for (int j = 0; j < 3; j++) {
+                    assertDoesNotThrow(() -> service.evaluate(TEST_USERID, "applId", passTicket));
+                }
+            }
+        }
+
+    }
+
+    @Nested
+    class GivenTicketReuse {
+
+        @Test
+        void whenEnabled_thenReuseTicketForSameUserAndApplId() throws PassTicketException {
+            PassTicketService service = new PassTicketService(1, Duration.ofMinutes(1));
+
+            String passTicket = service.generate(TEST_USERID, "applId");
+
+            assertEquals(passTicket, service.generate(TEST_USERID.toUpperCase(), "APPLID"));
+            assertNotEquals(passTicket, service.generate(TEST_USERID, "otherApplId"));
+            assertNotEquals(passTicket, service.generate("otherUser", "applId"));
+        }
+
+        @Test
+        void whenDisabled_thenGenerateNewTicket() throws PassTicketException {
+            assertNotEquals(passTicketService.generate(TEST_USERID, "applId"), passTicketService.generate(TEST_USERID, "applId"));
+        }
+
+    }
+
     @Test
     void testProxy() throws IRRPassTicketGenerationException {
         IRRPassTicket irrPassTicket = ClassOrDefaultProxyUtils.createProxy(
@@ -22,6 +22,11 @@ public interface CachingServiceClient {
 
     Mono<Void> update(ApiKeyValue keyValue);
 
+    /**
+     * Store the entry in a single call, the existing entry is replaced, otherwise a new one is created.
+     */
+    Mono<Void> upsert(ApiKeyValue keyValue);
+
     Mono<ApiKeyValue> read(String key);
 
     Mono<Void> delete(String key);
@@ -35,6 +40,10 @@ public interface CachingServiceClient {
     class ApiKeyValue {
         private final String key;
         private final String value;
+        /**
+         * Time to live of the entry in seconds, the entry does not expire if it is not set.
+         */
+        private Long ttl;
 
         @JsonCreator
         public ApiKeyValue() {
@@ -13,9 +13,12 @@ package org.zowe.apiml.gateway.caching;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.zowe.apiml.cache.Storage;
+import org.zowe.apiml.cache.StorageException;
 import org.zowe.apiml.caching.model.KeyValue;
+import org.zowe.apiml.gateway.filters.ClusterRateLimiter;
 import reactor.core.publisher.Mono;
 
 import static reactor.core.publisher.Mono.empty;
@@ -53,11 +56,27 @@ public class CachingServiceClientApi implements CachingServiceClient {
         return empty();
     }
 
+    @Override
+    public Mono<Void> upsert(ApiKeyValue keyValue) {
+        String serviceId = extractServiceId(keyValue.getKey());
+        storage.upsert(serviceId, mapToApiKeyValue(keyValue));
+        return empty();
+    }
+
     @Override
     public Mono<ApiKeyValue> read(String key) {
 
         String serviceId = extractServiceId(key);
-        KeyValue stored = storage.read(serviceId, key);
+        KeyValue stored;
+        try {
+            stored = storage.read(serviceId, key);
+        } catch (StorageException e) {
+            if (e.getStatus() != HttpStatus.NOT_FOUND) {
+                throw e;
+            }
+            // the same as the REST client, a missing key is an empty result
+            stored = null;
+        }
         if (stored != null) {
             return Mono.just(new ApiKeyValue(stored.getKey(), stored.getValue()));
         } else {
@@ -75,17 +94,23 @@ public class CachingServiceClientApi implements CachingServiceClient {
     }
 
     private KeyValue mapToApiKeyValue(ApiKeyValue apiValue) {
-        return new KeyValue(apiValue.getKey(), apiValue.getValue());
+        KeyValue keyValue = new KeyValue(apiValue.getKey(), apiValue.getValue());
+        keyValue.setTtl(apiValue.getTtl());
+        return keyValue;
     }
 
     /**
      * Extracts serviceId from the full key
      */
     private String extractServiceId(String key) {
-        if (!key.startsWith(LoadBalancerCache.LOAD_BALANCER_KEY_PREFIX)) {
+        String prefixRemoved;
+        if (key.startsWith(LoadBalancerCache.LOAD_BALANCER_KEY_PREFIX)) {
+            prefixRemoved = key.substring(LoadBalancerCache.LOAD_BALANCER_KEY_PREFIX.length());
+        } else if (key.startsWith(ClusterRateLimiter.RATE_LIMITER_KEY_PREFIX)) {
+            prefixRemoved = key.substring(ClusterRateLimiter.RATE_LIMITER_KEY_PREFIX.length());
+        } else {
             throw new IllegalArgumentException("Missing prefix in key: " + key);
         }
-        String prefixRemoved = key.substring(LoadBalancerCache.LOAD_BALANCER_KEY_PREFIX.length());
         int colonPos = prefixRemoved.indexOf(':');
         if (colonPos == -1) {
             throw new IllegalArgumentException("Invalid key format, cannot extract serviceId: " + key);
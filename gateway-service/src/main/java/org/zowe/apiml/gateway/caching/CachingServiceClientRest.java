@@ -15,6 +15,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
@@ -88,6 +89,29 @@ public class CachingServiceClientRest implements CachingServiceClient {
             });
     }
 
+    /**
+     * Stores {@link ApiKeyValue} in Caching Service with a single request. If the Caching Service does not support the
+     * upsert yet (the key is not found), the entry is created.
+     *
+     * @param keyValue Entry to store
+     * @return mono with status success / error
+     */
+    public Mono<Void> upsert(ApiKeyValue keyValue) {
+        return webClient.put()
+            .uri(cachingBalancerUrl + "?upsert=true")
+            .bodyValue(keyValue)
+            .headers(c -> c.addAll(defaultHeaders))
+            .exchangeToMono(handler -> {
+                if (handler.statusCode().is2xxSuccessful()) {
+                    return empty();
+                } else if (handler.statusCode().value() == HttpStatus.NOT_FOUND.value()) {
+                    return create(keyValue);
+                } else {
+                    return error(new CachingServiceClientException(handler.statusCode().value(), "Unable to upsert caching key " + keyValue.getKey() + CACHING_SERVICE_RETURNED + handler.statusCode()));
+                }
+            });
+    }
+
     public Mono<ApiKeyValue> read(String key) {
         return webClient.get()
             .uri(cachingBalancerUrl + "/" + key)
@@ -15,16 +15,29 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.CacheRefreshedEvent;
 import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.EurekaEvent;
+import com.netflix.discovery.shared.Application;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.hc.core5.http.HttpStatus;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.time.ZoneOffset;
+import java.util.Objects;
+import java.util.Optional;
 
 import static reactor.core.publisher.Mono.*;
 
@@ -33,21 +46,86 @@ import static reactor.core.publisher.Mono.*;
 public class LoadBalancerCache {
 
     private static final String CACHING_SERVICE_ID = "cachingservice";
+    static final String LOCAL_CACHE_NAME = "apiml.gateway.loadBalancer.localCache";
 
-    private final Map<String, LoadBalancerCacheRecord> localCache;
+    /**
+     * Local storage used if the caching service is not available. It is bounded and the records expire after the
+     * same time as the load balancer considers them too old. Expired records are removed in the background.
+     */
+    private final Cache<String, LocalRecord> localCache;
     private final CachingServiceClient remoteCache;
     private final EurekaClient eurekaClient;
     private final ObjectMapper mapper = new ObjectMapper();
 
+    /**
+     * Near cache in front of the caching service. It avoids the remote read on each request and allows to skip
+     * writing of a record that was not changed. Records are written to the caching service asynchronously.
+     */
+    private final Cache<String, LoadBalancerCacheRecord> nearCache;
+    private final Duration nearCacheTimeToLive;
+
+    /**
+     * The client of the modulith writes to the storage before it returns, the write must not block the event loop
+     */
+    private reactor.core.scheduler.Scheduler remoteCacheScheduler = Schedulers.boundedElastic();
+
+    /**
+     * Records in the caching service expire after the same time as in the local cache
+     */
+    private final long remoteTimeToLive;
+
     public static final String LOAD_BALANCER_KEY_PREFIX = "lb.";
 
     public LoadBalancerCache(
         EurekaClient eurekaClient,
-        CachingServiceClient cachingServiceClient) {
+        CachingServiceClient cachingServiceClient,
+        @Value("${apiml.gateway.loadBalancer.nearCache.maxSize:10000}") long nearCacheMaxSize,
+        @Value("${apiml.gateway.loadBalancer.nearCache.timeToLive:60}") long nearCacheTimeToLive,
+        @Value("${apiml.gateway.loadBalancer.localCache.maxSize:100000}") long localCacheMaxSize,
+        @Value("${instance.metadata.apiml.lb.cacheRecordExpirationTimeInHours:8}") int expirationTime,
+        MeterRegistry meterRegistry
+    ) {
         this.remoteCache = cachingServiceClient;
         this.eurekaClient = eurekaClient;
-        localCache = new ConcurrentHashMap<>();
+        this.localCache = Caffeine.newBuilder()
+            .maximumSize(localCacheMaxSize)
+            .expireAfterWrite(Duration.ofHours(expirationTime))
+            .scheduler(Scheduler.systemScheduler())
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, LOCAL_CACHE_NAME);
         mapper.registerModule(new JavaTimeModule());
+        this.nearCacheTimeToLive = Duration.ofSeconds(nearCacheTimeToLive);
+        this.remoteTimeToLive = Duration.ofHours(expirationTime).toSeconds();
+        this.nearCache = Caffeine.newBuilder()
+            .maximumSize(nearCacheMaxSize)
+            .expireAfterWrite(this.nearCacheTimeToLive)
+            .build();
+    }
+
+    @PostConstruct
+    void registerEurekaListener() {
+        eurekaClient.registerEventListener(this::onEurekaEvent);
+    }
+
+    /**
+     * Remove records from the near cache pointing to instances that are not registered anymore
+     */
+    void onEurekaEvent(EurekaEvent event) {
+        if (event instanceof CacheRefreshedEvent) {
+            nearCache.asMap().entrySet().removeIf(entry -> !isRegistered(getServiceId(entry.getKey()), entry.getValue().getInstanceId()));
+        }
+    }
+
+    private boolean isRegistered(String serviceId, String instanceId) {
+        return Optional.ofNullable(eurekaClient.getApplication(serviceId))
+            .map(Application::getInstances)
+            .filter(instances -> instances.stream().map(InstanceInfo::getInstanceId).anyMatch(id -> Objects.equals(id, instanceId)))
+            .isPresent();
+    }
+
+    private String getServiceId(String key) {
+        return key.substring(key.lastIndexOf(':') + 1);
     }
 
     private Mono<Boolean> cachingServiceAvailability() {
@@ -58,7 +136,9 @@ public class LoadBalancerCache {
 
     /**
      * Store information about instance the user is balanced towards.
-     * If there is already existing record, it will be updated
+     * If there is already existing record, it will be updated. In case of caching service the record is written
+     * asynchronously and only if it was changed (another instance, or the stored one is older than time-to-live of
+     * the near cache).
      *
      * @param user     User being routed towards southbound service
      * @param service  Service towards which is the user routed
@@ -69,49 +149,58 @@ public class LoadBalancerCache {
         return cachingServiceAvailability()
             .flatMap(available -> {
                 if (Boolean.TRUE.equals(available)) {
-                    return storeToRemoteCache(user, service, loadBalancerCacheRecord);
+                    return storeToNearCache(user, service, loadBalancerCacheRecord);
                 } else {
-                    localCache.put(getKey(user, service), loadBalancerCacheRecord);
+                    localCache.put(getKey(user, service), LocalRecord.of(loadBalancerCacheRecord));
                     log.debug("Stored record to local cache for user: {}, service: {}, record: {}", user, service, loadBalancerCacheRecord);
                     return empty();
                 }
             });
     }
 
+    private Mono<Void> storeToNearCache(String user, String service, LoadBalancerCacheRecord loadBalancerCacheRecord) {
+        var key = getKey(user, service);
+        var cached = nearCache.getIfPresent(key);
+        if (isUnchanged(cached, loadBalancerCacheRecord)) {
+            log.trace("Record for user: {}, service: {} was not changed, it is not stored to remote cache", user, service);
+            return empty();
+        }
+
+        nearCache.put(key, loadBalancerCacheRecord);
+        // write-behind, the routing does not wait for the caching service
+        storeToRemoteCache(user, service, loadBalancerCacheRecord)
+            .subscribe(null, e -> {
+                log.debug("Failed to store record to remote cache for user: {}, service: {}", user, service, e);
+                nearCache.asMap().remove(key, loadBalancerCacheRecord);
+            });
+        return empty();
+    }
+
+    private boolean isUnchanged(LoadBalancerCacheRecord cached, LoadBalancerCacheRecord loadBalancerCacheRecord) {
+        if ((cached == null) || (cached.getCreationTime() == null) || (loadBalancerCacheRecord.getCreationTime() == null)) {
+            return false;
+        }
+        if (!Objects.equals(cached.getInstanceId(), loadBalancerCacheRecord.getInstanceId())) {
+            return false;
+        }
+        return cached.getCreationTime().plus(nearCacheTimeToLive).isAfter(loadBalancerCacheRecord.getCreationTime());
+    }
+
     private Mono<Void> storeToRemoteCache(String user, String service, LoadBalancerCacheRecord loadBalancerCacheRecord) {
         try {
             String serializedRecord = mapper.writeValueAsString(loadBalancerCacheRecord);
             CachingServiceClient.ApiKeyValue toStore = new CachingServiceClient.ApiKeyValue(getKey(user, service), serializedRecord);
-            return createToRemoteCache(user, service, loadBalancerCacheRecord, toStore);
+            toStore.setTtl(remoteTimeToLive);
+            return defer(() -> remoteCache.upsert(toStore))
+                .subscribeOn(remoteCacheScheduler)
+                .doOnSuccess(v -> log.debug("Stored record to remote cache for user: {}, service: {}, record: {}", user, service, loadBalancerCacheRecord))
+                .doOnError(e -> log.debug("Failed to store record for user: {}, service: {}, record {}, with exception: ", user, service, loadBalancerCacheRecord, e));
         } catch (JsonProcessingException e) {
             log.debug("Failed to serialize record for user: {}, service: {}, record {},  with exception: ", user, service, loadBalancerCacheRecord, e);
             return error(e);
         }
     }
 
-    private Mono<Void> createToRemoteCache(String user, String service, LoadBalancerCacheRecord loadBalancerCacheRecord, CachingServiceClient.ApiKeyValue toStore) {
-        return remoteCache.create(toStore)
-            .onErrorResume(createException -> {
-                if (isCausedByCacheConflict(createException)) {
-                    return updateToRemoteCache(user, service, loadBalancerCacheRecord, toStore);
-                } else {
-                    log.debug("Failed to create record for user: {}, service: {}, record {}, with exception: ", user, service, loadBalancerCacheRecord, createException);
-                    return error(createException);
-                }
-            })
-            .doOnSuccess(v -> log.debug("Created record to remote cache for user: {}, service: {}, record: {}", user, service, loadBalancerCacheRecord));
-    }
-
-    private Mono<Void> updateToRemoteCache(String user, String service, LoadBalancerCacheRecord loadBalancerCacheRecord, CachingServiceClient.ApiKeyValue toStore) {
-        return remoteCache.update(toStore)
-            .doOnSuccess(v -> log.debug("Updated record to remote cache for user: {}, service: {}, record: {}", user, service, loadBalancerCacheRecord))
-            .doOnError(updateException -> log.debug("Failed to update record for user: {}, service: {}, record {}, with exception: ", user, service, loadBalancerCacheRecord, updateException));
-    }
-
-    private boolean isCausedByCacheConflict(Throwable e) {
-        return e instanceof CachingServiceClientException ex && ex.getStatusCode() == HttpStatus.SC_CONFLICT;
-    }
-
     /**
      * Retrieve information about selected instance for combination of User and Service.
      *
@@ -123,8 +212,14 @@ public class LoadBalancerCache {
         return cachingServiceAvailability()
             .flatMap(available -> {
                 if (Boolean.TRUE.equals(available)) {
-                    return remoteCache.read(getKey(user, service))
-                        .handle((kv, sink) -> {
+                    var key = getKey(user, service);
+                    var cached = nearCache.getIfPresent(key);
+                    if (cached != null) {
+                        log.debug("Retrieved record from near cache for user: {}, service: {}, record: {}", user, service, cached);
+                        return just(cached);
+                    }
+                    return remoteCache.read(key)
+                        .<LoadBalancerCacheRecord>handle((kv, sink) -> {
                             LoadBalancerCacheRecord loadBalancerCacheRecord;
                             try {
                                 loadBalancerCacheRecord = mapper.readValue(kv.getValue(), LoadBalancerCacheRecord.class);
@@ -134,9 +229,12 @@ public class LoadBalancerCache {
                             }
                             log.debug("Retrieved record from remote cache for user: {}, service: {}, record: {}", user, service, loadBalancerCacheRecord);
                             sink.next(loadBalancerCacheRecord);
-                        });
+                        })
+                        .doOnNext(loadBalancerCacheRecord -> nearCache.put(key, loadBalancerCacheRecord));
                 } else {
-                    LoadBalancerCacheRecord loadBalancerCacheRecord = localCache.get(getKey(user, service));
+                    LoadBalancerCacheRecord loadBalancerCacheRecord = Optional.ofNullable(localCache.getIfPresent(getKey(user, service)))
+                        .map(LocalRecord::toCacheRecord)
+                        .orElse(null);
                     log.debug("Retrieved record from local cache for user: {}, service: {}, record: {}", user, service, loadBalancerCacheRecord);
                     return loadBalancerCacheRecord == null ? empty() : just(loadBalancerCacheRecord);
                 }
@@ -153,16 +251,22 @@ public class LoadBalancerCache {
         return cachingServiceAvailability()
             .flatMap(available -> {
                 if (Boolean.TRUE.equals(available)) {
+                    nearCache.invalidate(getKey(user, service));
                     return remoteCache.delete(getKey(user, service))
                         .doOnSuccess(v -> log.debug("Deleted record from remote cache for user: {}, service: {}", user, service));
                 } else {
-                    localCache.remove(getKey(user, service));
+                    localCache.invalidate(getKey(user, service));
                     log.debug("Deleted record from local cache for user: {}, service: {}", user, service);
                     return empty();
                 }
             });
     }
 
+    long getLocalCacheSize() {
+        localCache.cleanUp();
+        return localCache.estimatedSize();
+    }
+
     private String getKey(String user, String service) {
         return LOAD_BALANCER_KEY_PREFIX + user.toLowerCase() + ":" + service.toLowerCase();
     }
@@ -190,4 +294,34 @@ public class LoadBalancerCache {
 
     }
 
+    /**
+     * Compact form of {@link LoadBalancerCacheRecord} kept in the local cache, the creation time is stored as primitive
+     * values instead of the object graph of {@link LocalDateTime}
+     */
+    @Data
+    static class LocalRecord {
+
+        private static final int NO_TIME = -1;
+
+        private final String instanceId;
+        private final long creationEpochSecond;
+        private final int creationNano;
+
+        static LocalRecord of(LoadBalancerCacheRecord loadBalancerCacheRecord) {
+            var creationTime = loadBalancerCacheRecord.getCreationTime();
+            if (creationTime == null) {
+                return new LocalRecord(loadBalancerCacheRecord.getInstanceId(), 0, NO_TIME);
+            }
+            return new LocalRecord(loadBalancerCacheRecord.getInstanceId(), creationTime.toEpochSecond(ZoneOffset.UTC), creationTime.getNano());
+        }
+
+        LoadBalancerCacheRecord toCacheRecord() {
+            if (creationNano == NO_TIME) {
+                return new LoadBalancerCacheRecord(instanceId, null);
+            }
+            return new LoadBalancerCacheRecord(instanceId, LocalDateTime.ofEpochSecond(creationEpochSecond, creationNano, ZoneOffset.UTC));
+        }
+
+    }
+
 }
@@ -19,18 +19,21 @@ import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalanc
 import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.server.HandlerFunction;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import org.zowe.apiml.gateway.filters.AuthSchemeResponseCache;
 import org.zowe.apiml.security.common.util.X509Util;
 import reactor.core.publisher.Mono;
 
 import java.security.cert.CertificateEncodingException;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Optional;
 
 import static org.apache.hc.core5.http.HttpHeaders.CONTENT_TYPE;
 import static org.apache.hc.core5.http.HttpHeaders.SET_COOKIE;
@@ -38,6 +41,7 @@ import static org.springframework.web.reactive.function.server.RequestPredicates
 import static org.springframework.web.reactive.function.server.RouterFunctions.route;
 import static org.zowe.apiml.constants.ApimlConstants.AUTH_FAIL_HEADER;
 import static org.zowe.apiml.gateway.x509.ForwardClientCertFilterFactory.CLIENT_CERT_HEADER;
+import static org.zowe.apiml.security.SecurityUtils.COOKIE_AUTH_NAME;
 
 /**
  * This class uses Spring Cloud Gateway capabilities to compose routes to some ZAAS-provided endpoints.
@@ -61,14 +65,17 @@ public class AuthEndpointConfig {
 
     private final WebClient webClient;
     private final WebClient webClientClientCert;
+    private final AuthSchemeResponseCache authSchemeResponseCache;
 
     public AuthEndpointConfig(
         WebClient webClient,
         @Qualifier("webClientClientCert") WebClient webClientClientCert,
-        ReactiveLoadBalancer.Factory<ServiceInstance> serviceInstanceFactory
+        ReactiveLoadBalancer.Factory<ServiceInstance> serviceInstanceFactory,
+        AuthSchemeResponseCache authSchemeResponseCache
     ) {
         this.webClient = createLoadBalanced(webClient, serviceInstanceFactory);
         this.webClientClientCert = createLoadBalanced(webClientClientCert, serviceInstanceFactory);
+        this.authSchemeResponseCache = authSchemeResponseCache;
     }
 
     private WebClient createLoadBalanced(WebClient webClient, ReactiveLoadBalancer.Factory<ServiceInstance> serviceInstanceFactory) {
@@ -125,10 +132,24 @@ public class AuthEndpointConfig {
             .doOnError(e -> log.debug("Cannot resend authentication call to the ZAAS", e));
     }
 
+    /**
+     * Resend the logout to the ZAAS and forget all responses of authentication schemes created from the token
+     */
+    private HandlerFunction<ServerResponse> logout() {
+        var resend = resendTo("/api/v1/auth/logout");
+        return request -> resend.handle(request)
+            .doOnNext(response -> {
+                Optional.ofNullable(request.cookies().get(COOKIE_AUTH_NAME)).orElse(Collections.emptyList())
+                    .forEach(cookie -> authSchemeResponseCache.invalidate(cookie.getValue()));
+                request.headers().header(HttpHeaders.AUTHORIZATION)
+                    .forEach(authSchemeResponseCache::invalidate);
+            });
+    }
+
     @Bean
     RouterFunction<ServerResponse> routes() {
         return route(path("/gateway/api/v1/auth/login"), resendTo("/api/v1/auth/login"))
-            .andRoute(path("/gateway/api/v1/auth/logout"), resendTo("/api/v1/auth/logout"))
+            .andRoute(path("/gateway/api/v1/auth/logout"), logout())
             .andRoute(path("/gateway/api/v1/auth/query"), resendTo("/api/v1/auth/query"))
             .andRoute(path("/gateway/api/v1/auth/refresh"), resendTo("/api/v1/auth/refresh"))
             .andRoute(path("/gateway/api/v1/auth/ticket"), resendTo("/api/v1/auth/ticket"))
@@ -0,0 +1,94 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.filters;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.apache.commons.lang3.StringUtils;
+import org.zowe.apiml.auth.AuthenticationScheme;
+import org.zowe.apiml.constants.ApimlConstants;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Identification of a request to ZAAS to transform credentials. Two requests with the same key lead to the same
+ * response. Credentials are not stored, the key contains just their SHA-256 digests.
+ */
+@Data
+public class AuthSchemeRequestKey {
+
+    private final AuthenticationScheme scheme;
+    private final String serviceId;
+    private final String applId;
+    private final String credentialsDigest;
+
+    // digests of each credential value, it allows to find all records created from a specific token
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final Set<String> credentialDigests;
+
+    public static AuthSchemeRequestKey of(AuthenticationScheme scheme, RequestCredentials requestCredentials) {
+        var digests = new TreeSet<String>();
+        Optional.ofNullable(requestCredentials.getHeaders()).orElse(Collections.emptyMap())
+            .values().stream()
+            .filter(Objects::nonNull)
+            .flatMap(Arrays::stream)
+            .filter(StringUtils::isNotBlank)
+            .forEach(value -> digests.add(digestCredential(value)));
+        Optional.ofNullable(requestCredentials.getCookies()).orElse(Collections.emptyMap())
+            .values().stream()
+            .filter(StringUtils::isNotBlank)
+            .forEach(value -> digests.add(digestCredential(value)));
+        if (StringUtils.isNotBlank(requestCredentials.getX509Certificate())) {
+            digests.add(digest(requestCredentials.getX509Certificate()));
+        }
+
+        return new AuthSchemeRequestKey(
+            scheme,
+            requestCredentials.getServiceId(),
+            requestCredentials.getApplId(),
+            digest(String.join(",", digests)),
+            Collections.unmodifiableSet(digests)
+        );
+    }
+
+    public boolean hasCredentials() {
+        return !credentialDigests.isEmpty();
+    }
+
+    /**
+     * Digest of a credential value as it is stored in the key. The prefix of bearer authentication is ignored, the
+     * same token could be provided as a cookie or as a header.
+     *
+     * @param credential value of cookie or header
+     * @return SHA-256 digest of the credential
+     */
+    public static String digestCredential(String credential) {
+        if (StringUtils.startsWithIgnoreCase(credential, ApimlConstants.BEARER_AUTHENTICATION_PREFIX)) {
+            credential = credential.substring(ApimlConstants.BEARER_AUTHENTICATION_PREFIX.length()).trim();
+        }
+        return digest(credential);
+    }
+
+    static String digest(String value) {
+        try {
+            var hash = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+}
@@ -0,0 +1,207 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.filters;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.zowe.apiml.auth.AuthenticationScheme;
+import org.zowe.apiml.gateway.filters.AbstractAuthSchemeFactory.AuthorizationResponse;
+import org.zowe.apiml.ticket.TicketResponse;
+import org.zowe.apiml.zaas.ZaasTokenResponse;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Short-lived cache of the responses from ZAAS for the authentication schemes. The same user calling the same service
+ * gets the same credentials for a while, therefore it is not necessary to call ZAAS on each request.
+ * <p>
+ * The record is identified by the scheme, serviceId, applId and the hash of all credentials sent to ZAAS. Only successful
+ * responses are stored. The validity is limited by the configured time-to-live and also by the expiration of the issued
+ * token (if it is a JWT). Records are removed also on logout of any credential they were created from.
+ * <p>
+ * The cache is disabled by default, because it postpones the detection of credentials invalidated in ZAAS up to the
+ * configured time-to-live.
+ */
+@Slf4j
+@Component
+public class AuthSchemeResponseCache {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final long EXPIRATION_RESERVE_MILLIS = 5_000;
+
+    private final boolean enabled;
+    private final boolean passticketEnabled;
+    private final long timeToLiveMillis;
+    private final Cache<AuthSchemeRequestKey, Entry> cache;
+
+    public AuthSchemeResponseCache(
+        @Value("${apiml.gateway.authSchemeCache.enabled:false}") boolean enabled,
+        @Value("${apiml.gateway.authSchemeCache.passticketEnabled:false}") boolean passticketEnabled,
+        @Value("${apiml.gateway.authSchemeCache.maxSize:10000}") long maxSize,
+        @Value("${apiml.gateway.authSchemeCache.timeToLive:60}") long timeToLiveSeconds
+    ) {
+        this.enabled = enabled;
+        this.passticketEnabled = passticketEnabled;
+        this.timeToLiveMillis = Duration.ofSeconds(timeToLiveSeconds).toMillis();
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfter(new EntryExpiry())
+            .build();
+    }
+
+    /**
+     * Return the cached response for the request, or call the loader and remember its result if it could be reused.
+     *
+     * @param key    identification of the request to ZAAS
+     * @param loader supplier of the call to ZAAS
+     * @return cached or loaded response
+     */
+    public <R> Mono<AuthorizationResponse<R>> get(AuthSchemeRequestKey key, Supplier<Mono<AuthorizationResponse<R>>> loader) {
+        if (!isEnabled(key.getScheme()) || !key.hasCredentials()) {
+            // without credentials there is nothing to identify the user, ZAAS has to decide
+            return loader.get();
+        }
+
+        var entry = cache.getIfPresent(key);
+        if (entry != null) {
+            log.trace("Response of ZAAS for {} was found in the cache", key);
+            return Mono.just(cast(entry.getResponse()));
+        }
+
+        return loader.get().doOnNext(response -> store(key, response));
+    }
+
+    /**
+     * Remove all records created from the credential (i.e. on logout)
+     *
+     * @param credential value of cookie or header (the prefix of bearer authentication is ignored)
+     */
+    public void invalidate(String credential) {
+        if (StringUtils.isBlank(credential)) {
+            return;
+        }
+
+        var credentialDigest = AuthSchemeRequestKey.digestCredential(credential);
+        cache.asMap().keySet().removeIf(key -> key.getCredentialDigests().contains(credentialDigest));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R> AuthorizationResponse<R> cast(AuthorizationResponse<?> response) {
+        return (AuthorizationResponse<R>) response;
+    }
+
+    long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    /**
+     * @param scheme authentication scheme of the request
+     * @return true if the responses of ZAAS for the scheme are cached
+     */
+    public boolean isEnabled(AuthenticationScheme scheme) {
+        if (scheme == AuthenticationScheme.HTTP_BASIC_PASSTICKET) {
+            return enabled && passticketEnabled;
+        }
+        return enabled;
+    }
+
+    private <R> void store(AuthSchemeRequestKey key, AuthorizationResponse<R> response) {
+        long expiration = getExpiration(response.getBody());
+        if (expiration <= 0) {
+            return;
+        }
+
+        var headers = response.getHeaders() == null ? new ErrorHeaders() : new ErrorHeaders(response.getHeaders().asHttpHeaders());
+        cache.put(key, new Entry(new AuthorizationResponse<>(headers, response.getBody()), expiration));
+    }
+
+    /**
+     * @return time in milliseconds to keep the response in the cache, zero if the response should not be stored
+     */
+    long getExpiration(Object body) {
+        if (body instanceof TicketResponse ticketResponse) {
+            return StringUtils.isEmpty(ticketResponse.getTicket()) ? 0 : timeToLiveMillis;
+        }
+        if (body instanceof ZaasTokenResponse tokenResponse) {
+            if (StringUtils.isEmpty(tokenResponse.getToken())) {
+                return 0;
+            }
+            return getTokenExpiration(tokenResponse.getToken())
+                .map(expiration -> Math.min(timeToLiveMillis, expiration - System.currentTimeMillis() - EXPIRATION_RESERVE_MILLIS))
+                .orElse(timeToLiveMillis);
+        }
+        return 0;
+    }
+
+    /**
+     * Read the expiration of the token if it is a JWT. The signature is not verified, it was just issued by ZAAS.
+     */
+    private Optional<Long> getTokenExpiration(String token) {
+        var parts = StringUtils.split(token, '.');
+        if (parts.length < 2) {
+            return Optional.empty();
+        }
+
+        try {
+            JsonNode exp = MAPPER.readTree(Base64.getUrlDecoder().decode(parts[1])).get("exp");
+            if ((exp != null) && exp.canConvertToLong()) {
+                return Optional.of(exp.asLong() * 1000);
+            }
+        } catch (Exception e) {
+            log.trace("Token is not a JWT, the expiration cannot be read: {}", e.getMessage());
+        }
+        return Optional.empty();
+    }
+
+    @Data
+    static class Entry {
+
+        private final AuthorizationResponse<?> response;
+        private final long timeToLiveMillis;
+
+    }
+
+    private static class EntryExpiry implements Expiry<AuthSchemeRequestKey, Entry> {
+
+        @Override
+        public long expireAfterCreate(AuthSchemeRequestKey key, Entry value, long currentTime) {
+            return Duration.ofMillis(value.getTimeToLiveMillis()).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(AuthSchemeRequestKey key, Entry value, long currentTime, long currentDuration) {
+            return Duration.ofMillis(value.getTimeToLiveMillis()).toNanos();
+        }
+
+        @Override
+        public long expireAfterRead(AuthSchemeRequestKey key, Entry value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+    }
+
+}
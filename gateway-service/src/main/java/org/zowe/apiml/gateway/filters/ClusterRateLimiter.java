@@ -0,0 +1,237 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.filters;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Data;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter.Response;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.zowe.apiml.cache.StorageException;
+import org.zowe.apiml.gateway.caching.CachingServiceClient;
+import org.zowe.apiml.gateway.caching.CachingServiceClient.ApiKeyValue;
+import org.zowe.apiml.gateway.caching.CachingServiceClientException;
+import org.zowe.apiml.gateway.filters.InMemoryRateLimiter.Config;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Rate limiter shared by all Gateway instances. The limit is counted in a fixed window of the refill duration in the
+ * caching service. The Gateway does not call the caching service for each request, it leases a batch of tokens
+ * (apiml.gateway.rateLimiterLeaseSize) and consumes them locally. A new lease is requested once the previous one is
+ * consumed.
+ * <p>
+ * The caching service does not provide an atomic increment, but the creation of a record fails if it exists. Each
+ * lease of a window is a record with its sequence number, a Gateway creates the next one and if another Gateway was
+ * faster, it tries the following one. The leases cannot exceed the limit, a Gateway instance could only hold tokens it
+ * does not consume until the end of the window. A Gateway tries at most limit / lease size records in a window, the
+ * lease should not be much smaller than the limit.
+ * <p>
+ * The limit of a window is the smaller of the tokens and the capacity, the same as the local bucket allows once its
+ * initial tokens are consumed. The initial burst of a local bucket with a capacity larger than the tokens is not
+ * allowed in the cluster mode.
+ * <p>
+ * The records are stored with a time to live of two windows, the caching service removes the records of the keys
+ * which are not used anymore.
+ * <p>
+ * If the caching service is not available, the local buckets ({@link InMemoryRateLimiter}) are used instead.
+ */
+@Slf4j
+@Component
+public class ClusterRateLimiter {
+
+    public static final String RATE_LIMITER_KEY_PREFIX = "rl.";
+
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(5);
+
+    private final CachingServiceClient cachingServiceClient;
+    private final InMemoryRateLimiter localRateLimiter;
+    private final Clock clock;
+
+    @Getter
+    private final boolean enabled;
+    private final int leaseSize;
+
+    private final Cache<LeaseKey, Lease> leases;
+
+    @Autowired
+    public ClusterRateLimiter(
+        CachingServiceClient cachingServiceClient,
+        InMemoryRateLimiter localRateLimiter,
+        @Value("${apiml.gateway.rateLimiterClusterMode:false}") boolean enabled,
+        @Value("${apiml.gateway.rateLimiterLeaseSize:10}") int leaseSize,
+        @Value("${apiml.gateway.rateLimiterMaxBuckets:100000}") long maxLeases
+    ) {
+        this(cachingServiceClient, localRateLimiter, enabled, leaseSize, maxLeases, Clock.systemUTC());
+    }
+
+    ClusterRateLimiter(
+        CachingServiceClient cachingServiceClient,
+        InMemoryRateLimiter localRateLimiter,
+        boolean enabled,
+        int leaseSize,
+        long maxLeases,
+        Clock clock
+    ) {
+        this.cachingServiceClient = cachingServiceClient;
+        this.localRateLimiter = localRateLimiter;
+        this.enabled = enabled;
+        this.leaseSize = Math.max(1, leaseSize);
+        this.clock = clock;
+        this.leases = Caffeine.newBuilder()
+            .maximumSize(maxLeases)
+            .expireAfterAccess(Duration.ofMinutes(10))
+            .build();
+    }
+
+    /**
+     * Consume a token of the route and key.
+     *
+     * @param config  limits of the route
+     * @param routeId identification of the route (service)
+     * @param id      key of the limit
+     * @return response with the result
+     */
+    public Mono<Response> isAllowed(Config config, String routeId, String id) {
+        return Mono.defer(() -> {
+            var lease = leases.get(new LeaseKey(routeId, id, config), k -> new Lease());
+            long now = clock.millis();
+            long window = now / getWindowMillis(config);
+
+            Mono<Boolean> pending;
+            synchronized (lease) {
+                if (lease.window != window) {
+                    lease.window = window;
+                    lease.remaining = 0;
+                    lease.exhausted = false;
+                    lease.nextSlot = 0;
+                    lease.pending = null;
+                }
+                if (lease.remaining > 0) {
+                    lease.remaining--;
+                    return Mono.just(new Response(true, InMemoryRateLimiter.getHeaders(lease.remaining)));
+                }
+                if (lease.exhausted) {
+                    return Mono.just(new Response(false, InMemoryRateLimiter.getHeaders(0)));
+                }
+                if (lease.retryAfter > now) {
+                    return localRateLimiter.isAllowed(config, routeId, id);
+                }
+                if (lease.pending == null) {
+                    lease.pending = acquire(lease, window, lease.nextSlot, config, routeId, id).cache();
+                }
+                pending = lease.pending;
+            }
+
+            return pending.flatMap(acquired -> Boolean.TRUE.equals(acquired) ?
+                isAllowed(config, routeId, id) : localRateLimiter.isAllowed(config, routeId, id)
+            );
+        });
+    }
+
+    private Mono<Boolean> acquire(Lease lease, long window, int slot, Config config, String routeId, String id) {
+        return acquireSlot(lease, window, slot, config, routeId, id)
+            .onErrorResume(e -> {
+                log.debug("Cannot lease rate limiter tokens for route {}, local limit is used: {}", routeId, e.getMessage());
+                synchronized (lease) {
+                    if (lease.window == window) {
+                        lease.pending = null;
+                    }
+                    lease.retryAfter = clock.millis() + RETRY_DELAY.toMillis();
+                }
+                return Mono.just(false);
+            });
+    }
+
+    /**
+     * Create the record of the lease with the sequence number, the next one is tried if it exists already.
+     */
+    private Mono<Boolean> acquireSlot(Lease lease, long window, int slot, Config config, String routeId, String id) {
+        long granted = Math.min(leaseSize, getLimit(config) - (long) slot * leaseSize);
+        if (granted <= 0) {
+            update(lease, window, slot, 0);
+            return Mono.just(true);
+        }
+
+        var keyValue = new ApiKeyValue(getKey(routeId, id, window, slot), String.valueOf(granted));
+        keyValue.setTtl(2 * getWindowMillis(config) / 1000);
+        return Mono.defer(() -> cachingServiceClient.create(keyValue))
+            .then(Mono.fromCallable(() -> {
+                update(lease, window, slot + 1, granted);
+                return true;
+            }))
+            .onErrorResume(ClusterRateLimiter::isConflict, e -> acquireSlot(lease, window, slot + 1, config, routeId, id));
+    }
+
+    private void update(Lease lease, long window, int nextSlot, long granted) {
+        synchronized (lease) {
+            if (lease.window == window) {
+                lease.pending = null;
+                lease.nextSlot = nextSlot;
+                lease.remaining += (int) granted;
+                lease.exhausted = granted == 0;
+            }
+        }
+    }
+
+    /**
+     * The lease was taken by another Gateway. The modulith storage signals it by an exception, the REST client by
+     * the status.
+     */
+    private static boolean isConflict(Throwable t) {
+        if (t instanceof StorageException storageException) {
+            return storageException.getStatus() == HttpStatus.CONFLICT;
+        }
+        if (t instanceof CachingServiceClientException clientException) {
+            return clientException.getStatusCode() == HttpStatus.CONFLICT.value();
+        }
+        return false;
+    }
+
+    /**
+     * @return tokens of a window, the local bucket cannot hold more than its capacity either
+     */
+    static long getLimit(Config config) {
+        return Math.min(config.getCapacity(), config.getTokens());
+    }
+
+    private long getWindowMillis(Config config) {
+        return Duration.ofMinutes(Math.max(1, config.getRefillDuration())).toMillis();
+    }
+
+    static String getKey(String routeId, String id, long window, int slot) {
+        return RATE_LIMITER_KEY_PREFIX + AuthSchemeRequestKey.digest(id) + "." + window + "." + slot + ":" + routeId.toLowerCase();
+    }
+
+    @Data
+    private static class LeaseKey {
+        private final String routeId;
+        private final String id;
+        private final Config config;
+    }
+
+    private static class Lease {
+        private long window = -1;
+        private int remaining;
+        private boolean exhausted;
+        private int nextSlot;
+        private long retryAfter;
+        private Mono<Boolean> pending;
+    }
+
+}
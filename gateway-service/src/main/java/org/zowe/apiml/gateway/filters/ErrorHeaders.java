@@ -31,6 +31,10 @@ public class ErrorHeaders implements ClientResponse.Headers {
          httpHeaders.add(ApimlConstants.AUTH_FAIL_HEADER, message);
     }
 
+    public ErrorHeaders(HttpHeaders headers) {
+        httpHeaders.addAll(headers);
+    }
+
     @Override
     public OptionalLong contentLength() {
         return toOptionalLong(this.httpHeaders.getContentLength());
@@ -10,10 +10,16 @@
 
 package org.zowe.apiml.gateway.filters;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.github.bucket4j.Bandwidth;
 import io.github.bucket4j.Bucket;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
+import lombok.ToString;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
 import org.springframework.stereotype.Component;
@@ -23,10 +29,15 @@ import java.time.Duration;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Rate limiter with a bucket for each route and key (see {@link KeyResolver}). The buckets are stored in a bounded
+ * cache, a bucket is removed once it is not used for the time it needs to be refilled (a new bucket would be full as
+ * well).
+ */
 @Component
 public class InMemoryRateLimiter implements RateLimiter<InMemoryRateLimiter.Config> {
 
-    private final Map<String, Bucket> cache = new ConcurrentHashMap<>();
+    private final Cache<BucketKey, Bucket> cache;
 
     @Value("${apiml.gateway.rateLimiterCapacity:20}")
     int capacity;
@@ -37,42 +48,58 @@ public class InMemoryRateLimiter implements RateLimiter<InMemoryRateLimiter.Conf
     @Value("${apiml.gateway.rateLimiterRefillDuration:1}")
     int refillDuration;
 
+    public InMemoryRateLimiter(
+        @Value("${apiml.gateway.rateLimiterMaxBuckets:100000}") long maxBuckets
+    ) {
+        cache = Caffeine.newBuilder()
+            .maximumSize(maxBuckets)
+            .expireAfter(new BucketExpiry())
+            .build();
+    }
+
     @Override
     public Mono<Response> isAllowed(String routeId, String id) {
-        Bucket bucket = cache.computeIfAbsent(id, this::newBucket);
+        return isAllowed(newConfig(), routeId, id);
+    }
+
+    /**
+     * Consume a token from the bucket of the route and key.
+     *
+     * @param config  limits of the route
+     * @param routeId identification of the route (service)
+     * @param id      key of the bucket
+     * @return response with the result
+     */
+    public Mono<Response> isAllowed(Config config, String routeId, String id) {
+        Bucket bucket = cache.get(new BucketKey(routeId, id, config), this::newBucket);
         if (bucket.tryConsume(1)) {
-            return Mono.just(new Response(true, getHeaders(bucket)));
+            return Mono.just(new Response(true, getHeaders(bucket.getAvailableTokens())));
         } else {
-            return Mono.just(new Response(false, getHeaders(bucket)));
+            return Mono.just(new Response(false, getHeaders(bucket.getAvailableTokens())));
         }
     }
 
-    private Bucket newBucket(String id) {
-        Bandwidth limit = Bandwidth.builder().capacity(capacity).refillIntervally(tokens, Duration.ofMinutes(refillDuration)).build();
+    private Bucket newBucket(BucketKey key) {
+        var config = key.getConfig();
+        Bandwidth limit = Bandwidth.builder().capacity(config.getCapacity()).refillIntervally(config.getTokens(), Duration.ofMinutes(config.getRefillDuration())).build();
         return Bucket.builder().addLimit(limit).build();
     }
 
-    private Map<String, String> getHeaders(Bucket bucket) {
+    static Map<String, String> getHeaders(long remaining) {
         Map<String, String> headers = new ConcurrentHashMap<>();
-        headers.put("X-RateLimit-Remaining", String.valueOf(bucket.getAvailableTokens()));
+        headers.put("X-RateLimit-Remaining", String.valueOf(remaining));
         return headers;
     }
 
-    public void setParameters(int capacity, int tokens, int refillDuration) {
-        this.capacity = (capacity != 0) ? capacity : this.capacity;
-        this.tokens = (tokens != 0) ? tokens : this.tokens;
-        this.refillDuration = (refillDuration != 0) ? refillDuration : this.refillDuration;;
+    long getBucketCount() {
+        cache.cleanUp();
+        return cache.estimatedSize();
     }
 
     @Override
     public Map<String, Config> getConfig() {
-        Config defaultConfig = new Config();
-        defaultConfig.setCapacity(capacity);
-        defaultConfig.setTokens(tokens);
-        defaultConfig.setRefillDuration(refillDuration);
-
         Map<String, Config> configMap = new ConcurrentHashMap<>();
-        configMap.put("default", defaultConfig);
+        configMap.put("default", newConfig());
         return configMap;
     }
 
@@ -83,18 +110,62 @@ public class InMemoryRateLimiter implements RateLimiter<InMemoryRateLimiter.Conf
 
     @Override
     public Config newConfig() {
+        return newConfig(0, 0, 0);
+    }
+
+    /**
+     * Create configuration of a route, the missing values (zero) are replaced with the default ones.
+     */
+    public Config newConfig(int capacity, int tokens, int refillDuration) {
         Config config = new Config();
-        config.setCapacity(capacity);
-        config.setTokens(tokens);
-        config.setRefillDuration(refillDuration);
+        config.setCapacity((capacity > 0) ? capacity : this.capacity);
+        config.setTokens((tokens > 0) ? tokens : this.tokens);
+        config.setRefillDuration((refillDuration > 0) ? refillDuration : this.refillDuration);
         return config;
     }
 
     @Setter
     @Getter
+    @EqualsAndHashCode
+    @ToString
     public static class Config {
         private int capacity;
         private int tokens;
         private int refillDuration;
+
+        /**
+         * @return time after that an unused bucket is full again
+         */
+        Duration getRefillTime() {
+            long refills = (capacity + Math.max(1, tokens) - 1) / Math.max(1, tokens);
+            return Duration.ofMinutes(Math.max(1, refills) * Math.max(1, refillDuration));
+        }
+    }
+
+    @Data
+    private static class BucketKey {
+        private final String routeId;
+        private final String id;
+        private final Config config;
     }
+
+    private static class BucketExpiry implements Expiry<BucketKey, Bucket> {
+
+        @Override
+        public long expireAfterCreate(BucketKey key, Bucket value, long currentTime) {
+            return key.getConfig().getRefillTime().toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(BucketKey key, Bucket value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(BucketKey key, Bucket value, long currentTime, long currentDuration) {
+            return key.getConfig().getRefillTime().toNanos();
+        }
+
+    }
+
 }
@@ -16,6 +16,7 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.PathContainer;
 import org.springframework.stereotype.Component;
@@ -33,7 +34,9 @@ public class InMemoryRateLimiterFilterFactory extends AbstractGatewayFilterFacto
     @InjectApimlLogger
     private ApimlLogger apimlLog = ApimlLogger.empty();
 
-    private InMemoryRateLimiter rateLimiter;
+    private final InMemoryRateLimiter rateLimiter;
+
+    private final ClusterRateLimiter clusterRateLimiter;
 
     private final KeyResolver keyResolver;
 
@@ -41,9 +44,10 @@ public class InMemoryRateLimiterFilterFactory extends AbstractGatewayFilterFacto
 
     private final MessageService messageService;
 
-    public InMemoryRateLimiterFilterFactory(InMemoryRateLimiter rateLimiter, KeyResolver keyResolver, ObjectMapper mapper, MessageService messageService) {
+    public InMemoryRateLimiterFilterFactory(InMemoryRateLimiter rateLimiter, ClusterRateLimiter clusterRateLimiter, KeyResolver keyResolver, ObjectMapper mapper, MessageService messageService) {
         super(Config.class);
         this.rateLimiter = rateLimiter;
+        this.clusterRateLimiter = clusterRateLimiter;
         this.keyResolver = keyResolver;
         this.mapper = mapper;
         this.messageService = messageService;
@@ -51,18 +55,20 @@ public class InMemoryRateLimiterFilterFactory extends AbstractGatewayFilterFacto
 
     @Override
     public GatewayFilter apply(Config config) {
-        this.rateLimiter.setParameters(config.capacity, config.tokens, config.refillDuration);
+        // the configuration belongs just to this route, the rate limiter is shared by all of them
+        InMemoryRateLimiter.Config routeConfig = rateLimiter.newConfig(config.getCapacity(), config.getTokens(), config.getRefillDuration());
+        KeyResolver.KeyType keyType = KeyResolver.KeyType.of(config.getKeyType());
         return (exchange, chain) -> {
             List<PathContainer.Element> pathElements = exchange.getRequest().getPath().elements();
             String requestPath = (!pathElements.isEmpty() && pathElements.size() > 1) ? pathElements.get(1).value() : null;
             if (requestPath == null) {
                 return chain.filter(exchange);
             }
-            return keyResolver.resolve(exchange).flatMap(key -> {
+            return keyResolver.resolve(exchange, keyType).flatMap(key -> {
                 if (key.isEmpty()) {
                     return chain.filter(exchange);
                 }
-                return rateLimiter.isAllowed(requestPath, key).flatMap(response -> {
+                return isAllowed(routeConfig, requestPath, key).flatMap(response -> {
                     if (response.isAllowed()) {
                         return chain.filter(exchange);
                     } else {
@@ -81,11 +87,25 @@ public class InMemoryRateLimiterFilterFactory extends AbstractGatewayFilterFacto
         };
     }
 
+    private Mono<RateLimiter.Response> isAllowed(InMemoryRateLimiter.Config routeConfig, String routeId, String key) {
+        if (clusterRateLimiter.isEnabled()) {
+            return clusterRateLimiter.isAllowed(routeConfig, routeId, key);
+        }
+        return rateLimiter.isAllowed(routeConfig, routeId, key);
+    }
+
+    /**
+     * Limits of the route from the metadata of the service (apiml.gateway.rateLimiterCapacity, rateLimiterTokens,
+     * rateLimiterRefillDuration and rateLimiterKey). A local bucket allows the capacity at once and then the tokens
+     * per refill duration. In the cluster mode, the smaller of the capacity and the tokens is allowed per refill
+     * duration, without the initial burst (see {@link ClusterRateLimiter}).
+     */
     @Getter
     @Setter
     public static class Config {
         private int capacity;
         private int tokens;
         private int refillDuration;
+        private String keyType;
     }
 }
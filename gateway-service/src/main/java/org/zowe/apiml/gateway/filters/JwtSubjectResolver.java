@@ -0,0 +1,185 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.filters;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Clock;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.impl.DefaultClock;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpCookie;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.server.ServerWebExchange;
+import org.zowe.apiml.constants.ApimlConstants;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.zowe.apiml.security.SecurityUtils.COOKIE_AUTH_NAME;
+
+/**
+ * Provides the subject of the JWT sent with the request (cookie apimlAuthenticationToken or bearer authorization). The
+ * token is not verified, the subject is just a hint to route the requests of the same user to the same instance (sticky
+ * load balancing). It must not be used for any decision which could be abused with a forged token (i.e. rate limiting,
+ * see {@link KeyResolver}).
+ * <p>
+ * The subject is resolved once per request and stored as an attribute of the exchange. Recently parsed tokens are
+ * kept in a small LRU cache, the same token is usually sent with many requests. The cache is keyed by digests of the
+ * tokens, the tokens themselves are not kept.
+ */
+@Slf4j
+@Component
+public class JwtSubjectResolver {
+
+    public static final String SUBJECT_ATTRIBUTE = "apiml.jwtSubject";
+
+    private static final String HEADER_NONE_SIGNATURE = Base64.getEncoder().encodeToString("{\"typ\":\"JWT\",\"alg\":\"none\"}".getBytes(StandardCharsets.UTF_8));
+    private static final ParsedToken INVALID_TOKEN = new ParsedToken("", null);
+
+    private final Clock clock;
+    private final Cache<String, ParsedToken> parsedTokens;
+
+    @Autowired
+    public JwtSubjectResolver(
+        @Value("${apiml.gateway.jwtSubjectCache.maxSize:1000}") long maxSize
+    ) {
+        this(new DefaultClock(), maxSize);
+    }
+
+    public JwtSubjectResolver(Clock clock, long maxSize) {
+        this.clock = clock;
+        this.parsedTokens = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterAccess(Duration.ofMinutes(10))
+            .build();
+    }
+
+    /**
+     * @param exchange current exchange
+     * @return the raw token sent with the request (cookie or bearer authorization), null if there is no token
+     */
+    public String getToken(ServerWebExchange exchange) {
+        var request = exchange.getRequest();
+        return Optional.ofNullable(request.getCookies().getFirst(COOKIE_AUTH_NAME))
+            .map(HttpCookie::getValue)
+            .orElseGet(() -> getTokenFromHeader(request.getHeaders()));
+    }
+
+    /**
+     * Subject for the load balancing only, the token is not verified. The attributes are shared with the exchange if
+     * it is available.
+     *
+     * @param attributes attributes of the request, could be null
+     * @param headers    headers of the request
+     * @param cookies    cookies of the request
+     * @return subject of the JWT sent with the request, empty string if there is no valid token
+     */
+    public String getSubject(Map<String, Object> attributes, HttpHeaders headers, MultiValueMap<String, String> cookies) {
+        if ((attributes != null) && (attributes.get(SUBJECT_ATTRIBUTE) instanceof String subject)) {
+            return subject;
+        }
+
+        var token = Optional.ofNullable(getTokenFromCookie(cookies))
+            .orElseGet(() -> getTokenFromHeader(headers));
+        var subject = getSubject(token);
+        if (attributes != null) {
+            attributes.put(SUBJECT_ATTRIBUTE, subject);
+        }
+        return subject;
+    }
+
+    /**
+     * @param token JWT
+     * @return subject of the token (for the load balancing only), empty string if the token is not a valid JWT or it
+     * is expired
+     */
+    String getSubject(String token) {
+        if (StringUtils.isEmpty(token)) {
+            return "";
+        }
+
+        var parsedToken = parsedTokens.get(AuthSchemeRequestKey.digest(token), digest -> parse(token));
+        if ((parsedToken.getExpiration() != null) && !clock.now().before(parsedToken.getExpiration())) {
+            return "";
+        }
+        return parsedToken.getSubject();
+    }
+
+    private String getTokenFromCookie(MultiValueMap<String, String> cookies) {
+        List<String> tokens = cookies == null ? null : cookies.get(COOKIE_AUTH_NAME);
+        return tokens == null || tokens.isEmpty() ? null : tokens.get(0);
+    }
+
+    private String getTokenFromHeader(HttpHeaders headers) {
+        var authHeaderValues = headers == null ? null : headers.get(HttpHeaders.AUTHORIZATION);
+        var token = authHeaderValues == null || authHeaderValues.isEmpty() ? null : authHeaderValues.get(0);
+        if (token != null && token.startsWith(ApimlConstants.BEARER_AUTHENTICATION_PREFIX)) {
+            token = token.replaceFirst(ApimlConstants.BEARER_AUTHENTICATION_PREFIX, "").trim();
+            if (token.isEmpty()) {
+                return null;
+            }
+
+            return token;
+        }
+        return null;
+    }
+
+    private String removeJwtSign(String jwtToken) {
+        int firstDot = jwtToken.indexOf('.');
+        int lastDot = jwtToken.lastIndexOf('.');
+        if ((firstDot < 0) || (firstDot >= lastDot)) throw new MalformedJwtException("Invalid JWT format");
+
+        return HEADER_NONE_SIGNATURE + jwtToken.substring(firstDot, lastDot + 1);
+    }
+
+    private ParsedToken parse(String jwt) {
+        /*
+         * Removes signature, because we don't have key to verify z/OS tokens, and we just need to read claim.
+         * Verification is done by SAF itself. JWT library doesn't parse signed key without verification.
+         */
+        try {
+            String withoutSign = removeJwtSign(jwt);
+            Claims claims = Jwts.parser()
+                .unsecured()
+                .clock(clock)
+                .build()
+                .parseUnsecuredClaims(withoutSign)
+                .getPayload();
+            return new ParsedToken(StringUtils.defaultString(claims.getSubject()), claims.getExpiration());
+        } catch (RuntimeException exception) {
+            log.debug("Exception when trying to parse the JWT token: {}", exception.getMessage());
+            return INVALID_TOKEN;
+        }
+    }
+
+    @Data
+    static class ParsedToken {
+
+        private final String subject;
+        private final Date expiration;
+
+    }
+
+}
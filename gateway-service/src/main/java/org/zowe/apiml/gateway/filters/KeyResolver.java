@@ -10,26 +10,144 @@
 
 package org.zowe.apiml.gateway.filters;
 
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpCookie;
+import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.zowe.apiml.security.common.util.X509Util;
 import reactor.core.publisher.Mono;
 
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.security.Principal;
+import java.security.cert.CertificateEncodingException;
 import java.util.Collections;
+import java.util.Optional;
 
+import static org.zowe.apiml.security.SecurityUtils.COOKIE_AUTH_NAME;
+
+/**
+ * Resolves the key of the rate limiter. The type of key could be selected per route (see {@link KeyType}), the default
+ * one is set by apiml.gateway.rateLimiterKey.
+ * <p>
+ * The user is taken only from a verified authentication (the principal of the exchange), all tokens of the same user
+ * then share the limit. The subject of an unverified token could be forged to exhaust the limit of another user, such
+ * requests are limited by the SHA-256 digest of the token instead. Values of cookies are always replaced by digests,
+ * the credentials are not kept as keys of the limiter.
+ */
+@Slf4j
 @Component
+@RequiredArgsConstructor
 public class KeyResolver implements org.springframework.cloud.gateway.filter.ratelimit.KeyResolver {
 
+    private final JwtSubjectResolver jwtSubjectResolver;
+
     @Value("${apiml.gateway.cookieNameForRateLimit:apimlAuthenticationToken}")
     private String cookieName;
 
+    @Value("${apiml.gateway.rateLimiterKey:cookie}")
+    private String defaultKeyType;
+
     @Override
-    public Mono<String> resolve(org.springframework.web.server.ServerWebExchange exchange) {
-        return Mono.just(exchange.getRequest().getCookies().getOrDefault(cookieName, Collections.emptyList())
+    public Mono<String> resolve(ServerWebExchange exchange) {
+        return resolve(exchange, null);
+    }
+
+    /**
+     * @param exchange current exchange
+     * @param keyType  type of the key, null means the default one
+     * @return key of the rate limiter, empty string if the request cannot be identified (it is not limited)
+     */
+    public Mono<String> resolve(ServerWebExchange exchange, KeyType keyType) {
+        if (keyType == null) {
+            keyType = Optional.ofNullable(KeyType.of(defaultKeyType)).orElse(KeyType.COOKIE);
+        }
+        return switch (keyType) {
+            case USER -> getUser(exchange, jwtSubjectResolver.getToken(exchange));
+            case CLIENT_CERT -> Mono.just(getClientCertificate(exchange));
+            case IP -> Mono.just(getIpAddress(exchange));
+            default -> getCookie(exchange);
+        };
+    }
+
+    private Mono<String> getCookie(ServerWebExchange exchange) {
+        var value = exchange.getRequest().getCookies().getOrDefault(cookieName, Collections.emptyList())
             .stream()
             .findFirst()
             .map(HttpCookie::getValue)
-            .orElse("")
-        );
+            .orElse("");
+
+        if (value.isEmpty()) {
+            return Mono.just("");
+        }
+        if (COOKIE_AUTH_NAME.equals(cookieName)) {
+            return getUser(exchange, value);
+        }
+        return Mono.just(AuthSchemeRequestKey.digestCredential(value));
+    }
+
+    private Mono<String> getUser(ServerWebExchange exchange, String token) {
+        return exchange.getPrincipal()
+            .filter(principal -> !(principal instanceof Authentication authentication) || authentication.isAuthenticated())
+            .map(Principal::getName)
+            .filter(StringUtils::isNotEmpty)
+            .defaultIfEmpty(StringUtils.isEmpty(token) ? "" : AuthSchemeRequestKey.digestCredential(token));
     }
+
+    private String getClientCertificate(ServerWebExchange exchange) {
+        try {
+            var certificate = X509Util.getEncodedClientCertificate(exchange.getRequest().getSslInfo());
+            return certificate == null ? "" : AuthSchemeRequestKey.digest(certificate);
+        } catch (CertificateEncodingException e) {
+            log.debug("Cannot encode client certificate: {}", e.getMessage());
+            return "";
+        }
+    }
+
+    private String getIpAddress(ServerWebExchange exchange) {
+        return Optional.ofNullable(exchange.getRequest().getRemoteAddress())
+            .map(InetSocketAddress::getAddress)
+            .map(InetAddress::getHostAddress)
+            .orElse("");
+    }
+
+    public enum KeyType {
+
+        /**
+         * digest of cookie apiml.gateway.cookieNameForRateLimit (verified user if it is the authentication token)
+         */
+        COOKIE,
+        /**
+         * verified user, digest of the JWT (cookie or bearer) if the user is not verified
+         */
+        USER,
+        /**
+         * fingerprint of the client certificate
+         */
+        CLIENT_CERT,
+        /**
+         * IP address of the client
+         */
+        IP;
+
+        public static KeyType of(String value) {
+            if (StringUtils.isBlank(value)) {
+                return null;
+            }
+            var normalized = value.trim().replace('-', '_');
+            for (KeyType keyType : values()) {
+                if (keyType.name().equalsIgnoreCase(normalized) || keyType.name().replace("_", "").equalsIgnoreCase(normalized)) {
+                    return keyType;
+                }
+            }
+            log.debug("Unknown type of rate limiter key: {}, the cookie is used", value);
+            return COOKIE;
+        }
+
+    }
+
 }
@@ -0,0 +1,217 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.filters;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
+import org.springframework.cloud.gateway.event.RefreshRoutesEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.zowe.apiml.product.constants.CoreService;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Snapshot of ZAAS instances used by the Gateway to transform credentials. The list is not resolved per request, it is
+ * updated on each refresh of the registry (see {@link RefreshRoutesEvent} published on a change in Eureka).
+ * <p>
+ * Each instance remembers the result of the recent calls (health score and EWMA of the latency). An instance which
+ * failed is ejected for a while (the time grows with the repeated failures up to the maximum). The ejected instances
+ * are offered after all the others, so they are still used if no other instance is available.
+ */
+@Slf4j
+@Component
+@ConditionalOnMissingBean(name = "modulithConfig")
+public class ZaasInstanceRegistry {
+
+    private static final double EWMA_ALPHA = 0.3;
+
+    private final ReactiveDiscoveryClient discoveryClient;
+    private final Clock clock;
+
+    private final RobinRoundIterator<ZaasInstance> robinRound = new RobinRoundIterator<>();
+    private final AtomicReference<List<ZaasInstance>> snapshot = new AtomicReference<>();
+    // statistics are kept by instanceId to survive the refresh of the snapshot
+    private final Map<String, ZaasInstance> instances = new ConcurrentHashMap<>();
+
+    private final int consecutiveFailures;
+    private final long baseEjectionTimeMillis;
+    private final long maxEjectionTimeMillis;
+
+    public ZaasInstanceRegistry(
+        ReactiveDiscoveryClient discoveryClient,
+        @Value("${apiml.gateway.zaas.outlierDetection.consecutiveFailures:1}") int consecutiveFailures,
+        @Value("${apiml.gateway.zaas.outlierDetection.baseEjectionTime:10}") int baseEjectionTime,
+        @Value("${apiml.gateway.zaas.outlierDetection.maxEjectionTime:120}") int maxEjectionTime
+    ) {
+        this(discoveryClient, Clock.systemUTC(), consecutiveFailures, baseEjectionTime, maxEjectionTime);
+    }
+
+    ZaasInstanceRegistry(ReactiveDiscoveryClient discoveryClient, Clock clock, int consecutiveFailures, int baseEjectionTime, int maxEjectionTime) {
+        this.discoveryClient = discoveryClient;
+        this.clock = clock;
+        this.consecutiveFailures = Math.max(1, consecutiveFailures);
+        this.baseEjectionTimeMillis = Duration.ofSeconds(baseEjectionTime).toMillis();
+        this.maxEjectionTimeMillis = Duration.ofSeconds(maxEjectionTime).toMillis();
+    }
+
+    @EventListener(RefreshRoutesEvent.class)
+    public Mono<Void> onRefreshRoutesEvent(RefreshRoutesEvent event) {
+        return refresh().then();
+    }
+
+    Mono<List<ZaasInstance>> refresh() {
+        return discoveryClient.getInstances(CoreService.ZAAS.getServiceId())
+            .collectList()
+            .map(this::update)
+            .doOnError(e -> log.debug("Cannot refresh the list of ZAAS instances: {}", e.getMessage()));
+    }
+
+    private List<ZaasInstance> update(List<ServiceInstance> serviceInstances) {
+        var updated = serviceInstances.stream()
+            .map(serviceInstance -> instances.compute(serviceInstance.getInstanceId(), (instanceId, previous) -> {
+                if (previous == null) {
+                    return new ZaasInstance(serviceInstance);
+                }
+                return previous.withServiceInstance(serviceInstance);
+            }))
+            .toList();
+
+        var instanceIds = serviceInstances.stream().map(ServiceInstance::getInstanceId).toList();
+        instances.keySet().retainAll(instanceIds);
+
+        snapshot.set(updated);
+        log.debug("List of ZAAS instances updated: {}", instanceIds);
+        return updated;
+    }
+
+    /**
+     * Provide the order of ZAAS instances to call. The available instances are rotated (round-robin), the ejected ones
+     * are at the end ordered by the health score.
+     *
+     * @return iterator of ZAAS instances to call in that order
+     */
+    public Mono<Iterator<ZaasInstance>> getInstances() {
+        var current = snapshot.get();
+        var instancesMono = current == null ? refresh() : Mono.just(current);
+        return instancesMono.map(this::order);
+    }
+
+    Iterator<ZaasInstance> order(List<ZaasInstance> all) {
+        long now = clock.millis();
+        var available = all.stream().filter(instance -> !instance.isEjected(now)).toList();
+        if (available.size() == all.size()) {
+            return robinRound.getIterator(all);
+        }
+
+        var ordered = new ArrayList<ZaasInstance>(all.size());
+        robinRound.getIterator(available).forEachRemaining(ordered::add);
+        all.stream()
+            .filter(instance -> instance.isEjected(now))
+            .sorted(Comparator.comparingDouble(ZaasInstance::getHealthScore).reversed())
+            .forEach(ordered::add);
+        return ordered.iterator();
+    }
+
+    public class ZaasInstance {
+
+        @Getter
+        private final ServiceInstance serviceInstance;
+
+        // statistics of the instance, it is shared with instances created by withServiceInstance
+        private final Statistics statistics;
+
+        private ZaasInstance(ServiceInstance serviceInstance) {
+            this(serviceInstance, new Statistics());
+        }
+
+        private ZaasInstance(ServiceInstance serviceInstance, Statistics statistics) {
+            this.serviceInstance = serviceInstance;
+            this.statistics = statistics;
+        }
+
+        private ZaasInstance withServiceInstance(ServiceInstance serviceInstance) {
+            return new ZaasInstance(serviceInstance, statistics);
+        }
+
+        public void onSuccess(long latencyNanos) {
+            synchronized (statistics) {
+                statistics.consecutiveFailures = 0;
+                statistics.ejectionCount = 0;
+                statistics.ejectedUntil = 0;
+                statistics.healthScore = ewma(statistics.healthScore, 1.0);
+                statistics.latencyEwmaNanos = statistics.latencyEwmaNanos < 0 ? latencyNanos : ewma(statistics.latencyEwmaNanos, latencyNanos);
+            }
+        }
+
+        public void onFailure() {
+            synchronized (statistics) {
+                statistics.consecutiveFailures++;
+                statistics.healthScore = ewma(statistics.healthScore, 0.0);
+                if (statistics.consecutiveFailures >= consecutiveFailures) {
+                    long ejectionTime = Math.min(maxEjectionTimeMillis, baseEjectionTimeMillis << Math.min(statistics.ejectionCount, 16));
+                    statistics.ejectionCount++;
+                    statistics.ejectedUntil = clock.millis() + ejectionTime;
+                    log.debug("ZAAS instance {} is ejected for {} ms", serviceInstance.getInstanceId(), ejectionTime);
+                }
+            }
+        }
+
+        public boolean isEjected(long now) {
+            synchronized (statistics) {
+                return statistics.ejectedUntil > now;
+            }
+        }
+
+        /**
+         * @return EWMA of successful calls, 1.0 means all recent calls succeeded, 0.0 means all failed
+         */
+        public double getHealthScore() {
+            synchronized (statistics) {
+                return statistics.healthScore;
+            }
+        }
+
+        /**
+         * @return EWMA of the latency of successful calls in nanoseconds, negative if there was no successful call yet
+         */
+        public double getLatencyEwmaNanos() {
+            synchronized (statistics) {
+                return statistics.latencyEwmaNanos;
+            }
+        }
+
+        private double ewma(double previous, double sample) {
+            return EWMA_ALPHA * sample + (1 - EWMA_ALPHA) * previous;
+        }
+
+    }
+
+    private static class Statistics {
+
+        private int consecutiveFailures;
+        private int ejectionCount;
+        private long ejectedUntil;
+        private double healthScore = 1.0;
+        private double latencyEwmaNanos = -1;
+
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.filters;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.zowe.apiml.auth.AuthenticationScheme;
+import org.zowe.apiml.gateway.filters.AbstractAuthSchemeFactory.AuthorizationResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight deduplication of calls to ZAAS. When concurrent requests with the same credentials come to the same
+ * service (i.e. a UI firing multiple requests after the login), just the first one calls ZAAS and the others share its
+ * result. The record is removed as soon as the call is finished, the response is not stored for any later request
+ * (see {@link AuthSchemeResponseCache}).
+ * <p>
+ * PassTickets are not shared, a target service with replay protection could reject the same ticket used twice.
+ * <p>
+ * Metrics:
+ * - apiml.gateway.zaas.requests (tag coalesced=false) - number of calls made to ZAAS
+ * - apiml.gateway.zaas.requests (tag coalesced=true) - number of requests served by a call made for another request
+ * - apiml.gateway.zaas.requests.inflight - number of calls to ZAAS being processed
+ */
+@Slf4j
+@Component
+public class ZaasRequestCoalescer {
+
+    static final String METRIC_REQUESTS = "apiml.gateway.zaas.requests";
+    static final String METRIC_IN_FLIGHT = "apiml.gateway.zaas.requests.inflight";
+
+    private final Map<AuthSchemeRequestKey, Mono<?>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    private final boolean enabled;
+
+    public ZaasRequestCoalescer(
+        @Value("${apiml.gateway.zaasCoalescing.enabled:true}") boolean enabled,
+        MeterRegistry meterRegistry
+    ) {
+        this.enabled = enabled;
+
+        FunctionCounter.builder(METRIC_REQUESTS, calls, LongAdder::doubleValue)
+            .description("Requests to ZAAS transforming credentials")
+            .tag("coalesced", "false")
+            .register(meterRegistry);
+        FunctionCounter.builder(METRIC_REQUESTS, coalesced, LongAdder::doubleValue)
+            .description("Requests to ZAAS transforming credentials")
+            .tag("coalesced", "true")
+            .register(meterRegistry);
+        Gauge.builder(METRIC_IN_FLIGHT, inFlight, Map::size)
+            .description("Requests to ZAAS being processed")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Call the loader or join a call for the same key that is already in progress.
+     *
+     * @param key    identification of the request to ZAAS
+     * @param loader supplier of the call to ZAAS
+     * @return response of ZAAS
+     */
+    public <R> Mono<AuthorizationResponse<R>> coalesce(AuthSchemeRequestKey key, Supplier<Mono<AuthorizationResponse<R>>> loader) {
+        if (!isEnabled(key.getScheme())) {
+            return call(loader);
+        }
+
+        return Mono.defer(() -> {
+            var created = new boolean[] {false};
+            var shared = inFlight.computeIfAbsent(key, k -> {
+                created[0] = true;
+                return createShared(k, loader);
+            });
+
+            if (created[0]) {
+                calls.increment();
+            } else {
+                log.trace("Request to ZAAS for {} is already in progress, waiting for its response", key);
+                coalesced.increment();
+            }
+            return cast(shared);
+        });
+    }
+
+    /**
+     * Call the loader without joining other calls, the call is counted in the metrics.
+     *
+     * @param loader supplier of the call to ZAAS
+     * @return response of ZAAS
+     */
+    public <R> Mono<AuthorizationResponse<R>> call(Supplier<Mono<AuthorizationResponse<R>>> loader) {
+        return Mono.defer(loader).doOnSubscribe(s -> calls.increment());
+    }
+
+    /**
+     * @param scheme authentication scheme of the request
+     * @return true if the same requests to ZAAS for the scheme are joined
+     */
+    public boolean isEnabled(AuthenticationScheme scheme) {
+        return enabled && (scheme != AuthenticationScheme.HTTP_BASIC_PASSTICKET);
+    }
+
+    private <R> Mono<AuthorizationResponse<R>> createShared(AuthSchemeRequestKey key, Supplier<Mono<AuthorizationResponse<R>>> loader) {
+        var holder = new Mono<?>[1];
+        // cache() keeps the call alive even if the first subscriber is cancelled, the others still wait for the result
+        Mono<AuthorizationResponse<R>> shared = Mono.defer(loader)
+            .doFinally(signal -> inFlight.remove(key, holder[0]))
+            .cache();
+        holder[0] = shared;
+        return shared;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R> Mono<AuthorizationResponse<R>> cast(Mono<?> mono) {
+        return (Mono<AuthorizationResponse<R>>) mono;
+    }
+
+    long getCalls() {
+        return calls.sum();
+    }
+
+    long getCoalesced() {
+        return coalesced.sum();
+    }
+
+}
@@ -19,12 +19,11 @@ import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.cloud.client.ServiceInstance;
-import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
-import org.zowe.apiml.product.constants.CoreService;
+import org.zowe.apiml.auth.AuthenticationScheme;
 import org.zowe.apiml.security.common.error.ServiceNotAccessibleException;
 import org.zowe.apiml.ticket.TicketRequest;
 import org.zowe.apiml.ticket.TicketResponse;
@@ -34,6 +33,7 @@ import reactor.core.publisher.Mono;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 
@@ -51,51 +51,72 @@ public class ZaasSchemeTransformRest implements ZaasSchemeTransform {
 
     private static final ObjectWriter WRITER = new ObjectMapper().writer();
 
-    private final RobinRoundIterator<ServiceInstance> robinRound = new RobinRoundIterator<>();
-
-    private final ReactiveDiscoveryClient discoveryClient;
+    private final ZaasInstanceRegistry zaasInstanceRegistry;
     @Qualifier("webClientClientCert")
     private final WebClient webClient;
+    private final AuthSchemeResponseCache responseCache;
+    private final ZaasRequestCoalescer requestCoalescer;
 
     private <R> Mono<AbstractAuthSchemeFactory.AuthorizationResponse<R>> requestWithHa(
         Class<R> responseClass,
-        Iterator<ServiceInstance> serviceInstanceIterator,
+        Iterator<ZaasInstanceRegistry.ZaasInstance> zaasInstanceIterator,
         Function<ServiceInstance, WebClient.RequestHeadersSpec<?>> requestCreator,
         AtomicReference<Optional<Exception>> mostCriticalException // to be accessible and updatable in all lambdas below
     ) {
         // selected instance of ZAAS to invoke
-        var zaasInstance = serviceInstanceIterator.next();
+        var zaasInstance = zaasInstanceIterator.next();
+        var serviceInstance = zaasInstance.getServiceInstance();
+        var startTime = System.nanoTime();
 
         // this lambda creates a chain of call over all instances. It also remembers the most critical exception to
         // be thrown in case all instances fail
         Function<Exception, Mono<AbstractAuthSchemeFactory.AuthorizationResponse<R>>> callNext = exception -> {
+            zaasInstance.onFailure();
+
             // select the most critical exception to remember (ZaasInternalErrorException is more important one)
             exception = mostCriticalException.get().filter(ZaasInternalErrorException.class::isInstance).orElse(exception);
             mostCriticalException.set(Optional.of(exception));
 
-            if (serviceInstanceIterator.hasNext()) {
-                return requestWithHa(responseClass, serviceInstanceIterator, requestCreator, mostCriticalException);
+            if (zaasInstanceIterator.hasNext()) {
+                return requestWithHa(responseClass, zaasInstanceIterator, requestCreator, mostCriticalException);
             } else {
                 return Mono.error(exception);
             }
         };
 
-        return requestCreator.apply(zaasInstance)
+        // to avoid evaluation of the error from the next instance as a failure of this one
+        var nextCalled = new AtomicBoolean();
+        return requestCreator.apply(serviceInstance)
             .exchangeToMono(clientResp -> switch (clientResp.statusCode().value()) {
-                case SC_UNAUTHORIZED -> Mono.just(new AbstractAuthSchemeFactory.AuthorizationResponse<>(clientResp.headers(), null));
-                case SC_OK -> clientResp.bodyToMono(responseClass).map(zaasResponseBody -> new AbstractAuthSchemeFactory.AuthorizationResponse<>(clientResp.headers(), zaasResponseBody));
-                case SC_INTERNAL_SERVER_ERROR -> callNext.apply(new ZaasInternalErrorException(zaasInstance, "An internal exception occurred in ZAAS service. Check its configuration of instance " + zaasInstance.getInstanceId() + "."));
-                default -> callNext.apply(new ServiceNotAccessibleException(SERVICE_IS_UNAVAILABLE_MESSAGE));
+                case SC_UNAUTHORIZED -> {
+                    zaasInstance.onSuccess(System.nanoTime() - startTime);
+                    yield Mono.just(new AbstractAuthSchemeFactory.AuthorizationResponse<>(clientResp.headers(), null));
+                }
+                case SC_OK -> clientResp.bodyToMono(responseClass)
+                    .doOnNext(zaasResponseBody -> zaasInstance.onSuccess(System.nanoTime() - startTime))
+                    .map(zaasResponseBody -> new AbstractAuthSchemeFactory.AuthorizationResponse<>(clientResp.headers(), zaasResponseBody));
+                case SC_INTERNAL_SERVER_ERROR -> {
+                    nextCalled.set(true);
+                    yield callNext.apply(new ZaasInternalErrorException(serviceInstance, "An internal exception occurred in ZAAS service. Check its configuration of instance " + serviceInstance.getInstanceId() + "."));
+                }
+                default -> {
+                    nextCalled.set(true);
+                    yield callNext.apply(new ServiceNotAccessibleException(SERVICE_IS_UNAVAILABLE_MESSAGE));
+                }
             })
-            .doOnError(t -> log.debug("Error on calling ZAAS service instance {}: {}", zaasInstance.getInstanceId(), t.getMessage()))
-            .onErrorResume(e -> callNext.apply(new ServiceNotAccessibleException(SERVICE_IS_UNAVAILABLE_MESSAGE)));
+            .doOnError(t -> log.debug("Error on calling ZAAS service instance {}: {}", serviceInstance.getInstanceId(), t.getMessage()))
+            .onErrorResume(e -> {
+                if (nextCalled.get()) {
+                    // all following instances failed, the instance itself was already evaluated
+                    return Mono.error(mostCriticalException.get().orElse(new ServiceNotAccessibleException(SERVICE_IS_UNAVAILABLE_MESSAGE)));
+                }
+                return callNext.apply(new ServiceNotAccessibleException(SERVICE_IS_UNAVAILABLE_MESSAGE));
+            });
     }
 
     private <R> Mono<AbstractAuthSchemeFactory.AuthorizationResponse<R>> call(Class<R> responseClass, Function<ServiceInstance, WebClient.RequestHeadersSpec<?>> requestBuilder) {
-        return discoveryClient.getInstances(CoreService.ZAAS.getServiceId())
-            .collectList()
-            .flatMap(zaasInstances -> {
-                Iterator<ServiceInstance> i = robinRound.getIterator(zaasInstances);
+        return zaasInstanceRegistry.getInstances()
+            .flatMap(i -> {
                 if (!i.hasNext()) {
                     return Mono.error(new ServiceNotAccessibleException(SERVICE_IS_UNAVAILABLE_MESSAGE));
                 }
@@ -105,6 +126,21 @@ public class ZaasSchemeTransformRest implements ZaasSchemeTransform {
             });
     }
 
+    private <R> Mono<AbstractAuthSchemeFactory.AuthorizationResponse<R>> call(
+        AuthenticationScheme scheme,
+        RequestCredentials requestCredentials,
+        Class<R> responseClass,
+        Function<ServiceInstance, WebClient.RequestHeadersSpec<?>> requestBuilder
+    ) {
+        if (!responseCache.isEnabled(scheme) && !requestCoalescer.isEnabled(scheme)) {
+            // the key is not needed, the digests of the credentials are not computed
+            return requestCoalescer.call(() -> call(responseClass, requestBuilder));
+        }
+
+        var key = AuthSchemeRequestKey.of(scheme, requestCredentials);
+        return responseCache.get(key, () -> requestCoalescer.coalesce(key, () -> call(responseClass, requestBuilder)));
+    }
+
     private WebClient.RequestHeadersSpec<?> createRequest(RequestCredentials requestCredentials, String uri, String jsonBody) {
         var requestBuild = webClient.post().uri(uri);
 
@@ -137,6 +173,8 @@ public class ZaasSchemeTransformRest implements ZaasSchemeTransform {
         try {
             var jsonBody = WRITER.writeValueAsString(new TicketRequest(requestCredentials.getApplId()));
             return call(
+                AuthenticationScheme.HTTP_BASIC_PASSTICKET,
+                requestCredentials,
                 TicketResponse.class,
                 instance -> createRequest(
                     requestCredentials,
@@ -156,6 +194,8 @@ public class ZaasSchemeTransformRest implements ZaasSchemeTransform {
         try {
             String jsonBody = WRITER.writeValueAsString(new TicketRequest(requestCredentials.getApplId()));
             return call(
+                AuthenticationScheme.SAF_IDT,
+                requestCredentials,
                 ZaasTokenResponse.class,
                 instance -> createRequest(
                     requestCredentials,
@@ -174,6 +214,8 @@ public class ZaasSchemeTransformRest implements ZaasSchemeTransform {
     @Override
     public Mono<AbstractAuthSchemeFactory.AuthorizationResponse<ZaasTokenResponse>> zosmf(RequestCredentials requestCredentials) {
         return call(
+            AuthenticationScheme.ZOSMF,
+            requestCredentials,
             ZaasTokenResponse.class,
             instance -> createRequest(
                 requestCredentials,
@@ -186,6 +228,8 @@ public class ZaasSchemeTransformRest implements ZaasSchemeTransform {
     @Override
     public Mono<AbstractAuthSchemeFactory.AuthorizationResponse<ZaasTokenResponse>> zoweJwt(RequestCredentials requestCredentials) {
         return call(
+            AuthenticationScheme.ZOWE_JWT,
+            requestCredentials,
             ZaasTokenResponse.class,
             instance -> createRequest(
                 requestCredentials,
@@ -10,10 +10,6 @@
 
 package org.zowe.apiml.gateway.loadbalancer;
 
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Clock;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.MalformedJwtException;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.cloud.client.ServiceInstance;
@@ -25,19 +21,16 @@ import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
-import org.zowe.apiml.constants.ApimlConstants;
 import org.zowe.apiml.gateway.caching.LoadBalancerCache;
 import org.zowe.apiml.gateway.caching.LoadBalancerCache.LoadBalancerCacheRecord;
+import org.zowe.apiml.gateway.filters.JwtSubjectResolver;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.util.Base64;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
 
@@ -52,20 +45,18 @@ import static reactor.core.publisher.Mono.empty;
 @Slf4j
 public class DeterministicLoadBalancer extends SameInstancePreferenceServiceInstanceListSupplier {
 
-    private static final String HEADER_NONE_SIGNATURE = Base64.getEncoder().encodeToString("{\"typ\":\"JWT\",\"alg\":\"none\"}".getBytes(StandardCharsets.UTF_8));
-
     private final LoadBalancerCache cache;
-    private final Clock clock;
+    private final JwtSubjectResolver jwtSubjectResolver;
     private final int expirationTime;
 
     public DeterministicLoadBalancer(ServiceInstanceListSupplier delegate,
                                      ReactiveLoadBalancer.Factory<ServiceInstance> loadBalancerClientFactory,
                                      LoadBalancerCache cache,
-                                     Clock clock,
+                                     JwtSubjectResolver jwtSubjectResolver,
                                      int expirationTime) {
         super(delegate, loadBalancerClientFactory);
         this.cache = cache;
-        this.clock = clock;
+        this.jwtSubjectResolver = jwtSubjectResolver;
         this.expirationTime = expirationTime;
         log.debug("StickySessionLoadBalancer instantiated");
     }
@@ -115,32 +106,13 @@ public class DeterministicLoadBalancer extends SameInstancePreferenceServiceInst
 
     private Mono<String> getSub(Object requestContext) {
         if (requestContext instanceof RequestDataContext ctx) {
-            var token = Optional.ofNullable(getTokenFromCookie(ctx))
-                                .orElseGet(() -> getTokenFromHeader(ctx));
-            return Mono.just(extractSubFromToken(token));
+            var clientRequest = ctx.getClientRequest();
+            // attributes are shared with the exchange, the subject is parsed just once per request
+            return Mono.just(jwtSubjectResolver.getSubject(clientRequest.getAttributes(), clientRequest.getHeaders(), clientRequest.getCookies()));
         }
         return Mono.just("");
     }
 
-    private String getTokenFromCookie(RequestDataContext ctx) {
-        var tokens = ctx.getClientRequest().getCookies().get("apimlAuthenticationToken");
-        return tokens == null || tokens.isEmpty() ? null : tokens.get(0);
-    }
-
-    private String getTokenFromHeader(RequestDataContext ctx) {
-        var authHeaderValues = ctx.getClientRequest().getHeaders().get(HttpHeaders.AUTHORIZATION);
-        var token = authHeaderValues == null || authHeaderValues.isEmpty() ? null : authHeaderValues.get(0);
-        if (token != null && token.startsWith(ApimlConstants.BEARER_AUTHENTICATION_PREFIX)) {
-            token = token.replaceFirst(ApimlConstants.BEARER_AUTHENTICATION_PREFIX, "").trim();
-            if (token.isEmpty()) {
-                return null;
-            }
-
-            return token;
-        }
-        return null;
-    }
-
     /**
      * Filters the list of service instances to include only those with the specified instance ID.
      * Optional operation, it verifies if the conditions are met to actually filter the list of instances.
@@ -263,43 +235,4 @@ public class DeterministicLoadBalancer extends SameInstancePreferenceServiceInst
         }
         return false;
     }
-
-    private String removeJwtSign(String jwtToken) {
-        if (jwtToken == null) return null;
-
-        int firstDot = jwtToken.indexOf('.');
-        int lastDot = jwtToken.lastIndexOf('.');
-        if ((firstDot < 0) || (firstDot >= lastDot)) throw new MalformedJwtException("Invalid JWT format");
-
-        return HEADER_NONE_SIGNATURE + jwtToken.substring(firstDot, lastDot + 1);
-    }
-
-    private Claims getJwtClaims(String jwt) {
-        /*
-         * Removes signature, because we don't have key to verify z/OS tokens, and we just need to read claim.
-         * Verification is done by SAF itself. JWT library doesn't parse signed key without verification.
-         */
-        try {
-            String withoutSign = removeJwtSign(jwt);
-            return Jwts.parser()
-                .unsecured()
-                .clock(clock)
-                .build()
-                .parseUnsecuredClaims(withoutSign)
-                .getPayload();
-        } catch (RuntimeException exception) {
-            log.debug("Exception when trying to parse the JWT token {}", jwt);
-            return null; // NOSONAR
-        }
-    }
-
-    private String extractSubFromToken(String token) {
-        if (StringUtils.isNotEmpty(token)) {
-            Claims claims = getJwtClaims(token);
-            if (claims != null) {
-                return claims.getSubject();
-            }
-        }
-        return "";
-    }
 }
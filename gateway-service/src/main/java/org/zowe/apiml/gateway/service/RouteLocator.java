@@ -126,6 +126,7 @@ public class RouteLocator implements RouteDefinitionLocator {
             rateLimiterFilter.addArg("capacity", serviceInstance.getMetadata().get("apiml.gateway.rateLimiterCapacity"));
             rateLimiterFilter.addArg("tokens", serviceInstance.getMetadata().get("apiml.gateway.rateLimiterTokens"));
             rateLimiterFilter.addArg("refillDuration", serviceInstance.getMetadata().get("apiml.gateway.rateLimiterRefillDuration"));
+            rateLimiterFilter.addArg("keyType", serviceInstance.getMetadata().get("apiml.gateway.rateLimiterKey"));
             serviceRelated.add(rateLimiterFilter);
         } else if (servicesToLimitRequestRate != null && servicesToLimitRequestRate.contains(serviceInstance.getServiceId().toLowerCase())) {
             FilterDefinition rateLimiterFilter = new FilterDefinition();
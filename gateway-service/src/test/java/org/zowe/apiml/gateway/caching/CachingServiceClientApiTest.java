@@ -17,12 +17,14 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
 import org.zowe.apiml.cache.Storage;
 import org.zowe.apiml.cache.StorageException;
 import org.zowe.apiml.caching.model.KeyValue;
 import reactor.test.StepVerifier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -76,6 +78,27 @@ class CachingServiceClientApiTest {
 
     }
 
+    @Nested
+    class UpsertTests {
+
+        @Test
+        void success_thenTtlIsPassed() throws StorageException {
+            CachingServiceClient.ApiKeyValue expiring = new CachingServiceClient.ApiKeyValue(LB_USER_SERVICE, "value");
+            expiring.setTtl(60L);
+
+            StepVerifier.create(client.upsert(expiring))
+                .verifyComplete();
+
+            ArgumentCaptor<KeyValue> captor = ArgumentCaptor.forClass(KeyValue.class);
+            verify(storage).upsert(eq("service"), captor.capture());
+
+            KeyValue captured = captor.getValue();
+            assertEquals(LB_USER_SERVICE, captured.getKey());
+            assertEquals(60L, captured.getTtl());
+        }
+
+    }
+
     @Nested
     class ReadTests {
 
@@ -96,6 +119,21 @@ class CachingServiceClientApiTest {
                 .verifyComplete();
         }
 
+        @Test
+        void notFoundException_thenReturnEmpty() throws StorageException {
+            when(storage.read("service", LB_USER_SERVICE)).thenThrow(new StorageException("org.zowe.apiml.cache.keyNotInCache", HttpStatus.NOT_FOUND));
+
+            StepVerifier.create(client.read(LB_USER_SERVICE))
+                .verifyComplete();
+        }
+
+        @Test
+        void otherException_thenIsThrown() throws StorageException {
+            when(storage.read("service", LB_USER_SERVICE)).thenThrow(new StorageException("org.zowe.apiml.cache.storageError", HttpStatus.INTERNAL_SERVER_ERROR));
+
+            assertThrows(StorageException.class, () -> client.read(LB_USER_SERVICE));
+        }
+
     }
 
     @Nested
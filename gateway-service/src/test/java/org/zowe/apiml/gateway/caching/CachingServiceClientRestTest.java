@@ -19,6 +19,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.reactive.function.client.ClientRequest;
@@ -222,6 +223,43 @@ class CachingServiceClientRestTest {
 
         }
 
+        @Nested
+        class WhenUpsert {
+
+            @Test
+            void andServerSuccess_thenSingleRequestIsSent() {
+                mockResponse(204);
+                var kv = new ApiKeyValue("key", "value");
+
+                StepVerifier.create(client.upsert(kv))
+                    .expectComplete()
+                    .verify();
+                verify(exchangeFunction).exchange(argThat(request -> request.method() == HttpMethod.PUT && "upsert=true".equals(request.url().getQuery())));
+            }
+
+            @Test
+            void andUpsertIsNotSupported_thenEntryIsCreated() {
+                when(exchangeFunction.exchange(any(ClientRequest.class))).thenReturn(just(clientResponse));
+                when(clientResponse.statusCode()).thenReturn(HttpStatusCode.valueOf(404), HttpStatusCode.valueOf(201));
+                var kv = new ApiKeyValue("key", "value");
+
+                StepVerifier.create(client.upsert(kv))
+                    .expectComplete()
+                    .verify();
+                verify(exchangeFunction).exchange(argThat(request -> request.method() == HttpMethod.POST));
+            }
+
+            @Test
+            void andServerError_thenError() {
+                mockResponse(500);
+                var kv = new ApiKeyValue("key", "value");
+
+                StepVerifier.create(client.upsert(kv))
+                    .verifyErrorMatches(assertCachingServiceClientException(500));
+            }
+
+        }
+
     }
 
 }
@@ -14,8 +14,10 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.CacheRefreshedEvent;
 import com.netflix.discovery.EurekaClient;
 import com.netflix.discovery.shared.Application;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
@@ -23,16 +25,19 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.zowe.apiml.cache.StorageException;
 import org.zowe.apiml.gateway.caching.LoadBalancerCache.LoadBalancerCacheRecord;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import reactor.test.StepVerifier;
 
+import java.time.LocalDateTime;
 import java.util.Collections;
-import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.*;
 import static reactor.core.publisher.Mono.*;
@@ -43,20 +48,26 @@ class LoadBalancerCacheTest {
     @Mock
     private CachingServiceClientRest cachingServiceClient;
 
-    @Mock
-    private Map<String, LoadBalancerCacheRecord> map;
-
     @Mock
     private EurekaClient eurekaClient;
 
     private LoadBalancerCache loadBalancerCache;
+    private SimpleMeterRegistry meterRegistry;
 
     private ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
 
+    private CachingServiceClient.ApiKeyValue keyValue(LoadBalancerCacheRecord cacheRecord) throws JsonProcessingException {
+        var keyValue = new CachingServiceClient.ApiKeyValue("lb.anuser:aserviceid", mapper.writeValueAsString(cacheRecord));
+        keyValue.setTtl(8 * 3600L);
+        return keyValue;
+    }
+
     @BeforeEach
     void setUp() {
-        loadBalancerCache = new LoadBalancerCache(eurekaClient, cachingServiceClient);
-        ReflectionTestUtils.setField(loadBalancerCache, "localCache", map);
+        meterRegistry = new SimpleMeterRegistry();
+        loadBalancerCache = new LoadBalancerCache(eurekaClient, cachingServiceClient, 100, 60, 3, 8, meterRegistry);
+        // the remote write is checked right after the store
+        ReflectionTestUtils.setField(loadBalancerCache, "remoteCacheScheduler", Schedulers.immediate());
     }
 
     @Nested
@@ -75,7 +86,7 @@ class LoadBalancerCacheTest {
 
             @AfterEach
             void onFinish() {
-                verifyNoInteractions(map);
+                assertEquals(0, loadBalancerCache.getLocalCacheSize());
             }
 
             @Nested
@@ -84,7 +95,7 @@ class LoadBalancerCacheTest {
                 @Test
                 void andSuccess_thenSuccess() throws JsonProcessingException {
                     var cacheRecord = new LoadBalancerCacheRecord("instance1");
-                    when(cachingServiceClient.create(new CachingServiceClient.ApiKeyValue("lb.anuser:aserviceid", mapper.writeValueAsString(cacheRecord))))
+                    when(cachingServiceClient.upsert(keyValue(cacheRecord)))
                         .thenReturn(empty());
 
                     StepVerifier.create(loadBalancerCache.store("anuser", "aserviceid", cacheRecord))
@@ -93,28 +104,94 @@ class LoadBalancerCacheTest {
                 }
 
                 @Test
-                void andGenericError_thenError() throws JsonProcessingException {
+                void andGenericError_thenRecordIsNotKeptInNearCache() throws JsonProcessingException {
                     var cacheRecord = new LoadBalancerCacheRecord("instance1");
-                    when(cachingServiceClient.create(new CachingServiceClient.ApiKeyValue("lb.anuser:aserviceid", mapper.writeValueAsString(cacheRecord))))
+                    when(cachingServiceClient.upsert(keyValue(cacheRecord)))
                         .thenReturn(error(new CachingServiceClientException(500, "error")));
+                    when(cachingServiceClient.read("lb.anuser:aserviceid")).thenReturn(empty());
 
-                        StepVerifier.create(loadBalancerCache.store("anuser", "aserviceid", cacheRecord))
-                            .expectErrorMatches(exception -> exception.getMessage().equals("error"))
-                            .verify();
+                    // the record is written asynchronously, the error is not propagated to the routing
+                    StepVerifier.create(loadBalancerCache.store("anuser", "aserviceid", cacheRecord))
+                        .expectComplete()
+                        .verify();
+                    StepVerifier.create(loadBalancerCache.retrieve("anuser", "aserviceid"))
+                        .expectComplete()
+                        .verify();
                 }
 
                 @Test
-                void andErrorCacheConflict_thenError() throws JsonProcessingException {
+                void andClientThrowsSynchronously_thenErrorIsNotPropagated() throws JsonProcessingException {
                     var cacheRecord = new LoadBalancerCacheRecord("instance1");
-                    var keyValue = new CachingServiceClient.ApiKeyValue("lb.anuser:aserviceid", mapper.writeValueAsString(cacheRecord));
-                    when(cachingServiceClient.create(keyValue))
-                        .thenReturn(error(new CachingServiceClientException(409, "error")));
+                    when(cachingServiceClient.upsert(keyValue(cacheRecord)))
+                        .thenThrow(new StorageException("org.zowe.apiml.cache.insufficientStorage", HttpStatus.INSUFFICIENT_STORAGE, "aserviceid"));
+                    when(cachingServiceClient.read("lb.anuser:aserviceid")).thenReturn(empty());
+
+                    StepVerifier.create(loadBalancerCache.store("anuser", "aserviceid", cacheRecord))
+                        .expectComplete()
+                        .verify();
+                    StepVerifier.create(loadBalancerCache.retrieve("anuser", "aserviceid"))
+                        .expectComplete()
+                        .verify();
+                }
 
-                    when(cachingServiceClient.update(keyValue)).thenReturn(empty());
+                @Test
+                void andRecordExists_thenItIsStoredInSingleCall() throws JsonProcessingException {
+                    var cacheRecord = new LoadBalancerCacheRecord("instance1");
+                    when(cachingServiceClient.upsert(keyValue(cacheRecord))).thenReturn(empty());
 
                     StepVerifier.create(loadBalancerCache.store("anuser", "aserviceid", cacheRecord))
                         .expectComplete()
                         .verify();
+                    verify(cachingServiceClient, never()).create(any());
+                    verify(cachingServiceClient, never()).update(any());
+                }
+
+                @Test
+                void thenRecordExpiresInRemoteCache() {
+                    var cacheRecord = new LoadBalancerCacheRecord("instance1");
+                    when(cachingServiceClient.upsert(any())).thenReturn(empty());
+
+                    StepVerifier.create(loadBalancerCache.store("anuser", "aserviceid", cacheRecord)).verifyComplete();
+                    verify(cachingServiceClient).upsert(argThat(keyValue -> keyValue.getTtl() == 8 * 3600L));
+                }
+
+                @Test
+                void andRecordIsNotChanged_thenRemoteCacheIsNotCalledAgain() throws JsonProcessingException {
+                    var cacheRecord = new LoadBalancerCacheRecord("instance1", LocalDateTime.now());
+                    when(cachingServiceClient.upsert(keyValue(cacheRecord)))
+                        .thenReturn(empty());
+
+                    StepVerifier.create(loadBalancerCache.store("anuser", "aserviceid", cacheRecord)).verifyComplete();
+                    var sameInstance = new LoadBalancerCacheRecord("instance1", cacheRecord.getCreationTime().plusSeconds(10));
+                    StepVerifier.create(loadBalancerCache.store("anuser", "aserviceid", sameInstance)).verifyComplete();
+
+                    verify(cachingServiceClient, times(1)).upsert(any());
+                    StepVerifier.create(loadBalancerCache.retrieve("anuser", "aserviceid"))
+                        .expectNext(cacheRecord)
+                        .verifyComplete();
+                    verify(cachingServiceClient, never()).read(any());
+                }
+
+                @Test
+                void andInstanceIsChanged_thenRecordIsStored() {
+                    when(cachingServiceClient.upsert(any())).thenReturn(empty());
+
+                    StepVerifier.create(loadBalancerCache.store("anuser", "aserviceid", new LoadBalancerCacheRecord("instance1"))).verifyComplete();
+                    StepVerifier.create(loadBalancerCache.store("anuser", "aserviceid", new LoadBalancerCacheRecord("instance2"))).verifyComplete();
+
+                    verify(cachingServiceClient, times(2)).upsert(any());
+                }
+
+                @Test
+                void andRecordIsOld_thenRecordIsStoredAgain() {
+                    when(cachingServiceClient.upsert(any())).thenReturn(empty());
+                    var cacheRecord = new LoadBalancerCacheRecord("instance1", LocalDateTime.now());
+
+                    StepVerifier.create(loadBalancerCache.store("anuser", "aserviceid", cacheRecord)).verifyComplete();
+                    var refreshed = new LoadBalancerCacheRecord("instance1", cacheRecord.getCreationTime().plusSeconds(61));
+                    StepVerifier.create(loadBalancerCache.store("anuser", "aserviceid", refreshed)).verifyComplete();
+
+                    verify(cachingServiceClient, times(2)).upsert(any());
                 }
 
             }
@@ -168,6 +245,72 @@ class LoadBalancerCacheTest {
                         .verify();
                 }
 
+                @Test
+                void andCalledTwice_thenRemoteCacheIsReadOnce() throws JsonProcessingException {
+                    var key = "lb.anuser:aserviceid";
+                    var cacheRecord = new LoadBalancerCacheRecord("instanceId");
+                    var keyValue = new CachingServiceClient.ApiKeyValue(key, mapper.writeValueAsString(cacheRecord));
+                    when(cachingServiceClient.read(key)).thenReturn(just(keyValue));
+
+                    for (int i = 0; i < 2; i++) {
+                        StepVerifier.create(loadBalancerCache.retrieve("anuser", "aserviceid"))
+                            .expectNext(cacheRecord)
+                            .verifyComplete();
+                    }
+                    verify(cachingServiceClient, times(1)).read(key);
+                }
+
+                @Test
+                void andRecordWasDeleted_thenRemoteCacheIsRead() throws JsonProcessingException {
+                    var key = "lb.anuser:aserviceid";
+                    var cacheRecord = new LoadBalancerCacheRecord("instanceId");
+                    var keyValue = new CachingServiceClient.ApiKeyValue(key, mapper.writeValueAsString(cacheRecord));
+                    when(cachingServiceClient.read(key)).thenReturn(just(keyValue));
+                    when(cachingServiceClient.delete(key)).thenReturn(empty());
+
+                    StepVerifier.create(loadBalancerCache.retrieve("anuser", "aserviceid")).expectNext(cacheRecord).verifyComplete();
+                    StepVerifier.create(loadBalancerCache.delete("anuser", "aserviceid")).verifyComplete();
+                    StepVerifier.create(loadBalancerCache.retrieve("anuser", "aserviceid")).expectNext(cacheRecord).verifyComplete();
+
+                    verify(cachingServiceClient, times(2)).read(key);
+                }
+
+                @Test
+                void andInstanceIsUnregistered_thenRecordIsRemovedFromNearCache() throws JsonProcessingException {
+                    var key = "lb.anuser:aserviceid";
+                    var cacheRecord = new LoadBalancerCacheRecord("instanceId");
+                    var keyValue = new CachingServiceClient.ApiKeyValue(key, mapper.writeValueAsString(cacheRecord));
+                    when(cachingServiceClient.read(key)).thenReturn(just(keyValue));
+                    var application = mock(Application.class);
+                    when(eurekaClient.getApplication("aserviceid")).thenReturn(application);
+                    when(application.getInstances()).thenReturn(Collections.emptyList());
+
+                    StepVerifier.create(loadBalancerCache.retrieve("anuser", "aserviceid")).expectNext(cacheRecord).verifyComplete();
+                    loadBalancerCache.onEurekaEvent(new CacheRefreshedEvent());
+                    StepVerifier.create(loadBalancerCache.retrieve("anuser", "aserviceid")).expectNext(cacheRecord).verifyComplete();
+
+                    verify(cachingServiceClient, times(2)).read(key);
+                }
+
+                @Test
+                void andInstanceIsStillRegistered_thenRecordIsKeptInNearCache() throws JsonProcessingException {
+                    var key = "lb.anuser:aserviceid";
+                    var cacheRecord = new LoadBalancerCacheRecord("instanceId");
+                    var keyValue = new CachingServiceClient.ApiKeyValue(key, mapper.writeValueAsString(cacheRecord));
+                    when(cachingServiceClient.read(key)).thenReturn(just(keyValue));
+                    var application = mock(Application.class);
+                    var instanceInfo = mock(InstanceInfo.class);
+                    when(instanceInfo.getInstanceId()).thenReturn("instanceId");
+                    when(eurekaClient.getApplication("aserviceid")).thenReturn(application);
+                    when(application.getInstances()).thenReturn(Collections.singletonList(instanceInfo));
+
+                    StepVerifier.create(loadBalancerCache.retrieve("anuser", "aserviceid")).expectNext(cacheRecord).verifyComplete();
+                    loadBalancerCache.onEurekaEvent(new CacheRefreshedEvent());
+                    StepVerifier.create(loadBalancerCache.retrieve("anuser", "aserviceid")).expectNext(cacheRecord).verifyComplete();
+
+                    verify(cachingServiceClient, times(1)).read(key);
+                }
+
                 @Test
                 void andGenericError_thenReturnError() {
                     var key = "lb.anuser:aserviceid";
@@ -192,19 +335,35 @@ class LoadBalancerCacheTest {
                 when(application.getInstances()).thenReturn(Collections.emptyList());
             }
 
+            @AfterEach
+            void onFinish() {
+                verifyNoInteractions(cachingServiceClient);
+            }
+
             @Nested
             class WhenCreate {
 
                 @Test
                 void andSuccess_thenSuccess() {
                     var cacheRecord = new LoadBalancerCacheRecord("instance1");
-                    when(map.put("lb.anuser:aserviceid", cacheRecord)).thenReturn(cacheRecord);
 
                     StepVerifier.create(loadBalancerCache.store("anuser", "aserviceid", cacheRecord))
                         .expectComplete()
                         .verify();
 
-                    verifyNoInteractions(cachingServiceClient);
+                    assertEquals(1, loadBalancerCache.getLocalCacheSize());
+                }
+
+                @Test
+                void andCapacityIsExceeded_thenRecordsAreEvicted() {
+                    for (int i = 0; i < 10; i++) {
+                        StepVerifier.create(loadBalancerCache.store("user" + i, "aserviceid", new LoadBalancerCacheRecord("instance1")))
+                            .verifyComplete();
+                    }
+
+                    assertEquals(3, loadBalancerCache.getLocalCacheSize());
+                    assertEquals(3.0, meterRegistry.get("cache.size").tag("cache", LoadBalancerCache.LOCAL_CACHE_NAME).gauge().value());
+                    assertEquals(7.0, meterRegistry.get("cache.evictions").tag("cache", LoadBalancerCache.LOCAL_CACHE_NAME).functionCounter().count());
                 }
 
             }
@@ -214,14 +373,14 @@ class LoadBalancerCacheTest {
 
                 @Test
                 void andSuccess_thenSuccess() {
-                    var key = "lb.anuser:aserviceid";
-                    when(map.remove(key)).thenReturn(null);
+                    StepVerifier.create(loadBalancerCache.store("anuser", "aserviceid", new LoadBalancerCacheRecord("instance1")))
+                        .verifyComplete();
 
                     StepVerifier.create(loadBalancerCache.delete("anuser", "aserviceid"))
                         .expectComplete()
                         .verify();
 
-                    verifyNoInteractions(cachingServiceClient);
+                    assertEquals(0, loadBalancerCache.getLocalCacheSize());
                 }
 
             }
@@ -232,29 +391,29 @@ class LoadBalancerCacheTest {
                 @Test
                 void andSuccess_thenSuccess() {
                     var expectedRecord = new LoadBalancerCacheRecord("instance1");
-                    var key = "lb.anuser:aserviceid";
-                    when(map.get(key)).thenReturn(expectedRecord);
+                    StepVerifier.create(loadBalancerCache.store("anuser", "aserviceid", expectedRecord))
+                        .verifyComplete();
+
                     StepVerifier.create(loadBalancerCache.retrieve("anuser", "aserviceid"))
                         .assertNext(retrievedRecord -> assertEquals(expectedRecord, retrievedRecord))
                         .verifyComplete();
+                }
+
+                @Test
+                void andRecordWithoutCreationTime_thenSuccess() {
+                    StepVerifier.create(loadBalancerCache.store("anuser", "aserviceid", LoadBalancerCacheRecord.NONE))
+                        .verifyComplete();
 
-                    verifyNoInteractions(cachingServiceClient);
+                    StepVerifier.create(loadBalancerCache.retrieve("anuser", "aserviceid"))
+                        .assertNext(retrievedRecord -> assertEquals(LoadBalancerCacheRecord.NONE, retrievedRecord))
+                        .verifyComplete();
                 }
 
                 @Test
                 void andNotFound_thenEmpty() {
-                    var key = "lb.anuser:aserviceid";
-                    when(map.get(key)).thenReturn(new LoadBalancerCacheRecord("instance"));
-
                     StepVerifier.create(loadBalancerCache.retrieve("anuser", "aserviceid"))
-                        .assertNext(cacheRecord -> {
-                            assertNotNull(cacheRecord);
-                            assertEquals("instance", cacheRecord.getInstanceId());
-                        })
                         .expectComplete()
                         .verify();
-
-                    verifyNoInteractions(cachingServiceClient);
                 }
 
             }
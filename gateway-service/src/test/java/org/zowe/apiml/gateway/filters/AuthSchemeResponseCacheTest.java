@@ -0,0 +1,177 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.filters;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.zowe.apiml.auth.AuthenticationScheme;
+import org.zowe.apiml.gateway.filters.AbstractAuthSchemeFactory.AuthorizationResponse;
+import org.zowe.apiml.ticket.TicketResponse;
+import org.zowe.apiml.zaas.ZaasTokenResponse;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthSchemeResponseCacheTest {
+
+    private static final String JWT_COOKIE = "apimlAuthenticationToken";
+
+    private final AtomicInteger counter = new AtomicInteger();
+
+    private RequestCredentials credentials(String token) {
+        return RequestCredentials.builder()
+            .serviceId("service")
+            .cookies(Collections.singletonMap(JWT_COOKIE, token))
+            .build();
+    }
+
+    private Mono<AuthorizationResponse<ZaasTokenResponse>> tokenResponse(String token) {
+        counter.incrementAndGet();
+        return Mono.just(new AuthorizationResponse<>(new ErrorHeaders(), ZaasTokenResponse.builder().cookieName(JWT_COOKIE).token(token).build()));
+    }
+
+    private Mono<AuthorizationResponse<ZaasTokenResponse>> unauthorized() {
+        counter.incrementAndGet();
+        return Mono.just(new AuthorizationResponse<>(new ErrorHeaders("Invalid credentials"), null));
+    }
+
+    private static String jwt(long expInSeconds) {
+        var payload = Base64.getUrlEncoder().withoutPadding().encodeToString(("{\"sub\":\"user\",\"exp\":" + expInSeconds + "}").getBytes(StandardCharsets.UTF_8));
+        return "eyJhbGciOiJub25lIn0." + payload + ".signature";
+    }
+
+    @Nested
+    class GivenEnabledCache {
+
+        private AuthSchemeResponseCache cache;
+
+        @BeforeEach
+        void setUp() {
+            cache = new AuthSchemeResponseCache(true, false, 100, 60);
+        }
+
+        @Test
+        void whenPassticketCachingIsDisabled_thenOnlyOtherSchemesAreEnabled() {
+            assertTrue(cache.isEnabled(AuthenticationScheme.ZOWE_JWT));
+            assertFalse(cache.isEnabled(AuthenticationScheme.HTTP_BASIC_PASSTICKET));
+        }
+
+        @Test
+        void whenSameCredentialsAreUsed_thenZaasIsCalledOnce() {
+            for (int i = 0; i < 5; i++) {
+                var response = cache.get(AuthSchemeRequestKey.of(AuthenticationScheme.ZOWE_JWT, credentials("userJwt")), () -> tokenResponse("zoweJwt")).block();
+                assertNotNull(response);
+                assertEquals("zoweJwt", response.getBody().getToken());
+            }
+            assertEquals(1, counter.get());
+        }
+
+        @Test
+        void whenDifferentCredentialsAreUsed_thenZaasIsCalledForEach() {
+            cache.get(AuthSchemeRequestKey.of(AuthenticationScheme.ZOWE_JWT, credentials("user1")), () -> tokenResponse("jwt1")).block();
+            cache.get(AuthSchemeRequestKey.of(AuthenticationScheme.ZOWE_JWT, credentials("user2")), () -> tokenResponse("jwt2")).block();
+            cache.get(AuthSchemeRequestKey.of(AuthenticationScheme.ZOSMF, credentials("user1")), () -> tokenResponse("ltpa1")).block();
+            assertEquals(3, counter.get());
+        }
+
+        @Test
+        void whenAuthenticationFails_thenResponseIsNotCached() {
+            cache.get(AuthSchemeRequestKey.of(AuthenticationScheme.ZOWE_JWT, credentials("invalid")), this::unauthorized).block();
+            cache.get(AuthSchemeRequestKey.of(AuthenticationScheme.ZOWE_JWT, credentials("invalid")), this::unauthorized).block();
+            assertEquals(2, counter.get());
+            assertEquals(0, cache.size());
+        }
+
+        @Test
+        void whenNoCredentialsAreProvided_thenResponseIsNotCached() {
+            var noCredentials = RequestCredentials.builder().serviceId("service").build();
+            cache.get(AuthSchemeRequestKey.of(AuthenticationScheme.ZOWE_JWT, noCredentials), () -> tokenResponse("jwt")).block();
+            cache.get(AuthSchemeRequestKey.of(AuthenticationScheme.ZOWE_JWT, noCredentials), () -> tokenResponse("jwt")).block();
+            assertEquals(2, counter.get());
+        }
+
+        @Test
+        void whenTokenIsExpired_thenResponseIsNotCached() {
+            var expiredJwt = jwt(System.currentTimeMillis() / 1000 - 10);
+            cache.get(AuthSchemeRequestKey.of(AuthenticationScheme.ZOWE_JWT, credentials("user")), () -> tokenResponse(expiredJwt)).block();
+            assertEquals(0, cache.size());
+        }
+
+        @Test
+        void whenTokenExpiresLaterThanTimeToLive_thenTimeToLiveIsUsed() {
+            var validJwt = jwt(System.currentTimeMillis() / 1000 + 3600);
+            var expiration = cache.getExpiration(ZaasTokenResponse.builder().token(validJwt).build());
+            assertEquals(60_000, expiration);
+        }
+
+        @Test
+        void whenTokenExpiresSoon_thenItsExpirationIsUsed() {
+            var validJwt = jwt(System.currentTimeMillis() / 1000 + 30);
+            var expiration = cache.getExpiration(ZaasTokenResponse.builder().token(validJwt).build());
+            assertTrue(expiration > 0);
+            assertTrue(expiration <= 25_000);
+        }
+
+        @Test
+        void whenLogout_thenRecordsOfTheTokenAreRemoved() {
+            cache.get(AuthSchemeRequestKey.of(AuthenticationScheme.ZOWE_JWT, credentials("user1")), () -> tokenResponse("jwt1")).block();
+            cache.get(AuthSchemeRequestKey.of(AuthenticationScheme.SAF_IDT, credentials("user1")), () -> tokenResponse("safIdt1")).block();
+            cache.get(AuthSchemeRequestKey.of(AuthenticationScheme.ZOWE_JWT, credentials("user2")), () -> tokenResponse("jwt2")).block();
+            assertEquals(3, cache.size());
+
+            cache.invalidate("Bearer user1");
+            assertEquals(1, cache.size());
+
+            cache.get(AuthSchemeRequestKey.of(AuthenticationScheme.ZOWE_JWT, credentials("user1")), () -> tokenResponse("jwt1")).block();
+            assertEquals(4, counter.get());
+        }
+
+        @Test
+        void whenPassticketCacheIsNotEnabled_thenTicketIsNotCached() {
+            for (int i = 0; i < 2; i++) {
+                cache.get(AuthSchemeRequestKey.of(AuthenticationScheme.HTTP_BASIC_PASSTICKET, credentials("user")), () -> {
+                    counter.incrementAndGet();
+                    return Mono.just(new AuthorizationResponse<>(new ErrorHeaders(), new TicketResponse(null, "USER", "APPL", "TICKET")));
+                }).block();
+            }
+            assertEquals(2, counter.get());
+        }
+
+    }
+
+    @Nested
+    class GivenDisabledCache {
+
+        @Test
+        void whenSameCredentialsAreUsed_thenZaasIsAlwaysCalled() {
+            var cache = new AuthSchemeResponseCache(false, false, 100, 60);
+            cache.get(AuthSchemeRequestKey.of(AuthenticationScheme.ZOWE_JWT, credentials("userJwt")), () -> tokenResponse("zoweJwt")).block();
+            cache.get(AuthSchemeRequestKey.of(AuthenticationScheme.ZOWE_JWT, credentials("userJwt")), () -> tokenResponse("zoweJwt")).block();
+            assertEquals(2, counter.get());
+            assertEquals(0, cache.size());
+        }
+
+        @Test
+        void whenSchemeIsChecked_thenItIsNotEnabled() {
+            var cache = new AuthSchemeResponseCache(false, true, 100, 60);
+            assertFalse(cache.isEnabled(AuthenticationScheme.ZOWE_JWT));
+            assertFalse(cache.isEnabled(AuthenticationScheme.HTTP_BASIC_PASSTICKET));
+        }
+
+    }
+
+}
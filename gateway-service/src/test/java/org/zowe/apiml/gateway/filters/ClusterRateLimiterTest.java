@@ -0,0 +1,291 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.filters;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.zowe.apiml.cache.Storage;
+import org.zowe.apiml.cache.StorageException;
+import org.zowe.apiml.caching.model.KeyValue;
+import org.zowe.apiml.gateway.caching.CachingServiceClient;
+import org.zowe.apiml.gateway.caching.CachingServiceClientApi;
+import org.zowe.apiml.gateway.caching.CachingServiceClientException;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClusterRateLimiterTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2025-01-01T00:00:30Z"), ZoneId.of("UTC"));
+
+    private FakeCachingServiceClient cachingServiceClient;
+    private InMemoryRateLimiter localRateLimiter;
+    private InMemoryRateLimiter.Config config;
+
+    @BeforeEach
+    void setUp() {
+        cachingServiceClient = new FakeCachingServiceClient();
+        localRateLimiter = new InMemoryRateLimiter(100);
+        localRateLimiter.capacity = 20;
+        localRateLimiter.tokens = 20;
+        localRateLimiter.refillDuration = 1;
+        config = localRateLimiter.newConfig(25, 25, 1);
+    }
+
+    private ClusterRateLimiter create() {
+        return new ClusterRateLimiter(cachingServiceClient, localRateLimiter, true, 10, 100, CLOCK);
+    }
+
+    private int countAllowed(ClusterRateLimiter rateLimiter, int requests) {
+        int allowed = 0;
+        for (int i = 0; i < requests; i++) {
+            if (rateLimiter.isAllowed(config, "service", "user").block().isAllowed()) {
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+
+    @Nested
+    class GivenCachingService {
+
+        @Test
+        void whenTokensAreConsumed_thenCachingServiceIsCalledPerLease() {
+            var rateLimiter = create();
+
+            assertEquals(10, countAllowed(rateLimiter, 10));
+            assertEquals(1, cachingServiceClient.creates.get());
+            assertEquals("10", cachingServiceClient.values.get(ClusterRateLimiter.getKey("service", "user", CLOCK.millis() / 60_000, 0)));
+        }
+
+        @Test
+        void whenLimitIsReached_thenRequestsAreRejected() {
+            var rateLimiter = create();
+
+            assertEquals(25, countAllowed(rateLimiter, 40));
+            // the last lease is smaller, the exhaustion is known without a call
+            assertEquals(3, cachingServiceClient.creates.get());
+        }
+
+        @Test
+        void whenCapacityIsSmallerThanTokens_thenCapacityIsTheLimit() {
+            config = localRateLimiter.newConfig(5, 25, 1);
+
+            assertEquals(5, countAllowed(create(), 10));
+        }
+
+        @Test
+        void whenMoreGatewaysShareTheLimit_thenTheLimitIsGlobal() {
+            var gateway1 = create();
+            var gateway2 = create();
+
+            int allowed = countAllowed(gateway1, 10) + countAllowed(gateway2, 10) + countAllowed(gateway1, 10) + countAllowed(gateway2, 10);
+
+            assertEquals(25, allowed);
+        }
+
+        @Test
+        void whenGatewaysLeaseAtTheSameTime_thenTheLimitIsNotExceeded() {
+            var gateways = new ClusterRateLimiter[] {create(), create(), create(), create()};
+
+            // each gateway starts its lease from the same sequence number
+            int allowed = 0;
+            for (var gateway : gateways) {
+                allowed += countAllowed(gateway, 1);
+            }
+            for (var gateway : gateways) {
+                allowed += countAllowed(gateway, 20);
+            }
+
+            assertEquals(25, allowed);
+        }
+
+    }
+
+    @Nested
+    class GivenCachingServiceIsNotAvailable {
+
+        @Test
+        void whenRequest_thenLocalRateLimiterIsUsed() {
+            cachingServiceClient.available = false;
+            var rateLimiter = create();
+
+            assertEquals(25, countAllowed(rateLimiter, 30));
+            // the caching service is not called again during the retry delay
+            assertEquals(1, cachingServiceClient.creates.get());
+        }
+
+    }
+
+    @Nested
+    class GivenModulithCachingService {
+
+        private final MapStorage storage = new MapStorage();
+
+        private ClusterRateLimiter createModulith() {
+            return new ClusterRateLimiter(new CachingServiceClientApi(storage), localRateLimiter, true, 10, 100, CLOCK);
+        }
+
+        @Test
+        void whenLeaseExists_thenNextOneIsCreatedAndTheLimitIsGlobal() {
+            var gateway1 = createModulith();
+            var gateway2 = createModulith();
+
+            int allowed = countAllowed(gateway1, 10) + countAllowed(gateway2, 10) + countAllowed(gateway1, 10) + countAllowed(gateway2, 10);
+
+            assertEquals(25, allowed);
+            long window = CLOCK.millis() / 60_000;
+            assertEquals("10", storage.values.get(ClusterRateLimiter.getKey("service", "user", window, 0)).getValue());
+            assertEquals("10", storage.values.get(ClusterRateLimiter.getKey("service", "user", window, 1)).getValue());
+            assertEquals("5", storage.values.get(ClusterRateLimiter.getKey("service", "user", window, 2)).getValue());
+            assertEquals(3, storage.values.size());
+        }
+
+        @Test
+        void whenLeaseIsStored_thenItExpiresAfterTwoWindows() {
+            countAllowed(createModulith(), 1);
+
+            var lease = storage.values.get(ClusterRateLimiter.getKey("service", "user", CLOCK.millis() / 60_000, 0));
+            assertEquals(120L, lease.getTtl());
+        }
+
+    }
+
+    /**
+     * Behaves as the storages of the caching service, a missing key is signalled by an exception
+     */
+    private static class MapStorage implements Storage {
+
+        private final Map<String, KeyValue> values = new ConcurrentHashMap<>();
+
+        @Override
+        public KeyValue create(String serviceId, KeyValue toCreate) {
+            if (values.putIfAbsent(toCreate.getKey(), toCreate) != null) {
+                throw new StorageException(toCreate.getKey(), HttpStatus.CONFLICT);
+            }
+            return toCreate;
+        }
+
+        @Override
+        public KeyValue read(String serviceId, String key) {
+            return Optional.ofNullable(values.get(key))
+                .orElseThrow(() -> new StorageException(key, HttpStatus.NOT_FOUND));
+        }
+
+        @Override
+        public KeyValue update(String serviceId, KeyValue toUpdate) {
+            if (values.replace(toUpdate.getKey(), toUpdate) == null) {
+                throw new StorageException(toUpdate.getKey(), HttpStatus.NOT_FOUND);
+            }
+            return toUpdate;
+        }
+
+        @Override
+        public KeyValue delete(String serviceId, String toDelete) {
+            return Optional.ofNullable(values.remove(toDelete))
+                .orElseThrow(() -> new StorageException(toDelete, HttpStatus.NOT_FOUND));
+        }
+
+        @Override
+        public KeyValue storeMapItem(String serviceId, String mapKey, KeyValue toCreate) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map<String, String> getAllMapItems(String serviceId, String mapKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map<String, Map<String, String>> getAllMaps(String serviceId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map<String, KeyValue> readForService(String serviceId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void deleteForService(String serviceId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void removeNonRelevantRules(String serviceId, String mapKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void removeNonRelevantTokens(String serviceId, String mapKey) {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+    private static class FakeCachingServiceClient implements CachingServiceClient {
+
+        private final Map<String, String> values = new ConcurrentHashMap<>();
+        private final AtomicInteger creates = new AtomicInteger();
+        private boolean available = true;
+
+        private Mono<Void> check() {
+            return available ? Mono.empty() : Mono.error(new CachingServiceClientException(503, "unavailable"));
+        }
+
+        @Override
+        public Mono<Void> create(ApiKeyValue keyValue) {
+            creates.incrementAndGet();
+            if (!available) {
+                return check();
+            }
+            if (values.putIfAbsent(keyValue.getKey(), keyValue.getValue()) != null) {
+                return Mono.error(new CachingServiceClientException(409, "conflict"));
+            }
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<Void> update(ApiKeyValue keyValue) {
+            values.put(keyValue.getKey(), keyValue.getValue());
+            return check();
+        }
+
+        @Override
+        public Mono<Void> upsert(ApiKeyValue keyValue) {
+            values.put(keyValue.getKey(), keyValue.getValue());
+            return check();
+        }
+
+        @Override
+        public Mono<ApiKeyValue> read(String key) {
+            return check().then(Mono.justOrEmpty(values.get(key)).map(value -> new ApiKeyValue(key, value)));
+        }
+
+        @Override
+        public Mono<Void> delete(String key) {
+            values.remove(key);
+            return check();
+        }
+
+    }
+
+}
@@ -35,6 +35,7 @@ import static org.mockito.Mockito.*;
 public class InMemoryRateLimiterFilterFactoryTest {
 
     private InMemoryRateLimiter rateLimiter;
+    private ClusterRateLimiter clusterRateLimiter;
     private KeyResolver keyResolver;
     private InMemoryRateLimiterFilterFactory filterFactory;
     private ServerWebExchange exchange;
@@ -48,11 +49,12 @@ public class InMemoryRateLimiterFilterFactoryTest {
     @BeforeEach
     public void setUp() {
         rateLimiter = mock(InMemoryRateLimiter.class);
+        clusterRateLimiter = mock(ClusterRateLimiter.class);
         keyResolver = mock(KeyResolver.class);
         messageService = mock(MessageService.class);
         message = mock(Message.class);
         objectMapper = mock(ObjectMapper.class);
-        filterFactory = new InMemoryRateLimiterFilterFactory(rateLimiter, keyResolver,objectMapper, messageService);
+        filterFactory = new InMemoryRateLimiterFilterFactory(rateLimiter, clusterRateLimiter, keyResolver, objectMapper, messageService);
         request = MockServerHttpRequest.get("/" + "serviceId").build();
         exchange = MockServerWebExchange.from(request);
         chain = mock(GatewayFilterChain.class);
@@ -61,8 +63,8 @@ public class InMemoryRateLimiterFilterFactoryTest {
 
     @Test
     public void apply_shouldAllowRequest_whenTokensAreAvailable() {
-        when(keyResolver.resolve(exchange)).thenReturn(Mono.just("testKey"));
-        when(rateLimiter.isAllowed(anyString(), anyString())).thenReturn(Mono.just(new RateLimiter.Response(true, Map.of())));
+        when(keyResolver.resolve(exchange, null)).thenReturn(Mono.just("testKey"));
+        when(rateLimiter.isAllowed(any(), anyString(), anyString())).thenReturn(Mono.just(new RateLimiter.Response(true, Map.of())));
         when(chain.filter(any(ServerWebExchange.class))).thenReturn(Mono.empty());
 
         StepVerifier.create(filterFactory.apply(config).filter(exchange, chain))
@@ -76,8 +78,8 @@ public class InMemoryRateLimiterFilterFactoryTest {
         when(messageService.createMessage(anyString(),anyString(),any())).thenReturn(message);
         when(message.mapToView()).thenReturn(new ApiMessageView());
         when(objectMapper.writeValueAsBytes(any())).thenReturn("Serialized Message".getBytes());
-        when(keyResolver.resolve(exchange)).thenReturn(Mono.just("testKey"));
-        when(rateLimiter.isAllowed(anyString(), anyString())).thenReturn(Mono.just(new InMemoryRateLimiter.Response(false, Map.of())));
+        when(keyResolver.resolve(exchange, null)).thenReturn(Mono.just("testKey"));
+        when(rateLimiter.isAllowed(any(), anyString(), anyString())).thenReturn(Mono.just(new InMemoryRateLimiter.Response(false, Map.of())));
 
         StepVerifier.create(filterFactory.apply(config).filter(exchange, chain))
             .expectComplete()
@@ -91,8 +93,8 @@ public class InMemoryRateLimiterFilterFactoryTest {
         when(messageService.createMessage(anyString(),anyString(),any())).thenReturn(message);
         when(message.mapToView()).thenReturn(new ApiMessageView());
         when(objectMapper.writeValueAsBytes(any())).thenThrow(new JsonProcessingException("Mocked exception") {});
-        when(keyResolver.resolve(exchange)).thenReturn(Mono.just("testKey"));
-        when(rateLimiter.isAllowed(anyString(), anyString())).thenReturn(Mono.just(new InMemoryRateLimiter.Response(false, Map.of())));
+        when(keyResolver.resolve(exchange, null)).thenReturn(Mono.just("testKey"));
+        when(rateLimiter.isAllowed(any(), anyString(), anyString())).thenReturn(Mono.just(new InMemoryRateLimiter.Response(false, Map.of())));
 
         StepVerifier.create(filterFactory.apply(config).filter(exchange, chain))
             .expectError(JsonProcessingException.class)
@@ -101,7 +103,7 @@ public class InMemoryRateLimiterFilterFactoryTest {
 
     @Test
     public void apply_shouldAllowRequest_whenKeyIsNull() {
-        when(keyResolver.resolve(exchange)).thenReturn(Mono.just(""));
+        when(keyResolver.resolve(exchange, null)).thenReturn(Mono.just(""));
         when(chain.filter(any(ServerWebExchange.class))).thenReturn(Mono.empty());
 
         StepVerifier.create(filterFactory.apply(config).filter(exchange, chain))
@@ -112,7 +114,7 @@ public class InMemoryRateLimiterFilterFactoryTest {
 
     @Test
     public void apply_shouldAllowRequest_whenServiceIdEmpty() {
-        when(keyResolver.resolve(exchange)).thenReturn(Mono.just("testKey"));
+        when(keyResolver.resolve(exchange, null)).thenReturn(Mono.just("testKey"));
         request = MockServerHttpRequest.get("/").build();
         exchange = MockServerWebExchange.from(request);
         when(chain.filter(any(ServerWebExchange.class))).thenReturn(Mono.empty());
@@ -123,5 +125,33 @@ public class InMemoryRateLimiterFilterFactoryTest {
         verify(chain, times(1)).filter(exchange);
     }
 
-}
+    @Test
+    void apply_shouldUseRouteConfigurationAndKeyType() {
+        var routeConfig = new InMemoryRateLimiter.Config();
+        config = new InMemoryRateLimiterFilterFactory.Config();
+        config.setCapacity(5);
+        config.setKeyType("ip");
+        when(rateLimiter.newConfig(5, 0, 0)).thenReturn(routeConfig);
+        when(keyResolver.resolve(exchange, KeyResolver.KeyType.IP)).thenReturn(Mono.just("127.0.0.1"));
+        when(rateLimiter.isAllowed(routeConfig, "serviceId", "127.0.0.1")).thenReturn(Mono.just(new RateLimiter.Response(true, Map.of())));
+        when(chain.filter(any(ServerWebExchange.class))).thenReturn(Mono.empty());
 
+        StepVerifier.create(filterFactory.apply(config).filter(exchange, chain))
+            .expectComplete()
+            .verify();
+    }
+
+    @Test
+    void apply_shouldUseClusterRateLimiter_whenEnabled() {
+        when(clusterRateLimiter.isEnabled()).thenReturn(true);
+        when(keyResolver.resolve(exchange, null)).thenReturn(Mono.just("testKey"));
+        when(clusterRateLimiter.isAllowed(any(), anyString(), anyString())).thenReturn(Mono.just(new RateLimiter.Response(true, Map.of())));
+        when(chain.filter(any(ServerWebExchange.class))).thenReturn(Mono.empty());
+
+        StepVerifier.create(filterFactory.apply(config).filter(exchange, chain))
+            .expectComplete()
+            .verify();
+        verify(rateLimiter, never()).isAllowed(any(), anyString(), anyString());
+    }
+
+}
@@ -30,7 +30,7 @@ class InMemoryRateLimiterTest {
 
     @BeforeEach
     void setUp() {
-        rateLimiter = new InMemoryRateLimiter();
+        rateLimiter = new InMemoryRateLimiter(100);
         rateLimiter.capacity = 3;
         rateLimiter.tokens = 3;
         rateLimiter.refillDuration = 1;
@@ -103,21 +103,40 @@ class InMemoryRateLimiterTest {
     }
 
     @Test
-    void setNonNullParametersTest() {
-        Integer newCapacity = 20;
-        Integer newTokens = 20;
-        Integer newRefillDuration = 2;
-        rateLimiter.setParameters(newCapacity, newTokens, newRefillDuration);
-        assertEquals(newCapacity, rateLimiter.capacity);
-        assertEquals(newTokens, rateLimiter.tokens);
-        assertEquals(newRefillDuration, rateLimiter.refillDuration);
+    void givenDifferentRoutes_whenConsume_thenEachRouteHasOwnBucketAndConfig() {
+        var strict = rateLimiter.newConfig(1, 1, 1);
+        var loose = rateLimiter.newConfig(5, 5, 1);
+
+        StepVerifier.create(rateLimiter.isAllowed(strict, "route1", userId))
+            .assertNext(response -> assertTrue(response.isAllowed()))
+            .verifyComplete();
+        StepVerifier.create(rateLimiter.isAllowed(strict, "route1", userId))
+            .assertNext(response -> assertFalse(response.isAllowed()))
+            .verifyComplete();
+        StepVerifier.create(rateLimiter.isAllowed(loose, "route2", userId))
+            .assertNext(response -> assertTrue(response.isAllowed()))
+            .verifyComplete();
+        StepVerifier.create(rateLimiter.isAllowed(loose, "route2", userId))
+            .assertNext(response -> assertTrue(response.isAllowed()))
+            .verifyComplete();
     }
 
     @Test
-    void setParametersWithNullValuesTest() {
-        Integer newCapacity = 30;
-        rateLimiter.setParameters(newCapacity, 0, 0);
-        assertEquals(newCapacity, rateLimiter.capacity);
+    void givenManyKeys_whenConsume_thenNumberOfBucketsIsBounded() {
+        for (int i = 0; i < 500; i++) {
+            rateLimiter.isAllowed(routeId, "user" + i).block();
+        }
+
+        assertTrue(rateLimiter.getBucketCount() <= 100);
+    }
+
+    @Test
+    void givenMissingValues_whenNewConfig_thenDefaultsAreUsed() {
+        var config = rateLimiter.newConfig(10, 0, 0);
+
+        assertEquals(10, config.getCapacity());
+        assertEquals(rateLimiter.tokens, config.getTokens());
+        assertEquals(rateLimiter.refillDuration, config.getRefillDuration());
     }
 
 }
@@ -0,0 +1,120 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.filters;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.jsonwebtoken.Clock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.LinkedMultiValueMap;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JwtSubjectResolverTest {
+
+    private static final Instant NOW = Instant.ofEpochSecond(1_700_000_000);
+
+    private final AtomicReference<Date> now = new AtomicReference<>(Date.from(NOW));
+    private final Clock clock = now::get;
+    private JwtSubjectResolver resolver;
+
+    static String createJwt(String payload) {
+        var encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"RS256\"}".getBytes(StandardCharsets.UTF_8)) + "." +
+            encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + ".signature";
+    }
+
+    @BeforeEach
+    void setUp() {
+        resolver = new JwtSubjectResolver(clock, 10);
+    }
+
+    @Nested
+    class GivenToken {
+
+        @Test
+        void whenValid_thenReturnSubject() {
+            assertEquals("USER", resolver.getSubject(createJwt("{\"sub\":\"USER\"}")));
+        }
+
+        @Test
+        void whenInvalid_thenReturnEmpty() {
+            assertEquals("", resolver.getSubject("invalidToken"));
+            assertEquals("", resolver.getSubject((String) null));
+        }
+
+        @Test
+        void whenTokenExpiresAfterParsing_thenReturnEmpty() {
+            var jwt = createJwt("{\"sub\":\"USER\",\"exp\":" + (NOW.getEpochSecond() + 60) + "}");
+            assertEquals("USER", resolver.getSubject(jwt));
+
+            now.set(Date.from(NOW.plusSeconds(61)));
+            assertEquals("", resolver.getSubject(jwt));
+        }
+
+        @Test
+        @SuppressWarnings("unchecked")
+        void whenParsed_thenTokenIsNotKeptInCache() {
+            var jwt = createJwt("{\"sub\":\"USER\"}");
+            resolver.getSubject(jwt);
+
+            Cache<String, ?> parsedTokens = (Cache<String, ?>) ReflectionTestUtils.getField(resolver, "parsedTokens");
+            assertEquals(Set.of(AuthSchemeRequestKey.digest(jwt)), parsedTokens.asMap().keySet());
+        }
+
+    }
+
+    @Nested
+    class GivenRequest {
+
+        @Test
+        void whenTokenInHeader_thenReturnSubject() {
+            var headers = new HttpHeaders();
+            headers.add(HttpHeaders.AUTHORIZATION, "Bearer " + createJwt("{\"sub\":\"USER\"}"));
+
+            assertEquals("USER", resolver.getSubject(null, headers, null));
+        }
+
+        @Test
+        void whenSubjectIsAlreadyResolved_thenTokenIsNotParsedAgain() {
+            var attributes = new HashMap<String, Object>();
+            attributes.put(JwtSubjectResolver.SUBJECT_ATTRIBUTE, "ANOTHER");
+            var cookies = new LinkedMultiValueMap<String, String>();
+            cookies.add("apimlAuthenticationToken", createJwt("{\"sub\":\"USER\"}"));
+
+            assertEquals("ANOTHER", resolver.getSubject(attributes, new HttpHeaders(), cookies));
+        }
+
+        @Test
+        void whenAttributesAreShared_thenLoadBalancerUsesResolvedSubject() {
+            var attributes = new HashMap<String, Object>();
+            var cookies = new LinkedMultiValueMap<String, String>();
+            cookies.add("apimlAuthenticationToken", createJwt("{\"sub\":\"USER\"}"));
+
+            assertEquals("USER", resolver.getSubject(attributes, new HttpHeaders(), cookies));
+            assertEquals("USER", attributes.get(JwtSubjectResolver.SUBJECT_ATTRIBUTE));
+            assertEquals("USER", resolver.getSubject(attributes, new HttpHeaders(), new LinkedMultiValueMap<>()));
+        }
+
+    }
+
+}
@@ -16,13 +16,22 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpCookie;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.net.InetSocketAddress;
+import java.util.Collections;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -36,21 +45,51 @@ class KeyResolverTest {
 
     @BeforeEach
     void setUp() {
-        keyResolver = new KeyResolver();
+        keyResolver = new KeyResolver(new JwtSubjectResolver(100));
         exchange = mock(ServerWebExchange.class);
         ReflectionTestUtils.setField(keyResolver, "cookieName", "apimlAuthenticationToken");
     }
 
     @Test
-    void resolve_shouldReturnCookieValue_whenCookieIsPresent() {
+    void resolve_shouldReturnCookieDigest_whenCookieIsPresent() {
         HttpCookie cookie = new HttpCookie("apimlAuthenticationToken", "testToken");
         when(exchange.getRequest()).thenReturn(request);
+        when(exchange.getPrincipal()).thenReturn(Mono.empty());
+        var cookies = new LinkedMultiValueMap<String, HttpCookie>();
+        cookies.add("apimlAuthenticationToken", cookie);
+        when(request.getCookies()).thenReturn(cookies);
+
+        StepVerifier.create(keyResolver.resolve(exchange))
+            .assertNext(result -> assertEquals(AuthSchemeRequestKey.digest("testToken"), result))
+            .verifyComplete();
+    }
+
+    @Test
+    void resolve_shouldNotTrustSubject_whenCookieIsNotVerifiedJwt() {
+        var jwt = JwtSubjectResolverTest.createJwt("{\"sub\":\"USER\"}");
+        HttpCookie cookie = new HttpCookie("apimlAuthenticationToken", jwt);
+        when(exchange.getRequest()).thenReturn(request);
+        when(exchange.getPrincipal()).thenReturn(Mono.empty());
         var cookies = new LinkedMultiValueMap<String, HttpCookie>();
         cookies.add("apimlAuthenticationToken", cookie);
         when(request.getCookies()).thenReturn(cookies);
 
         StepVerifier.create(keyResolver.resolve(exchange))
-            .assertNext(result -> assertEquals("testToken", result))
+            .assertNext(result -> assertEquals(AuthSchemeRequestKey.digest(jwt), result))
+            .verifyComplete();
+    }
+
+    @Test
+    void resolve_shouldReturnUser_whenAuthenticationIsVerified() {
+        HttpCookie cookie = new HttpCookie("apimlAuthenticationToken", "testToken");
+        when(exchange.getRequest()).thenReturn(request);
+        when(exchange.getPrincipal()).thenReturn(Mono.just(UsernamePasswordAuthenticationToken.authenticated("USER", null, Collections.emptyList())));
+        var cookies = new LinkedMultiValueMap<String, HttpCookie>();
+        cookies.add("apimlAuthenticationToken", cookie);
+        when(request.getCookies()).thenReturn(cookies);
+
+        StepVerifier.create(keyResolver.resolve(exchange))
+            .assertNext(result -> assertEquals("USER", result))
             .verifyComplete();
     }
 
@@ -63,5 +102,65 @@ class KeyResolverTest {
             .assertNext(result -> assertEquals("", result))
             .verifyComplete();
     }
-}
+    @Test
+    void resolve_shouldReturnIpAddress_whenKeyTypeIsIp() {
+        var ipExchange = MockServerWebExchange.from(MockServerHttpRequest.get("/")
+            .remoteAddress(new InetSocketAddress("10.0.0.1", 12345)));
+
+        StepVerifier.create(keyResolver.resolve(ipExchange, KeyResolver.KeyType.IP))
+            .assertNext(result -> assertEquals("10.0.0.1", result))
+            .verifyComplete();
+    }
 
+    @Test
+    void resolve_shouldReturnTokenDigest_whenKeyTypeIsUserAndTokenIsNotVerified() {
+        var jwt = JwtSubjectResolverTest.createJwt("{\"sub\":\"USER\"}");
+        var userExchange = MockServerWebExchange.from(MockServerHttpRequest.get("/")
+            .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwt));
+
+        StepVerifier.create(keyResolver.resolve(userExchange, KeyResolver.KeyType.USER))
+            .assertNext(result -> assertEquals(AuthSchemeRequestKey.digest(jwt), result))
+            .verifyComplete();
+    }
+
+    @Test
+    void resolve_shouldReturnUser_whenKeyTypeIsUserAndAuthenticationIsVerified() {
+        var userExchange = MockServerWebExchange.from(MockServerHttpRequest.get("/")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + JwtSubjectResolverTest.createJwt("{\"sub\":\"FORGED\"}")))
+            .mutate()
+            .principal(Mono.just(UsernamePasswordAuthenticationToken.authenticated("USER", null, Collections.emptyList())))
+            .build();
+
+        StepVerifier.create(keyResolver.resolve(userExchange, KeyResolver.KeyType.USER))
+            .assertNext(result -> assertEquals("USER", result))
+            .verifyComplete();
+    }
+
+    @Test
+    void resolve_shouldReturnEmpty_whenKeyTypeIsUserAndThereIsNoToken() {
+        var userExchange = MockServerWebExchange.from(MockServerHttpRequest.get("/"));
+
+        StepVerifier.create(keyResolver.resolve(userExchange, KeyResolver.KeyType.USER))
+            .assertNext(result -> assertEquals("", result))
+            .verifyComplete();
+    }
+
+    @Test
+    void resolve_shouldReturnEmpty_whenKeyTypeIsClientCertAndNoCertificate() {
+        var certExchange = MockServerWebExchange.from(MockServerHttpRequest.get("/"));
+
+        StepVerifier.create(keyResolver.resolve(certExchange, KeyResolver.KeyType.CLIENT_CERT))
+            .assertNext(result -> assertEquals("", result))
+            .verifyComplete();
+    }
+
+    @Test
+    void keyType_shouldBeParsedFromConfiguration() {
+        assertEquals(KeyResolver.KeyType.CLIENT_CERT, KeyResolver.KeyType.of("client-cert"));
+        assertEquals(KeyResolver.KeyType.CLIENT_CERT, KeyResolver.KeyType.of("clientCert"));
+        assertEquals(KeyResolver.KeyType.USER, KeyResolver.KeyType.of("user"));
+        assertEquals(KeyResolver.KeyType.COOKIE, KeyResolver.KeyType.of("unknown"));
+        assertNull(KeyResolver.KeyType.of(null));
+    }
+
+}
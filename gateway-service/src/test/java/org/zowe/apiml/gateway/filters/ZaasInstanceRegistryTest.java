@@ -0,0 +1,223 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.filters;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
+import org.springframework.cloud.gateway.event.RefreshRoutesEvent;
+import reactor.core.publisher.Flux;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ZaasInstanceRegistryTest {
+
+    @Mock
+    private ReactiveDiscoveryClient discoveryClient;
+
+    private MutableClock clock;
+    private ZaasInstanceRegistry registry;
+
+    private final ServiceInstance zaas1 = new DefaultServiceInstance("zaas1", "zaas", "host1", 10023, true);
+    private final ServiceInstance zaas2 = new DefaultServiceInstance("zaas2", "zaas", "host2", 10023, true);
+    private final ServiceInstance zaas3 = new DefaultServiceInstance("zaas3", "zaas", "host3", 10023, true);
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock();
+        registry = new ZaasInstanceRegistry(discoveryClient, clock, 1, 10, 40);
+    }
+
+    private List<String> fetch() {
+        Iterator<ZaasInstanceRegistry.ZaasInstance> iterator = registry.getInstances().block();
+        List<String> output = new ArrayList<>();
+        iterator.forEachRemaining(instance -> output.add(instance.getServiceInstance().getInstanceId()));
+        return output;
+    }
+
+    private ZaasInstanceRegistry.ZaasInstance get(String instanceId) {
+        Iterator<ZaasInstanceRegistry.ZaasInstance> iterator = registry.getInstances().block();
+        while (iterator.hasNext()) {
+            var instance = iterator.next();
+            if (instanceId.equals(instance.getServiceInstance().getInstanceId())) {
+                return instance;
+            }
+        }
+        throw new AssertionError("Instance " + instanceId + " not found");
+    }
+
+    @Nested
+    class GivenSnapshot {
+
+        @Test
+        void whenInstancesAreRequested_thenDiscoveryIsCalledJustOnce() {
+            when(discoveryClient.getInstances("zaas")).thenReturn(Flux.just(zaas1, zaas2));
+
+            assertEquals(List.of("zaas1", "zaas2"), fetch());
+            assertEquals(List.of("zaas2", "zaas1"), fetch());
+            assertEquals(List.of("zaas1", "zaas2"), fetch());
+
+            verify(discoveryClient, times(1)).getInstances("zaas");
+        }
+
+        @Test
+        void whenRegistryIsRefreshed_thenNewInstancesAreUsed() {
+            when(discoveryClient.getInstances("zaas"))
+                .thenReturn(Flux.just(zaas1))
+                .thenReturn(Flux.just(zaas1, zaas2, zaas3));
+
+            assertEquals(List.of("zaas1"), fetch());
+            registry.onRefreshRoutesEvent(new RefreshRoutesEvent(this)).block();
+            assertEquals(3, fetch().size());
+        }
+
+        @Test
+        void whenNoInstanceIsRegistered_thenReturnEmptyIterator() {
+            when(discoveryClient.getInstances("zaas")).thenReturn(Flux.empty());
+
+            assertTrue(fetch().isEmpty());
+        }
+
+    }
+
+    @Nested
+    class GivenOutlierDetection {
+
+        @BeforeEach
+        void setUp() {
+            when(discoveryClient.getInstances("zaas")).thenReturn(Flux.just(zaas1, zaas2, zaas3));
+        }
+
+        @Test
+        void whenInstanceFails_thenItIsOfferedAsLast() {
+            get("zaas1").onFailure();
+
+            for (int i = 0; i < 3; i++) {
+                var order = fetch();
+                assertEquals(3, order.size());
+                assertEquals("zaas1", order.get(2));
+            }
+        }
+
+        @Test
+        void whenEjectionTimeElapses_thenInstanceIsAvailableAgain() {
+            get("zaas1").onFailure();
+            assertTrue(get("zaas1").isEjected(clock.millis()));
+
+            clock.add(Duration.ofSeconds(11));
+            assertFalse(get("zaas1").isEjected(clock.millis()));
+        }
+
+        @Test
+        void whenInstanceFailsRepeatedly_thenEjectionTimeGrowsUpToMaximum() {
+            var instance = get("zaas1");
+
+            instance.onFailure();
+            clock.add(Duration.ofSeconds(11));
+            assertFalse(instance.isEjected(clock.millis()));
+
+            instance.onFailure();
+            clock.add(Duration.ofSeconds(11));
+            assertTrue(instance.isEjected(clock.millis()));
+            clock.add(Duration.ofSeconds(10));
+            assertFalse(instance.isEjected(clock.millis()));
+
+            instance.onFailure();
+            instance.onFailure();
+            clock.add(Duration.ofSeconds(39));
+            assertTrue(instance.isEjected(clock.millis()));
+            clock.add(Duration.ofSeconds(2));
+            assertFalse(instance.isEjected(clock.millis()));
+        }
+
+        @Test
+        void whenInstanceSucceeds_thenItIsNotEjected() {
+            var instance = get("zaas1");
+            instance.onFailure();
+            instance.onSuccess(1_000_000);
+
+            assertFalse(instance.isEjected(clock.millis()));
+            assertEquals(1_000_000, instance.getLatencyEwmaNanos());
+        }
+
+        @Test
+        void whenMoreInstancesAreEjected_thenTheHealthiestIsFirst() {
+            get("zaas1").onFailure();
+            get("zaas1").onFailure();
+            get("zaas2").onFailure();
+
+            assertEquals(List.of("zaas3", "zaas2", "zaas1"), fetch());
+            assertTrue(get("zaas1").getHealthScore() < get("zaas2").getHealthScore());
+        }
+
+        @Test
+        void whenRegistryIsRefreshed_thenStatisticsAreKept() {
+            get("zaas1").onFailure();
+            registry.refresh().block();
+
+            assertTrue(get("zaas1").isEjected(clock.millis()));
+        }
+
+    }
+
+    @Test
+    void givenLatencySamples_whenComputeEwma_thenRecentSamplesHaveHigherWeight() {
+        when(discoveryClient.getInstances("zaas")).thenReturn(Flux.just(zaas1));
+        var instance = get("zaas1");
+
+        instance.onSuccess(100);
+        instance.onSuccess(200);
+
+        assertEquals(130, instance.getLatencyEwmaNanos(), 0.001);
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant instant = Instant.parse("2025-01-01T00:00:00Z");
+
+        void add(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+
+    }
+
+}
@@ -0,0 +1,161 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+package org.zowe.apiml.gateway.filters;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.zowe.apiml.auth.AuthenticationScheme;
+import org.zowe.apiml.gateway.filters.AbstractAuthSchemeFactory.AuthorizationResponse;
+import org.zowe.apiml.zaas.ZaasTokenResponse;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZaasRequestCoalescerTest {
+
+    private final AtomicInteger counter = new AtomicInteger();
+    private SimpleMeterRegistry meterRegistry;
+    private ZaasRequestCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new ZaasRequestCoalescer(true, meterRegistry);
+    }
+
+    private AuthSchemeRequestKey key(AuthenticationScheme scheme, String token) {
+        return AuthSchemeRequestKey.of(scheme, RequestCredentials.builder()
+            .serviceId("service")
+            .cookies(Collections.singletonMap("apimlAuthenticationToken", token))
+            .build()
+        );
+    }
+
+    private Mono<AuthorizationResponse<ZaasTokenResponse>> pending(Sinks.One<AuthorizationResponse<ZaasTokenResponse>> sink) {
+        counter.incrementAndGet();
+        return sink.asMono();
+    }
+
+    private AuthorizationResponse<ZaasTokenResponse> response(String token) {
+        return new AuthorizationResponse<>(new ErrorHeaders(), ZaasTokenResponse.builder().token(token).build());
+    }
+
+    private double getMetric(String coalesced) {
+        return meterRegistry.get(ZaasRequestCoalescer.METRIC_REQUESTS).tag("coalesced", coalesced).functionCounter().count();
+    }
+
+    @Test
+    void givenConcurrentRequests_whenSameKey_thenZaasIsCalledOnce() {
+        Sinks.One<AuthorizationResponse<ZaasTokenResponse>> sink = Sinks.one();
+        List<String> tokens = new ArrayList<>();
+
+        for (int i = 0; i < 30; i++) {
+            coalescer.coalesce(key(AuthenticationScheme.ZOWE_JWT, "jwt"), () -> pending(sink))
+                .subscribe(r -> tokens.add(r.getBody().getToken()));
+        }
+        assertEquals(1.0, meterRegistry.get(ZaasRequestCoalescer.METRIC_IN_FLIGHT).gauge().value());
+
+        sink.tryEmitValue(response("zoweJwt"));
+
+        assertEquals(1, counter.get());
+        assertEquals(30, tokens.size());
+        assertTrue(tokens.stream().allMatch("zoweJwt"::equals));
+        assertEquals(1, coalescer.getCalls());
+        assertEquals(29, coalescer.getCoalesced());
+        assertEquals(1.0, getMetric("false"));
+        assertEquals(29.0, getMetric("true"));
+        assertEquals(0.0, meterRegistry.get(ZaasRequestCoalescer.METRIC_IN_FLIGHT).gauge().value());
+    }
+
+    @Test
+    void givenConcurrentRequests_whenDifferentKeys_thenZaasIsCalledForEach() {
+        Sinks.One<AuthorizationResponse<ZaasTokenResponse>> sink = Sinks.one();
+
+        coalescer.coalesce(key(AuthenticationScheme.ZOWE_JWT, "jwt1"), () -> pending(sink)).subscribe();
+        coalescer.coalesce(key(AuthenticationScheme.ZOWE_JWT, "jwt2"), () -> pending(sink)).subscribe();
+        coalescer.coalesce(key(AuthenticationScheme.SAF_IDT, "jwt1"), () -> pending(sink)).subscribe();
+        sink.tryEmitValue(response("token"));
+
+        assertEquals(3, counter.get());
+        assertEquals(0, coalescer.getCoalesced());
+    }
+
+    @Test
+    void givenFinishedRequest_whenSameKeyIsUsedAgain_thenZaasIsCalledAgain() {
+        for (int i = 0; i < 3; i++) {
+            var response = coalescer.coalesce(key(AuthenticationScheme.ZOWE_JWT, "jwt"), () -> {
+                counter.incrementAndGet();
+                return Mono.just(response("zoweJwt"));
+            }).block();
+            assertNotNull(response);
+        }
+
+        assertEquals(3, counter.get());
+        assertEquals(0, coalescer.getCoalesced());
+    }
+
+    @Test
+    void givenFailedRequest_whenSameKeyIsUsedAgain_thenZaasIsCalledAgain() {
+        var key = key(AuthenticationScheme.ZOWE_JWT, "jwt");
+        var failed = coalescer.coalesce(key, () -> Mono.<AuthorizationResponse<ZaasTokenResponse>>error(new IllegalStateException("failed")));
+        assertThrows(IllegalStateException.class, failed::block);
+
+        var response = coalescer.coalesce(key, () -> Mono.just(response("zoweJwt"))).block();
+        assertEquals("zoweJwt", response.getBody().getToken());
+    }
+
+    @Test
+    void givenPassticket_whenConcurrentRequests_thenTheyAreNotShared() {
+        Sinks.One<AuthorizationResponse<ZaasTokenResponse>> sink = Sinks.one();
+
+        for (int i = 0; i < 3; i++) {
+            coalescer.coalesce(key(AuthenticationScheme.HTTP_BASIC_PASSTICKET, "jwt"), () -> pending(sink)).subscribe();
+        }
+
+        assertEquals(3, counter.get());
+        assertEquals(3, coalescer.getCalls());
+    }
+
+    @Test
+    void givenDisabledCoalescing_whenConcurrentRequests_thenTheyAreNotShared() {
+        coalescer = new ZaasRequestCoalescer(false, new SimpleMeterRegistry());
+        Sinks.One<AuthorizationResponse<ZaasTokenResponse>> sink = Sinks.one();
+
+        for (int i = 0; i < 3; i++) {
+            coalescer.coalesce(key(AuthenticationScheme.ZOWE_JWT, "jwt"), () -> pending(sink)).subscribe();
+        }
+
+        assertEquals(3, counter.get());
+        assertFalse(coalescer.isEnabled(AuthenticationScheme.ZOWE_JWT));
+    }
+
+    @Test
+    void givenCallWithoutKey_thenItIsCountedAndNotShared() {
+        Sinks.One<AuthorizationResponse<ZaasTokenResponse>> sink = Sinks.one();
+
+        for (int i = 0; i < 2; i++) {
+            coalescer.call(() -> pending(sink)).subscribe();
+        }
+
+        assertEquals(2, counter.get());
+        assertEquals(2, coalescer.getCalls());
+        assertTrue(coalescer.isEnabled(AuthenticationScheme.ZOWE_JWT));
+        assertFalse(coalescer.isEnabled(AuthenticationScheme.HTTP_BASIC_PASSTICKET));
+    }
+
+}
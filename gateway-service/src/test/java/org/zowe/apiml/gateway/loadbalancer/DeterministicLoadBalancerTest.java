@@ -31,6 +31,7 @@ import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.server.ResponseStatusException;
 import org.zowe.apiml.gateway.caching.LoadBalancerCache;
+import org.zowe.apiml.gateway.filters.JwtSubjectResolver;
 import org.zowe.apiml.gateway.caching.LoadBalancerCache.LoadBalancerCacheRecord;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -101,7 +102,7 @@ class DeterministicLoadBalancerTest {
         when(factory.getProperties(any())).thenReturn(properties);
         when(delegate.getServiceId()).thenReturn("service");
         when(delegate.get(request)).thenReturn(Flux.just(defaultServiceInstancesList));
-        this.loadBalancer = new DeterministicLoadBalancer(delegate, factory, lbCache, clock, DEFAULT_EXPIRATION_HS);
+        this.loadBalancer = new DeterministicLoadBalancer(delegate, factory, lbCache, new JwtSubjectResolver(clock, 100), DEFAULT_EXPIRATION_HS);
     }
 
     @Nested
@@ -84,6 +84,7 @@ public class AuthController {
 
     public static final String CONTROLLER_PATH = "/zaas/api/v1/auth";  // NOSONAR: URL is always using / to separate path segments
     public static final String INVALIDATE_PATH = "/invalidate/**";  // NOSONAR
+    public static final String INVALIDATE_BATCH_PATH = "/invalidate";  // NOSONAR
     public static final String DISTRIBUTE_PATH = "/distribute/**";  // NOSONAR
     public static final String PUBLIC_KEYS_PATH = "/keys/public";  // NOSONAR
     public static final String ACCESS_TOKEN_REVOKE = "/access-token/revoke"; // NOSONAR
@@ -123,6 +124,20 @@ public class AuthController {
         }
     }
 
+    @PostMapping(path = INVALIDATE_BATCH_PATH, consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Hidden
+    public void invalidateJwtTokens(@RequestBody List<String> jwtTokens, HttpServletResponse response) {
+        boolean invalidated = true;
+        for (String jwtToken : jwtTokens) {
+            try {
+                invalidated &= authenticationService.invalidateJwtToken(jwtToken, false);
+            } catch (TokenNotValidException e) {
+                log.debug("Invalid token sent to invalidation: {}", e.getMessage());
+            }
+        }
+        response.setStatus(invalidated ? SC_OK : SC_SERVICE_UNAVAILABLE);
+    }
+
     @DeleteMapping(path = ACCESS_TOKEN_REVOKE)
     @ResponseBody
     @Operation(summary = "Invalidate personal access token.",
@@ -18,12 +18,14 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.zowe.apiml.message.api.ApiMessageView;
 import org.zowe.apiml.message.core.MessageService;
 import org.zowe.apiml.security.common.auth.saf.AccessLevel;
+import org.zowe.apiml.security.common.auth.saf.SafResourceAccessCaching;
 import org.zowe.apiml.security.common.auth.saf.SafResourceAccessVerifying;
 
 @RestController
@@ -36,6 +38,8 @@ public class SafResourceAccessController {
     private final MessageService messageService;
     public static final String CONTEXT_PATH = "/auth/check";
     public static final String FULL_CONTEXT_PATH = "/zaas/auth/check";
+    public static final String CACHE_PATH = CONTEXT_PATH + "/cache";
+    public static final String FULL_CACHE_PATH = FULL_CONTEXT_PATH + "/cache";
 
     @PostMapping(path = CONTEXT_PATH, consumes = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<ApiMessageView> hasSafAccess(@RequestBody CheckRequestModel request) {
@@ -52,6 +56,18 @@ public class SafResourceAccessController {
         }
     }
 
+    /**
+     * Forget the remembered decisions, i.e. after a change of the permissions in SAF
+     */
+    @DeleteMapping(path = CACHE_PATH)
+    @PreAuthorize("@safMethodSecurityExpressionRoot.hasSafServiceResourceAccess('SERVICES', 'UPDATE',#root)")
+    public ResponseEntity<Void> flushCache() {
+        if (safResourceAccessVerifying instanceof SafResourceAccessCaching caching) {
+            caching.flush();
+        }
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
     @Data
     static class CheckRequestModel {
         private String resourceClass;
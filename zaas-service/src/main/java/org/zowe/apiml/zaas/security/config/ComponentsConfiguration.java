@@ -12,6 +12,7 @@ package org.zowe.apiml.zaas.security.config;
 
 import com.nimbusds.jose.util.DefaultResourceRetriever;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -29,6 +30,7 @@ import org.zowe.apiml.zaas.security.service.token.ApimlAccessTokenProvider;
 import org.zowe.apiml.zaas.security.service.zosmf.ZosmfService;
 
 import javax.net.ssl.SSLContext;
+import java.time.Duration;
 
 import org.zowe.apiml.passticket.PassTicketService;
 import org.zowe.apiml.security.common.audit.RauditxService;
@@ -53,11 +55,16 @@ public class ComponentsConfiguration {
      * Service to call generating and validating of passTickets. If JVM contains mainframe's class, it uses it,
      * otherwise method returns dummy implementation
      *
+     * @param poolSize    number of parallel calls of SAF
+     * @param ticketReuse seconds to reuse a generated passTicket, use only if the replay protection is disabled
      * @return mainframe / dummy implementation of passTicket's generation and validation
      */
     @Bean
-    PassTicketService passTicketService() {
-        return new PassTicketService();
+    PassTicketService passTicketService(
+        @Value("${apiml.security.passticket.poolSize:4}") int poolSize,
+        @Value("${apiml.security.passticket.reuseSeconds:0}") int ticketReuse
+    ) {
+        return new PassTicketService(poolSize, Duration.ofSeconds(ticketReuse));
     }
 
     @Bean
@@ -483,7 +483,7 @@ public class NewSecurityConfiguration {
             @Bean
             public SecurityFilterChain certificateEndpointsFilterChain(HttpSecurity http) throws Exception {
                 return baseConfigure(http.securityMatchers(matchers -> matchers
-                    .requestMatchers(AuthController.CONTROLLER_PATH + AuthController.INVALIDATE_PATH, AuthController.CONTROLLER_PATH + AuthController.DISTRIBUTE_PATH))
+                    .requestMatchers(AuthController.CONTROLLER_PATH + AuthController.INVALIDATE_PATH, AuthController.CONTROLLER_PATH + AuthController.INVALIDATE_BATCH_PATH, AuthController.CONTROLLER_PATH + AuthController.DISTRIBUTE_PATH))
                 ).authorizeHttpRequests(requests -> requests
                         .anyRequest().authenticated())
                     .logout(AbstractHttpConfigurer::disable) // logout filter in this chain not needed
@@ -511,6 +511,7 @@ public class NewSecurityConfiguration {
                     http.securityMatchers(matchers -> matchers
                         .requestMatchers("/application/**")
                         .requestMatchers(HttpMethod.POST, SafResourceAccessController.FULL_CONTEXT_PATH)
+                        .requestMatchers(HttpMethod.DELETE, SafResourceAccessController.FULL_CACHE_PATH)
                     )
                 ).authorizeHttpRequests(requests -> requests
                         .anyRequest()
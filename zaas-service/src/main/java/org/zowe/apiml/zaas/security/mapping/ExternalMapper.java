@@ -11,6 +11,9 @@
 package org.zowe.apiml.zaas.security.mapping;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -21,6 +24,7 @@ import org.apache.hc.core5.http.HttpEntity;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.apache.hc.core5.http.message.BasicHeader;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -28,15 +32,25 @@ import org.zowe.apiml.message.log.ApimlLogger;
 import org.zowe.apiml.product.logging.annotations.InjectApimlLogger;
 import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
 import org.zowe.apiml.zaas.security.mapping.model.MapperResponse;
+import org.zowe.apiml.zaas.security.service.JwtUtils;
 import org.zowe.apiml.zaas.security.service.TokenCreationService;
 
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Common implementation of an external mapper to call identity mapping API in the ZSS on mainframe.
+ *
+ * The results of the calls made by {@link #callExternalMapper(String, HttpEntity)} are remembered for a while (a missing
+ * mapping for a shorter time than the found one) and concurrent calls for the same identity are joined into a single one.
+ * The JWT to authenticate against the mapper is reused until it is near its expiration.
  */
 @Slf4j
 @RequiredArgsConstructor
@@ -54,6 +68,101 @@ public abstract class ExternalMapper {
     @InjectApimlLogger
     protected ApimlLogger apimlLog = ApimlLogger.empty();
 
+    /**
+     * Seconds to remember a found mapping, 0 disables remembering of the results
+     */
+    @Value("${apiml.security.externalMapper.cache.ttl:300}")
+    long cacheTtl = 300;
+
+    /**
+     * Seconds to remember that there is no mapping
+     */
+    @Value("${apiml.security.externalMapper.cache.negativeTtl:60}")
+    long cacheNegativeTtl = 60;
+
+    /**
+     * Seconds before the expiration of the service JWT when a new one is created
+     */
+    @Value("${apiml.security.externalMapper.tokenRefreshMargin:60}")
+    long tokenRefreshMargin = 60;
+
+    private final Cache<String, MapperResponse> results = Caffeine.newBuilder()
+        .maximumSize(10_000)
+        .expireAfter(new ResultExpiry())
+        .build();
+    private final Map<String, CompletableFuture<MapperResponse>> inProgress = new ConcurrentHashMap<>();
+
+    private volatile ServiceToken serviceToken;
+
+    /**
+     * Call the mapper or return the remembered result of the previous call with the same key. Concurrent calls with
+     * the same key wait for the first one. Errors are not remembered.
+     *
+     * @param key     identification of the mapped identity (i.e. fingerprint of the certificate)
+     * @param payload request to the mapper
+     * @return the response of the mapper or null in case of an error
+     */
+    MapperResponse callExternalMapper(@NotNull String key, @NotNull HttpEntity payload) {
+        if (cacheTtl <= 0) {
+            return callExternalMapper(payload);
+        }
+
+        MapperResponse result = results.getIfPresent(key);
+        if (result != null) {
+            return result;
+        }
+
+        CompletableFuture<MapperResponse> call = new CompletableFuture<>();
+        CompletableFuture<MapperResponse> running = inProgress.putIfAbsent(key, call);
+        if (running != null) {
+            log.debug("Waiting for the running call of the external identity mapper");
+            return running.join();
+        }
+
+        try {
+            result = callExternalMapper(payload);
+            if (result != null) {
+                results.put(key, result);
+            }
+            call.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inProgress.remove(key, call);
+        }
+    }
+
+    String getServiceToken() {
+        ServiceToken token = serviceToken;
+        if ((token != null) && token.isValid()) {
+            return token.value();
+        }
+
+        synchronized (this) {
+            token = serviceToken;
+            if ((token == null) || !token.isValid()) {
+                String jwt = tokenCreationService.createJwtTokenWithoutCredentials(mapperUser);
+                token = new ServiceToken(jwt, getRefreshTime(jwt));
+                serviceToken = token;
+            }
+            return token.value();
+        }
+    }
+
+    private long getRefreshTime(String jwt) {
+        try {
+            Date expiration = JwtUtils.getJwtClaims(jwt).getExpiration();
+            if (expiration != null) {
+                return expiration.getTime() - TimeUnit.SECONDS.toMillis(tokenRefreshMargin);
+            }
+        } catch (RuntimeException e) {
+            log.debug("The token for the external identity mapper cannot be reused: {}", e.getMessage());
+        }
+        return 0;
+    }
+
     MapperResponse callExternalMapper(@NotNull HttpEntity payload) {
         if (StringUtils.isBlank(mapperUrl)) {
             log.warn("Configuration error: External identity mapper URL is not set.");
@@ -67,7 +176,7 @@ public abstract class ExternalMapper {
             HttpPost httpPost = new HttpPost(new URI(mapperUrl));
             httpPost.setEntity(payload);
 
-            String jwtToken = tokenCreationService.createJwtTokenWithoutCredentials(mapperUser);
+            String jwtToken = getServiceToken();
             httpPost.setHeader(new BasicHeader("Cookie", authConfigurationProperties.getCookieProperties().getCookieName() + "=" + jwtToken));
             httpPost.setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
             log.debug("Executing request against external identity mapper API: {}", httpPost);
@@ -80,6 +189,9 @@ public abstract class ExternalMapper {
                 }
 
                 log.debug("External identity mapper API returned: {}", responseBody);
+                if (statusCode == HttpStatus.UNAUTHORIZED.value()) {
+                    serviceToken = null;
+                }
                 if (HttpStatus.valueOf(statusCode).is2xxSuccessful()) {
                     return responseBody;
                 } else if (HttpStatus.valueOf(statusCode).is5xxServerError()) {
@@ -102,4 +214,36 @@ public abstract class ExternalMapper {
         return null;
     }
 
+    private static boolean isMapped(MapperResponse response) {
+        return (response.getRc() == 0) && (response.getSafRc() == 0) && (response.getRacfRc() == 0) && (response.getRacfRs() == 0)
+            && StringUtils.isNotBlank(response.getUserId());
+    }
+
+    record ServiceToken(String value, long refreshTime) {
+
+        boolean isValid() {
+            return System.currentTimeMillis() < refreshTime;
+        }
+
+    }
+
+    private class ResultExpiry implements Expiry<String, MapperResponse> {
+
+        @Override
+        public long expireAfterCreate(String key, MapperResponse value, long currentTime) {
+            return TimeUnit.SECONDS.toNanos(isMapped(value) ? cacheTtl : cacheNegativeTtl);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, MapperResponse value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, MapperResponse value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+    }
+
 }
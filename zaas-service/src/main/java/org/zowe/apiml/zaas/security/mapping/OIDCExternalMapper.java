@@ -80,7 +80,7 @@ public class OIDCExternalMapper extends ExternalMapper implements Authentication
         OIDCRequest oidcRequest = new OIDCRequest(distributedId, registry);
         try {
             StringEntity payload = new StringEntity(objectMapper.writeValueAsString(oidcRequest));
-            MapperResponse mapperResponse = callExternalMapper(payload);
+            MapperResponse mapperResponse = callExternalMapper(distributedId + '\n' + registry, payload);
 
             if (mapperResponse != null && mapperResponse.isOIDCResultValid()) {
                 String userId = mapperResponse.getUserId().trim();
@@ -25,8 +25,11 @@ import org.zowe.apiml.zaas.security.service.schema.source.AuthSource;
 import org.zowe.apiml.zaas.security.service.schema.source.X509AuthSource;
 import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
+import java.util.HexFormat;
 
 /**
  * Certificate mapper that allows to return user id of the provided x509 certificate
@@ -60,8 +63,9 @@ public class X509ExternalMapper extends ExternalMapper implements Authentication
             X509Certificate certificate = (X509Certificate) authSource.getRawSource();
             if (certificate != null) {
                 try {
-                    HttpEntity payload = new ByteArrayEntity(certificate.getEncoded(), ContentType.TEXT_PLAIN);
-                    MapperResponse mapperResponse = callExternalMapper(payload);
+                    byte[] encoded = certificate.getEncoded();
+                    HttpEntity payload = new ByteArrayEntity(encoded, ContentType.TEXT_PLAIN);
+                    MapperResponse mapperResponse = callExternalMapper(fingerprint(encoded), payload);
                     if (mapperResponse != null) {
                         return mapperResponse.getUserId().trim();
                     }
@@ -77,4 +81,12 @@ public class X509ExternalMapper extends ExternalMapper implements Authentication
         return null;
     }
 
+    static String fingerprint(byte[] encodedCertificate) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(encodedCertificate));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
 }
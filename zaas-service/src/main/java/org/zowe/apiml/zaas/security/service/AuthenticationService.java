@@ -37,8 +37,6 @@ import org.springframework.context.annotation.ScopedProxyMode;
 import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
 import org.zowe.apiml.constants.ApimlConstants;
 import org.zowe.apiml.product.constants.CoreService;
 import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
@@ -79,7 +77,7 @@ public class AuthenticationService {
     private final JwtSecurity jwtSecurityInitializer;
     private final ZosmfService zosmfService;
     private final EurekaClient eurekaClient;
-    private final RestTemplate restTemplate;
+    private final InvalidationBroadcaster invalidationBroadcaster;
     private final CacheManager cacheManager;
     private final CacheUtils cacheUtils;
 
@@ -229,6 +227,17 @@ public class AuthenticationService {
         return EurekaUtils.getUrl(instanceInfo) + AuthController.CONTROLLER_PATH + "/invalidate/" + jwtToken;
     }
 
+    private InvalidationBroadcaster.Peer toPeer(InstanceInfo instanceInfo) {
+        return new InvalidationBroadcaster.Peer(
+            instanceInfo.getInstanceId(),
+            StringUtils.removeEnd(getInvalidateUrl(instanceInfo, ""), "/"),
+            jwtToken -> getInvalidateUrl(instanceInfo, jwtToken)
+        );
+    }
+
+    /**
+     * The invalidation is sent to the other instances asynchronously, the logout does not wait for them.
+     */
     private boolean invalidateTokenOnAnotherInstance(String jwtToken, Application application) {
         if (application == null) {
             return Boolean.FALSE;
@@ -240,13 +249,7 @@ public class AuthenticationService {
                 continue;
             }
 
-            final String url = getInvalidateUrl(instanceInfo, jwtToken);
-            try {
-                restTemplate.delete(url);
-            } catch (HttpClientErrorException e) {
-                log.debug("Problem invalidating token on another instance url " + url, e);
-            }
-
+            invalidationBroadcaster.send(toPeer(instanceInfo), Collections.singletonList(jwtToken));
         }
 
         return Boolean.TRUE;
@@ -329,8 +332,8 @@ public class AuthenticationService {
 
     /**
      * This method get all invalidated JWT token in the cache and distributes them to instance of ZAAS with name
-     * in argument toInstanceId. If instance cannot be find it return false. A notification can throw an runtime
-     * exception. In all other cases all invalidated token are distributed and method returns true.
+     * in argument toInstanceId. If instance cannot be find it return false. In all other cases all invalidated token
+     * are added to the outbox of the instance, they are sent asynchronously, and method returns true.
      * <p>
      * Node: This method should not be used in modulith-mode
      *
@@ -345,12 +348,8 @@ public class AuthenticationService {
         final InstanceInfo instanceInfo = zaas.getByInstanceId(toInstanceId);
         if (instanceInfo == null) return false;
 
-        var url = EurekaUtils.getUrl(instanceInfo) + AuthController.CONTROLLER_PATH + "/invalidate/{}";
-
         final Collection<String> invalidated = cacheUtils.getAllRecords(cacheManager, CACHE_INVALIDATED_JWT_TOKENS);
-        for (final String invalidatedToken : invalidated) {
-            restTemplate.delete(url, invalidatedToken);
-        }
+        invalidationBroadcaster.send(toPeer(instanceInfo), invalidated);
 
         return true;
     }
@@ -0,0 +1,250 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+
+package org.zowe.apiml.zaas.security.service;
+
+import com.netflix.discovery.CacheRefreshedEvent;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.EurekaEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+/**
+ * Sends the invalidated JWT tokens to the other instances of ZAAS without blocking the caller.
+ * <p>
+ * Each instance has its own outbox of the tokens to send. The outboxes are delivered in parallel, the tokens waiting
+ * in the outbox are sent together in one request. If the instance does not support the request with more tokens,
+ * they are sent one by one. The undelivered tokens are kept in the outbox and sent again later, up to the maximum
+ * number of attempts. The outboxes of the instances which are not registered anymore are removed once the registry is
+ * refreshed.
+ */
+@Slf4j
+@Component
+public class InvalidationBroadcaster {
+
+    private final RestTemplate restTemplate;
+    private final EurekaClient eurekaClient;
+    private final ScheduledExecutorService executor;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryDelay;
+
+    private final Map<String, Outbox> outboxes = new ConcurrentHashMap<>();
+
+    @Autowired
+    public InvalidationBroadcaster(
+        RestTemplate restTemplate,
+        EurekaClient eurekaClient,
+        @Value("${apiml.security.jwtInvalidation.threads:4}") int threads,
+        @Value("${apiml.security.jwtInvalidation.batchSize:100}") int batchSize,
+        @Value("${apiml.security.jwtInvalidation.maxAttempts:5}") int maxAttempts,
+        @Value("${apiml.security.jwtInvalidation.retryDelay:1000}") long retryDelay
+    ) {
+        this(restTemplate, eurekaClient, createExecutor(threads), batchSize, maxAttempts, retryDelay);
+    }
+
+    InvalidationBroadcaster(RestTemplate restTemplate, EurekaClient eurekaClient, ScheduledExecutorService executor, int batchSize, int maxAttempts, long retryDelay) {
+        this.restTemplate = restTemplate;
+        this.eurekaClient = eurekaClient;
+        this.executor = executor;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryDelay = retryDelay;
+    }
+
+    private static ScheduledExecutorService createExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newScheduledThreadPool(Math.max(1, threads), r -> {
+            Thread thread = new Thread(r, "JWT Invalidation " + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    void registerEurekaListener() {
+        eurekaClient.registerEventListener(this::onEurekaEvent);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Remove the outboxes of the instances that are not registered anymore. The tokens being delivered to them are
+     * still sent up to the maximum number of attempts.
+     */
+    void onEurekaEvent(EurekaEvent event) {
+        if (event instanceof CacheRefreshedEvent) {
+            outboxes.keySet().removeIf(instanceId -> eurekaClient.getInstancesById(instanceId).isEmpty());
+        }
+    }
+
+    /**
+     * Add the tokens to the outbox of the instance and schedule their delivery.
+     *
+     * @param peer   instance of ZAAS to notify
+     * @param tokens invalidated tokens
+     */
+    public void send(Peer peer, Collection<String> tokens) {
+        if (tokens.isEmpty()) {
+            return;
+        }
+
+        Outbox outbox = outboxes.computeIfAbsent(peer.instanceId(), id -> new Outbox());
+        outbox.peer = peer;
+        tokens.forEach(token -> outbox.pending.add(new Pending(token, 1)));
+        schedule(outbox);
+    }
+
+    /**
+     * @return number of tokens waiting for the delivery to any instance
+     */
+    public int getPendingCount() {
+        return outboxes.values().stream().mapToInt(outbox -> outbox.pending.size()).sum();
+    }
+
+    private void schedule(Outbox outbox) {
+        if (outbox.draining.compareAndSet(false, true)) {
+            executor.execute(() -> drain(outbox));
+        }
+    }
+
+    private void drain(Outbox outbox) {
+        try {
+            List<Pending> batch;
+            while (!(batch = poll(outbox)).isEmpty()) {
+                retry(outbox, deliver(outbox, batch));
+            }
+        } catch (RuntimeException e) {
+            log.debug("Unexpected error while sending invalidated tokens to instance {}", outbox.peer.instanceId(), e);
+        } finally {
+            outbox.draining.set(false);
+            // tokens could be added after the last poll, but before the flag was cleared
+            if (!outbox.pending.isEmpty()) {
+                schedule(outbox);
+            }
+        }
+    }
+
+    private List<Pending> poll(Outbox outbox) {
+        List<Pending> batch = new ArrayList<>();
+        Pending pending;
+        while (batch.size() < batchSize && (pending = outbox.pending.poll()) != null) {
+            batch.add(pending);
+        }
+        return batch;
+    }
+
+    /**
+     * @return tokens which were not delivered and could be sent again
+     */
+    private List<Pending> deliver(Outbox outbox, List<Pending> batch) {
+        Peer peer = outbox.peer;
+        if ((batch.size() > 1) && !outbox.batchUnsupported) {
+            try {
+                restTemplate.postForEntity(peer.batchUrl(), batch.stream().map(Pending::token).toList(), Void.class);
+                return List.of();
+            } catch (HttpClientErrorException e) {
+                // 404 and 405 mean there is no endpoint (i.e. an older instance or the modulith gateway), the others can be temporary
+                int status = e.getStatusCode().value();
+                if (status == HttpStatus.NOT_FOUND.value() || status == HttpStatus.METHOD_NOT_ALLOWED.value()) {
+                    outbox.batchUnsupported = true;
+                }
+                log.debug("Instance {} rejected invalidation of more tokens in one request, sending them one by one: {}", peer.instanceId(), e.getMessage());
+            } catch (RestClientException e) {
+                log.debug("Problem invalidating tokens on another instance url {}", peer.batchUrl(), e);
+                return batch;
+            }
+        }
+
+        List<Pending> failed = new ArrayList<>();
+        for (Pending pending : batch) {
+            final String url = peer.tokenUrl().apply(pending.token());
+            try {
+                restTemplate.delete(url);
+            } catch (RestClientException e) {
+                log.debug("Problem invalidating token on another instance url " + url, e);
+                // the token rejected by the instance (4xx) would be rejected again
+                if (!(e instanceof HttpClientErrorException)) {
+                    failed.add(pending);
+                }
+            }
+        }
+        return failed;
+    }
+
+    private void retry(Outbox outbox, List<Pending> failed) {
+        List<Pending> retried = new ArrayList<>();
+        for (Pending pending : failed) {
+            if (pending.attempt() < maxAttempts) {
+                retried.add(new Pending(pending.token(), pending.attempt() + 1));
+            } else {
+                log.warn("The invalidated token was not delivered to the instance {} after {} attempts", outbox.peer.instanceId(), maxAttempts);
+            }
+        }
+        if (retried.isEmpty()) {
+            return;
+        }
+
+        long delay = retryDelay * (retried.get(0).attempt() - 1);
+        executor.schedule(() -> {
+            outbox.pending.addAll(retried);
+            schedule(outbox);
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Instance of ZAAS to notify.
+     *
+     * @param instanceId ID of the instance
+     * @param batchUrl   URL to send more tokens in one request
+     * @param tokenUrl   provides URL to invalidate a single token
+     */
+    public record Peer(String instanceId, String batchUrl, UnaryOperator<String> tokenUrl) {
+    }
+
+    private record Pending(String token, int attempt) {
+    }
+
+    private static class Outbox {
+
+        private final Queue<Pending> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile Peer peer;
+        private volatile boolean batchUnsupported;
+
+    }
+
+}
@@ -20,7 +20,6 @@ import org.springframework.context.annotation.EnableAspectJAutoProxy;
 import org.springframework.context.annotation.Scope;
 import org.springframework.context.annotation.ScopedProxyMode;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
 import org.zowe.apiml.util.CacheUtils;
 import org.zowe.apiml.util.EurekaUtils;
@@ -35,10 +34,10 @@ public class ModulithAuthenticationService extends AuthenticationService {
 
     public ModulithAuthenticationService(ApplicationContext applicationContext,
             AuthConfigurationProperties authConfigurationProperties, JwtSecurity jwtSecurityInitializer,
-            ZosmfService zosmfService, EurekaClient eurekaClient, RestTemplate restTemplate, CacheManager cacheManager,
-            CacheUtils cacheUtils) {
-        super(applicationContext, authConfigurationProperties, jwtSecurityInitializer, zosmfService, eurekaClient, restTemplate,
-                cacheManager, cacheUtils);
+            ZosmfService zosmfService, EurekaClient eurekaClient, InvalidationBroadcaster invalidationBroadcaster,
+            CacheManager cacheManager, CacheUtils cacheUtils) {
+        super(applicationContext, authConfigurationProperties, jwtSecurityInitializer, zosmfService, eurekaClient,
+                invalidationBroadcaster, cacheManager, cacheUtils);
     }
 
     @Override
@@ -12,9 +12,13 @@ package org.zowe.apiml.zaas.security.service.token;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.zowe.apiml.cache.StorageException;
 import org.zowe.apiml.models.AccessTokenContainer;
@@ -29,11 +33,12 @@ import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.Date;
+import java.util.HexFormat;
 import java.util.List;
-import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 
 @Service
@@ -45,13 +50,45 @@ public class ApimlAccessTokenProvider implements AccessTokenProvider {
     static final String INVALID_USERS_KEY = "invalidUsers";
     static final String INVALID_SCOPES_KEY = "invalidScopes";
 
+    private static final HexFormat HEX_FORMAT = HexFormat.of();
+    private static final ThreadLocal<MessageDigest> SHA_512 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-512");
+        } catch (NoSuchAlgorithmException e) {
+            log.error("Could not generate hash", e);
+            return null;
+        }
+    });
+
     private final CachingClient cachingServiceClient;
     private final AuthenticationService authenticationService;
     @Qualifier("oidcJwkMapper")
     private final ObjectMapper objectMapper;
 
+    /**
+     * Time in milliseconds after which the local copy of the invalidations is reloaded from the Caching Service.
+     */
+    @Value("${apiml.security.personalAccessToken.invalidationRefreshInterval:5000}")
+    private long invalidationRefreshInterval;
+
+    private final InvalidationIndex invalidationIndex = new InvalidationIndex();
+
+    /**
+     * Recently verified tokens with their hashes, the same token is usually validated with many requests. The entries
+     * are short-lived and they are not used after the expiration of the token.
+     */
+    private final Cache<String, ParsedToken> parsedTokens = Caffeine.newBuilder()
+        .maximumSize(1000)
+        .expireAfterWrite(Duration.ofSeconds(30))
+        .build();
+
     private byte[] salt;
 
+    @PreDestroy
+    public void shutdown() {
+        invalidationIndex.shutdown();
+    }
+
     public void invalidateToken(String token) throws CachingServiceClientException, JsonProcessingException {
         String hashedValue = getHash(token);
         QueryResponse queryResponse = authenticationService.parseJwtWithSignature(token);
@@ -62,6 +99,7 @@ public class ApimlAccessTokenProvider implements AccessTokenProvider {
 
         String json = objectMapper.writeValueAsString(container);
         cachingServiceClient.appendList(INVALID_TOKENS_KEY, new CachingServiceClient.KeyValue(hashedValue, json));
+        invalidationIndex.tokenInvalidated(hashedValue);
     }
 
     public void invalidateAllTokensForUser(String userId, long timestamp) throws CachingServiceClientException {
@@ -71,6 +109,7 @@ public class ApimlAccessTokenProvider implements AccessTokenProvider {
         }
         log.debug("hashedUserId {}, timestamp {}", hashedUserId, timestamp);
         cachingServiceClient.appendList(INVALID_USERS_KEY, new CachingServiceClient.KeyValue(hashedUserId, Long.toString(timestamp)));
+        invalidationIndex.userInvalidated(hashedUserId, timestamp);
     }
 
     public void invalidateAllTokensForService(String serviceId, long timestamp) throws CachingServiceClientException {
@@ -80,65 +119,36 @@ public class ApimlAccessTokenProvider implements AccessTokenProvider {
         }
         log.debug("serviceIdHash {}, timestamp {}", hashedServiceId, timestamp);
         cachingServiceClient.appendList(INVALID_SCOPES_KEY, new CachingServiceClient.KeyValue(hashedServiceId, Long.toString(timestamp)));
+        invalidationIndex.scopeInvalidated(hashedServiceId, timestamp);
     }
 
     public boolean isInvalidated(String token) throws CachingServiceClientException {
-        QueryResponse parsedToken = authenticationService.parseJwtWithSignature(token);
-        String hashedToken = getHash(token);
-        String hashedUserId = getHash(parsedToken.getUserId());
-        List<String> hashedServiceIds = parsedToken.getScopes().stream().map(this::getHash).toList();
-
-        Map<String, Map<String, String>> cacheMap = cachingServiceClient.readAllMaps();
-        if (cacheMap != null && !cacheMap.isEmpty()) {
-            Map<String, String> invalidTokens = cacheMap.get(INVALID_TOKENS_KEY);
-            Map<String, String> invalidUsers = cacheMap.get(INVALID_USERS_KEY);
-            Map<String, String> invalidScopes = cacheMap.get(INVALID_SCOPES_KEY);
-            Optional<Boolean> isInvalidated = checkInvalidToken(invalidTokens, hashedToken);
-            if (isInvalidated.isEmpty()) {
-                isInvalidated = checkRule(invalidUsers, hashedUserId, parsedToken);
-            }
-            for (String hashedServiceId : hashedServiceIds) {
-                if (isInvalidated.isEmpty()) {
-                    isInvalidated = checkRule(invalidScopes, hashedServiceId, parsedToken);
-                } else {
-                    break;
-                }
-            }
-            if (isInvalidated.isPresent()) {
-                return isInvalidated.get();
-            }
-        }
-        return false;
+        ParsedToken parsedToken = parse(token);
+
+        InvalidationIndex.Invalidations invalidations = invalidationIndex.get(invalidationRefreshInterval,
+            () -> InvalidationIndex.Invalidations.of(cachingServiceClient.readAllMaps(), objectMapper));
+        return invalidations.isInvalidated(parsedToken.hashedToken(), parsedToken.hashedUserId(), parsedToken.hashedServiceIds(),
+            parsedToken.claims().getCreation().getTime());
     }
 
-    private Optional<Boolean> checkInvalidToken(Map<String, String> invalidTokens, String tokenId) {
-        if (invalidTokens != null && !invalidTokens.isEmpty() && invalidTokens.containsKey(tokenId)) {
-            String s = invalidTokens.get(tokenId);
-            try {
-                AccessTokenContainer c = objectMapper.readValue(s, AccessTokenContainer.class);
-                return Optional.of(c != null);
-            } catch (JsonProcessingException e) {
-                log.error("Not able to parse invalidToken json value.", e);
-            }
+    private ParsedToken parse(String token) {
+        ParsedToken parsedToken = parsedTokens.get(token, this::parseAndHash);
+        if (parsedToken.isExpired()) {
+            // verify the token again to get the same exception as without the cache
+            parsedTokens.invalidate(token);
+            parsedToken = parseAndHash(token);
         }
-        return Optional.empty();
-    }
-
-    private Optional<Boolean> checkRule(Map<String, String> tokenRules, String ruleId, QueryResponse parsedToken) {
-        if (tokenRules != null && !tokenRules.isEmpty() && tokenRules.containsKey(ruleId)) {
-            String timestampStr = tokenRules.get(ruleId);
-            try {
-                long timestamp = Long.parseLong(timestampStr);
-                var tokenTime = parsedToken.getCreation().getTime();
-                boolean result = tokenTime <= timestamp;
-                if (result) {
-                    return Optional.of(true);
-                }
-            } catch (NumberFormatException e) {
-                log.error("Not able to convert timestamp value to number.", e);
-            }
+        return parsedToken;
+    }
+
+    private ParsedToken parseAndHash(String token) {
+        QueryResponse claims = authenticationService.parseJwtWithSignature(token);
+        if (claims == null) {
+            return new ParsedToken(null, null, null, List.of());
         }
-        return Optional.empty();
+
+        List<String> scopes = claims.getScopes() == null ? List.of() : claims.getScopes();
+        return new ParsedToken(claims, getHash(token), getHash(claims.getUserId()), scopes.stream().map(this::getHash).toList());
     }
 
     public void evictNonRelevantTokensAndRules() {
@@ -175,7 +185,7 @@ public class ApimlAccessTokenProvider implements AccessTokenProvider {
 
     public boolean isValidForScopes(String jwtToken, String serviceId) {
         if (serviceId != null) {
-            QueryResponse parsedToken = authenticationService.parseJwtWithSignature(jwtToken);
+            QueryResponse parsedToken = parse(jwtToken).claims();
             if (parsedToken != null && parsedToken.getScopes() != null) {
                 return parsedToken.getScopes().contains(serviceId.toLowerCase());
             }
@@ -206,20 +216,27 @@ public class ApimlAccessTokenProvider implements AccessTokenProvider {
     }
 
     public static String getSecurePassword(String password, byte[] salt) {
-        String generatedPassword = null;
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-512");
-            md.update(salt);
-            byte[] bytes = md.digest(password.getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder();
-            for (byte aByte : bytes) {
-                sb.append(Integer.toString((aByte & 0xff) + 0x100, 16).substring(1));
-            }
-            generatedPassword = sb.toString();
-        } catch (NoSuchAlgorithmException e) {
-            log.error("Could not generate hash", e);
+        MessageDigest md = SHA_512.get();
+        if (md == null) {
+            return null;
+        }
+
+        md.reset();
+        md.update(salt);
+        return HEX_FORMAT.formatHex(md.digest(password.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Verified claims of the token and the hashes used to look up its invalidations.
+     */
+    record ParsedToken(QueryResponse claims, String hashedToken, String hashedUserId, List<String> hashedServiceIds) {
+
+        boolean isExpired() {
+            Date expiration = claims == null ? null : claims.getExpiration();
+            return (expiration != null) && !expiration.after(new Date());
         }
-        return generatedPassword;
+
     }
+
 }
 
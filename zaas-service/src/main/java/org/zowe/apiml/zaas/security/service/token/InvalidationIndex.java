@@ -0,0 +1,196 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+
+package org.zowe.apiml.zaas.security.service.token;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.zowe.apiml.models.AccessTokenContainer;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Local copy of the invalidated tokens and the invalidation rules stored in the Caching Service, so the validation of
+ * a token does not read all of them from the Caching Service.
+ * <p>
+ * The copy is reloaded once it is older than the refresh interval. Meanwhile, the current copy is used and it is
+ * reloaded on the background. If the copy is older than {@link #MAX_MISSED_REFRESHES} refresh intervals (the reload
+ * failed), the reload blocks and its failure is thrown. The invalidations made by this instance are added to the copy
+ * immediately, the invalidations made by the other instances are visible after the reload. While the Caching Service
+ * is unavailable, a token invalidated by another instance is accepted for up to two refresh intervals (10 seconds by
+ * default).
+ */
+@Slf4j
+class InvalidationIndex {
+
+    /**
+     * Number of the refresh intervals after which the copy cannot be used anymore.
+     */
+    private static final int MAX_MISSED_REFRESHES = 2;
+
+    private final Object lock = new Object();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final ExecutorService reloadExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "Invalidation Index Reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Invalidations invalidations;
+    private volatile long loadedAt;
+
+    /**
+     * @param refreshInterval time in milliseconds after which the copy is reloaded, 0 means it is loaded on each call
+     * @param loader          loads the invalidations from the Caching Service
+     * @return the current invalidations
+     */
+    Invalidations get(long refreshInterval, Supplier<Invalidations> loader) {
+        Invalidations current = invalidations;
+        long requestedAt = System.nanoTime();
+        long age = requestedAt - loadedAt;
+        long interval = TimeUnit.MILLISECONDS.toNanos(refreshInterval);
+        if (current == null || age >= interval * MAX_MISSED_REFRESHES) {
+            return load(requestedAt, loader);
+        }
+
+        if (age >= interval && refreshing.compareAndSet(false, true)) {
+            try {
+                reloadExecutor.execute(() -> {
+                    try {
+                        load(System.nanoTime(), loader);
+                    } catch (RuntimeException e) {
+                        log.warn("The invalidated tokens cannot be reloaded from the Caching Service: {}", e.getMessage());
+                    } finally {
+                        refreshing.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                refreshing.set(false);
+            }
+        }
+        return current;
+    }
+
+    void shutdown() {
+        reloadExecutor.shutdownNow();
+    }
+
+    private Invalidations load(long requestedAt, Supplier<Invalidations> loader) {
+        synchronized (lock) {
+            // the copy could be loaded by another thread while this one was waiting
+            if (invalidations != null && loadedAt - requestedAt > 0) {
+                return invalidations;
+            }
+
+            long startedAt = System.nanoTime();
+            invalidations = loader.get();
+            loadedAt = startedAt;
+            return invalidations;
+        }
+    }
+
+    /**
+     * Add the token invalidated by this instance, it was already stored in the Caching Service.
+     */
+    void tokenInvalidated(String hashedToken) {
+        synchronized (lock) {
+            if (invalidations != null) {
+                invalidations.tokens().add(hashedToken);
+            }
+        }
+    }
+
+    /**
+     * Add the rule for a user created by this instance, it was already stored in the Caching Service.
+     */
+    void userInvalidated(String hashedUserId, long timestamp) {
+        synchronized (lock) {
+            if (invalidations != null) {
+                invalidations.users().merge(hashedUserId, timestamp, Math::max);
+            }
+        }
+    }
+
+    /**
+     * Add the rule for a scope created by this instance, it was already stored in the Caching Service.
+     */
+    void scopeInvalidated(String hashedServiceId, long timestamp) {
+        synchronized (lock) {
+            if (invalidations != null) {
+                invalidations.scopes().merge(hashedServiceId, timestamp, Math::max);
+            }
+        }
+    }
+
+    /**
+     * The hashed tokens and the timestamps of the rules for the hashed user IDs and service IDs. The tokens issued
+     * before the timestamp of a rule are invalidated.
+     */
+    record Invalidations(Set<String> tokens, Map<String, Long> users, Map<String, Long> scopes) {
+
+        static Invalidations of(Map<String, Map<String, String>> maps, ObjectMapper objectMapper) {
+            Invalidations result = new Invalidations(ConcurrentHashMap.newKeySet(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+            if (maps == null) {
+                return result;
+            }
+
+            Map<String, String> invalidTokens = maps.getOrDefault(ApimlAccessTokenProvider.INVALID_TOKENS_KEY, Map.of());
+            invalidTokens.forEach((hashedToken, json) -> {
+                try {
+                    if (objectMapper.readValue(json, AccessTokenContainer.class) != null) {
+                        result.tokens().add(hashedToken);
+                    }
+                } catch (JsonProcessingException e) {
+                    log.error("Not able to parse invalidToken json value.", e);
+                }
+            });
+            addRules(maps.get(ApimlAccessTokenProvider.INVALID_USERS_KEY), result.users());
+            addRules(maps.get(ApimlAccessTokenProvider.INVALID_SCOPES_KEY), result.scopes());
+            return result;
+        }
+
+        private static void addRules(Map<String, String> rules, Map<String, Long> timestamps) {
+            if (rules == null) {
+                return;
+            }
+
+            rules.forEach((ruleId, timestamp) -> {
+                try {
+                    timestamps.put(ruleId, Long.parseLong(timestamp));
+                } catch (NumberFormatException e) {
+                    log.error("Not able to convert timestamp value to number.", e);
+                }
+            });
+        }
+
+        boolean isInvalidated(String hashedToken, String hashedUserId, Collection<String> hashedServiceIds, long issuedAt) {
+            if (tokens.contains(hashedToken) || issuedBefore(users.get(hashedUserId), issuedAt)) {
+                return true;
+            }
+            return hashedServiceIds.stream().anyMatch(hashedServiceId -> issuedBefore(scopes.get(hashedServiceId), issuedAt));
+        }
+
+        private static boolean issuedBefore(Long ruleTimestamp, long issuedAt) {
+            return ruleTimestamp != null && issuedAt <= ruleTimestamp;
+        }
+
+    }
+
+}
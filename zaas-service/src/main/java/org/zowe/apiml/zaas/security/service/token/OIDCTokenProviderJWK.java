@@ -26,7 +26,6 @@ import io.jsonwebtoken.LocatorAdapter;
 import io.jsonwebtoken.ProtectedHeader;
 import io.jsonwebtoken.security.UnsupportedKeyException;
 import jakarta.annotation.PostConstruct;
-import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -44,9 +43,8 @@ import java.net.URL;
 import java.security.Key;
 import java.security.PublicKey;
 import java.text.ParseException;
+import java.util.Collections;
 import java.util.Map;
-import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -71,14 +69,19 @@ public class OIDCTokenProviderJWK implements OIDCProvider {
     @Value("${apiml.security.oidc.jwks.refreshInternalHours:1}")
     private int jwkRefreshInterval;
 
+    /**
+     * Minimal time between two refreshes caused by a token signed with an unknown key
+     */
+    @Value("${apiml.security.oidc.jwks.minRefreshIntervalSeconds:30}")
+    private int jwkMinRefreshInterval;
+
     @Qualifier("oidcJwtClock")
     private final Clock clock;
     private final DefaultResourceRetriever resourceRetriever;
 
-    @Getter
-    private final Map<String, PublicKey> publicKeys = new ConcurrentHashMap<>();
-    @Getter
-    private JWKSet jwkSet;
+    private final Object refreshLock = new Object();
+    private volatile KeyRing keyRing = KeyRing.EMPTY;
+    private volatile long lastRefresh;
 
     @PostConstruct
     public void afterPropertiesSet() {
@@ -87,22 +90,62 @@ public class OIDCTokenProviderJWK implements OIDCProvider {
             .scheduleAtFixedRate(this::fetchJWKSet, jwkRefreshInterval, jwkRefreshInterval, TimeUnit.HOURS);
     }
 
+    /**
+     * @return public keys by their ID, the map is replaced on each successful refresh
+     */
+    public Map<String, PublicKey> getPublicKeys() {
+        return keyRing.publicKeys();
+    }
+
+    /**
+     * @return the last successfully loaded JWK set, or null if no set was loaded yet
+     */
+    public JWKSet getJwkSet() {
+        return keyRing.jwkSet();
+    }
+
+    /**
+     * Loads the JWK set and replaces the current keys at once. If the request fails, the previous keys are still
+     * used until the next refresh.
+     */
     @Retryable
     void fetchJWKSet() {
         if (StringUtils.isBlank(jwksUri)) {
             log.debug("OIDC JWK URI not provided, JWK refresh not performed");
             return;
         }
-        log.debug("Refreshing JWK endpoints {}", jwksUri);
 
-        try {
-            publicKeys.clear();
-            jwkSet = null;
-            Resource resource = resourceRetriever.retrieveResource(new URL(jwksUri));
-            jwkSet = JWKSet.parse(resource.getContent());
-            publicKeys.putAll(processKeys(jwkSet));
-        } catch (IOException | ParseException | IllegalStateException e) {
-            log.error("Error processing response from URI {} message: {}", jwksUri, e.getMessage());
+        synchronized (refreshLock) {
+            log.debug("Refreshing JWK endpoints {}", jwksUri);
+            lastRefresh = System.currentTimeMillis();
+            try {
+                Resource resource = resourceRetriever.retrieveResource(new URL(jwksUri));
+                JWKSet newJwkSet = JWKSet.parse(resource.getContent());
+                keyRing = new KeyRing(newJwkSet, Collections.unmodifiableMap(processKeys(newJwkSet)));
+            } catch (IOException | ParseException | IllegalStateException e) {
+                log.error("Error processing response from URI {} message: {}", jwksUri, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Refresh the keys on demand (i.e. a token signed by a new key). Concurrent calls are coalesced to a single
+     * request and the refreshes are rate-limited.
+     *
+     * @param observed keys which were used by the caller
+     * @return the current keys
+     */
+    KeyRing refresh(KeyRing observed) {
+        synchronized (refreshLock) {
+            if (keyRing != observed) {
+                // already refreshed by another thread
+                return keyRing;
+            }
+            if (System.currentTimeMillis() - lastRefresh < TimeUnit.SECONDS.toMillis(jwkMinRefreshInterval)) {
+                return keyRing;
+            }
+            fetchJWKSet();
+            return keyRing;
         }
     }
 
@@ -111,7 +154,8 @@ public class OIDCTokenProviderJWK implements OIDCProvider {
             .filter(jwkKey -> {
                 KeyUse keyUse = jwkKey.getKeyUse();
                 KeyType keyType = jwkKey.getKeyType();
-                return keyUse != null && keyType != null && "sig".equals(keyUse.getValue()) && "RSA".equals(keyType.getValue());
+                // the use is optional in JWK, a key without it could be still used to sign the token
+                return (keyUse == null || "sig".equals(keyUse.getValue())) && keyType != null && "RSA".equals(keyType.getValue());
             })
             .collect(Collectors.toMap(JWK::getKeyID, jwkKey -> {
                 try {
@@ -135,8 +179,9 @@ public class OIDCTokenProviderJWK implements OIDCProvider {
     }
 
     Claims getClaims(String token) {
-        if (jwkSet == null || jwkSet.isEmpty()) {
-            fetchJWKSet();
+        KeyRing current = keyRing;
+        if (current.publicKeys().isEmpty()) {
+            refresh(current);
         }
 
         if (StringUtils.isBlank(token)) {
@@ -155,24 +200,35 @@ public class OIDCTokenProviderJWK implements OIDCProvider {
 
         @Override
         protected Key locate(ProtectedHeader header) {
-            if (jwkSet == null) {
+            KeyRing current = keyRing;
+            if (current.jwkSet() == null) {
                 throw new JwtException("Could not validate the token due to missing public key.");
             }
             String kid = header.getKeyId();
             if (kid == null) {
                 throw new UnsupportedKeyException("Token does not provide kid. It uses an unsupported type of signature.");
             }
-            return Optional.ofNullable(jwkSet.getKeyByKeyId(header.getKeyId()))
-                .map(key -> {
-                    try {
-                        return key.toRSAKey().toPublicKey();
-                    } catch (JOSEException e) {
-                        throw new JwtException("Could not validate the token due to either an invalid token or an invalid public key.", e);
-                    }
-                })
-                .orElseThrow(() -> new UnsupportedKeyException("Key with id " + header.getKeyId() + " is null in JWK"));
+
+            PublicKey publicKey = current.publicKeys().get(kid);
+            if (publicKey == null) {
+                // the provider could rotate the keys since the last refresh
+                publicKey = refresh(current).publicKeys().get(kid);
+            }
+            if (publicKey == null) {
+                throw new UnsupportedKeyException("Key with id " + kid + " is null in JWK");
+            }
+            return publicKey;
         }
 
     }
 
+    /**
+     * Immutable snapshot of the loaded JWK set and its public keys converted in advance.
+     */
+    record KeyRing(JWKSet jwkSet, Map<String, PublicKey> publicKeys) {
+
+        static final KeyRing EMPTY = new KeyRing(null, Collections.emptyMap());
+
+    }
+
 }
@@ -34,6 +34,7 @@ import org.zowe.apiml.message.core.MessageService;
 import org.zowe.apiml.message.yaml.YamlMessageService;
 import org.zowe.apiml.security.common.token.AccessTokenProvider;
 import org.zowe.apiml.security.common.token.TokenAuthentication;
+import org.zowe.apiml.security.common.token.TokenNotValidException;
 import org.zowe.apiml.zaas.security.service.AuthenticationService;
 import org.zowe.apiml.zaas.security.service.JwtSecurity;
 import org.zowe.apiml.zaas.security.service.token.OIDCTokenProviderJWK;
@@ -111,6 +112,22 @@ class AuthControllerTest {
         verify(authenticationService, times(1)).invalidateJwtToken("a/b", false);
     }
 
+    @Test
+    void invalidateJwtTokens() throws Exception {
+        when(authenticationService.invalidateJwtToken("a", false)).thenReturn(Boolean.TRUE);
+        when(authenticationService.invalidateJwtToken("b", false)).thenThrow(new TokenNotValidException("invalid"));
+        this.mockMvc.perform(post("/zaas/api/v1/auth/invalidate")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[\"a\", \"b\"]")).andExpect(status().is(SC_OK));
+
+        this.mockMvc.perform(post("/zaas/api/v1/auth/invalidate")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[\"a\", \"c\"]")).andExpect(status().is(SC_SERVICE_UNAVAILABLE));
+
+        verify(authenticationService, times(2)).invalidateJwtToken("a", false);
+        verify(authenticationService, times(1)).invalidateJwtToken("c", false);
+    }
+
     @Test
     void distributeInvalidate() throws Exception {
         when(authenticationService.distributeInvalidate("instance/1")).thenReturn(true);
@@ -21,6 +21,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.zowe.apiml.message.core.MessageService;
 import org.zowe.apiml.message.yaml.YamlMessageService;
+import org.zowe.apiml.security.common.auth.saf.SafResourceAccessCaching;
 import org.zowe.apiml.security.common.auth.saf.SafResourceAccessVerifying;
 import org.zowe.apiml.security.common.token.TokenAuthentication;
 
@@ -28,6 +29,8 @@ import static org.apache.hc.core5.http.HttpStatus.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -90,6 +93,26 @@ class SafResourceAccessControllerTest {
         }
     }
 
+    @Nested
+    class givenFlushRequest {
+        @Test
+        void flushesCachedDecisions() throws Exception {
+            SafResourceAccessCaching caching = mock(SafResourceAccessCaching.class);
+            mockMvc = MockMvcBuilders.standaloneSetup(new SafResourceAccessController(caching, messageService)).build();
+
+            mockMvc.perform(delete(SafResourceAccessController.FULL_CACHE_PATH))
+                .andExpect(status().is(SC_NO_CONTENT));
+
+            verify(caching).flush();
+        }
+
+        @Test
+        void returnsNoContentWithoutCache() throws Exception {
+            mockMvc.perform(delete(SafResourceAccessController.FULL_CACHE_PATH))
+                .andExpect(status().is(SC_NO_CONTENT));
+        }
+    }
+
     @Test
     void invalidRequestBodyReturnsBadRequest() throws Exception {
         mockMvc.perform(
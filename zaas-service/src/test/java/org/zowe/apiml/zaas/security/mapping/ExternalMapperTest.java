@@ -10,10 +10,13 @@
 
 package org.zowe.apiml.zaas.security.mapping;
 
+import io.jsonwebtoken.Jwts;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.core5.http.ClassicHttpRequest;
 import org.apache.hc.core5.http.HttpEntity;
 import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
 import org.apache.hc.core5.http.io.entity.NullEntity;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
@@ -29,8 +32,11 @@ import org.zowe.apiml.zaas.security.service.TokenCreationService;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -172,6 +178,133 @@ class ExternalMapperTest {
         }
     }
 
+    @Nested
+    class GivenRepeatedCalls {
+
+        private static final String MAPPED = "{\"userid\":\"ZOSUSER\",\"returnCode\":0,\"safReturnCode\":0,\"racfReturnCode\":0,\"racfReasonCode\":0}";
+        private static final String NOT_MAPPED = "{\"userid\":\"\",\"returnCode\":8,\"safReturnCode\":8,\"racfReturnCode\":8,\"racfReasonCode\":48}";
+
+        private void mockResponseBody(String body) throws IOException {
+            when(responseEntity.getContent()).thenAnswer(invocation -> new ByteArrayInputStream(body.getBytes()));
+        }
+
+        private void verifyMapperCalls(int count) throws IOException {
+            verify(closeableHttpClient, times(count)).execute(any(ClassicHttpRequest.class), any(HttpClientResponseHandler.class));
+        }
+
+        private String createToken(long validity) {
+            return Jwts.builder()
+                .subject("mapper_user")
+                .expiration(new Date(System.currentTimeMillis() + validity))
+                .compact();
+        }
+
+        @Nested
+        class WhenTheSameIdentityIsMapped {
+
+            @Test
+            void thenFoundMappingIsRemembered() throws IOException {
+                mockResponseBody(MAPPED);
+
+                assertEquals("ZOSUSER", mapper.callExternalMapper("key", NullEntity.INSTANCE).getUserId());
+                assertEquals("ZOSUSER", mapper.callExternalMapper("key", NullEntity.INSTANCE).getUserId());
+
+                verifyMapperCalls(1);
+            }
+
+            @Test
+            void thenMissingMappingIsRemembered() throws IOException {
+                mockResponseBody(NOT_MAPPED);
+
+                assertEquals("", mapper.callExternalMapper("key", NullEntity.INSTANCE).getUserId());
+                assertEquals("", mapper.callExternalMapper("key", NullEntity.INSTANCE).getUserId());
+
+                verifyMapperCalls(1);
+            }
+
+            @Test
+            void thenErrorIsNotRemembered() throws IOException {
+                when(httpResponse.getCode()).thenReturn(HttpStatus.SC_BAD_REQUEST);
+
+                assertNull(mapper.callExternalMapper("key", NullEntity.INSTANCE));
+                assertNull(mapper.callExternalMapper("key", NullEntity.INSTANCE));
+
+                verifyMapperCalls(2);
+            }
+
+            @Test
+            void givenDisabledCache_thenMapperIsCalledEachTime() throws IOException {
+                mockResponseBody(MAPPED);
+                mapper.cacheTtl = 0;
+
+                mapper.callExternalMapper("key", NullEntity.INSTANCE);
+                mapper.callExternalMapper("key", NullEntity.INSTANCE);
+
+                verifyMapperCalls(2);
+            }
+
+            @Test
+            void givenConcurrentCalls_thenMapperIsCalledOnce() throws Exception {
+                mockResponseBody(MAPPED);
+                CompletableFuture<MapperResponse> concurrentCall = new CompletableFuture<>();
+                doAnswer(invocation -> {
+                    Thread thread = new Thread(() -> concurrentCall.complete(mapper.callExternalMapper("key", NullEntity.INSTANCE)));
+                    thread.start();
+                    while (thread.getState() != Thread.State.WAITING) {
+                        Thread.sleep(1);
+                    }
+                    return HttpClientMockHelper.invokeResponseHandler(invocation, httpResponse);
+                }).when(closeableHttpClient).execute(any(ClassicHttpRequest.class), any(HttpClientResponseHandler.class));
+
+                assertEquals("ZOSUSER", mapper.callExternalMapper("key", NullEntity.INSTANCE).getUserId());
+                assertEquals("ZOSUSER", concurrentCall.get().getUserId());
+
+                verifyMapperCalls(1);
+            }
+
+        }
+
+        @Nested
+        class WhenDifferentIdentitiesAreMapped {
+
+            @Test
+            void givenValidServiceToken_thenTokenIsReused() throws IOException {
+                mockResponseBody(MAPPED);
+                when(tokenCreationService.createJwtTokenWithoutCredentials("mapper_user")).thenReturn(createToken(3_600_000));
+
+                mapper.callExternalMapper("key1", NullEntity.INSTANCE);
+                mapper.callExternalMapper("key2", NullEntity.INSTANCE);
+
+                verifyMapperCalls(2);
+                verify(tokenCreationService, times(1)).createJwtTokenWithoutCredentials("mapper_user");
+            }
+
+            @Test
+            void givenServiceTokenNearExpiration_thenNewTokenIsCreated() throws IOException {
+                mockResponseBody(MAPPED);
+                when(tokenCreationService.createJwtTokenWithoutCredentials("mapper_user")).thenReturn(createToken(30_000));
+
+                mapper.callExternalMapper("key1", NullEntity.INSTANCE);
+                mapper.callExternalMapper("key2", NullEntity.INSTANCE);
+
+                verify(tokenCreationService, times(2)).createJwtTokenWithoutCredentials("mapper_user");
+            }
+
+            @Test
+            void givenRejectedServiceToken_thenNewTokenIsCreated() {
+                when(httpResponse.getCode()).thenReturn(HttpStatus.SC_UNAUTHORIZED);
+                when(tokenCreationService.createJwtTokenWithoutCredentials("mapper_user")).thenReturn(createToken(3_600_000));
+
+                mapper.callExternalMapper("key1", NullEntity.INSTANCE);
+                mapper.callExternalMapper("key2", NullEntity.INSTANCE);
+
+                verify(tokenCreationService, times(2)).createJwtTokenWithoutCredentials("mapper_user");
+            }
+
+        }
+
+    }
+
     @Nested
     class GivenInvalidMapperSetup {
 
@@ -33,6 +33,7 @@ import org.zowe.apiml.security.common.config.AuthConfigurationProperties;
 import org.zowe.apiml.security.common.token.TokenAuthentication;
 import org.zowe.apiml.util.CacheUtils;
 import org.zowe.apiml.zaas.security.service.AuthenticationService;
+import org.zowe.apiml.zaas.security.service.InvalidationBroadcaster;
 import org.zowe.apiml.zaas.security.service.JwtSecurity;
 import org.zowe.apiml.zaas.security.service.TokenCreationService;
 import org.zowe.apiml.zaas.security.service.zosmf.ZosmfService;
@@ -67,6 +68,9 @@ class SuccessfulQueryHandlerTest {
     @Mock
     private EurekaClient eurekaClient;
 
+    @Mock
+    private InvalidationBroadcaster invalidationBroadcaster;
+
     @Mock
     private DiscoveryClient discoveryClient;
 
@@ -104,7 +108,7 @@ class SuccessfulQueryHandlerTest {
 
         AuthenticationService authService = new AuthenticationService(
             applicationContext, authConfigurationProperties, jwtSecurityInitializer, zosmfService,
-            eurekaClient, restTemplate, cacheManager, new CacheUtils()
+            eurekaClient, invalidationBroadcaster, cacheManager, new CacheUtils()
         );
         when(jwtSecurityInitializer.getSignatureAlgorithm()).thenReturn(algorithm);
         when(jwtSecurityInitializer.getJwtSecret()).thenReturn(privateKey);
@@ -24,6 +24,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
@@ -87,7 +88,7 @@ public class AuthenticationServiceTest { //NOSONAR, needs to be public
     @Mock
     private JwtSecurity jwtSecurityInitializer;
     @Mock
-    private RestTemplate restTemplate;
+    private InvalidationBroadcaster invalidationBroadcaster;
 
     @Mock
     private ZosmfService zosmfService;
@@ -115,7 +116,7 @@ public class AuthenticationServiceTest { //NOSONAR, needs to be public
 
         authService = new AuthenticationService(
             applicationContext, authConfigurationProperties, jwtSecurityInitializer,
-            zosmfService, eurekaClient, restTemplate, cacheManager, cacheUtils
+            zosmfService, eurekaClient, invalidationBroadcaster, cacheManager, cacheUtils
         );
         scopes = new HashSet<>();
         scopes.add("Service1");
@@ -445,10 +446,15 @@ public class AuthenticationServiceTest { //NOSONAR, needs to be public
             stubJWTSecurityForSign();
             authConfigurationProperties.getTokenProperties().setIssuer(ZOSMF);
             String token = authService.createJwtToken("user", DOMAIN, null);
-            doNothing().when(restTemplate).delete("http://localhost:0/zaas/api/v1/auth/invalidate/" + token);
             Mockito.doThrow(new BadCredentialsException("Invalid Credentials")).when(zosmfService).invalidate(ZosmfService.TokenType.JWT, token);
 
             assertTrue(authService.invalidateJwtToken(token, true));
+
+            ArgumentCaptor<InvalidationBroadcaster.Peer> peer = ArgumentCaptor.forClass(InvalidationBroadcaster.Peer.class);
+            verify(invalidationBroadcaster).send(peer.capture(), eq(Collections.singletonList(token)));
+            assertEquals("insncId2", peer.getValue().instanceId());
+            assertEquals("http://localhost:0/zaas/api/v1/auth/invalidate", peer.getValue().batchUrl());
+            assertEquals("http://localhost:0/zaas/api/v1/auth/invalidate/" + token, peer.getValue().tokenUrl().apply(token));
         }
 
         @Test
@@ -555,6 +561,9 @@ public class AuthenticationServiceTest { //NOSONAR, needs to be public
         @MockitoBean(name = "restTemplateWithKeystore")
         private RestTemplate restTemplateWithKeystore;
 
+        @MockitoBean
+        private InvalidationBroadcaster invalidationBroadcaster;
+
         @Autowired
         private AuthenticationService authService;
 
@@ -641,8 +650,10 @@ public class AuthenticationServiceTest { //NOSONAR, needs to be public
 
             authService.distributeInvalidate(instanceInfo.getInstanceId());
 
-            verify(restTemplate, times(1)).delete(EurekaUtils.getUrl(instanceInfo) + "/zaas/api/v1/auth/invalidate/{}", "a");
-            verify(restTemplate, times(1)).delete(EurekaUtils.getUrl(instanceInfo) + "/zaas/api/v1/auth/invalidate/{}", "b");
+            ArgumentCaptor<InvalidationBroadcaster.Peer> peer = ArgumentCaptor.forClass(InvalidationBroadcaster.Peer.class);
+            verify(invalidationBroadcaster, times(1)).send(peer.capture(), eq(elementsInCache));
+            assertEquals(EurekaUtils.getUrl(instanceInfo) + "/zaas/api/v1/auth/invalidate", peer.getValue().batchUrl());
+            assertEquals(EurekaUtils.getUrl(instanceInfo) + "/zaas/api/v1/auth/invalidate/a", peer.getValue().tokenUrl().apply("a"));
         }
 
     }
@@ -0,0 +1,188 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+
+package org.zowe.apiml.zaas.security.service;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.CacheRefreshedEvent;
+import com.netflix.discovery.EurekaClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class InvalidationBroadcasterTest {
+
+    private static final String BATCH_URL = "https://zaas2:10023/zaas/api/v1/auth/invalidate";
+    private static final InvalidationBroadcaster.Peer PEER = new InvalidationBroadcaster.Peer(
+        "zaas2", BATCH_URL, token -> BATCH_URL + "/" + token
+    );
+
+    private RestTemplate restTemplate;
+    private EurekaClient eurekaClient;
+    private ScheduledExecutorService executor;
+    private InvalidationBroadcaster underTest;
+
+    @BeforeEach
+    void setUp() {
+        restTemplate = mock(RestTemplate.class);
+        eurekaClient = mock(EurekaClient.class);
+        executor = mock(ScheduledExecutorService.class);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(executor).execute(any());
+        underTest = new InvalidationBroadcaster(restTemplate, eurekaClient, executor, 2, 2, 100);
+    }
+
+    @Nested
+    class GivenReachableInstance {
+
+        @Test
+        void whenSingleToken_thenInvalidateIt() {
+            underTest.send(PEER, List.of("token"));
+
+            verify(restTemplate).delete(BATCH_URL + "/token");
+            verify(restTemplate, never()).postForEntity(anyString(), any(), any());
+        }
+
+        @Test
+        void whenMoreTokens_thenSendThemInBatches() {
+            underTest.send(PEER, List.of("a", "b", "c"));
+
+            verify(restTemplate).postForEntity(BATCH_URL, List.of("a", "b"), Void.class);
+            verify(restTemplate).delete(BATCH_URL + "/c");
+            assertEquals(0, underTest.getPendingCount());
+        }
+
+        @Test
+        void whenBatchIsNotSupported_thenSendTokensOneByOne() {
+            when(restTemplate.postForEntity(anyString(), anyList(), eq(Void.class)))
+                .thenThrow(HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null, null, null));
+
+            underTest.send(PEER, List.of("a", "b"));
+            underTest.send(PEER, List.of("c", "d"));
+
+            verify(restTemplate, times(1)).postForEntity(anyString(), anyList(), eq(Void.class));
+            verify(restTemplate).delete(BATCH_URL + "/a");
+            verify(restTemplate).delete(BATCH_URL + "/b");
+            verify(restTemplate).delete(BATCH_URL + "/c");
+            verify(restTemplate).delete(BATCH_URL + "/d");
+        }
+
+        @Test
+        void whenBatchIsForbidden_thenTryBatchAgainNextTime() {
+            when(restTemplate.postForEntity(anyString(), anyList(), eq(Void.class)))
+                .thenThrow(HttpClientErrorException.create(HttpStatus.FORBIDDEN, "Forbidden", null, null, null));
+
+            underTest.send(PEER, List.of("a", "b"));
+            underTest.send(PEER, List.of("c", "d"));
+
+            verify(restTemplate, times(2)).postForEntity(anyString(), anyList(), eq(Void.class));
+            verify(restTemplate).delete(BATCH_URL + "/a");
+            verify(restTemplate).delete(BATCH_URL + "/d");
+        }
+
+        @Test
+        void whenTokenIsRejected_thenDoNotRetry() {
+            doThrow(HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "Bad Request", null, null, null))
+                .when(restTemplate).delete(anyString());
+
+            underTest.send(PEER, List.of("token"));
+
+            verify(executor, never()).schedule(any(Runnable.class), anyLong(), any());
+        }
+
+    }
+
+    @Nested
+    class GivenUnavailableInstance {
+
+        private final ArgumentCaptor<Runnable> retry = ArgumentCaptor.forClass(Runnable.class);
+
+        @BeforeEach
+        void setUp() {
+            doThrow(new ResourceAccessException("Connection refused")).doNothing()
+                .when(restTemplate).delete(BATCH_URL + "/token");
+        }
+
+        @Test
+        void whenDeliveryFails_thenRetryLater() {
+            underTest.send(PEER, List.of("token"));
+
+            verify(executor).schedule(retry.capture(), eq(100L), eq(TimeUnit.MILLISECONDS));
+            retry.getValue().run();
+
+            verify(restTemplate, times(2)).delete(BATCH_URL + "/token");
+            assertEquals(0, underTest.getPendingCount());
+        }
+
+        @Test
+        void whenAllAttemptsFail_thenDropToken() {
+            doThrow(new ResourceAccessException("Connection refused")).when(restTemplate).delete(BATCH_URL + "/token");
+
+            underTest.send(PEER, List.of("token"));
+            verify(executor).schedule(retry.capture(), anyLong(), any());
+            retry.getValue().run();
+
+            verify(restTemplate, times(2)).delete(BATCH_URL + "/token");
+            verify(executor, times(1)).schedule(any(Runnable.class), anyLong(), any());
+            assertEquals(0, underTest.getPendingCount());
+        }
+
+    }
+
+    @Nested
+    class GivenTokensWaitingForDelivery {
+
+        @BeforeEach
+        void setUp() {
+            doNothing().when(executor).execute(any());
+            underTest.send(PEER, List.of("token"));
+        }
+
+        @Test
+        void whenInstanceIsNotRegisteredAnymore_thenItsOutboxIsRemoved() {
+            when(eurekaClient.getInstancesById("zaas2")).thenReturn(List.of());
+
+            underTest.onEurekaEvent(new CacheRefreshedEvent());
+
+            assertEquals(0, underTest.getPendingCount());
+        }
+
+        @Test
+        void whenInstanceIsStillRegistered_thenItsOutboxIsKept() {
+            when(eurekaClient.getInstancesById("zaas2")).thenReturn(List.of(mock(InstanceInfo.class)));
+
+            underTest.onEurekaEvent(new CacheRefreshedEvent());
+
+            assertEquals(1, underTest.getPendingCount());
+        }
+
+    }
+
+}
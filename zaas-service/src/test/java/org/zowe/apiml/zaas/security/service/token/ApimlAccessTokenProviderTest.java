@@ -243,6 +243,55 @@ class ApimlAccessTokenProviderTest {
         assertFalse(accessTokenProvider.isValidForScopes(TOKEN_WITHOUT_SCOPES, scope));
     }
 
+    @Nested
+    class WhenHashing {
+
+        @Test
+        void thenSaltedSha512IsReturnedInHex() {
+            assertEquals(
+                "2908d2c28dfc047741fc590a026ffade237ab2ba7e1266f010fe49bde548b5987a534a86655a0d17f336588e540cd66f67234b152bbb645b4bb85758a1325d64",
+                ApimlAccessTokenProvider.getSecurePassword("password", "salt".getBytes())
+            );
+        }
+
+        @Test
+        void givenRepeatedCalls_thenDigestIsReset() {
+            String first = ApimlAccessTokenProvider.getSecurePassword("password", "salt".getBytes());
+            ApimlAccessTokenProvider.getSecurePassword("other", "salt".getBytes());
+            assertEquals(first, ApimlAccessTokenProvider.getSecurePassword("password", "salt".getBytes()));
+        }
+
+    }
+
+    @Nested
+    class WhenValidatingSameTokenRepeatedly {
+
+        QueryResponse validResponse = new QueryResponse(null, "user", issuedDate, new Date(System.currentTimeMillis() + 100000L), "issuer", Arrays.asList("gateway", "discovery"), QueryResponse.Source.ZOWE_PAT);
+
+        @Test
+        void givenValidToken_thenTokenIsVerifiedOnce() {
+            when(as.parseJwtWithSignature(SCOPED_TOKEN)).thenReturn(validResponse);
+            when(cachingServiceClient.readAllMaps()).thenReturn(Collections.emptyMap());
+
+            assertTrue(accessTokenProvider.isValidForScopes(SCOPED_TOKEN, "gateway"));
+            assertFalse(accessTokenProvider.isInvalidated(SCOPED_TOKEN));
+            assertFalse(accessTokenProvider.isInvalidated(SCOPED_TOKEN));
+
+            verify(as, times(1)).parseJwtWithSignature(SCOPED_TOKEN);
+        }
+
+        @Test
+        void givenExpiredToken_thenTokenIsVerifiedAgain() {
+            when(as.parseJwtWithSignature(TOKEN_WITHOUT_SCOPES)).thenReturn(queryResponseWithoutScopes);
+
+            accessTokenProvider.isValidForScopes(TOKEN_WITHOUT_SCOPES, "gateway");
+            accessTokenProvider.isValidForScopes(TOKEN_WITHOUT_SCOPES, "gateway");
+
+            verify(as, atLeast(2)).parseJwtWithSignature(TOKEN_WITHOUT_SCOPES);
+        }
+
+    }
+
     @Nested
     class WhenCallingEviction {
         @Test
@@ -0,0 +1,208 @@
+/*
+ * This program and the accompanying materials are made available under the terms of the
+ * Eclipse Public License v2.0 which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Copyright Contributors to the Zowe Project.
+ */
+
+
+package org.zowe.apiml.zaas.security.service.token;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvalidationIndexTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private final InvalidationIndex underTest = new InvalidationIndex();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        underTest.shutdown();
+    }
+
+    private Supplier<InvalidationIndex.Invalidations> loader(Map<String, Map<String, String>> maps) {
+        return () -> {
+            loads.incrementAndGet();
+            return InvalidationIndex.Invalidations.of(maps, MAPPER);
+        };
+    }
+
+    @Nested
+    class WhenParsingMaps {
+
+        @Test
+        void givenAllMaps_thenTokensAndRulesAreLoaded() {
+            var invalidations = InvalidationIndex.Invalidations.of(Map.of(
+                ApimlAccessTokenProvider.INVALID_TOKENS_KEY, Map.of("token", "{\"tokenValue\":\"token\"}"),
+                ApimlAccessTokenProvider.INVALID_USERS_KEY, Map.of("user", "100"),
+                ApimlAccessTokenProvider.INVALID_SCOPES_KEY, Map.of("service", "200")
+            ), MAPPER);
+
+            assertTrue(invalidations.tokens().contains("token"));
+            assertEquals(100L, invalidations.users().get("user"));
+            assertEquals(200L, invalidations.scopes().get("service"));
+        }
+
+        @Test
+        void givenInvalidValues_thenTheyAreSkipped() {
+            var invalidations = InvalidationIndex.Invalidations.of(Map.of(
+                ApimlAccessTokenProvider.INVALID_TOKENS_KEY, Map.of("token", "not json"),
+                ApimlAccessTokenProvider.INVALID_USERS_KEY, Map.of("user", "not number")
+            ), MAPPER);
+
+            assertTrue(invalidations.tokens().isEmpty());
+            assertTrue(invalidations.users().isEmpty());
+        }
+
+        @Test
+        void givenNoMaps_thenNothingIsInvalidated() {
+            var invalidations = InvalidationIndex.Invalidations.of(null, MAPPER);
+
+            assertFalse(invalidations.isInvalidated("token", "user", List.of("service"), 0));
+        }
+
+    }
+
+    @Nested
+    class WhenCheckingToken {
+
+        private final InvalidationIndex.Invalidations invalidations = InvalidationIndex.Invalidations.of(Map.of(
+            ApimlAccessTokenProvider.INVALID_TOKENS_KEY, Map.of("token", "{\"tokenValue\":\"token\"}"),
+            ApimlAccessTokenProvider.INVALID_USERS_KEY, Map.of("user", "100"),
+            ApimlAccessTokenProvider.INVALID_SCOPES_KEY, Map.of("service", "200")
+        ), MAPPER);
+
+        @Test
+        void givenInvalidatedToken_thenIsInvalidated() {
+            assertTrue(invalidations.isInvalidated("token", "other", List.of(), 1000));
+        }
+
+        @Test
+        void givenTokenIssuedBeforeUserRule_thenIsInvalidated() {
+            assertTrue(invalidations.isInvalidated("other", "user", List.of(), 100));
+            assertFalse(invalidations.isInvalidated("other", "user", List.of(), 101));
+        }
+
+        @Test
+        void givenTokenIssuedBeforeScopeRule_thenIsInvalidated() {
+            assertTrue(invalidations.isInvalidated("other", "other", List.of("gateway", "service"), 200));
+            assertFalse(invalidations.isInvalidated("other", "other", List.of("gateway", "service"), 201));
+        }
+
+    }
+
+    @Nested
+    class WhenReadingIndex {
+
+        @Test
+        void givenNoRefreshInterval_thenLoadOnEachCall() {
+            var loader = loader(Map.of());
+
+            underTest.get(0, loader);
+            underTest.get(0, loader);
+
+            assertEquals(2, loads.get());
+        }
+
+        @Test
+        void givenRecentCopy_thenDoNotLoadAgain() {
+            var loader = loader(Map.of());
+
+            var first = underTest.get(60_000, loader);
+            var second = underTest.get(60_000, loader);
+
+            assertSame(first, second);
+            assertEquals(1, loads.get());
+        }
+
+        @Test
+        void givenNoCopyAndFailingLoader_thenThrowException() {
+            Supplier<InvalidationIndex.Invalidations> loader = () -> {
+                throw new IllegalStateException("unavailable");
+            };
+
+            assertThrows(IllegalStateException.class, () -> underTest.get(60_000, loader));
+        }
+
+        @Test
+        void givenOutdatedCopy_thenReloadOnDedicatedThread() throws InterruptedException {
+            var first = underTest.get(60_000, loader(Map.of()));
+            makeOlder(90_000);
+            AtomicReference<String> threadName = new AtomicReference<>();
+            CountDownLatch reloaded = new CountDownLatch(1);
+            Supplier<InvalidationIndex.Invalidations> loader = () -> {
+                threadName.set(Thread.currentThread().getName());
+                reloaded.countDown();
+                return InvalidationIndex.Invalidations.of(Map.of(), MAPPER);
+            };
+
+            assertSame(first, underTest.get(60_000, loader));
+
+            assertTrue(reloaded.await(10, TimeUnit.SECONDS));
+            assertEquals("Invalidation Index Reload", threadName.get());
+        }
+
+        @Test
+        void givenCopyOlderThanTwoIntervalsAndFailingLoader_thenThrowException() {
+            underTest.get(60_000, loader(Map.of()));
+            makeOlder(120_000);
+            Supplier<InvalidationIndex.Invalidations> loader = () -> {
+                throw new IllegalStateException("unavailable");
+            };
+
+            assertThrows(IllegalStateException.class, () -> underTest.get(60_000, loader));
+        }
+
+        @Test
+        void givenLocalInvalidation_thenIsVisibleWithoutLoading() {
+            var loader = loader(Map.of());
+            underTest.get(60_000, loader);
+
+            underTest.tokenInvalidated("token");
+            underTest.userInvalidated("user", 100);
+            underTest.scopeInvalidated("service", 200);
+
+            var invalidations = underTest.get(60_000, loader);
+            assertEquals(1, loads.get());
+            assertTrue(invalidations.isInvalidated("token", "other", List.of(), 1000));
+            assertTrue(invalidations.isInvalidated("other", "user", List.of(), 100));
+            assertTrue(invalidations.isInvalidated("other", "other", List.of("service"), 200));
+        }
+
+        @Test
+        void givenOlderLocalRule_thenNewerTimestampIsKept() {
+            underTest.get(60_000, loader(Map.of(ApimlAccessTokenProvider.INVALID_USERS_KEY, Map.of("user", "300"))));
+
+            underTest.userInvalidated("user", 100);
+
+            assertEquals(300L, underTest.get(60_000, loader(Map.of())).users().get("user"));
+        }
+
+        private void makeOlder(long millis) {
+            long loadedAt = (long) ReflectionTestUtils.getField(underTest, "loadedAt");
+            ReflectionTestUtils.setField(underTest, "loadedAt", loadedAt - TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+    }
+
+}
@@ -29,6 +29,7 @@ import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.security.PublicKey;
 import java.time.Instant;
+import java.util.Base64;
 import java.util.Date;
 import java.util.Map;
 
@@ -36,11 +37,14 @@ import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assumptions.assumeTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -104,6 +108,51 @@ class OIDCTokenProviderJWKTest {
         }
     }
 
+    @Nested
+    class GivenLoadedKeys {
+
+        private static final String UNKNOWN_KID_TOKEN = Base64.getUrlEncoder().withoutPadding().encodeToString("{\"kid\":\"unknown\",\"alg\":\"RS256\"}".getBytes(StandardCharsets.UTF_8))
+            + "." + Base64.getUrlEncoder().withoutPadding().encodeToString("{\"sub\":\"user\"}".getBytes(StandardCharsets.UTF_8))
+            + ".c2lnbmF0dXJl";
+
+        @BeforeEach
+        void setUp() {
+            ReflectionTestUtils.setField(oidcTokenProviderJwk, "jwkMinRefreshInterval", 30);
+            oidcTokenProviderJwk.fetchJWKSet();
+        }
+
+        @Test
+        void whenRefreshFails_thenPreviousKeysAreUsed() throws IOException {
+            Map<String, PublicKey> publicKeys = oidcTokenProviderJwk.getPublicKeys();
+            doThrow(new IOException("failed request")).when(resourceRetriever).retrieveResource(any());
+
+            oidcTokenProviderJwk.fetchJWKSet();
+
+            assertSame(publicKeys, oidcTokenProviderJwk.getPublicKeys());
+            assertNotNull(oidcTokenProviderJwk.getJwkSet());
+        }
+
+        @Test
+        void whenKnownKid_thenDoNotRefresh() throws IOException {
+            ReflectionTestUtils.setField(oidcTokenProviderJwk, "clock", new FixedClock(new Date(Instant.ofEpochSecond(1697060773 + 1000L).toEpochMilli())));
+
+            assertTrue(oidcTokenProviderJwk.isValid(EXPIRED_TOKEN));
+
+            verify(resourceRetriever, times(1)).retrieveResource(any());
+        }
+
+        @Test
+        void whenUnknownKid_thenRefreshOnceInInterval() throws IOException {
+            ReflectionTestUtils.setField(oidcTokenProviderJwk, "lastRefresh", 0L);
+
+            assertFalse(oidcTokenProviderJwk.isValid(UNKNOWN_KID_TOKEN));
+            assertFalse(oidcTokenProviderJwk.isValid(UNKNOWN_KID_TOKEN));
+
+            verify(resourceRetriever, times(2)).retrieveResource(any());
+        }
+
+    }
+
     @Nested
     class GivenTokenForValidation {
 